@@ -0,0 +1,54 @@
+package com.filipe.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.filipe.CursoSpringbootIonicApplication;
+
+/**
+ * Inicia a aplicação, sem o servidor web, para os benchmarks que usam o banco de dados.
+ *
+ * Por padrão o banco é um H2 em memória criado pelo hibernate(ddl-auto=create-drop). Para medir com
+ * o PostgreSQL informe a url, o usuário e a senha de um banco vazio nas propriedades de sistema
+ * datasource.url, datasource.username e datasource.password
+ * (ex: -jvmArgs "-Ddatasource.url=jdbc:postgresql://...").
+ *
+ * A outbox e a consolidação do estoque são desligadas para que as tarefas agendadas não concorram
+ * com as medições.
+ * */
+public class Aplicacao {
+
+	/**
+	 * Inicia a aplicação.
+	 *
+	 * @param profile o profile ativo. Um profile sem arquivo de propriedades apenas substitui o dev.
+	 * @param propriedades propriedades adicionais no formato "nome=valor".
+	 * @return o contexto da aplicação, que deve ser fechado no @TearDown do benchmark.
+	 * */
+	public static ConfigurableApplicationContext iniciar(String profile, String... propriedades) {
+		List<String> args = new ArrayList<>();
+		args.add("--spring.profiles.active=" + profile);
+		args.add("--spring.datasource.url=" + System.getProperty("datasource.url",
+				"jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE"));
+		args.add("--spring.datasource.username=" + System.getProperty("datasource.username", "sa"));
+		args.add("--spring.datasource.password=" + System.getProperty("datasource.password", "sa"));
+		args.add("--spring.jpa.hibernate.ddl-auto=create-drop");
+		args.add("--spring.jpa.show-sql=false");
+		args.add("--outbox.habilitado=false");
+		args.add("--estoque.consolidacao.atraso-inicial-ms=3600000");
+		args.add("--spring.main.banner-mode=off");
+		args.add("--logging.level.root=WARN");
+		for (String propriedade : Arrays.asList(propriedades)) {
+			args.add("--" + propriedade);
+		}
+
+		return new SpringApplicationBuilder(CursoSpringbootIonicApplication.class)
+				.web(WebApplicationType.NONE)
+				.run(args.toArray(new String[0]));
+	}
+}
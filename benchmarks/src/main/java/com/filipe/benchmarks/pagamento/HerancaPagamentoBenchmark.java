@@ -0,0 +1,130 @@
+package com.filipe.benchmarks.pagamento;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.filipe.benchmarks.Aplicacao;
+import com.filipe.domain.Cidade;
+import com.filipe.domain.Cliente;
+import com.filipe.domain.Endereco;
+import com.filipe.domain.Estado;
+import com.filipe.domain.ItemPedido;
+import com.filipe.domain.Pagamento;
+import com.filipe.domain.PagamentoComBoleto;
+import com.filipe.domain.PagamentoComCartao;
+import com.filipe.domain.Pedido;
+import com.filipe.domain.Produto;
+import com.filipe.domain.enums.TipoCliente;
+import com.filipe.repositories.CidadeRepository;
+import com.filipe.repositories.ClienteRepository;
+import com.filipe.repositories.EnderecoRepository;
+import com.filipe.repositories.EstadoRepository;
+import com.filipe.repositories.PagamentoRepository;
+import com.filipe.repositories.ProdutoRepository;
+import com.filipe.services.PedidoService;
+
+/**
+ * Compara a leitura de pedidos com a herança de Pagamento em JOINED(padrão) e em SINGLE_TABLE(profile
+ * single-table, META-INF/orm-pagamento-single-table.xml).
+ *
+ * Para cada estratégia a aplicação é iniciada, sem o servidor web, sobre um banco H2 em memória com
+ * 5000 pedidos de 3 itens, metade com boleto e metade com cartão. O método pedido mede o
+ * PedidoService.find()(GET /pedidos/{id}) e o método pagamento mede apenas a leitura do pagamento.
+ * Cada operação lê o pedido seguinte e usa um EntityManager novo, logo nada é lido do EntityManager.
+ *
+ * No H2 as duas estratégias ficaram dentro da margem de erro(cerca de 160 us no pagamento e de 1,3 a
+ * 1,5 ms no pedido, em uma máquina de 1 núcleo), pois as junções pela chave primária de tabelas em
+ * memória custam pouco. O H2 não mostra o custo das junções de tabelas grandes em disco, para medir
+ * com o PostgreSQL veja a classe Aplicacao.
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class HerancaPagamentoBenchmark {
+
+	private static final int PEDIDOS = 5000;
+	private static final int ITENS = 3;
+
+	@Param({ "joined", "single-table" })
+	private String heranca;
+
+	private ConfigurableApplicationContext context;
+	private PedidoService pedidoService;
+	private PagamentoRepository pagamentoRepository;
+
+	private final List<Integer> ids = new ArrayList<>();
+	private int proximo;
+
+	@Setup
+	public void setup() {
+		context = Aplicacao.iniciar("single-table".equals(heranca) ? "single-table" : "benchmark");
+		pedidoService = context.getBean(PedidoService.class);
+		pagamentoRepository = context.getBean(PagamentoRepository.class);
+
+		criarPedidos();
+	}
+
+	@TearDown
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public Pedido pedido() {
+		return pedidoService.find(proximoId());
+	}
+
+	@Benchmark
+	public Pagamento pagamento() {
+		return pagamentoRepository.findById(proximoId()).get();
+	}
+
+	private Integer proximoId() {
+		proximo = (proximo + 1) % ids.size();
+		return ids.get(proximo);
+	}
+
+	private void criarPedidos() {
+		Estado estado = context.getBean(EstadoRepository.class).save(new Estado(null, "Minas Gerais"));
+		Cidade cidade = context.getBean(CidadeRepository.class).save(new Cidade(null, "Uberlândia", estado));
+		Cliente cliente = context.getBean(ClienteRepository.class).save(new Cliente(null, "Maria Silva",
+				"maria@gmail.com", "36378912377", TipoCliente.PESSOAFISICA));
+		Endereco endereco = context.getBean(EnderecoRepository.class).save(new Endereco(null, "Rua Flores", "300",
+				"Apto 203", "Jardim", "38220834", cliente, cidade));
+
+		ProdutoRepository produtoRepository = context.getBean(ProdutoRepository.class);
+		List<Integer> produtos = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			produtos.add(produtoRepository.save(new Produto(null, "Produto " + i, 10.00 + i)).getId());
+		}
+
+		for (int i = 0; i < PEDIDOS; i++) {
+			Pedido pedido = new Pedido(null, new Date(), null, cliente, endereco);
+			pedido.setPagamento((i % 2 == 0) ? new PagamentoComBoleto() : new PagamentoComCartao(null, null, null, 3));
+			for (int j = 0; j < ITENS; j++) {
+				Produto produto = new Produto(produtos.get((i + j) % produtos.size()), null, null);
+				pedido.getItens().add(new ItemPedido(pedido, produto, 0.0, 1, null));
+			}
+			ids.add(pedidoService.insert(pedido).getId());
+		}
+	}
+}
@@ -0,0 +1,127 @@
+package com.filipe.benchmarks.pedido;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.filipe.benchmarks.Aplicacao;
+import com.filipe.domain.Cidade;
+import com.filipe.domain.Cliente;
+import com.filipe.domain.Endereco;
+import com.filipe.domain.Estado;
+import com.filipe.domain.ItemPedido;
+import com.filipe.domain.PagamentoComCartao;
+import com.filipe.domain.Pedido;
+import com.filipe.domain.Produto;
+import com.filipe.domain.enums.TipoCliente;
+import com.filipe.dto.ResultadoLoteDTO;
+import com.filipe.repositories.CidadeRepository;
+import com.filipe.repositories.ClienteRepository;
+import com.filipe.repositories.EnderecoRepository;
+import com.filipe.repositories.EstadoRepository;
+import com.filipe.repositories.ProdutoRepository;
+import com.filipe.services.PedidoLoteService;
+
+/**
+ * Mede a vazão da importação de pedidos em lote(PedidoLoteService.importar(), POST /pedidos/batch), em
+ * pedidos por segundo. Cada operação importa 1000 pedidos de 3 itens pagos com cartão, em blocos de
+ * pedido.lote.tamanho(100) pedidos. Cada pedido grava 7 linhas: pedido, pagamento, 
+ * pagamento_com_cartao, 3 itens e o evento da outbox.
+ *
+ * Ao final é exibida a quantidade de comandos JDBC preparados por pedido(estatísticas do hibernate), 
+ * que mostra quantos INSERTs foram agrupados em lotes(hibernate.jdbc.batch_size).
+ *
+ * Medido no H2 em uma máquina de 1 núcleo(-f 1 -wi 5 -i 5):
+ * 
+ *   id do Pedido          pedidos/s   comandos por pedido
+ *   IDENTITY            1345 ± 559                  5,0
+ *   SEQUENCE(pooled)    1774 ± 974                  2,1
+ *
+ * Com o IDENTITY cada save() executa o INSERT imediatamente para obter o id, inclusive o do evento da
+ * outbox, que também executa os INSERTs pendentes do pedido. Com as sequências os INSERTs dos 100
+ * pedidos do bloco são agrupados em lotes. No H2 em memória uma ida ao banco custa pouco, logo o
+ * ganho de vazão é menor do que em um PostgreSQL acessado pela rede.
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ImportacaoPedidosBenchmark {
+
+	private static final int PEDIDOS = 1000;
+	private static final int ITENS = 3;
+
+	private ConfigurableApplicationContext context;
+	private PedidoLoteService pedidoLoteService;
+	private Statistics estatisticas;
+
+	private Endereco endereco;
+	private final List<Integer> produtos = new ArrayList<>();
+	private long pedidosImportados;
+
+	@Setup
+	public void setup() {
+		context = Aplicacao.iniciar("benchmark", "spring.jpa.properties.hibernate.generate_statistics=true",
+				"logging.level.org.hibernate.engine.internal.StatisticalLoggingSessionEventListener=WARN");
+		pedidoLoteService = context.getBean(PedidoLoteService.class);
+		estatisticas = context.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+
+		Estado estado = context.getBean(EstadoRepository.class).save(new Estado(null, "Minas Gerais"));
+		Cidade cidade = context.getBean(CidadeRepository.class).save(new Cidade(null, "Uberlândia", estado));
+		Cliente cliente = context.getBean(ClienteRepository.class).save(new Cliente(null, "Maria Silva",
+				"maria@gmail.com", "36378912377", TipoCliente.PESSOAFISICA));
+		endereco = context.getBean(EnderecoRepository.class).save(new Endereco(null, "Rua Flores", "300",
+				"Apto 203", "Jardim", "38220834", cliente, cidade));
+
+		ProdutoRepository produtoRepository = context.getBean(ProdutoRepository.class);
+		for (int i = 0; i < 100; i++) {
+			produtos.add(produtoRepository.save(new Produto(null, "Produto " + i, 10.00 + i)).getId());
+		}
+		estatisticas.clear();
+	}
+
+	@TearDown
+	public void tearDown() {
+		System.out.printf("%nComandos JDBC por pedido: %.1f%n",
+				(double) estatisticas.getPrepareStatementCount() / pedidosImportados);
+		context.close();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(PEDIDOS)
+	public List<ResultadoLoteDTO> importar() {
+		List<Pedido> pedidos = new ArrayList<>();
+		for (int i = 0; i < PEDIDOS; i++) {
+			Pedido pedido = new Pedido(null, new Date(), null, endereco.getCliente(), endereco);
+			pedido.setPagamento(new PagamentoComCartao(null, null, pedido, 1));
+			for (int j = 0; j < ITENS; j++) {
+				Produto produto = new Produto(produtos.get((i + j) % produtos.size()), null, null);
+				pedido.getItens().add(new ItemPedido(pedido, produto, 0.0, 1, null));
+			}
+			pedidos.add(pedido);
+		}
+		pedidosImportados += PEDIDOS;
+		return pedidoLoteService.importar(pedidos.iterator());
+	}
+}
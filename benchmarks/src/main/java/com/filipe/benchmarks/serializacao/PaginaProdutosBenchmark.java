@@ -0,0 +1,66 @@
+package com.filipe.benchmarks.serializacao;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.filipe.config.JacksonConfig;
+import com.filipe.dto.ProdutoDTO;
+
+/**
+ * Mede o tempo de serialização e os bytes enviados de uma página de 24 ProdutoDTO(GET /produtos), sem
+ * compressão e com o gzip do Tomcat(server.compression, GZIPOutputStream com o nível padrão).
+ *
+ * Os bytes de cada resposta são exibidos pelo setup, na saída de cada fork. Com os dados do
+ * SerializacaoBenchmark a página tem 1620 bytes em JSON e cerca de 480 bytes com gzip(o tamanho
+ * comprimido varia alguns bytes com a divisão das escritas do Jackson). Em uma máquina de 1 núcleo a
+ * serialização levou cerca de 10 us e a serialização com gzip cerca de 45 us.
+ *
+ * Executar com "-prof gc" para obter os bytes alocados por operação(gc.alloc.rate.norm).
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class PaginaProdutosBenchmark {
+
+	private ObjectMapper mapper;
+	private Page<ProdutoDTO> pagina;
+
+	@Setup
+	public void setup() throws IOException {
+		mapper = new JacksonConfig().objectMapperBuilder().build();
+		pagina = SerializacaoBenchmark.criarPagina();
+		System.out.println("Bytes da página: json=" + json().length + ", gzip=" + gzip().length);
+	}
+
+	@Benchmark
+	public byte[] json() throws IOException {
+		return mapper.writeValueAsBytes(pagina);
+	}
+
+	@Benchmark
+	public byte[] gzip() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+		try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+			mapper.writeValue(gzip, pagina);
+		}
+		return bytes.toByteArray();
+	}
+}
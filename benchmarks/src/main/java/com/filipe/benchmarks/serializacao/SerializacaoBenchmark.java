@@ -0,0 +1,115 @@
+package com.filipe.benchmarks.serializacao;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort.Direction;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
+import com.filipe.config.JacksonConfig;
+import com.filipe.domain.Cidade;
+import com.filipe.domain.Cliente;
+import com.filipe.domain.Endereco;
+import com.filipe.domain.Estado;
+import com.filipe.domain.ItemPedido;
+import com.filipe.domain.PagamentoComCartao;
+import com.filipe.domain.Pedido;
+import com.filipe.domain.Produto;
+import com.filipe.domain.enums.EstadoPagamento;
+import com.filipe.domain.enums.TipoCliente;
+import com.filipe.dto.ProdutoDTO;
+
+/**
+ * Mede a serialização em JSON de uma página de 24 ProdutoDTO(GET /produtos) e de um Pedido com 10
+ * itens(GET /pedidos/{id}).
+ *
+ * O parâmetro objectMapper compara o ObjectMapper da aplicação(JacksonConfig), que usa a reflexão, com
+ * o mesmo ObjectMapper acrescido do AfterburnerModule(serializadores gerados em bytecode). Medido com
+ * 2 forks de 5 iterações, o Afterburner ficou dentro da margem de erro nos dois casos e reduziu menos
+ * de 10% dos bytes alocados na página, por isso não é registrado na aplicação.
+ *
+ * Executar com "-prof gc" para obter os bytes alocados por operação(gc.alloc.rate.norm).
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class SerializacaoBenchmark {
+
+	@Param({ "aplicacao", "afterburner" })
+	private String objectMapper;
+
+	private ObjectMapper mapper;
+	private Page<ProdutoDTO> pagina;
+	private Pedido pedido;
+
+	@Setup
+	public void setup() {
+		mapper = new JacksonConfig().objectMapperBuilder().build();
+		if ("afterburner".equals(objectMapper)) {
+			mapper.registerModule(new AfterburnerModule());
+		}
+		pagina = criarPagina();
+		pedido = criarPedido();
+	}
+
+	@Benchmark
+	public byte[] paginaProdutos() throws Exception {
+		return mapper.writeValueAsBytes(pagina);
+	}
+
+	@Benchmark
+	public byte[] pedido() throws Exception {
+		return mapper.writeValueAsBytes(pedido);
+	}
+
+	/*Página de 24 produtos, como a primeira página de GET /produtos*/
+	static Page<ProdutoDTO> criarPagina() {
+		Random random = new Random(42);
+		List<ProdutoDTO> lista = new ArrayList<>();
+		for (int i = 0; i < 24; i++) {
+			lista.add(new ProdutoDTO(new Produto(i + 1, "Produto modelo " + (1000 + random.nextInt(9000)),
+					Math.round(random.nextDouble() * 200000) / 100.0)));
+		}
+		return new PageImpl<>(lista, PageRequest.of(0, 24, Direction.ASC, "nome"), 500);
+	}
+
+	/*Pedido com 10 itens, cliente, endereço de entrega e pagamento*/
+	static Pedido criarPedido() {
+		Estado estado = new Estado(1, "Minas Gerais");
+		Cidade cidade = new Cidade(1, "Uberlândia", estado);
+		Cliente cliente = new Cliente(1, "Maria Silva", "maria@gmail.com", "36378912377", TipoCliente.PESSOAFISICA);
+		cliente.getTelefones().add("27363323");
+		Endereco endereco = new Endereco(1, "Rua Flores", "300", "Apto 203", "Jardim", "38220834", cliente, cidade);
+		cliente.getEnderecos().add(endereco);
+
+		Pedido pedido = new Pedido(1, new Date(0), null, cliente, endereco);
+		pedido.setPagamento(new PagamentoComCartao(1, EstadoPagamento.QUITADO, pedido, 6));
+		for (int i = 0; i < 10; i++) {
+			pedido.getItens().add(new ItemPedido(pedido, new Produto(i + 1, "Produto " + i, 10.0 * (i + 1)), 0.0, i + 1,
+					10.0 * (i + 1)));
+		}
+		pedido.recalcularTotais();
+		return pedido;
+	}
+}
@@ -0,0 +1,121 @@
+package com.filipe.benchmarks.validation;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.filipe.services.validation.utils.BR;
+
+/**
+ * Compara a validação de CPF e CNPJ da classe BR com a implementação anterior(BRAntigo).
+ *
+ * Cada operação valida um documento de uma lista com metade de documentos válidos e metade com o
+ * último dígito alterado, assim os dois resultados são medidos. Os métodos lote* validam a lista
+ * inteira: um a um com o BRAntigo e em paralelo com BR.isValid(String[]).
+ *
+ * Executar com "-prof gc" para obter os bytes alocados por operação(gc.alloc.rate.norm).
+ * */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BRBenchmark {
+
+	private static final int DOCUMENTOS = 1024;
+	private static final int DOCUMENTOS_LOTE = 100000;
+
+	private String[] cpfs;
+	private String[] cnpjs;
+	private String[] lote;
+	private int posicao;
+
+	@Setup
+	public void setup() {
+		Random random = new Random(42);
+		cpfs = gerar(random, DOCUMENTOS, 11);
+		cnpjs = gerar(random, DOCUMENTOS, 14);
+		lote = new String[DOCUMENTOS_LOTE];
+		String[] cpfsLote = gerar(random, DOCUMENTOS_LOTE / 2, 11);
+		String[] cnpjsLote = gerar(random, DOCUMENTOS_LOTE / 2, 14);
+		for (int i = 0; i < DOCUMENTOS_LOTE / 2; i++) {
+			lote[2 * i] = cpfsLote[i];
+			lote[2 * i + 1] = cnpjsLote[i];
+		}
+	}
+
+	@Benchmark
+	public boolean cpfAntigo() {
+		return BRAntigo.isValidCPF(cpfs[proximo()]);
+	}
+
+	@Benchmark
+	public boolean cpf() {
+		return BR.isValidCPF(cpfs[proximo()]);
+	}
+
+	@Benchmark
+	public boolean cnpjAntigo() {
+		return BRAntigo.isValidCNPJ(cnpjs[proximo()]);
+	}
+
+	@Benchmark
+	public boolean cnpj() {
+		return BR.isValidCNPJ(cnpjs[proximo()]);
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public boolean[] loteAntigo() {
+		boolean[] resultado = new boolean[lote.length];
+		for (int i = 0; i < lote.length; i++) {
+			String doc = lote[i];
+			resultado[i] = (doc.length() == 11) ? BRAntigo.isValidCPF(doc) : BRAntigo.isValidCNPJ(doc);
+		}
+		return resultado;
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public boolean[] lote() {
+		return BR.isValid(lote);
+	}
+
+	private int proximo() {
+		posicao = (posicao + 1) & (DOCUMENTOS - 1);
+		return posicao;
+	}
+
+	/*Gera documentos válidos e altera o último dígito dos documentos de posição ímpar*/
+	private static String[] gerar(Random random, int quantidade, int tamanho) {
+		String[] docs = new String[quantidade];
+		char[] doc = new char[tamanho];
+		for (int i = 0; i < quantidade; i++) {
+			String valido;
+			do {
+				for (int j = 0; j < tamanho; j++) {
+					doc[j] = (char) ('0' + random.nextInt(10));
+				}
+				valido = new String(doc);
+			} while (!(tamanho == 11 ? BR.isValidCPF(valido) : BR.isValidCNPJ(valido)));
+
+			if (i % 2 == 1) {
+				doc[tamanho - 1] = (char) ('0' + (doc[tamanho - 1] - '0' + 1) % 10);
+				valido = new String(doc);
+			}
+			docs[i] = valido;
+		}
+		return docs;
+	}
+}
@@ -0,0 +1,50 @@
+package com.filipe.config;
+
+import java.util.Collections;
+
+import org.hibernate.boot.Metadata;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.filipe.domain.listeners.ProdutoCategoriasListener;
+
+/**
+ * Registra no hibernate os listeners que não podem ser declarados através de anotações JPA.
+ * 
+ * O ProdutoCategoriasListener escuta a gravação de coleções (ManyToMany), algo que a anotação 
+ * @EntityListeners não permite. O registro é feito através de um Integrator do hibernate, 
+ * informado na propriedade hibernate.integrator_provider.
+ * */
+@Configuration
+public class HibernateConfig {
+
+	@Bean
+	public HibernatePropertiesCustomizer listenersCustomizer(ApplicationEventPublisher publisher) {
+		ProdutoCategoriasListener listener = new ProdutoCategoriasListener(publisher);
+		
+		Integrator integrator = new Integrator() {
+			@Override
+			public void integrate(Metadata metadata, SessionFactoryImplementor sessionFactory,
+					SessionFactoryServiceRegistry serviceRegistry) {
+				EventListenerRegistry registry = serviceRegistry.getService(EventListenerRegistry.class);
+				registry.appendListeners(EventType.POST_COLLECTION_RECREATE, listener);
+				registry.appendListeners(EventType.POST_COLLECTION_UPDATE, listener);
+			}
+
+			@Override
+			public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+			}
+		};
+		
+		return properties -> properties.put("hibernate.integrator_provider", 
+				(IntegratorProvider) () -> Collections.singletonList(integrator));
+	}
+}
@@ -0,0 +1,18 @@
+package com.filipe.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Habilita os métodos anotados com @Scheduled, executados periodicamente pelo Spring em segundo
+ * plano. Ex: OutboxDispatcher.despachar().
+ * 
+ * As tarefas são executadas pelo ThreadPoolTaskScheduler do Spring Boot, com uma thread por tarefa
+ * agendada(spring.task.scheduling.pool.size). Assim a reconstrução de um índice não atrasa a outbox
+ * nem a consolidação do estoque.
+ * */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+
+}
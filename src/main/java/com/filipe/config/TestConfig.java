@@ -111,6 +111,11 @@ public class TestConfig {
 		p11.getCategorias().addAll(Arrays.asList(cat7));
 
 		categoriaRepository.saveAll(Arrays.asList(cat1, cat2, cat3, cat4, cat5, cat6, cat7));
+		// Estoque inicial dos produtos
+		for (Produto p : Arrays.asList(p1, p2, p3, p4, p5, p6, p7, p8, p9, p10, p11)) {
+			p.setEstoque(100);
+		}
+
 		produtoRepository.saveAll(Arrays.asList(p1, p2, p3, p4, p5, p6, p7, p8, p9, p10, p11));
 
 		// Estados e cidades
@@ -192,6 +197,11 @@ public class TestConfig {
 		// Salvando ItemPedido
 		itemPedidoRepository.saveAll(Arrays.asList(ip1, ip2, ip3));
 
+		// Com os itens adicionados os totais dos pedidos podem ser gravados
+		ped1.recalcularTotais();
+		ped2.recalcularTotais();
+		pedidoRepository.saveAll(Arrays.asList(ped1, ped2));
+
 		return true;
 	}
 }
@@ -9,6 +9,9 @@ import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.ManyToMany;
+import javax.persistence.Version;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
 
 /**
  * @Entity indica ao JPA que essa classe é uma Entidade. Assim o hibernate fará a persistência da
@@ -25,6 +28,14 @@ public class Categoria implements Serializable{
 	
 	@ManyToMany(mappedBy = "categorias")
 	private List<Produto> produtos = new ArrayList<Produto>();
+
+	/*
+	 * Versão do registro. O hibernate a incrementa a cada UPDATE(@Version) e recusa a gravação de
+	 * um objeto desatualizado. Também é usada na ETag das respostas do GET /categorias e /categorias/{id}.
+	 * */
+	@JsonIgnore
+	@Version
+	private Integer versao;
 	
 	public Categoria() {
 	}
@@ -55,6 +66,10 @@ public class Categoria implements Serializable{
 		return produtos;
 	}
 
+	public Integer getVersao() {
+		return versao;
+	}
+
 	public void setProdutos(List<Produto> produtos) {
 		this.produtos = produtos;
 	}
@@ -3,17 +3,23 @@ package com.filipe.domain;
 import java.io.Serializable;
 
 import javax.persistence.Entity;
+import javax.persistence.EntityListeners;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
 
+import com.filipe.domain.listeners.GeografiaListener;
+
 /**
  * @Entity indica ao JPA que essa classe é uma Entidade. Assim o hibernate fará a persistência da
  * classe no banco.
+ * 
+ * @EntityListeners GeografiaListener avisa o GeografiaIndex sempre que uma Cidade for alterada.
  * */
 @Entity
+@EntityListeners(GeografiaListener.class)
 public class Cidade implements Serializable {
 	private static final long serialVersionUID = 1L;
 	
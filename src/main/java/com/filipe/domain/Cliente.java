@@ -15,6 +15,7 @@ import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.OneToMany;
+import javax.persistence.Version;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.filipe.domain.enums.TipoCliente;
@@ -72,6 +73,14 @@ public class Cliente implements Serializable {
 	@JsonIgnore
 	@OneToMany(mappedBy = "cliente")
 	private List<Pedido> pedidos = new ArrayList<>();
+
+	/*
+	 * Versão do registro. O hibernate a incrementa a cada UPDATE(@Version) e recusa a gravação de
+	 * um objeto desatualizado. Também é usada na ETag das respostas do GET /clientes/{id}.
+	 * */
+	@JsonIgnore
+	@Version
+	private Integer versao;
 	
 	public Cliente() {
 	}
@@ -160,6 +169,10 @@ public class Cliente implements Serializable {
 		this.pedidos = pedidos;
 	}
 
+	public Integer getVersao() {
+		return versao;
+	}
+
 	@Override
 	public int hashCode() {
 		final int prime = 31;
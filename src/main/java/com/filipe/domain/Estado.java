@@ -5,12 +5,14 @@ import java.util.ArrayList;
 import java.util.List;
 
 import javax.persistence.Entity;
+import javax.persistence.EntityListeners;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.OneToMany;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.filipe.domain.listeners.GeografiaListener;
 
 /**
  * Classe que define um Estado.
@@ -18,8 +20,11 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
  * 
  * @Entity indica ao JPA que essa classe é uma Entidade. Assim o hibernate fará a persistência da
  * classe no banco.
+ * 
+ * @EntityListeners GeografiaListener avisa o GeografiaIndex sempre que um Estado for alterado.
  * */
 @Entity
+@EntityListeners(GeografiaListener.class)
 public class Estado implements Serializable {
 	private static final long serialVersionUID = 1L;
 
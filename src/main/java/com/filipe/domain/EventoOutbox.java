@@ -0,0 +1,173 @@
+package com.filipe.domain;
+
+import java.io.Serializable;
+import java.util.Date;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+
+import com.filipe.domain.enums.EstadoEvento;
+import com.filipe.domain.enums.TipoEvento;
+
+/**
+ * Classe que define um evento da tabela de saída(transactional outbox).
+ * 
+ * O evento é gravado na mesma transação que altera o agregado(ex: o Pedido), logo só existirá
+ * se a alteração for confirmada. O trabalho posterior(e-mail, estoque, boleto, etc) é feito em 
+ * segundo plano pelo OutboxDispatcher, que lê os eventos pendentes desta tabela.
+ * 
+ * O índice (estado, proxima_tentativa) atende a busca pelos eventos prontos para processamento e o 
+ * índice (estado, processado_em) a limpeza dos eventos processados.
+ * */
+@Entity
+@Table(name = "evento_outbox", indexes = {
+		@Index(name = "idx_evento_outbox_estado", columnList = "estado, proximaTentativa"),
+		@Index(name = "idx_evento_outbox_processado", columnList = "estado, processadoEm") })
+public class EventoOutbox implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	/*Tamanho máximo da mensagem de erro gravada*/
+	public static final int TAMANHO_ERRO = 1000;
+	
+	/*Gerado por uma sequência como o id do Pedido: um IDENTITY obrigaria o hibernate a executar os INSERTs
+	 * pendentes do pedido a cada evento gravado, desfazendo os lotes JDBC da importação em lote*/
+	@Id
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "evento_outbox_seq")
+	@SequenceGenerator(name = "evento_outbox_seq", sequenceName = "evento_outbox_seq", allocationSize = 50)
+	private Integer id;
+	
+	private Integer tipo;
+	
+	/*O id do objeto ao qual o evento se refere. Ex: o id do pedido criado*/
+	private Integer agregadoId;
+	
+	private Integer estado;
+	private Date criadoEm;
+	
+	/*Momento a partir do qual o evento pode ser processado. Adiada a cada falha(backoff) e 
+	 * enquanto o evento estiver reservado por um processamento em andamento*/
+	private Date proximaTentativa;
+	
+	private Integer tentativas;
+	private Date processadoEm;
+	
+	@Column(length = TAMANHO_ERRO)
+	private String erro;
+	
+	public EventoOutbox() {
+	}
+
+	public EventoOutbox(Integer id, TipoEvento tipo, Integer agregadoId, Date criadoEm) {
+		super();
+		this.id = id;
+		this.tipo = (tipo == null) ? null : tipo.getCod();
+		this.agregadoId = agregadoId;
+		this.estado = EstadoEvento.PENDENTE.getCod();
+		this.criadoEm = criadoEm;
+		this.proximaTentativa = criadoEm;
+		this.tentativas = 0;
+	}
+
+	public Integer getId() {
+		return id;
+	}
+
+	public void setId(Integer id) {
+		this.id = id;
+	}
+
+	public TipoEvento getTipo() {
+		return TipoEvento.toEnum(tipo);
+	}
+
+	public void setTipo(TipoEvento tipo) {
+		this.tipo = tipo.getCod();
+	}
+
+	public Integer getAgregadoId() {
+		return agregadoId;
+	}
+
+	public void setAgregadoId(Integer agregadoId) {
+		this.agregadoId = agregadoId;
+	}
+
+	public EstadoEvento getEstado() {
+		return EstadoEvento.toEnum(estado);
+	}
+
+	public void setEstado(EstadoEvento estado) {
+		this.estado = estado.getCod();
+	}
+
+	public Date getCriadoEm() {
+		return criadoEm;
+	}
+
+	public void setCriadoEm(Date criadoEm) {
+		this.criadoEm = criadoEm;
+	}
+
+	public Date getProximaTentativa() {
+		return proximaTentativa;
+	}
+
+	public void setProximaTentativa(Date proximaTentativa) {
+		this.proximaTentativa = proximaTentativa;
+	}
+
+	public Integer getTentativas() {
+		return tentativas;
+	}
+
+	public void setTentativas(Integer tentativas) {
+		this.tentativas = tentativas;
+	}
+
+	public Date getProcessadoEm() {
+		return processadoEm;
+	}
+
+	public void setProcessadoEm(Date processadoEm) {
+		this.processadoEm = processadoEm;
+	}
+
+	public String getErro() {
+		return erro;
+	}
+
+	public void setErro(String erro) {
+		this.erro = erro;
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + ((id == null) ? 0 : id.hashCode());
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		EventoOutbox other = (EventoOutbox) obj;
+		if (id == null) {
+			if (other.id != null)
+				return false;
+		} else if (!id.equals(other.id))
+			return false;
+		return true;
+	}
+}
@@ -4,6 +4,11 @@ import java.io.Serializable;
 
 import javax.persistence.EmbeddedId;
 import javax.persistence.Entity;
+import javax.persistence.PostLoad;
+import javax.persistence.PostPersist;
+import javax.persistence.Transient;
+
+import org.springframework.data.domain.Persistable;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 
@@ -17,9 +22,13 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
  * Sua identificação se dará através dos dois objetos associados a ela que são o
  * Produto e o Pedido presentas na classe ItemPedidoPK 
  * 
+ * Persistable: Como o id é atribuído manualmente (e nunca é nulo), o Spring Data não consegue
+ * saber sozinho se o ItemPedido é novo e faria um merge (um SELECT por item) antes de cada INSERT.
+ * Implementando Persistable o próprio ItemPedido informa se é novo, permitindo que o saveAll
+ * faça apenas os INSERTs, agrupados em lotes JDBC (ver hibernate.jdbc.batch_size).
  * */
 @Entity
-public class ItemPedido implements Serializable {
+public class ItemPedido implements Serializable, Persistable<ItemPedidoPK> {
 	private static final long serialVersionUID = 1L;
 	
 	/*Um objeto ItemPedidoPK que representa a chave primaria composta de um ItemPedido.
@@ -35,6 +44,10 @@ public class ItemPedido implements Serializable {
 	private Integer quantidade;
 	private Double preco;
 	
+	/*Indica se o ItemPedido ainda não foi salvo no banco. Não é persistido (@Transient)*/
+	@Transient
+	private boolean novo = true;
+	
 	public ItemPedido() {
 		
 	}
@@ -79,6 +92,24 @@ public class ItemPedido implements Serializable {
 	public ItemPedidoPK getId() {
 		return id;
 	}
+	
+	@JsonIgnore
+	@Override
+	public boolean isNew() {
+		return novo;
+	}
+	
+	/*Após ser carregado ou salvo no banco o ItemPedido deixa de ser novo*/
+	@PostLoad
+	@PostPersist
+	void marcarComoPersistido() {
+		novo = false;
+	}
+	
+	/*Usado quando a gravação do ItemPedido foi desfeita(rollback) e ele será salvo novamente*/
+	public void marcarComoNovo() {
+		novo = true;
+	}
 
 	public Double getDesconto() {
 		return desconto;
@@ -31,7 +31,13 @@ import com.filipe.domain.enums.EstadoPagamento;
  * num único "Tabelão" no banco de dados. Se necessário salvar um PagamentoComBoleto, por exemplo,
  * será preciso definir as colunas referentes a PagamentoComCartao como null no banco de dados e 
  * vice-versa.
- * 
+ *
+ * A estratégia padrão é JOINED. O profile single-table troca para SINGLE_TABLE sem alterar as classes,
+ * através do mapeamento META-INF/orm-pagamento-single-table.xml, que sobrescreve esta anotação e define
+ * a coluna discriminadora tipo_pagamento(1 = cartão, 2 = boleto). Assim a leitura de um pagamento
+ * consulta apenas a tabela pagamento, sem os joins com as tabelas das subclasses. Um banco existente
+ * deve ser migrado antes com o script db/pagamento-single-table.sql.
+ *
  * @JsonTypeInfo Basicamente diz que a classe Pagamento ao ser serializada como Json conterá um
  * campo adicional @type 
  * Esse campo é necessário para diferenciar PagementoComCartao e PagamentoComBoleto no momento 
@@ -80,6 +86,10 @@ public abstract class Pagamento implements Serializable {
 		return id;
 	}
 
+	public void setId(Integer id) {
+		this.id = id;
+	}
+
 	public EstadoPagamento getEstadoPagamento() {
 		return EstadoPagamento.toEnum(estadoPagamento);
 	}
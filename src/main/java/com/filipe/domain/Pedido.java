@@ -10,10 +10,13 @@ import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
 import javax.persistence.OneToMany;
 import javax.persistence.OneToOne;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
 
@@ -22,13 +25,24 @@ import com.fasterxml.jackson.annotation.JsonFormat;
  * 
  * @Entity indica ao JPA que essa classe é uma Entidade. Assim o hibernate fará a persistência da
  * classe no banco.
+ * 
+ * O índice (cliente_id, instante) atende a listagem dos pedidos de um cliente ordenada pela data,
+ * usada no histórico de pedidos (GET /clientes/{id}/pedidos).
  * */
 @Entity
+@Table(indexes = @Index(name = "idx_pedido_cliente_instante", columnList = "cliente_id, instante"))
 public class Pedido implements Serializable {
 	private static final long serialVersionUID = 1L;
 
+	/*
+	 * O id é gerado por uma sequência, reservada de 50 em 50 valores(otimizador pooled do hibernate). 
+	 * Com o IDENTITY o id só é conhecido após o INSERT, logo cada pedido seria inserido no save() e 
+	 * os INSERTs da importação em lote não seriam agrupados(hibernate.jdbc.batch_size). Em um banco 
+	 * existente a sequência é criada pelo script db/pedido-sequencia.sql
+	 * */
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "pedido_seq")
+	@SequenceGenerator(name = "pedido_seq", sequenceName = "pedido_seq", allocationSize = 50)
 	private Integer id;
 	
 	/*
@@ -68,6 +82,14 @@ public class Pedido implements Serializable {
 	@OneToMany(mappedBy = "id.pedido")
 	private Set<ItemPedido> itens = new HashSet<>();
 	
+	/*
+	 * O valor total e a quantidade de itens ficam gravados na própria tabela do pedido. Assim 
+	 * listagens e relatórios podem ordenar e filtrar pedidos pelo valor sem consultar a tabela
+	 * item_pedido. São calculados pelo método recalcularTotais() sempre que os itens mudarem.
+	 * */
+	private Double valorTotal;
+	private Integer quantidadeItens;
+	
 	public Pedido() {
 	}
 	
@@ -81,12 +103,43 @@ public class Pedido implements Serializable {
 	}
 	
 	/**
-	 * Cálculo do valor total de um pedido.
-	 * Cálculo feito através da soma do valor de cada ItemPedido.
+	 * Retorna o valor total gravado no pedido. Pedidos gravados antes da existência dessa coluna
+	 * não possuem o valor, nesse caso ele é calculado a partir dos itens.
 	 * 
 	 * @return o valor total do pedido.
 	 * */
 	public double getValorTotal() {
+		if (valorTotal != null) {
+			return valorTotal;
+		}
+		return calcularValorTotal();
+	}
+	
+	/**
+	 * Retorna a quantidade de itens gravada no pedido ou, se não houver, a quantidade de itens 
+	 * da lista de itens.
+	 * */
+	public int getQuantidadeItens() {
+		if (quantidadeItens != null) {
+			return quantidadeItens;
+		}
+		return itens.size();
+	}
+	
+	/**
+	 * Recalcula o valor total e a quantidade de itens a partir dos itens do pedido. Deve ser
+	 * chamado sempre que um item for adicionado, removido ou alterado.
+	 * */
+	public void recalcularTotais() {
+		valorTotal = calcularValorTotal();
+		quantidadeItens = itens.size();
+	}
+	
+	/**
+	 * Cálculo do valor total de um pedido.
+	 * Cálculo feito através da soma do valor de cada ItemPedido.
+	 * */
+	private double calcularValorTotal() {
 		double soma = 0.0;
 		for (ItemPedido ip : itens) {
 			soma = soma + ip.getSubTotal();
@@ -6,7 +6,9 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
+import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.EntityListeners;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
@@ -14,8 +16,13 @@ import javax.persistence.JoinColumn;
 import javax.persistence.JoinTable;
 import javax.persistence.ManyToMany;
 import javax.persistence.OneToMany;
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
+import javax.persistence.Version;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.filipe.domain.listeners.ProdutoListener;
+import com.filipe.domain.utils.Texto;
 
 import lombok.Data;
 
@@ -27,9 +34,12 @@ import lombok.Data;
  * 
  * @Data: Anotação do pacote lombok que gera getters e setters, hashCode and equals, 
  * toString entre outros. Fazer testes e checar as funcionalidades.
+ * 
+ * @EntityListeners ProdutoListener avisa os serviços sempre que um produto for alterado.
  * */
 @Data
 @Entity
+@EntityListeners(ProdutoListener.class)
 public class Produto implements Serializable {
 	private static final long serialVersionUID = 1L;
 
@@ -38,6 +48,33 @@ public class Produto implements Serializable {
 	private Integer id;
 	private String nome;
 	private Double preco;
+	
+	/*
+	 * Nome normalizado(minúsculas e sem acentos) do produto, preenchido a cada INSERT e UPDATE. 
+	 * Usado pelo LIKE da busca por nome quando o índice em memória encontra candidatos demais, 
+	 * assim o LIKE do banco encontra os mesmos produtos que o ProdutoSearchIndex.
+	 * */
+	@JsonIgnore
+	private String nomeBusca;
+	
+	/*
+	 * Estoque consolidado do produto. Null indica um produto sem controle de estoque.
+	 * 
+	 * O estoque disponível é este valor menos as reservas ainda não consolidadas e é controlado
+	 * pelo EstoqueService. A coluna não é alterada pelo UPDATE do Produto(updatable = false), apenas
+	 * pelas consultas do EstoqueService, assim um Produto desatualizado em cache não sobrescreve o estoque.
+	 * */
+	@JsonIgnore
+	@Column(updatable = false)
+	private Integer estoque;
+
+	/*
+	 * Versão do registro. O hibernate a incrementa a cada UPDATE(@Version) e recusa a gravação de
+	 * um objeto desatualizado. Também é usada na ETag das respostas do GET /produtos/{id}.
+	 * */
+	@JsonIgnore
+	@Version
+	private Integer versao;
 
 	/**
 	 * JsonIgnore: Cada entidade do tipo Categoria tem uma coleção de Produtos 
@@ -76,6 +113,13 @@ public class Produto implements Serializable {
 		this.preco = preco;
 	}
 	
+	/*Normaliza o nome(Texto.normalizar(), como o ProdutoSearchIndex) antes de cada INSERT e UPDATE*/
+	@PrePersist
+	@PreUpdate
+	private void normalizarNome() {
+		nomeBusca = Texto.normalizar(nome);
+	}
+	
 	@JsonIgnore//Será ignorado na serialização, também evitará serialização cíclica do Json
 	public List<Pedido> getPedidos(){
 		List<Pedido> lista = new ArrayList<>();
@@ -111,6 +155,14 @@ public class Produto implements Serializable {
 		this.preco = preco;
 	}
 
+	public Integer getEstoque() {
+		return estoque;
+	}
+
+	public void setEstoque(Integer estoque) {
+		this.estoque = estoque;
+	}
+
 	public List<Categoria> getCategorias() {
 		return categorias;
 	}
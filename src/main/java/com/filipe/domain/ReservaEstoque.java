@@ -0,0 +1,116 @@
+package com.filipe.domain;
+
+import java.io.Serializable;
+import java.util.Date;
+
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+
+/**
+ * Classe que define a reserva de estoque de um produto feita por um pedido.
+ *
+ * A reserva é gravada na mesma transação do pedido, logo só existirá se o pedido for confirmado.
+ * O estoque do Produto não é alterado na criação do pedido: as reservas são somadas e descontadas
+ * do estoque do produto periodicamente pelo EstoqueService(consolidação) e então excluídas.
+ *
+ * Enquanto não forem consolidadas, o estoque disponível de um produto é o seu estoque menos a soma
+ * das suas reservas. O índice em produto_id atende essa soma.
+ * */
+@Entity
+@Table(name = "reserva_estoque", indexes = @Index(name = "idx_reserva_estoque_produto", columnList = "produtoId"))
+public class ReservaEstoque implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	/*Gerado por uma sequência pelo mesmo motivo do id do EventoOutbox*/
+	@Id
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "reserva_estoque_seq")
+	@SequenceGenerator(name = "reserva_estoque_seq", sequenceName = "reserva_estoque_seq", allocationSize = 50)
+	private Integer id;
+
+	private Integer pedidoId;
+	private Integer produtoId;
+	private Integer quantidade;
+	private Date criadoEm;
+
+	public ReservaEstoque() {
+	}
+
+	public ReservaEstoque(Integer id, Integer pedidoId, Integer produtoId, Integer quantidade, Date criadoEm) {
+		super();
+		this.id = id;
+		this.pedidoId = pedidoId;
+		this.produtoId = produtoId;
+		this.quantidade = quantidade;
+		this.criadoEm = criadoEm;
+	}
+
+	public Integer getId() {
+		return id;
+	}
+
+	public void setId(Integer id) {
+		this.id = id;
+	}
+
+	public Integer getPedidoId() {
+		return pedidoId;
+	}
+
+	public void setPedidoId(Integer pedidoId) {
+		this.pedidoId = pedidoId;
+	}
+
+	public Integer getProdutoId() {
+		return produtoId;
+	}
+
+	public void setProdutoId(Integer produtoId) {
+		this.produtoId = produtoId;
+	}
+
+	public Integer getQuantidade() {
+		return quantidade;
+	}
+
+	public void setQuantidade(Integer quantidade) {
+		this.quantidade = quantidade;
+	}
+
+	public Date getCriadoEm() {
+		return criadoEm;
+	}
+
+	public void setCriadoEm(Date criadoEm) {
+		this.criadoEm = criadoEm;
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + ((id == null) ? 0 : id.hashCode());
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		ReservaEstoque other = (ReservaEstoque) obj;
+		if (id == null) {
+			if (other.id != null)
+				return false;
+		} else if (!id.equals(other.id))
+			return false;
+		return true;
+	}
+}
@@ -0,0 +1,43 @@
+package com.filipe.domain.enums;
+
+/**
+ * Enumeração que define o estado de processamento de um evento gravado na tabela de
+ * saída(outbox). O estado é salvo como um número Inteiro no banco.
+ * */
+public enum EstadoEvento {
+	
+	PENDENTE(1, "Pendente"),
+	PROCESSADO(2, "Processado"),
+	FALHOU(3, "Falhou");
+	
+	private Integer cod;
+	private String descricao;
+	
+	private EstadoEvento(Integer cod, String descricao) {
+		this.cod = cod;
+		this.descricao = descricao;
+	}
+
+	public Integer getCod() {
+		return cod;
+	}
+
+	public String getDescricao() {
+		return descricao;
+	}
+	
+	//Método que converte um código inteiro no enum equivalente. Lança uma exceção caso o código inválido.
+	public static EstadoEvento toEnum(Integer cod) {
+		if(cod == null) {
+			return null;
+		}
+		
+		for(EstadoEvento x : EstadoEvento.values()) {
+			if(cod.equals(x.getCod())) {
+				return x;
+			}
+		}
+		
+		throw new IllegalArgumentException("código inválido: "+ cod);
+	}
+}
@@ -0,0 +1,41 @@
+package com.filipe.domain.enums;
+
+/**
+ * Enumeração que define o tipo de um evento gravado na tabela de saída(outbox).
+ * Cada tipo é salvo como um número Inteiro no banco.
+ * */
+public enum TipoEvento {
+	
+	PEDIDO_CRIADO(1, "Pedido criado");
+	
+	private Integer cod;
+	private String descricao;
+	
+	private TipoEvento(Integer cod, String descricao) {
+		this.cod = cod;
+		this.descricao = descricao;
+	}
+
+	public Integer getCod() {
+		return cod;
+	}
+
+	public String getDescricao() {
+		return descricao;
+	}
+	
+	//Método que converte um código inteiro no enum equivalente. Lança uma exceção caso o código inválido.
+	public static TipoEvento toEnum(Integer cod) {
+		if(cod == null) {
+			return null;
+		}
+		
+		for(TipoEvento x : TipoEvento.values()) {
+			if(cod.equals(x.getCod())) {
+				return x;
+			}
+		}
+		
+		throw new IllegalArgumentException("código inválido: "+ cod);
+	}
+}
@@ -0,0 +1,28 @@
+package com.filipe.domain.listeners;
+
+/**
+ * Evento publicado sempre que um Estado ou uma Cidade for inserido, atualizado ou removido do
+ * banco de dados.
+ * 
+ * Os serviços que mantém Estados e Cidades em memória(GeografiaIndex) devem escutar esse evento
+ * para recarregar suas informações.
+ * */
+public class GeografiaAlteradaEvent {
+
+	private final Class<?> tipo;
+	private final Integer id;
+
+	public GeografiaAlteradaEvent(Class<?> tipo, Integer id) {
+		this.tipo = tipo;
+		this.id = id;
+	}
+
+	/**Estado.class ou Cidade.class*/
+	public Class<?> getTipo() {
+		return tipo;
+	}
+
+	public Integer getId() {
+		return id;
+	}
+}
@@ -0,0 +1,37 @@
+package com.filipe.domain.listeners;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+
+import com.filipe.domain.Cidade;
+import com.filipe.domain.Estado;
+
+/**
+ * Listener JPA das entidades Estado e Cidade. É chamado pelo hibernate após cada INSERT, UPDATE ou
+ * DELETE de um Estado ou de uma Cidade e publica um GeografiaAlteradaEvent.
+ * 
+ * Assim como o ProdutoListener, apenas publica o evento e não conhece os serviços interessados.
+ * */
+public class GeografiaListener {
+
+	@Autowired
+	private ApplicationEventPublisher publisher;
+
+	@PostPersist
+	@PostUpdate
+	@PostRemove
+	public void alterado(Object obj) {
+		if (publisher == null) {
+			return;
+		}
+		if (obj instanceof Cidade) {
+			publisher.publishEvent(new GeografiaAlteradaEvent(Cidade.class, ((Cidade) obj).getId()));
+		} else if (obj instanceof Estado) {
+			publisher.publishEvent(new GeografiaAlteradaEvent(Estado.class, ((Estado) obj).getId()));
+		}
+	}
+}
@@ -0,0 +1,66 @@
+package com.filipe.domain.listeners;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hibernate.Hibernate;
+
+import com.filipe.domain.Categoria;
+import com.filipe.domain.Produto;
+
+/**
+ * Evento publicado sempre que um Produto for inserido, atualizado ou removido do banco de dados.
+ * 
+ * Os serviços que mantém informações de produtos em memória (como caches) devem escutar esse 
+ * evento para manter suas informações atualizadas.
+ * 
+ * categorias contém os ids das categorias do produto ou null quando as categorias não foram 
+ * carregadas do banco, ou seja, não foram alteradas.
+ * */
+public class ProdutoAlteradoEvent {
+
+	private final Integer id;
+	private final String nome;
+	private final List<Integer> categorias;
+	private final boolean removido;
+
+	public ProdutoAlteradoEvent(Integer id, String nome, List<Integer> categorias, boolean removido) {
+		this.id = id;
+		this.nome = nome;
+		this.categorias = categorias;
+		this.removido = removido;
+	}
+	
+	/**Cria o evento de um produto inserido ou atualizado*/
+	public static ProdutoAlteradoEvent salvo(Produto obj) {
+		List<Integer> categorias = null;
+		if (Hibernate.isInitialized(obj.getCategorias())) {
+			categorias = new ArrayList<>();
+			for (Categoria cat : obj.getCategorias()) {
+				categorias.add(cat.getId());
+			}
+		}
+		return new ProdutoAlteradoEvent(obj.getId(), obj.getNome(), categorias, false);
+	}
+	
+	/**Cria o evento de um produto removido*/
+	public static ProdutoAlteradoEvent removido(Produto obj) {
+		return new ProdutoAlteradoEvent(obj.getId(), obj.getNome(), null, true);
+	}
+
+	public Integer getId() {
+		return id;
+	}
+
+	public String getNome() {
+		return nome;
+	}
+
+	public List<Integer> getCategorias() {
+		return categorias;
+	}
+
+	public boolean isRemovido() {
+		return removido;
+	}
+}
@@ -0,0 +1,51 @@
+package com.filipe.domain.listeners;
+
+import org.hibernate.event.spi.AbstractCollectionEvent;
+import org.hibernate.event.spi.PostCollectionRecreateEvent;
+import org.hibernate.event.spi.PostCollectionRecreateEventListener;
+import org.hibernate.event.spi.PostCollectionUpdateEvent;
+import org.hibernate.event.spi.PostCollectionUpdateEventListener;
+import org.springframework.context.ApplicationEventPublisher;
+
+import com.filipe.domain.Produto;
+
+/**
+ * Listener do hibernate chamado sempre que a lista de categorias de um Produto for gravada no 
+ * banco de dados (tabela PRODUTO_CATEGORIA).
+ * 
+ * Diferente do ProdutoListener, esse listener também é chamado quando apenas as categorias do 
+ * produto forem alteradas, sem nenhuma alteração nos demais atributos do produto.
+ * 
+ * Registrado no hibernate pela classe HibernateConfig do pacote config.
+ * */
+public class ProdutoCategoriasListener implements PostCollectionRecreateEventListener, PostCollectionUpdateEventListener {
+	private static final long serialVersionUID = 1L;
+
+	private static final String CATEGORIAS = Produto.class.getName() + ".categorias";
+
+	private final transient ApplicationEventPublisher publisher;
+
+	public ProdutoCategoriasListener(ApplicationEventPublisher publisher) {
+		this.publisher = publisher;
+	}
+
+	@Override
+	public void onPostRecreateCollection(PostCollectionRecreateEvent event) {
+		publicar(event);
+	}
+
+	@Override
+	public void onPostUpdateCollection(PostCollectionUpdateEvent event) {
+		publicar(event);
+	}
+
+	private void publicar(AbstractCollectionEvent event) {
+		if (!CATEGORIAS.equals(event.getCollection().getRole())) {
+			return;
+		}
+		Produto obj = (Produto) event.getAffectedOwnerOrNull();
+		if (obj != null) {
+			publisher.publishEvent(ProdutoAlteradoEvent.salvo(obj));
+		}
+	}
+}
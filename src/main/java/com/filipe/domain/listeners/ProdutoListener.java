@@ -0,0 +1,44 @@
+package com.filipe.domain.listeners;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+
+import com.filipe.domain.Produto;
+
+/**
+ * Listener JPA da entidade Produto. É chamado pelo hibernate após cada INSERT, UPDATE ou DELETE
+ * de um Produto e publica um ProdutoAlteradoEvent.
+ * 
+ * O listener apenas publica o evento e não conhece os serviços interessados. Assim evitamos 
+ * uma dependência circular entre o hibernate e os serviços que usam repositórios.
+ * 
+ * Alterações feitas apenas na lista de categorias são avisadas pelo ProdutoCategoriasListener.
+ * 
+ * O @Autowired funciona pois o Spring boot registra o Spring como container de beans do hibernate.
+ * */
+public class ProdutoListener {
+
+	@Autowired
+	private ApplicationEventPublisher publisher;
+
+	@PostPersist
+	@PostUpdate
+	public void produtoSalvo(Produto obj) {
+		publicar(ProdutoAlteradoEvent.salvo(obj));
+	}
+
+	@PostRemove
+	public void produtoRemovido(Produto obj) {
+		publicar(ProdutoAlteradoEvent.removido(obj));
+	}
+
+	private void publicar(ProdutoAlteradoEvent event) {
+		if (publisher != null) {
+			publisher.publishEvent(event);
+		}
+	}
+}
@@ -0,0 +1,33 @@
+package com.filipe.domain.utils;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Classe Auxiliar que normaliza textos para as buscas sem diferenciar acentos e maiúsculas.
+ *
+ *  Ex: " Escritório" vira "escritorio"
+ *
+ * Usada pelo Produto ao preencher o nome de busca(nomeBusca) e pelo ProdutoSearchIndex, assim o
+ * índice em memória e o LIKE do banco comparam o mesmo texto.
+ * */
+public class Texto {
+
+	private static final Pattern ACENTOS = Pattern.compile("\\p{M}");
+
+	/**
+	 * Normaliza um texto para comparação: remove acentos, converte para minúsculas e
+	 * remove os espaços das extremidades.
+	 *
+	 * @param texto o texto a ser normalizado.
+	 * @return o texto normalizado ou uma String vazia se o texto for nulo.
+	 * */
+	public static String normalizar(String texto) {
+		if (texto == null) {
+			return "";
+		}
+		String semAcentos = ACENTOS.matcher(Normalizer.normalize(texto, Normalizer.Form.NFD)).replaceAll("");
+		return semAcentos.toLowerCase(Locale.ROOT).trim();
+	}
+}
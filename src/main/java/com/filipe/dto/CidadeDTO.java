@@ -0,0 +1,40 @@
+package com.filipe.dto;
+
+import java.io.Serializable;
+
+import com.filipe.domain.Cidade;
+/**
+ * Objeto DTO com apenas o id e o nome de uma Cidade, sem o Estado. Usado nas listas do
+ * cadastro de clientes servidas pelo GeografiaIndex.
+ * */
+public class CidadeDTO implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private Integer id;
+	private String nome;
+
+	public CidadeDTO() {
+	}
+
+	/*Construtor que cria um objeto CidadeDTO a partir de um objeto Cidade passado como parametro*/
+	public CidadeDTO(Cidade cidade) {
+		this.id = cidade.getId();
+		this.nome = cidade.getNome();
+	}
+
+	public Integer getId() {
+		return id;
+	}
+
+	public void setId(Integer id) {
+		this.id = id;
+	}
+
+	public String getNome() {
+		return nome;
+	}
+
+	public void setNome(String nome) {
+		this.nome = nome;
+	}
+}
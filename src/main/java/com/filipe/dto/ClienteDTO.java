@@ -30,6 +30,13 @@ public class ClienteDTO implements Serializable {
 		this.nome = cliente.getNome();
 		this.email = cliente.getEmail();
 	}
+	
+	/*Construtor usado diretamente nas consultas JPQL(SELECT new ...), sem carregar a entidade Cliente*/
+	public ClienteDTO(Integer id, String nome, String email) {
+		this.id = id;
+		this.nome = nome;
+		this.email = email;
+	}
 
 	public Integer getId() {
 		return id;
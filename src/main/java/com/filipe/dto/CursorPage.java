@@ -0,0 +1,65 @@
+package com.filipe.dto;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Uma página de registros obtida através de um cursor(paginação por chave, ou keyset).
+ * 
+ * Diferente de um Page, não informa o total de registros nem o número da página. Informa apenas 
+ * o cursor next que deve ser enviado na próxima requisição para obter a página seguinte. 
+ * Quando next for null não há mais páginas.
+ * */
+public class CursorPage<T> implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private List<T> content = new ArrayList<>();
+	private String next;
+
+	public CursorPage() {
+	}
+
+	public CursorPage(List<T> content, String next) {
+		super();
+		this.content = content;
+		this.next = next;
+	}
+
+	/**
+	 * Converte cada registro da página mantendo o mesmo cursor. Funciona como o método map() de
+	 * um Page. Ex: page.map(obj -> new CategoriaDTO(obj))
+	 * */
+	public <U> CursorPage<U> map(Function<T, U> converter) {
+		List<U> lista = new ArrayList<>();
+		for (T obj : content) {
+			lista.add(converter.apply(obj));
+		}
+		return new CursorPage<>(lista, next);
+	}
+
+	public List<T> getContent() {
+		return content;
+	}
+
+	public void setContent(List<T> content) {
+		this.content = content;
+	}
+
+	public String getNext() {
+		return next;
+	}
+
+	public void setNext(String next) {
+		this.next = next;
+	}
+
+	public boolean isHasNext() {
+		return next != null;
+	}
+
+	public int getNumberOfElements() {
+		return content.size();
+	}
+}
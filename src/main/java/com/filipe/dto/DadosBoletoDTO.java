@@ -0,0 +1,71 @@
+package com.filipe.dto;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * Objeto DTO com os dados do pedido impressos no boleto.
+ *
+ * É criado diretamente na consulta JPQL(SELECT new), sem carregar as entidades Pedido e Cliente.
+ * */
+public class DadosBoletoDTO implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private Integer pedidoId;
+	private Date dataVencimento;
+	private Double valorTotal;
+	private String nomeCliente;
+	private String cpfOuCnpj;
+
+	public DadosBoletoDTO() {
+	}
+
+	public DadosBoletoDTO(Integer pedidoId, Date dataVencimento, Double valorTotal, String nomeCliente, String cpfOuCnpj) {
+		super();
+		this.pedidoId = pedidoId;
+		this.dataVencimento = dataVencimento;
+		this.valorTotal = valorTotal;
+		this.nomeCliente = nomeCliente;
+		this.cpfOuCnpj = cpfOuCnpj;
+	}
+
+	public Integer getPedidoId() {
+		return pedidoId;
+	}
+
+	public void setPedidoId(Integer pedidoId) {
+		this.pedidoId = pedidoId;
+	}
+
+	public Date getDataVencimento() {
+		return dataVencimento;
+	}
+
+	public void setDataVencimento(Date dataVencimento) {
+		this.dataVencimento = dataVencimento;
+	}
+
+	public Double getValorTotal() {
+		return valorTotal;
+	}
+
+	public void setValorTotal(Double valorTotal) {
+		this.valorTotal = valorTotal;
+	}
+
+	public String getNomeCliente() {
+		return nomeCliente;
+	}
+
+	public void setNomeCliente(String nomeCliente) {
+		this.nomeCliente = nomeCliente;
+	}
+
+	public String getCpfOuCnpj() {
+		return cpfOuCnpj;
+	}
+
+	public void setCpfOuCnpj(String cpfOuCnpj) {
+		this.cpfOuCnpj = cpfOuCnpj;
+	}
+}
@@ -0,0 +1,72 @@
+package com.filipe.dto;
+
+import java.io.Serializable;
+
+/**
+ * Objeto DTO que representa um pedido cujo valor total ou quantidade de itens gravados são 
+ * diferentes dos valores calculados a partir dos seus itens.
+ * 
+ * Os valores gravados podem ser null em pedidos gravados antes da existência das colunas.
+ * */
+public class DivergenciaTotalDTO implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private Integer pedidoId;
+	private Double valorGravado;
+	private Double valorCalculado;
+	private Integer quantidadeGravada;
+	private Integer quantidadeCalculada;
+
+	public DivergenciaTotalDTO() {
+	}
+
+	public DivergenciaTotalDTO(Integer pedidoId, Double valorGravado, Double valorCalculado, Integer quantidadeGravada,
+			Integer quantidadeCalculada) {
+		super();
+		this.pedidoId = pedidoId;
+		this.valorGravado = valorGravado;
+		this.valorCalculado = valorCalculado;
+		this.quantidadeGravada = quantidadeGravada;
+		this.quantidadeCalculada = quantidadeCalculada;
+	}
+
+	public Integer getPedidoId() {
+		return pedidoId;
+	}
+
+	public void setPedidoId(Integer pedidoId) {
+		this.pedidoId = pedidoId;
+	}
+
+	public Double getValorGravado() {
+		return valorGravado;
+	}
+
+	public void setValorGravado(Double valorGravado) {
+		this.valorGravado = valorGravado;
+	}
+
+	public Double getValorCalculado() {
+		return valorCalculado;
+	}
+
+	public void setValorCalculado(Double valorCalculado) {
+		this.valorCalculado = valorCalculado;
+	}
+
+	public Integer getQuantidadeGravada() {
+		return quantidadeGravada;
+	}
+
+	public void setQuantidadeGravada(Integer quantidadeGravada) {
+		this.quantidadeGravada = quantidadeGravada;
+	}
+
+	public Integer getQuantidadeCalculada() {
+		return quantidadeCalculada;
+	}
+
+	public void setQuantidadeCalculada(Integer quantidadeCalculada) {
+		this.quantidadeCalculada = quantidadeCalculada;
+	}
+}
@@ -0,0 +1,40 @@
+package com.filipe.dto;
+
+import java.io.Serializable;
+
+import com.filipe.domain.Estado;
+/**
+ * Objeto DTO com apenas o id e o nome de um Estado, sem a lista de cidades. Usado nas listas do
+ * cadastro de clientes servidas pelo GeografiaIndex.
+ * */
+public class EstadoDTO implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private Integer id;
+	private String nome;
+
+	public EstadoDTO() {
+	}
+
+	/*Construtor que cria um objeto EstadoDTO a partir de um objeto Estado passado como parametro*/
+	public EstadoDTO(Estado estado) {
+		this.id = estado.getId();
+		this.nome = estado.getNome();
+	}
+
+	public Integer getId() {
+		return id;
+	}
+
+	public void setId(Integer id) {
+		this.id = id;
+	}
+
+	public String getNome() {
+		return nome;
+	}
+
+	public void setNome(String nome) {
+		this.nome = nome;
+	}
+}
@@ -0,0 +1,39 @@
+package com.filipe.dto;
+
+import java.io.Serializable;
+
+/**
+ * Objeto DTO que representa o estoque disponível de um produto: o estoque do produto menos as
+ * quantidades reservadas pelos pedidos. disponivel é null para produtos sem controle de estoque.
+ * */
+public class EstoqueDTO implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private Integer produtoId;
+	private Integer disponivel;
+
+	public EstoqueDTO() {
+	}
+
+	public EstoqueDTO(Integer produtoId, Integer disponivel) {
+		super();
+		this.produtoId = produtoId;
+		this.disponivel = disponivel;
+	}
+
+	public Integer getProdutoId() {
+		return produtoId;
+	}
+
+	public void setProdutoId(Integer produtoId) {
+		this.produtoId = produtoId;
+	}
+
+	public Integer getDisponivel() {
+		return disponivel;
+	}
+
+	public void setDisponivel(Integer disponivel) {
+		this.disponivel = disponivel;
+	}
+}
@@ -0,0 +1,128 @@
+package com.filipe.dto;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * Objeto DTO com as estatísticas do filtro de emails dos clientes(EmailBloomFilter).
+ * 
+ * consultas é a quantidade de verificações de email, consultasSemBanco as verificações respondidas
+ * apenas pelo filtro e falsosPositivos as verificações em que o filtro indicou que o email poderia
+ * existir, mas o banco não o encontrou. taxaFalsoPositivoEstimada é calculada pela proporção de bits
+ * ligados e cresce quando a quantidade de elementos passa da capacidade.
+ * */
+public class FiltroEmailDTO implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private boolean carregado;
+	private long capacidade;
+	private long bits;
+	private int funcoesHash;
+	private long elementos;
+	private double taxaFalsoPositivoConfigurada;
+	private double taxaFalsoPositivoEstimada;
+	private long consultas;
+	private long consultasSemBanco;
+	private long falsosPositivos;
+	private Date ultimaReconstrucao;
+	private long duracaoReconstrucaoMillis;
+
+	public FiltroEmailDTO() {
+	}
+
+	public boolean isCarregado() {
+		return carregado;
+	}
+
+	public void setCarregado(boolean carregado) {
+		this.carregado = carregado;
+	}
+
+	public long getCapacidade() {
+		return capacidade;
+	}
+
+	public void setCapacidade(long capacidade) {
+		this.capacidade = capacidade;
+	}
+
+	public long getBits() {
+		return bits;
+	}
+
+	public void setBits(long bits) {
+		this.bits = bits;
+	}
+
+	public int getFuncoesHash() {
+		return funcoesHash;
+	}
+
+	public void setFuncoesHash(int funcoesHash) {
+		this.funcoesHash = funcoesHash;
+	}
+
+	public long getElementos() {
+		return elementos;
+	}
+
+	public void setElementos(long elementos) {
+		this.elementos = elementos;
+	}
+
+	public double getTaxaFalsoPositivoConfigurada() {
+		return taxaFalsoPositivoConfigurada;
+	}
+
+	public void setTaxaFalsoPositivoConfigurada(double taxaFalsoPositivoConfigurada) {
+		this.taxaFalsoPositivoConfigurada = taxaFalsoPositivoConfigurada;
+	}
+
+	public double getTaxaFalsoPositivoEstimada() {
+		return taxaFalsoPositivoEstimada;
+	}
+
+	public void setTaxaFalsoPositivoEstimada(double taxaFalsoPositivoEstimada) {
+		this.taxaFalsoPositivoEstimada = taxaFalsoPositivoEstimada;
+	}
+
+	public long getConsultas() {
+		return consultas;
+	}
+
+	public void setConsultas(long consultas) {
+		this.consultas = consultas;
+	}
+
+	public long getConsultasSemBanco() {
+		return consultasSemBanco;
+	}
+
+	public void setConsultasSemBanco(long consultasSemBanco) {
+		this.consultasSemBanco = consultasSemBanco;
+	}
+
+	public long getFalsosPositivos() {
+		return falsosPositivos;
+	}
+
+	public void setFalsosPositivos(long falsosPositivos) {
+		this.falsosPositivos = falsosPositivos;
+	}
+
+	public Date getUltimaReconstrucao() {
+		return ultimaReconstrucao;
+	}
+
+	public void setUltimaReconstrucao(Date ultimaReconstrucao) {
+		this.ultimaReconstrucao = ultimaReconstrucao;
+	}
+
+	public long getDuracaoReconstrucaoMillis() {
+		return duracaoReconstrucaoMillis;
+	}
+
+	public void setDuracaoReconstrucaoMillis(long duracaoReconstrucaoMillis) {
+		this.duracaoReconstrucaoMillis = duracaoReconstrucaoMillis;
+	}
+}
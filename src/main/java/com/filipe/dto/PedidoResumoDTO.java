@@ -0,0 +1,68 @@
+package com.filipe.dto;
+
+import java.io.Serializable;
+import java.util.Date;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.filipe.domain.enums.EstadoPagamento;
+
+/**
+ * Objeto DTO com o resumo de um pedido exibido no histórico de pedidos de um cliente.
+ * 
+ * É criado diretamente na consulta JPQL(SELECT new), sem carregar a entidade Pedido, seus itens
+ * ou o seu pagamento.
+ * */
+public class PedidoResumoDTO implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private Integer id;
+	
+	@JsonFormat(pattern = "dd/MM/yyyy HH:mm")
+	private Date instante;
+	
+	private Double valorTotal;
+	private Integer estadoPagamento;
+
+	public PedidoResumoDTO() {
+	}
+
+	public PedidoResumoDTO(Integer id, Date instante, Double valorTotal, Integer estadoPagamento) {
+		super();
+		this.id = id;
+		this.instante = instante;
+		this.valorTotal = valorTotal;
+		this.estadoPagamento = estadoPagamento;
+	}
+
+	public Integer getId() {
+		return id;
+	}
+
+	public void setId(Integer id) {
+		this.id = id;
+	}
+
+	public Date getInstante() {
+		return instante;
+	}
+
+	public void setInstante(Date instante) {
+		this.instante = instante;
+	}
+
+	public Double getValorTotal() {
+		return valorTotal;
+	}
+
+	public void setValorTotal(Double valorTotal) {
+		this.valorTotal = valorTotal;
+	}
+
+	public EstadoPagamento getEstadoPagamento() {
+		return EstadoPagamento.toEnum(estadoPagamento);
+	}
+
+	public void setEstadoPagamento(EstadoPagamento estadoPagamento) {
+		this.estadoPagamento = (estadoPagamento == null) ? null : estadoPagamento.getCod();
+	}
+}
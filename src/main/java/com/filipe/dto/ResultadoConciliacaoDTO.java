@@ -0,0 +1,120 @@
+package com.filipe.dto;
+
+import java.io.Serializable;
+
+/**
+ * Objeto DTO com o resultado da conciliação de um arquivo de retorno do banco.
+ * 
+ * conciliados são os registros aplicados a um PagamentoComBoleto, naoEncontrados os registros cujo
+ * pedido não existe ou não é pago com boleto, naoPendentes as liquidações e baixas de pagamentos já
+ * quitados ou cancelados(ex: arquivo reprocessado), valorInsuficiente as liquidações com o valor pago menor
+ * que o total do pedido, ignorados os registros com uma ocorrência não tratada e invalidos as linhas mal
+ * formadas ou de outro convênio.
+ * */
+public class ResultadoConciliacaoDTO implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private String arquivo;
+	private Long linhas;
+	private Long conciliados;
+	private Long naoEncontrados;
+	private Long naoPendentes;
+	private Long valorInsuficiente;
+	private Long ignorados;
+	private Long invalidos;
+	private Long duracaoMillis;
+
+	public ResultadoConciliacaoDTO() {
+	}
+
+	public ResultadoConciliacaoDTO(String arquivo, Long linhas, Long conciliados, Long naoEncontrados, Long naoPendentes,
+			Long valorInsuficiente, Long ignorados, Long invalidos, Long duracaoMillis) {
+		super();
+		this.arquivo = arquivo;
+		this.linhas = linhas;
+		this.conciliados = conciliados;
+		this.naoEncontrados = naoEncontrados;
+		this.naoPendentes = naoPendentes;
+		this.valorInsuficiente = valorInsuficiente;
+		this.ignorados = ignorados;
+		this.invalidos = invalidos;
+		this.duracaoMillis = duracaoMillis;
+	}
+
+	/**Quantidade de linhas lidas por segundo*/
+	public Long getLinhasPorSegundo() {
+		return (duracaoMillis == 0) ? linhas : linhas * 1000 / duracaoMillis;
+	}
+
+	public String getArquivo() {
+		return arquivo;
+	}
+
+	public void setArquivo(String arquivo) {
+		this.arquivo = arquivo;
+	}
+
+	public Long getLinhas() {
+		return linhas;
+	}
+
+	public void setLinhas(Long linhas) {
+		this.linhas = linhas;
+	}
+
+	public Long getConciliados() {
+		return conciliados;
+	}
+
+	public void setConciliados(Long conciliados) {
+		this.conciliados = conciliados;
+	}
+
+	public Long getNaoEncontrados() {
+		return naoEncontrados;
+	}
+
+	public void setNaoEncontrados(Long naoEncontrados) {
+		this.naoEncontrados = naoEncontrados;
+	}
+
+	public Long getNaoPendentes() {
+		return naoPendentes;
+	}
+
+	public void setNaoPendentes(Long naoPendentes) {
+		this.naoPendentes = naoPendentes;
+	}
+
+	public Long getValorInsuficiente() {
+		return valorInsuficiente;
+	}
+
+	public void setValorInsuficiente(Long valorInsuficiente) {
+		this.valorInsuficiente = valorInsuficiente;
+	}
+
+	public Long getIgnorados() {
+		return ignorados;
+	}
+
+	public void setIgnorados(Long ignorados) {
+		this.ignorados = ignorados;
+	}
+
+	public Long getInvalidos() {
+		return invalidos;
+	}
+
+	public void setInvalidos(Long invalidos) {
+		this.invalidos = invalidos;
+	}
+
+	public Long getDuracaoMillis() {
+		return duracaoMillis;
+	}
+
+	public void setDuracaoMillis(Long duracaoMillis) {
+		this.duracaoMillis = duracaoMillis;
+	}
+}
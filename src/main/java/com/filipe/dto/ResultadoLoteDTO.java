@@ -0,0 +1,61 @@
+package com.filipe.dto;
+
+import java.io.Serializable;
+
+/**
+ * Objeto DTO que representa o resultado da importação de um único registro enviado em lote.
+ * 
+ * indice é a posição (iniciando em zero) do registro no corpo da requisição, id é o id gerado
+ * para o objeto quando a importação for bem sucedida e mensagem contém o motivo da falha.
+ * */
+public class ResultadoLoteDTO implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private Integer indice;
+	private Integer id;
+	private Boolean sucesso;
+	private String mensagem;
+
+	public ResultadoLoteDTO() {
+	}
+
+	public ResultadoLoteDTO(Integer indice, Integer id, Boolean sucesso, String mensagem) {
+		super();
+		this.indice = indice;
+		this.id = id;
+		this.sucesso = sucesso;
+		this.mensagem = mensagem;
+	}
+
+	public Integer getIndice() {
+		return indice;
+	}
+
+	public void setIndice(Integer indice) {
+		this.indice = indice;
+	}
+
+	public Integer getId() {
+		return id;
+	}
+
+	public void setId(Integer id) {
+		this.id = id;
+	}
+
+	public Boolean getSucesso() {
+		return sucesso;
+	}
+
+	public void setSucesso(Boolean sucesso) {
+		this.sucesso = sucesso;
+	}
+
+	public String getMensagem() {
+		return mensagem;
+	}
+
+	public void setMensagem(String mensagem) {
+		this.mensagem = mensagem;
+	}
+}
@@ -0,0 +1,72 @@
+package com.filipe.dto;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Objeto DTO com o resultado da verificação dos totais gravados nos pedidos.
+ * 
+ * pedidosVerificados é a quantidade de pedidos percorridos, divergentes a quantidade de pedidos
+ * com totais diferentes dos calculados e corrigidos a quantidade de pedidos atualizados. A lista
+ * divergencias traz no máximo as primeiras 100 divergências encontradas.
+ * */
+public class VerificacaoTotaisDTO implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	public static final int MAXIMO_DIVERGENCIAS = 100;
+
+	private long pedidosVerificados;
+	private long divergentes;
+	private int corrigidos;
+	private List<DivergenciaTotalDTO> divergencias = new ArrayList<>();
+
+	public VerificacaoTotaisDTO() {
+	}
+
+	/**
+	 * Contabiliza um pedido verificado. Se houver divergência ela é adicionada à lista, até o
+	 * limite MAXIMO_DIVERGENCIAS.
+	 * */
+	public void adicionar(DivergenciaTotalDTO divergencia) {
+		pedidosVerificados++;
+		if (divergencia != null) {
+			divergentes++;
+			if (divergencias.size() < MAXIMO_DIVERGENCIAS) {
+				divergencias.add(divergencia);
+			}
+		}
+	}
+
+	public long getPedidosVerificados() {
+		return pedidosVerificados;
+	}
+
+	public void setPedidosVerificados(long pedidosVerificados) {
+		this.pedidosVerificados = pedidosVerificados;
+	}
+
+	public long getDivergentes() {
+		return divergentes;
+	}
+
+	public void setDivergentes(long divergentes) {
+		this.divergentes = divergentes;
+	}
+
+	public int getCorrigidos() {
+		return corrigidos;
+	}
+
+	public void setCorrigidos(int corrigidos) {
+		this.corrigidos = corrigidos;
+	}
+
+	public List<DivergenciaTotalDTO> getDivergencias() {
+		return divergencias;
+	}
+
+	public void setDivergencias(List<DivergenciaTotalDTO> divergencias) {
+		this.divergencias = divergencias;
+	}
+}
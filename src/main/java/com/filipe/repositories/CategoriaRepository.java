@@ -1,12 +1,42 @@
 package com.filipe.repositories;
 
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.filipe.domain.Categoria;
 
 @Repository
 public interface CategoriaRepository extends JpaRepository<Categoria, Integer> {
 	
+	/**
+	 * Busca uma página de categorias sem a consulta COUNT. O Slice busca um registro a mais que o 
+	 * tamanho da página apenas para informar se existe uma próxima página.
+	 * */
+	@Transactional(readOnly = true)
+	Slice<Categoria> findAllBy(Pageable pageRequest);
+	
+	/**
+	 * Retorna, em uma única linha, a versão da categoria e a quantidade, a soma das versões e a soma
+	 * dos ids dos seus produtos. Usada na ETag do GET /categorias/{id}, que também traz os produtos,
+	 * sem carregar a categoria. A lista fica vazia se a categoria não existir.
+	 * */
+	@Transactional(readOnly = true)
+	@Query("SELECT obj.versao, COUNT(prod), COALESCE(SUM(prod.versao), 0), COALESCE(SUM(prod.id), 0) "
+			+ "FROM Categoria obj LEFT JOIN obj.produtos prod WHERE obj.id = :id GROUP BY obj.id, obj.versao")
+	List<Object[]> findVersaoById(@Param("id") Integer id);
 	
+	/**
+	 * Retorna, em uma única linha, a quantidade de categorias e a soma das suas versões e dos seus ids.
+	 * Qualquer INSERT, UPDATE ou DELETE de uma categoria altera o resultado. Usada na ETag do GET /categorias.
+	 * */
+	@Transactional(readOnly = true)
+	@Query("SELECT COUNT(obj), COALESCE(SUM(obj.versao), 0), COALESCE(SUM(obj.id), 0) FROM Categoria obj")
+	List<Object[]> findVersaoAll();
 }
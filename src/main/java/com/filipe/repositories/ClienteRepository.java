@@ -1,10 +1,21 @@
 package com.filipe.repositories;
 
+import java.util.List;
+import java.util.stream.Stream;
+
+import javax.persistence.QueryHint;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.filipe.domain.Cliente;
+import com.filipe.dto.ClienteDTO;
 
 @Repository
 public interface ClienteRepository extends JpaRepository<Cliente, Integer> {
@@ -13,4 +24,59 @@ public interface ClienteRepository extends JpaRepository<Cliente, Integer> {
 	 * objetivo*/
 	@Transactional(readOnly = true)
 	Cliente findByEmail(String email);
+	
+	/**
+	 * Verifica se existe um cliente com o email informado sem carregar a entidade Cliente.
+	 * */
+	@Transactional(readOnly = true)
+	boolean existsByEmail(String email);
+	
+	/**
+	 * Retorna os emails de todos os clientes. Usado na construção do EmailBloomFilter.
+	 * 
+	 * Assim como no streamAllDTO() os registros são lidos aos poucos e o Stream deve ser consumido
+	 * dentro de uma transação.
+	 * */
+	@QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "1000"))
+	@Query("SELECT obj.email FROM Cliente obj WHERE obj.email IS NOT NULL")
+	Stream<String> streamAllEmails();
+	
+	/**
+	 * Busca um cliente junto com os endereços(com a cidade e o estado) em uma única consulta.
+	 * A lista de endereços não pode ser buscada junto com outra coleção no mesmo JOIN FETCH, 
+	 * pois cada endereço se repetiria uma vez para cada registro da outra coleção.
+	 * */
+	@Transactional(readOnly = true)
+	@Query("SELECT DISTINCT obj FROM Cliente obj "
+			+ "LEFT JOIN FETCH obj.enderecos ende LEFT JOIN FETCH ende.cidade cid LEFT JOIN FETCH cid.estado "
+			+ "WHERE obj.id = :id")
+	Cliente findComEnderecosById(@Param("id") Integer id);
+	
+	/**
+	 * Retorna, em uma única linha, a versão do cliente e a quantidade e o maior id dos seus endereços.
+	 * Os endereços entram na ETag do GET /clientes/{id} pois são gravados sem alterar a versão do
+	 * cliente. A lista fica vazia se o cliente não existir.
+	 * */
+	@Transactional(readOnly = true)
+	@Query("SELECT obj.versao, COUNT(ende), COALESCE(MAX(ende.id), 0) "
+			+ "FROM Cliente obj LEFT JOIN obj.enderecos ende WHERE obj.id = :id GROUP BY obj.id, obj.versao")
+	List<Object[]> findVersaoById(@Param("id") Integer id);
+	
+	/**
+	 * Busca uma página de clientes sem a consulta COUNT. O Slice busca um registro a mais que o 
+	 * tamanho da página apenas para informar se existe uma próxima página.
+	 * */
+	@Transactional(readOnly = true)
+	Slice<Cliente> findAllBy(Pageable pageRequest);
+	
+	/**
+	 * Retorna todos os clientes já convertidos em ClienteDTO, ordenados por id. Usado na exportação.
+	 * 
+	 * O Stream lê os registros do banco aos poucos (de 1000 em 1000) e deve ser consumido dentro
+	 * de uma transação. Como a consulta cria os DTOs diretamente(SELECT new), nenhuma entidade é
+	 * guardada no EntityManager e a memória usada não cresce com o tamanho da tabela.
+	 * */
+	@QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "1000"))
+	@Query("SELECT new com.filipe.dto.ClienteDTO(obj.id, obj.nome, obj.email) FROM Cliente obj ORDER BY obj.id")
+	Stream<ClienteDTO> streamAllDTO();
 }
@@ -0,0 +1,50 @@
+package com.filipe.repositories;
+
+import java.util.Date;
+import java.util.List;
+
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.filipe.domain.EventoOutbox;
+
+@Repository
+public interface EventoOutboxRepository extends JpaRepository<EventoOutbox, Integer> {
+
+	/**
+	 * Busca os eventos pendentes prontos para processamento, do mais antigo para o mais novo, 
+	 * bloqueando as linhas encontradas(SELECT ... FOR UPDATE) até o fim da transação.
+	 * 
+	 * O lock.timeout -2 pede ao Hibernate o SKIP LOCKED: linhas já bloqueadas por outra transação
+	 * são ignoradas ao invés de esperadas, assim várias instâncias da aplicação podem buscar
+	 * eventos ao mesmo tempo sem processar o mesmo evento. Nos dialetos sem suporte ao SKIP LOCKED
+	 * é usado um FOR UPDATE comum.
+	 * */
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	@QueryHints(@QueryHint(name = "javax.persistence.lock.timeout", value = "-2"))
+	@Query("SELECT obj FROM EventoOutbox obj WHERE obj.estado = :estado AND obj.proximaTentativa <= :agora ORDER BY obj.id")
+	List<EventoOutbox> findDisponiveis(@Param("estado") Integer estado, @Param("agora") Date agora, Pageable limite);
+
+	/**
+	 * Busca os ids dos eventos no estado informado processados antes do limite, do mais antigo para o 
+	 * mais novo. Usado na limpeza da outbox, que exclui os eventos em lotes.
+	 * */
+	@Query("SELECT obj.id FROM EventoOutbox obj WHERE obj.estado = :estado AND obj.processadoEm < :limite ORDER BY obj.id")
+	List<Integer> findIdsProcessadosAntes(@Param("estado") Integer estado, @Param("limite") Date limite, Pageable lote);
+	
+	/**
+	 * Exclui os eventos informados com um único DELETE.
+	 * */
+	@Modifying
+	@Query("DELETE FROM EventoOutbox obj WHERE obj.id IN :ids")
+	int deleteByIdIn(@Param("ids") List<Integer> ids);
+}
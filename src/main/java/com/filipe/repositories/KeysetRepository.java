@@ -0,0 +1,269 @@
+package com.filipe.repositories;
+
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Order;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.EntityType;
+
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.filipe.dto.CursorPage;
+import com.filipe.services.exceptions.InvalidParameterException;
+
+/**
+ * Repositório genérico para a paginação por cursor(keyset ou seek pagination).
+ *
+ * Na paginação por Page o banco precisa percorrer e descartar todas as linhas das páginas anteriores
+ * (OFFSET) e ainda executar uma consulta COUNT para calcular o total de páginas. Aqui a página
+ * seguinte é buscada a partir do último registro da página anterior:
+ * "WHERE (nome > :ultimoNome) OR (nome = :ultimoNome AND id > :ultimoId) ORDER BY nome, id",
+ * e nenhuma consulta COUNT é feita. O custo de cada página é o mesmo, seja ela a primeira ou a milésima.
+ *
+ * O cursor é um texto opaco(Base64) que guarda o atributo e a direção da ordenação e os valores
+ * do atributo e do id do último registro entregue. O id desempata registros com o mesmo valor.
+ * Apenas atributos do tipo String ou numéricos podem ser usados na ordenação.
+ *
+ * Os registros com o atributo nulo não são encontrados por "nome > :ultimoNome", por isso são buscados
+ * numa consulta separada(nome IS NULL) ordenada apenas pelo id. Como no PostgreSQL, o nulo é tratado
+ * como o maior valor: os registros nulos vêm depois dos demais na ordem ASC e antes na DESC. O cursor
+ * de um registro nulo não tem o valor("orderBy:direction:id"), assim não é confundido com o texto "null".
+ * */
+@Repository
+public class KeysetRepository {
+
+	private static final String SEPARADOR = ":";
+
+	/*Número máximo de registros por página, limita o tamanho de cada consulta*/
+	public static final int MAXIMO_LINHAS = 100;
+
+	@PersistenceContext
+	private EntityManager em;
+
+	/**
+	 * Busca uma página de registros a partir de um cursor.
+	 *
+	 * @param type a classe da entidade consultada.
+	 * @param filtro filtro adicional da consulta, pode ser null.
+	 * @param cursor o cursor next da página anterior. Vazio ou null para a primeira página.
+	 * @param linesPerPage Informa o número de registro máximo em cada página, de 1 a MAXIMO_LINHAS.
+	 * @param orderBy O identificador do atributo pelo qual os registros serão ordenados.
+	 * @param direction Indica a direção da ordenação, podendo ser ascendente ou descendente(ASC ou DESC).
+	 *
+	 * @return a página com os registros e o cursor para a próxima página.
+	 *
+	 * @throws InvalidParameterException se o cursor, a ordenação ou o número de registros por página
+	 * forem inválidos.
+	 * */
+	@Transactional(readOnly = true)
+	public <T> CursorPage<T> findPage(Class<T> type, Specification<T> filtro, String cursor, Integer linesPerPage,
+			String orderBy, String direction) {
+		if (linesPerPage == null || linesPerPage < 1 || linesPerPage > MAXIMO_LINHAS) {
+			throw new InvalidParameterException(
+					"O número de registros por página deve estar entre 1 e " + MAXIMO_LINHAS + ": " + linesPerPage);
+		}
+		Direction dir = direcao(direction);
+		Attribute<? super T, ?> atributo = atributo(type, orderBy);
+		Attribute<? super T, ?> atributoId = atributo(type, "id");
+		Object[] ultimo = (cursor == null || cursor.isEmpty()) ? null : decode(cursor, atributo, dir);
+
+		/*Os trechos da listagem na ordem em que são percorridos. O id nunca é nulo*/
+		List<Trecho> trechos = new ArrayList<>();
+		if ("id".equals(orderBy)) {
+			trechos.add(Trecho.TODOS);
+		} else if (dir.isAscending()) {
+			trechos.add(Trecho.COM_VALOR);
+			trechos.add(Trecho.NULOS);
+		} else {
+			trechos.add(Trecho.NULOS);
+			trechos.add(Trecho.COM_VALOR);
+		}
+
+		/*A busca começa no trecho do último registro entregue, apenas nele o cursor é usado*/
+		int inicio = 0;
+		if (ultimo != null && trechos.size() > 1) {
+			inicio = trechos.indexOf(ultimo[1] == null ? Trecho.NULOS : Trecho.COM_VALOR);
+		}
+
+		/*Busca um registro a mais apenas para saber se existe uma próxima página*/
+		List<T> lista = new ArrayList<>();
+		for (int i = inicio; i < trechos.size() && lista.size() <= linesPerPage; i++) {
+			lista.addAll(consultar(type, filtro, trechos.get(i), (i == inicio) ? ultimo : null, orderBy, dir,
+					linesPerPage + 1 - lista.size()));
+		}
+		if (lista.size() <= linesPerPage) {
+			return new CursorPage<>(lista, null);
+		}
+
+		lista = new ArrayList<>(lista.subList(0, linesPerPage));
+		T ultimoRegistro = lista.get(lista.size() - 1);
+		String next = encode(orderBy, dir, valor(atributoId, ultimoRegistro), valor(atributo, ultimoRegistro));
+		return new CursorPage<>(lista, next);
+	}
+
+	/**
+	 * Trechos da listagem: todos os registros(ordenação pelo id), os registros com o atributo de
+	 * ordenação preenchido e os registros com o atributo nulo.
+	 * */
+	private enum Trecho {
+		TODOS, COM_VALOR, NULOS
+	}
+
+	/**
+	 * Consulta os registros de um trecho da listagem a partir do último registro entregue.
+	 * */
+	private <T> List<T> consultar(Class<T> type, Specification<T> filtro, Trecho trecho, Object[] ultimo,
+			String orderBy, Direction dir, int maxResults) {
+		CriteriaBuilder cb = em.getCriteriaBuilder();
+		CriteriaQuery<T> query = cb.createQuery(type);
+		Root<T> root = query.from(type);
+
+		List<Predicate> predicados = new ArrayList<>();
+		if (filtro != null) {
+			predicados.add(filtro.toPredicate(root, query, cb));
+		}
+		if (trecho == Trecho.COM_VALOR) {
+			predicados.add(cb.isNotNull(root.get(orderBy)));
+		} else if (trecho == Trecho.NULOS) {
+			predicados.add(cb.isNull(root.get(orderBy)));
+		}
+		if (ultimo != null) {
+			predicados.add(seek(cb, root, ultimo, (trecho == Trecho.COM_VALOR) ? orderBy : null, dir));
+		}
+		query.where(predicados.toArray(new Predicate[predicados.size()]));
+
+		/*O id é sempre o último critério de ordenação para que a ordem seja única*/
+		List<Order> ordem = new ArrayList<>();
+		if (trecho == Trecho.COM_VALOR) {
+			ordem.add(dir.isAscending() ? cb.asc(root.get(orderBy)) : cb.desc(root.get(orderBy)));
+		}
+		ordem.add(dir.isAscending() ? cb.asc(root.get("id")) : cb.desc(root.get("id")));
+		query.orderBy(ordem);
+
+		return em.createQuery(query).setMaxResults(maxResults).getResultList();
+	}
+
+	/**
+	 * Monta o predicado (campo > valor) OR (campo = valor AND id > ultimoId), ou com "<" quando
+	 * a direção for DESC. Sem o campo(ordenação pelo id ou trecho dos nulos) apenas o id é comparado.
+	 * */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private <T> Predicate seek(CriteriaBuilder cb, Root<T> root, Object[] ultimo, String orderBy, Direction dir) {
+		Path<Comparable> id = root.get("id");
+		Comparable ultimoId = (Comparable) ultimo[0];
+		Predicate depoisDoId = dir.isAscending() ? cb.greaterThan(id, ultimoId) : cb.lessThan(id, ultimoId);
+		if (orderBy == null) {
+			return depoisDoId;
+		}
+
+		Path<Comparable> campo = root.get(orderBy);
+		Comparable valor = (Comparable) ultimo[1];
+		Predicate depoisDoValor = dir.isAscending() ? cb.greaterThan(campo, valor) : cb.lessThan(campo, valor);
+		return cb.or(depoisDoValor, cb.and(cb.equal(campo, valor), depoisDoId));
+	}
+
+	private Direction direcao(String direction) {
+		try {
+			return Direction.valueOf(direction);
+		} catch (IllegalArgumentException e) {
+			throw new InvalidParameterException("Direção de ordenação inválida: " + direction);
+		}
+	}
+
+	/**
+	 * Retorna o atributo da entidade usado na ordenação, validando se ele pode ser usado num cursor.
+	 * */
+	private <T> Attribute<? super T, ?> atributo(Class<T> type, String nome) {
+		EntityType<T> entidade = em.getMetamodel().entity(type);
+		Attribute<? super T, ?> atributo;
+		try {
+			atributo = entidade.getAttribute(nome);
+		} catch (IllegalArgumentException e) {
+			throw new InvalidParameterException("Atributo de ordenação inválido: " + nome);
+		}
+
+		Class<?> tipo = atributo.getJavaType();
+		if (atributo.isCollection() || !(String.class.equals(tipo) || Number.class.isAssignableFrom(tipo))) {
+			throw new InvalidParameterException("Atributo de ordenação inválido: " + nome);
+		}
+		return atributo;
+	}
+
+	/**
+	 * Lê o valor do atributo diretamente do campo da entidade, já que nem todos os getters retornam
+	 * o mesmo tipo do campo persistido(ex: o tipo do Cliente).
+	 * */
+	private Object valor(Attribute<?, ?> atributo, Object obj) {
+		Field field = (Field) atributo.getJavaMember();
+		try {
+			field.setAccessible(true);
+			return field.get(obj);
+		} catch (IllegalAccessException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Converte os valores do último registro em um texto opaco no formato
+	 * "orderBy:direction:id:valor", ou "orderBy:direction:id" se o valor for nulo, codificado em Base64.
+	 * */
+	private String encode(String orderBy, Direction dir, Object id, Object valor) {
+		String texto = orderBy + SEPARADOR + dir.name() + SEPARADOR + id;
+		if (valor != null) {
+			texto += SEPARADOR + valor;
+		}
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(texto.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Converte o cursor nos valores {id, valor} do último registro da página anterior.
+	 * O cursor só é aceito se tiver sido gerado com a mesma ordenação da requisição atual.
+	 * */
+	private Object[] decode(String cursor, Attribute<?, ?> atributo, Direction dir) {
+		try {
+			String texto = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+
+			/*
+			 * O valor é o último campo e pode conter o separador, por isso o limite de 4 partes.
+			 * Sem o quarto campo o valor é nulo, o que não é possível na ordenação pelo id.
+			 * */
+			String[] partes = texto.split(SEPARADOR, 4);
+			if (partes.length < 3 || !partes[0].equals(atributo.getName()) || !partes[1].equals(dir.name())
+					|| (partes.length == 3 && "id".equals(partes[0]))) {
+				throw new InvalidParameterException("Cursor inválido para a ordenação informada");
+			}
+			Object valor = (partes.length == 4) ? converter(partes[3], atributo.getJavaType()) : null;
+			return new Object[] { Integer.valueOf(partes[2]), valor };
+		} catch (IllegalArgumentException e) {
+			/*Base64 ou número mal formados(NumberFormatException é uma IllegalArgumentException)*/
+			throw new InvalidParameterException("Cursor inválido", e);
+		}
+	}
+
+	private Object converter(String valor, Class<?> tipo) {
+		if (Integer.class.equals(tipo)) {
+			return Integer.valueOf(valor);
+		}
+		if (Long.class.equals(tipo)) {
+			return Long.valueOf(valor);
+		}
+		if (Double.class.equals(tipo)) {
+			return Double.valueOf(valor);
+		}
+		return valor;
+	}
+}
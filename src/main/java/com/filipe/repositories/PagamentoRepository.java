@@ -1,11 +1,25 @@
 package com.filipe.repositories;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.filipe.domain.Pagamento;
+import com.filipe.dto.DadosBoletoDTO;
 
 @Repository
 public interface PagamentoRepository extends JpaRepository<Pagamento, Integer> {
 	
+	/**
+	 * Busca os dados impressos no boleto de um pedido pago com boleto. Retorna null se o pedido não
+	 * existir ou não for pago com boleto.
+	 * 
+	 * O id do pagamento é o mesmo id do pedido(@MapsId).
+	 * */
+	@Transactional(readOnly=true)
+	@Query("SELECT new com.filipe.dto.DadosBoletoDTO(pag.id, pag.dataVencimento, ped.valorTotal, cli.nome, cli.cpfOuCnpj) "
+			+ "FROM PagamentoComBoleto pag JOIN pag.pedido ped JOIN ped.cliente cli WHERE pag.id = :pedidoId")
+	DadosBoletoDTO findDadosBoleto(@Param("pedidoId") Integer pedidoId);
 }
@@ -1,11 +1,91 @@
 package com.filipe.repositories;
 
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import javax.persistence.QueryHint;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.filipe.domain.Pedido;
+import com.filipe.domain.Produto;
+import com.filipe.dto.PedidoResumoDTO;
 
 @Repository
 public interface PedidoRepository extends JpaRepository<Pedido, Integer> {
 	
+	/**
+	 * Busca um pedido junto com quase tudo o que é exibido no seu JSON, em uma única consulta: o 
+	 * pagamento(e a tabela da sua subclasse), o cliente com os telefones, o endereço de entrega com a
+	 * cidade e o estado e os itens. 
+	 * 
+	 * Sem o JOIN FETCH cada um desses relacionamentos seria carregado com uma consulta própria 
+	 * durante a serialização(problema N+1). Os produtos dos itens fazem parte da chave composta 
+	 * ItemPedidoPK e o Hibernate não os carrega por JOIN FETCH, por isso são buscados antes com o
+	 * método findProdutosDoPedido(). 
+	 * */
+	@Transactional(readOnly=true)
+	@Query("SELECT DISTINCT obj FROM Pedido obj "
+			+ "LEFT JOIN FETCH obj.pagamento "
+			+ "JOIN FETCH obj.cliente cli LEFT JOIN FETCH cli.telefones "
+			+ "LEFT JOIN FETCH obj.enderecoDeEntrega ende LEFT JOIN FETCH ende.cidade cid LEFT JOIN FETCH cid.estado "
+			+ "LEFT JOIN FETCH obj.itens "
+			+ "WHERE obj.id = :id")
+	Optional<Pedido> findCompletoById(@Param("id") Integer id);
+	
+	/**
+	 * Busca, em uma única consulta, todos os produtos dos itens de um pedido.
+	 * */
+	@Transactional(readOnly=true)
+	@Query("SELECT DISTINCT prod FROM ItemPedido item JOIN item.id.produto prod WHERE item.id.pedido.id = :id")
+	List<Produto> findProdutosDoPedido(@Param("id") Integer id);
+	
+	/**
+	 * Busca uma página com o resumo dos pedidos de um cliente. Os resumos são criados direto na 
+	 * consulta(SELECT new), sem carregar as entidades Pedido e Pagamento. A consulta e a contagem
+	 * usam o índice (cliente_id, instante) da tabela pedido.
+	 * */
+	@Transactional(readOnly=true)
+	@Query(value = "SELECT new com.filipe.dto.PedidoResumoDTO(obj.id, obj.instante, obj.valorTotal, pag.estadoPagamento) "
+			+ "FROM Pedido obj LEFT JOIN obj.pagamento pag WHERE obj.cliente.id = :clienteId",
+			countQuery = "SELECT COUNT(obj) FROM Pedido obj WHERE obj.cliente.id = :clienteId")
+	Page<PedidoResumoDTO> findResumosByClienteId(@Param("clienteId") Integer clienteId, Pageable pageRequest);
+	
+	/**
+	 * Retorna, para cada pedido, o id, o valor total e a quantidade de itens gravados e o valor
+	 * total e a quantidade de itens calculados a partir da tabela item_pedido. 
+	 * Usado na verificação dos totais gravados.
+	 * 
+	 * O Stream lê os registros do banco aos poucos (de 1000 em 1000) e deve ser consumido dentro
+	 * de uma transação.
+	 * */
+	@QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "1000"))
+	@Query("SELECT obj.id, obj.valorTotal, obj.quantidadeItens, "
+			+ "COALESCE(SUM((item.preco - item.desconto) * item.quantidade), 0), COUNT(item) "
+			+ "FROM Pedido obj LEFT JOIN obj.itens item "
+			+ "GROUP BY obj.id, obj.valorTotal, obj.quantidadeItens")
+	Stream<Object[]> streamTotais();
+	
+	/**
+	 * Recalcula no próprio banco, com um único UPDATE, o valor total e a quantidade de itens
+	 * dos pedidos informados.
+	 * 
+	 * @return a quantidade de pedidos atualizados
+	 * */
+	@Modifying
+	@Query("UPDATE Pedido obj SET "
+			+ "obj.valorTotal = (SELECT COALESCE(SUM((item.preco - item.desconto) * item.quantidade), 0) "
+			+ "FROM ItemPedido item WHERE item.id.pedido.id = obj.id), "
+			+ "obj.quantidadeItens = (SELECT COUNT(item) FROM ItemPedido item WHERE item.id.pedido.id = obj.id) "
+			+ "WHERE obj.id IN :ids")
+	int recalcularTotais(@Param("ids") List<Integer> ids);
 }
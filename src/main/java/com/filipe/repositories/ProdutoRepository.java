@@ -1,26 +1,34 @@
 package com.filipe.repositories;
 
 import java.util.List;
+import java.util.stream.Stream;
 
-import org.springframework.data.domain.Page;
+import javax.persistence.QueryHint;
+
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
-import com.filipe.domain.Categoria;
 import com.filipe.domain.Produto;
 
 @Repository
 public interface ProdutoRepository extends JpaRepository<Produto, Integer> {
 	
 	/**
-	 * Método que faz a busca de um produto a partir do nome e de uma lista de categorias a qual o produto
+	 * Método que faz a busca de um produto a partir do nome e de uma lista de ids das categorias a qual o produto
 	 * possa estar contido.
 	 * 
 	 * Pesquisar "jpa query method keywords"
+	 * 
+	 * A comparação é feita com o nome normalizado(Produto.nomeBusca), logo o padrão deve ser montado 
+	 * com o texto normalizado e os caracteres especiais do LIKE(%, _ e \) escapados com \. 
+	 * Ex: "%rocadeira%". Assim a consulta encontra os mesmos produtos que o ProdutoSearchIndex.
 	 * */
 	/* 
 	 * O framework Spring facilita a criação de métodos com consultas JPQL. Por isso não é necessário
@@ -31,9 +39,70 @@ public interface ProdutoRepository extends JpaRepository<Produto, Integer> {
 	 * @Param indica quais parâmetros do método são as variáveis correspondentes na Query.
 	 */ 
 	@Transactional(readOnly=true)
-	@Query("SELECT DISTINCT obj FROM Produto obj INNER JOIN obj.categorias cat WHERE obj.nome LIKE %:nome% AND cat IN :categorias")
-	Page<Produto> findDistinctByNomeContainingAndCategoriasIn(
-			@Param("nome") String nome, 
-			@Param("categorias") List<Categoria> categorias, 
+	@Query("SELECT DISTINCT obj FROM Produto obj INNER JOIN obj.categorias cat WHERE obj.nomeBusca LIKE :padrao ESCAPE '\\' AND cat.id IN :categorias")
+	Slice<Produto> findDistinctByNomeContainingAndCategoriasIn(
+			@Param("padrao") String padrao, 
+			@Param("categorias") List<Integer> categorias, 
 			Pageable pageRequest);
+	
+	/**
+	 * Conta os produtos da consulta findDistinctByNomeContainingAndCategoriasIn(). Como a consulta 
+	 * retorna um Slice, a contagem só é feita quando o total de registros for realmente necessário.
+	 * */
+	@Transactional(readOnly=true)
+	@Query("SELECT COUNT(DISTINCT obj) FROM Produto obj INNER JOIN obj.categorias cat WHERE obj.nomeBusca LIKE :padrao ESCAPE '\\' AND cat.id IN :categorias")
+	Long countDistinctByNomeContainingAndCategoriasIn(
+			@Param("padrao") String padrao, 
+			@Param("categorias") List<Integer> categorias);
+	
+	/**
+	 * Retorna o id e o nome de todos os produtos. Usado para carregar o índice de nomes.
+	 * 
+	 * O Stream lê os registros do banco aos poucos (de 1000 em 1000) e deve ser consumido dentro
+	 * de uma transação.
+	 * */
+	@QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "1000"))
+	@Query("SELECT obj.id, obj.nome FROM Produto obj")
+	Stream<Object[]> streamIdENome();
+	
+	/**
+	 * Retorna o id de cada produto junto com o id de cada uma de suas categorias. 
+	 * Usado para carregar o índice de categorias. Deve ser consumido dentro de uma transação.
+	 * */
+	@QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "1000"))
+	@Query("SELECT obj.id, cat.id FROM Produto obj INNER JOIN obj.categorias cat")
+	Stream<Object[]> streamIdECategoriaId();
+
+	/**
+	 * Retorna o estoque disponível do produto: o estoque consolidado menos as reservas ainda não
+	 * consolidadas. Retorna null se o produto não possuir controle de estoque ou não existir.
+	 * */
+	@Transactional(readOnly=true)
+	@Query("SELECT obj.estoque - COALESCE((SELECT SUM(r.quantidade) FROM ReservaEstoque r WHERE r.produtoId = obj.id), 0) "
+			+ "FROM Produto obj WHERE obj.id = :id")
+	Long findEstoqueDisponivel(@Param("id") Integer id);
+
+	/**
+	 * Retorna apenas a versão do produto, usada na ETag do GET /produtos/{id}, ou null se o produto
+	 * não existir.
+	 * */
+	@Transactional(readOnly=true)
+	@Query("SELECT obj.versao FROM Produto obj WHERE obj.id = :id")
+	Integer findVersaoById(@Param("id") Integer id);
+
+	/**
+	 * Desconta a quantidade do estoque do produto com um UPDATE direto, sem carregar o produto.
+	 * Usado na consolidação das reservas.
+	 * */
+	@Modifying
+	@Query("UPDATE Produto obj SET obj.estoque = obj.estoque - :quantidade WHERE obj.id = :id")
+	int baixarEstoque(@Param("id") Integer id, @Param("quantidade") Integer quantidade);
+
+	/**
+	 * Soma a quantidade ao estoque do produto. Um produto sem controle de estoque passa a ter
+	 * controle com a quantidade informada.
+	 * */
+	@Modifying
+	@Query("UPDATE Produto obj SET obj.estoque = COALESCE(obj.estoque, 0) + :quantidade WHERE obj.id = :id")
+	int reporEstoque(@Param("id") Integer id, @Param("quantidade") Integer quantidade);
 }
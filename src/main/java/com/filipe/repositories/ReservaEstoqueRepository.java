@@ -0,0 +1,38 @@
+package com.filipe.repositories;
+
+import java.util.List;
+
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.filipe.domain.ReservaEstoque;
+
+@Repository
+public interface ReservaEstoqueRepository extends JpaRepository<ReservaEstoque, Integer> {
+
+	/**
+	 * Busca as reservas mais antigas para a consolidação, bloqueando as linhas encontradas até o fim
+	 * da transação. Assim como na outbox, o lock.timeout -2 pede o SKIP LOCKED para que duas 
+	 * instâncias da aplicação não consolidem a mesma reserva.
+	 * */
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	@QueryHints(@QueryHint(name = "javax.persistence.lock.timeout", value = "-2"))
+	@Query("SELECT obj FROM ReservaEstoque obj ORDER BY obj.id")
+	List<ReservaEstoque> findParaConsolidar(Pageable limite);
+
+	/**
+	 * Exclui as reservas já descontadas do estoque dos produtos com um único DELETE.
+	 * */
+	@Modifying
+	@Query("DELETE FROM ReservaEstoque obj WHERE obj.id IN :ids")
+	int deleteByIdIn(@Param("ids") List<Integer> ids);
+}
@@ -7,7 +7,7 @@ import java.util.List;
 import javax.validation.Valid;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -18,10 +18,13 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import com.filipe.domain.Categoria;
 import com.filipe.dto.CategoriaDTO;
+import com.filipe.dto.CursorPage;
+import com.filipe.resources.utils.ETag;
 import com.filipe.services.CategoriaService;
 
 @RestController
@@ -36,7 +39,8 @@ public class CategoriaResource {
 	 * 
 	 * @param id do objeto a ser atualizado vindo através da URI
 	 * 
-	 * @return uma Resposta http com status ok e o objeto no body
+	 * @return uma Resposta http com status ok e o objeto no body ou com status 304(Not Modified)
+	 * e sem corpo se a categoria não mudou desde a ETag enviada no If-None-Match
 	 * */
 	/*
 	 * @ResponseEntity<?> tipo do springframework que encapsula informações de uma 
@@ -46,7 +50,17 @@ public class CategoriaResource {
 	 * que veio na uri
 	 * */
 	@GetMapping("/{id}")
-	public ResponseEntity<Categoria> find(@PathVariable Integer id) {
+	public ResponseEntity<Categoria> find(@PathVariable Integer id, WebRequest request) {
+		
+		/*
+		 * A ETag é montada apenas com as versões da categoria e dos seus produtos. Se for igual à
+		 * ETag do If-None-Match, checkNotModified() prepara a resposta 304 e a categoria nem é
+		 * carregada. Se a categoria não existir a ETag é nula e find(id) lançará a exceção.
+		 * */
+		String etag = ETag.fraca(service.findVersao(id));
+		if (etag != null && request.checkNotModified(etag)) {
+			return null;
+		}
 		
 		/*
 		 * Chama o método find(id). Esse método poderá lançar uma exceção 
@@ -62,8 +76,8 @@ public class CategoriaResource {
 		 * */
 		Categoria categoria = service.find(id);
 
-		//cria um objeto ReponseEntity com o status Ok e com o objeto como conteúdo do corpo.
-		return ResponseEntity.ok().body(categoria);
+		//cria um objeto ReponseEntity com o status Ok, a ETag e com o objeto como conteúdo do corpo.
+		return ResponseEntity.ok().eTag(etag).body(categoria);
 	}
 	
 	/**
@@ -155,14 +169,20 @@ public class CategoriaResource {
 	/**
 	 * Método que busca todas os Objetos
 	 * 
-	 * @return uma Resposta http com status ok(status 200) e a lista de objetos no corpo da resposta.
+	 * @return uma Resposta http com status ok(status 200) e a lista de objetos no corpo da resposta
+	 * ou com status 304(Not Modified) e sem corpo se nenhuma categoria mudou desde a ETag enviada.
 	 * */
 	/*
 	 * @ResponseEntity<?> tipo do springframework que encapsula informações de uma 
 	 * resposta HTTP para um serviço rest
 	 * */
 	@GetMapping()
-	public ResponseEntity<List<CategoriaDTO>> findAll() {
+	public ResponseEntity<List<CategoriaDTO>> findAll(WebRequest request) {
+		
+		String etag = ETag.fraca(service.findVersaoAll());
+		if (request.checkNotModified(etag)) {
+			return null;
+		}
 		
 		/*Faz a busca por todas as Categorias */
 		List<Categoria> list = service.findAll();
@@ -178,7 +198,7 @@ public class CategoriaResource {
 		}
 		
 		/*cria um objeto ReponseEntity com o status Ok e com uma lista no conteúdo do corpo*/
-		return ResponseEntity.ok().body(listaDTO);
+		return ResponseEntity.ok().eTag(etag).body(listaDTO);
 	}
 	
 	/**
@@ -194,6 +214,8 @@ public class CategoriaResource {
 	 * quantas linhas por página. 
 	 * @param orderBy O identificador do atributo pelo qual os registros serão ordenados. 
 	 * @param direction Indica a direção da ordenação, podendo ser ascendente ou descendente(ASC ou DESC).
+	 * @param count se false retorna um Slice, sem o total de registros e de páginas, evitando a 
+	 * consulta COUNT. Útil para listagens com rolagem infinita.
 	 * 
 	 * @return Page<?> uma Page que é uma sub-lista contendo um número definido de registros
 	 * */
@@ -205,18 +227,50 @@ public class CategoriaResource {
 	 * São utilizados valores padrões para cada parâmetro a sua passagem é opcional.
 	 * */
 	@GetMapping("/page")
-	public ResponseEntity<Page<CategoriaDTO>> findPage(
+	public ResponseEntity<Slice<CategoriaDTO>> findPage(
 			@RequestParam(value="page", defaultValue="0") Integer page, 
 			@RequestParam(value="linesPerPage", defaultValue="24") Integer linesPerPage, 
 			@RequestParam(value="orderBy", defaultValue="nome") String orderBy, 
-			@RequestParam(value="direction", defaultValue="ASC") String direction) {
+			@RequestParam(value="direction", defaultValue="ASC") String direction,
+			@RequestParam(value="count", defaultValue="true") Boolean count) {
 		
-		/*Chama o método findPage() que retorna uma Page<?> de acordo com os parâmetros*/
-		Page<Categoria> list = service.findPage(page, linesPerPage, orderBy, direction);
+		/*Chama o método findPage() que retorna uma Page<?> de acordo com os parâmetros. Com
+		 * count=false é chamado o findSlice() que dispensa a contagem dos registros*/
+		Slice<Categoria> list = count 
+				? service.findPage(page, linesPerPage, orderBy, direction)
+				: service.findSlice(page, linesPerPage, orderBy, direction);
 		
-		/*Converte a Page<?> em uma Page<?DTO> enviando apenas as informações necessárias
+		/*Converte a Slice<?> em uma Slice<?DTO> enviando apenas as informações necessárias
 		 * que queremos exibir de acordo com o DTO*/
-		Page<CategoriaDTO> listDto = list.map(obj -> new CategoriaDTO(obj));  
+		Slice<CategoriaDTO> listDto = list.map(obj -> new CategoriaDTO(obj));  
+		return ResponseEntity.ok().body(listDto);
+	}
+	
+	/**
+	 * Método que retorna uma página de registros a partir de um cursor(paginação por chave).
+	 * Na primeira requisição o cursor não é informado. Cada resposta traz o campo next que deve
+	 * ser enviado como cursor para obter a página seguinte, mantendo os mesmos orderBy e direction.
+	 * Quando next for null não há mais páginas. Ex: /categorias/cursor?linesPerPage=10&cursor=bm9tZTpBU0M6...
+	 * 
+	 * Diferente do endpoint /page, não executa a consulta COUNT, por isso a resposta não informa 
+	 * o total de registros nem o número da página.
+	 * 
+	 * @param cursor o cursor next retornado na página anterior.
+	 * @param linesPerPage Informa o número de registro máximo em cada página.
+	 * @param orderBy O identificador do atributo pelo qual os registros serão ordenados. 
+	 * @param direction Indica a direção da ordenação, podendo ser ascendente ou descendente(ASC ou DESC).
+	 * 
+	 * @return CursorPage<?> contendo os registros e o cursor da próxima página
+	 * */
+	@GetMapping("/cursor")
+	public ResponseEntity<CursorPage<CategoriaDTO>> findCursorPage(
+			@RequestParam(value="cursor", defaultValue="") String cursor, 
+			@RequestParam(value="linesPerPage", defaultValue="24") Integer linesPerPage, 
+			@RequestParam(value="orderBy", defaultValue="nome") String orderBy, 
+			@RequestParam(value="direction", defaultValue="ASC") String direction) {
+		
+		CursorPage<Categoria> list = service.findCursorPage(cursor, linesPerPage, orderBy, direction);
+		CursorPage<CategoriaDTO> listDto = list.map(obj -> new CategoriaDTO(obj));
 		return ResponseEntity.ok().body(listDto);
 	}
 	
@@ -1,5 +1,7 @@
 package com.filipe.resources;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.List;
@@ -8,6 +10,8 @@ import javax.validation.Valid;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -18,12 +22,24 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+
 import com.filipe.domain.Cliente;
 import com.filipe.dto.ClienteDTO;
+import com.filipe.dto.CursorPage;
 import com.filipe.dto.ClienteNewDTO;
+import com.filipe.dto.FiltroEmailDTO;
+import com.filipe.dto.PedidoResumoDTO;
+import com.filipe.resources.utils.ETag;
 import com.filipe.services.ClienteService;
+import com.filipe.services.PedidoService;
+import com.filipe.services.search.EmailBloomFilter;
 
 @RestController
 @RequestMapping("/clientes")
@@ -32,12 +48,22 @@ public class ClienteResource {
 	@Autowired
 	private ClienteService service;
 	
+	@Autowired
+	private ObjectMapper objectMapper;
+	
+	@Autowired
+	private PedidoService pedidoService;
+	
+	@Autowired
+	private EmailBloomFilter emailFilter;
+	
 	/**
 	 * Método que busca um objeto por Id
 	 * 
 	 * @param id do objeto a ser atualizado vindo através da URI
 	 * 
-	 * @return uma Resposta http com status ok e o objeto no body
+	 * @return uma Resposta http com status ok e o objeto no body ou com status 304(Not Modified)
+	 * e sem corpo se o cliente não mudou desde a ETag enviada no If-None-Match
 	 * */
 	/*
 	 * @ResponseEntity<?> tipo do springframework que encapsula informações de uma 
@@ -47,7 +73,16 @@ public class ClienteResource {
 	 * que veio na uri
 	 * */
 	@GetMapping("/{id}")
-	public ResponseEntity<Cliente> find(@PathVariable Integer id){
+	public ResponseEntity<Cliente> find(@PathVariable Integer id, WebRequest request){
+		
+		/*
+		 * A ETag é montada com a versão do cliente e dos seus endereços, consultadas sem carregá-lo.
+		 * Ver CategoriaResource.find()
+		 * */
+		String etag = ETag.fraca(service.findVersao(id));
+		if (etag != null && request.checkNotModified(etag)) {
+			return null;
+		}
 		
 		/*
 		 * Chama o método find(id). Esse método poderá lançar uma exceção 
@@ -63,7 +98,7 @@ public class ClienteResource {
 		 * */
 		Cliente cliente = service.find(id);
 		
-		return ResponseEntity.ok().body(cliente);
+		return ResponseEntity.ok().eTag(etag).body(cliente);
 	}
 	
 	/**
@@ -181,6 +216,68 @@ public class ClienteResource {
 		return ResponseEntity.ok().body(listaDTO);
 	}
 	
+	/**
+	 * Método que retorna o histórico de pedidos de um cliente, paginado e ordenado por padrão do 
+	 * pedido mais recente para o mais antigo. Cada pedido é um resumo com id, instante, valor 
+	 * total e estado do pagamento. Ex: /clientes/1/pedidos?page=0&linesPerPage=10
+	 * 
+	 * @param id o id do cliente
+	 * @param page informa o número da página. A página inicial é a de número zero.
+	 * @param linesPerPage Informa o número de registro máximo em cada página.
+	 * @param orderBy O identificador do atributo pelo qual os registros serão ordenados. 
+	 * @param direction Indica a direção da ordenação, podendo ser ascendente ou descendente(ASC ou DESC).
+	 * 
+	 * @return Page<?> uma Page com os resumos dos pedidos
+	 * */
+	@GetMapping("/{id}/pedidos")
+	public ResponseEntity<Page<PedidoResumoDTO>> findPedidos(
+			@PathVariable Integer id,
+			@RequestParam(value="page", defaultValue="0") Integer page, 
+			@RequestParam(value="linesPerPage", defaultValue="24") Integer linesPerPage, 
+			@RequestParam(value="orderBy", defaultValue="instante") String orderBy, 
+			@RequestParam(value="direction", defaultValue="DESC") String direction) {
+		
+		Page<PedidoResumoDTO> list = pedidoService.findPageByCliente(id, page, linesPerPage, orderBy, direction);
+		return ResponseEntity.ok().body(list);
+	}
+	
+	/**
+	 * Método que exporta todos os clientes no formato NDJSON: um ClienteDTO em JSON por linha.
+	 * 
+	 * Ao contrário do findAll(), a resposta é escrita enquanto os clientes são lidos do banco, sem
+	 * montar uma lista em memória. Assim a exportação funciona com qualquer quantidade de clientes.
+	 * 
+	 * @return uma resposta com status ok(status 200) cujo corpo é escrito aos poucos.
+	 * */
+	/*
+	 * StreamingResponseBody é executado em outra thread depois que o método retorna, liberando a 
+	 * thread da requisição enquanto a resposta é escrita.
+	 * */
+	@GetMapping(value = "/export", produces = "application/x-ndjson")
+	public ResponseEntity<StreamingResponseBody> export() {
+		StreamingResponseBody body = out -> {
+			/*SequenceWriter escreve um objeto JSON após o outro, separados por uma quebra de linha.
+			 * Sem AUTO_CLOSE_TARGET o fechamento do writer não fecha a resposta, que ainda recebe a 
+			 * quebra de linha final*/
+			try (SequenceWriter writer = objectMapper.writerFor(ClienteDTO.class)
+					.without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+					.withRootValueSeparator("\n").writeValues(out)) {
+				service.exportar(dto -> {
+					try {
+						writer.write(dto);
+					} catch (IOException e) {
+						/*Consumer não pode lançar IOException, por isso é encapsulada e relançada abaixo*/
+						throw new UncheckedIOException(e);
+					}
+				});
+			} catch (UncheckedIOException e) {
+				throw e.getCause();
+			}
+			out.write('\n');
+		};
+		return ResponseEntity.ok().contentType(MediaType.parseMediaType("application/x-ndjson")).body(body);
+	}
+	
 	/**
 	 * Método que retorna um objeto Page. Padrão utilizado que faz a listagem de objetos por paginação.
 	 * Uma página é uma sub-lista de uma lista de objetos. Em um banco de dados com muitos registros 
@@ -194,6 +291,8 @@ public class ClienteResource {
 	 * quantas linhas por página. 
 	 * @param orderBy O identificador do atributo pelo qual os registros serão ordenados. 
 	 * @param direction Indica a direção da ordenação, podendo ser ascendente ou descendente(ASC ou DESC).
+	 * @param count se false retorna um Slice, sem o total de registros e de páginas, evitando a 
+	 * consulta COUNT. Útil para listagens com rolagem infinita.
 	 * 
 	 * @return Page<?> uma Page que é uma sub-lista contendo um número definido de registros
 	 * */
@@ -205,18 +304,72 @@ public class ClienteResource {
 	 * São utilizados valores padrões para cada parâmetro a sua passagem é opcional.
 	 * */
 	@GetMapping("/page")
-	public ResponseEntity<Page<ClienteDTO>> findPage(
+	public ResponseEntity<Slice<ClienteDTO>> findPage(
 			@RequestParam(value="page", defaultValue="0") Integer page, 
 			@RequestParam(value="linesPerPage", defaultValue="24") Integer linesPerPage, 
 			@RequestParam(value="orderBy", defaultValue="nome") String orderBy, 
-			@RequestParam(value="direction", defaultValue="ASC") String direction) {
+			@RequestParam(value="direction", defaultValue="ASC") String direction,
+			@RequestParam(value="count", defaultValue="true") Boolean count) {
 		
-		/*Chama o método findPage() que retorna uma Page<?> de acordo com os parâmetros*/
-		Page<Cliente> list = service.findPage(page, linesPerPage, orderBy, direction);
+		/*Chama o método findPage() que retorna uma Page<?> de acordo com os parâmetros. Com
+		 * count=false é chamado o findSlice() que dispensa a contagem dos registros*/
+		Slice<Cliente> list = count 
+				? service.findPage(page, linesPerPage, orderBy, direction)
+				: service.findSlice(page, linesPerPage, orderBy, direction);
 		
-		/*Converte a Page<?> em uma Page<?DTO> enviando apenas as informações necessárias
+		/*Converte a Slice<?> em uma Slice<?DTO> enviando apenas as informações necessárias
 		 * que queremos exibir de acordo com o DTO*/
-		Page<ClienteDTO> listDto = list.map(obj -> new ClienteDTO(obj));  
+		Slice<ClienteDTO> listDto = list.map(obj -> new ClienteDTO(obj));  
+		return ResponseEntity.ok().body(listDto);
+	}
+	
+	/**
+	 * Método que retorna uma página de registros a partir de um cursor(paginação por chave).
+	 * Na primeira requisição o cursor não é informado. Cada resposta traz o campo next que deve
+	 * ser enviado como cursor para obter a página seguinte, mantendo os mesmos orderBy e direction.
+	 * Quando next for null não há mais páginas. Ex: /clientes/cursor?linesPerPage=10&cursor=bm9tZTpBU0M6...
+	 * 
+	 * Diferente do endpoint /page, não executa a consulta COUNT, por isso a resposta não informa 
+	 * o total de registros nem o número da página.
+	 * 
+	 * @param cursor o cursor next retornado na página anterior.
+	 * @param linesPerPage Informa o número de registro máximo em cada página.
+	 * @param orderBy O identificador do atributo pelo qual os registros serão ordenados. 
+	 * @param direction Indica a direção da ordenação, podendo ser ascendente ou descendente(ASC ou DESC).
+	 * 
+	 * @return CursorPage<?> contendo os registros e o cursor da próxima página
+	 * */
+	@GetMapping("/cursor")
+	public ResponseEntity<CursorPage<ClienteDTO>> findCursorPage(
+			@RequestParam(value="cursor", defaultValue="") String cursor, 
+			@RequestParam(value="linesPerPage", defaultValue="24") Integer linesPerPage, 
+			@RequestParam(value="orderBy", defaultValue="nome") String orderBy, 
+			@RequestParam(value="direction", defaultValue="ASC") String direction) {
+		
+		CursorPage<Cliente> list = service.findCursorPage(cursor, linesPerPage, orderBy, direction);
+		CursorPage<ClienteDTO> listDto = list.map(obj -> new ClienteDTO(obj));
 		return ResponseEntity.ok().body(listDto);
 	}
+	
+	/**
+	 * Método que retorna as estatísticas do filtro de emails usado na validação do cadastro de 
+	 * clientes: tamanho, taxa de falsos positivos estimada e consultas ao banco evitadas.
+	 * 
+	 * @return uma resposta com status ok e as estatísticas no corpo(body)
+	 * */
+	@GetMapping("/emails/filtro")
+	public ResponseEntity<FiltroEmailDTO> findFiltroEmails() {
+		return ResponseEntity.ok().body(emailFilter.getEstatisticas());
+	}
+	
+	/**
+	 * Método que reconstrói o filtro de emails a partir dos emails gravados no banco. Remove do 
+	 * filtro os emails alterados e de clientes excluídos.
+	 * 
+	 * @return uma resposta com status ok e as estatísticas do novo filtro no corpo(body)
+	 * */
+	@PostMapping("/emails/filtro")
+	public ResponseEntity<FiltroEmailDTO> reconstruirFiltroEmails() {
+		return ResponseEntity.ok().body(emailFilter.reconstruir());
+	}
 }
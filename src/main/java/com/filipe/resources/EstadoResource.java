@@ -0,0 +1,64 @@
+package com.filipe.resources;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.filipe.dto.CidadeDTO;
+import com.filipe.dto.EstadoDTO;
+import com.filipe.services.search.GeografiaIndex;
+
+/**
+ * Listas de Estados e Cidades usadas no cadastro de clientes. As respostas vêm do GeografiaIndex,
+ * sem acessar o banco de dados.
+ * 
+ * Cada resposta traz uma ETag fraca e o cabeçalho Cache-Control com max-age de
+ * geografia.cache.max-age-segundos. Quando a requisição trouxer a mesma ETag no If-None-Match o
+ * Spring responde 304 Not Modified sem corpo.
+ * */
+@RestController
+@RequestMapping("/estados")
+public class EstadoResource {
+	
+	@Autowired
+	private GeografiaIndex index;
+	
+	@Value("${geografia.cache.max-age-segundos:86400}")
+	private Long maxAgeSegundos;
+	
+	/**
+	 * Método que busca todos os Estados ordenados por nome.
+	 * 
+	 * @return uma resposta com status ok(status 200) e a lista de Estados no corpo da resposta.
+	 * */
+	@GetMapping()
+	public ResponseEntity<List<EstadoDTO>> findAll() {
+		GeografiaIndex.Lista<EstadoDTO> estados = index.findEstados();
+		return ResponseEntity.ok().eTag(estados.getEtag()).cacheControl(cacheControl()).body(estados.getItens());
+	}
+	
+	/**
+	 * Método que busca as Cidades de um Estado ordenadas por nome.
+	 * 
+	 * @param estadoId o id do Estado vindo através da URI
+	 * 
+	 * @return uma resposta com status ok(status 200) e a lista de Cidades no corpo da resposta.
+	 * */
+	@GetMapping("/{estadoId}/cidades")
+	public ResponseEntity<List<CidadeDTO>> findCidades(@PathVariable Integer estadoId) {
+		GeografiaIndex.Lista<CidadeDTO> cidades = index.findCidades(estadoId);
+		return ResponseEntity.ok().eTag(cidades.getEtag()).cacheControl(cacheControl()).body(cidades.getItens());
+	}
+	
+	private CacheControl cacheControl() {
+		return CacheControl.maxAge(maxAgeSegundos, TimeUnit.SECONDS).cachePublic();
+	}
+}
@@ -1,20 +1,35 @@
 package com.filipe.resources;
 
+import java.io.IOException;
 import java.net.URI;
+import java.util.List;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.filipe.domain.Pedido;
+import com.filipe.dto.ResultadoLoteDTO;
+import com.filipe.dto.VerificacaoTotaisDTO;
+import com.filipe.resources.idempotencia.HashCorpoAdvice;
+import com.filipe.resources.idempotencia.Idempotente;
+import com.filipe.services.BoletoService;
+import com.filipe.services.IdempotenciaService;
+import com.filipe.services.PedidoLoteService;
 import com.filipe.services.PedidoService;
 
 @RestController
@@ -23,6 +38,18 @@ public class PedidoResource {
 	
 	@Autowired
 	private PedidoService service;
+	
+	@Autowired
+	private PedidoLoteService loteService;
+	
+	@Autowired
+	private IdempotenciaService idempotencia;
+	
+	@Autowired
+	private BoletoService boletoService;
+	
+	@Autowired
+	private ObjectMapper objectMapper;
 
 	/**
 	 * Método que busca um objeto por Id
@@ -59,24 +86,93 @@ public class PedidoResource {
 		return ResponseEntity.ok().body(pedido);
 	}
 	
-	/**Método que insere um pedido*/
+	/**
+	 * Método que retorna o boleto(PDF) de um pedido pago com boleto
+	 * 
+	 * @param id do pedido vindo através da URI
+	 * 
+	 * @return uma resposta com status ok e o PDF no corpo(body). Status 404 se o pedido não existir
+	 * ou não for pago com boleto e 503 se a geração de boletos estiver sobrecarregada.
+	 * */
+	@GetMapping(value = "/{id}/boleto", produces = MediaType.APPLICATION_PDF_VALUE)
+	public ResponseEntity<byte[]> findBoleto(@PathVariable Integer id) {
+		byte[] pdf = boletoService.findPdf(id);
+		return ResponseEntity.ok()
+				.header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"boleto-" + id + ".pdf\"")
+				.body(pdf);
+	}
+	
+	/**
+	 * Método que insere um pedido
+	 * 
+	 * @param idempotencyKey chave opcional gerada pelo cliente. Uma nova tentativa com a mesma chave
+	 * e o mesmo corpo retorna o pedido criado na primeira tentativa, sem inserir outro pedido. A mesma
+	 * chave com outro corpo é recusada com o status 422.
+	 * */
+	@Idempotente
 	@PostMapping()
-	public ResponseEntity<Void> insert(@Valid @RequestBody Pedido obj){
+	public ResponseEntity<Void> insert(@Valid @RequestBody Pedido obj,
+			@RequestHeader(value = HashCorpoAdvice.IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+			HttpServletRequest request){
 		/*
-		 * Método que insere um novo objeto e retorna o objeto inserido já com o novo id
+		 * Método que insere um novo objeto e retorna o id do objeto inserido. Se a chave já foi
+		 * usada, o id do pedido já criado é retornado sem chamar o service.insert
 		 * */
-		obj = service.insert(obj);
+		Integer id = idempotencia.executar("pedidos", idempotencyKey, HashCorpoAdvice.getHash(request),
+				() -> service.insert(obj).getId());
 		
 		/*
 		 * Por padrão, o status http 201 CREATED deve retornar o objeto criado e a URI do
 		 * novo objeto criado. A linha abaixo criará uma URI para referenciar o novo objeto.
 		 * Exemplo : pedidos/{id} 
 		 * */
-		URI uri = ServletUriComponentsBuilder.fromCurrentRequest().path("/{id}").buildAndExpand(obj.getId()).toUri();
+		URI uri = ServletUriComponentsBuilder.fromCurrentRequest().path("/{id}").buildAndExpand(id).toUri();
 		
 		
 		/*Retorna uma resposta HTTP sem corpo com um status e o uri no Headers que referência o novo obj 
 		 * Ex: pedidos/{id}*/
 		return ResponseEntity.created(uri).build();
 	}
+	
+	/**
+	 * Método que verifica se o valor total e a quantidade de itens gravados em cada pedido
+	 * correspondem aos seus itens, sem alterar nenhum pedido.
+	 * 
+	 * @return uma resposta com status ok e o resultado da verificação no corpo(body)
+	 * */
+	@GetMapping("/totais")
+	public ResponseEntity<VerificacaoTotaisDTO> verificarTotais() {
+		return ResponseEntity.ok().body(service.verificarTotais(false));
+	}
+	
+	/**
+	 * Método que faz a mesma verificação do método verificarTotais() e recalcula os totais
+	 * dos pedidos divergentes.
+	 * 
+	 * @return uma resposta com status ok e o resultado da verificação no corpo(body)
+	 * */
+	@PostMapping("/totais")
+	public ResponseEntity<VerificacaoTotaisDTO> corrigirTotais() {
+		return ResponseEntity.ok().body(service.verificarTotais(true));
+	}
+	
+	/**
+	 * Método que insere pedidos em lote. O corpo da requisição pode ser um array Json de pedidos
+	 * ou um pedido Json por linha (NDJSON).
+	 * 
+	 * Os pedidos são lidos um a um diretamente do corpo da requisição, sem carregar todo o 
+	 * conteúdo em memória, e salvos em blocos pelo PedidoLoteService.
+	 * 
+	 * @return uma resposta com status ok e o resultado de cada pedido no corpo(body)
+	 * */
+	/*
+	 * MappingIterator lê o próximo pedido do InputStream apenas quando next() for chamado.
+	 * */
+	@PostMapping(value = "/batch", consumes = { MediaType.APPLICATION_JSON_VALUE, "application/x-ndjson" })
+	public ResponseEntity<List<ResultadoLoteDTO>> insertBatch(HttpServletRequest request) throws IOException {
+		try (MappingIterator<Pedido> pedidos = objectMapper.readerFor(Pedido.class).readValues(request.getInputStream())) {
+			List<ResultadoLoteDTO> resultados = loteService.importar(pedidos);
+			return ResponseEntity.ok().body(resultados);
+		}
+	}
 }
@@ -3,17 +3,23 @@ package com.filipe.resources;
 import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 import com.filipe.domain.Produto;
+import com.filipe.dto.CursorPage;
+import com.filipe.dto.EstoqueDTO;
 import com.filipe.dto.ProdutoDTO;
+import com.filipe.resources.utils.ETag;
 import com.filipe.resources.utils.URL;
+import com.filipe.services.EstoqueService;
 import com.filipe.services.ProdutoService;
 
 @RestController
@@ -22,15 +28,26 @@ public class ProdutoResource {
 	
 	@Autowired
 	private ProdutoService service;
+	
+	@Autowired
+	private EstoqueService estoqueService;
 
 	/**
 	 * Método que busca um objeto por Id
 	 * 
 	 * @param id do objeto a ser atualizado vindo através da URI
-	 * @return um objeto ReponseEntity com o status Ok e com o objeto como conteúdo do corpo(body).
+	 * @return um objeto ReponseEntity com o status Ok e com o objeto como conteúdo do corpo(body)
+	 * ou com status 304(Not Modified) e sem corpo se o produto não mudou desde a ETag enviada no
+	 * If-None-Match.
 	 * */
 	@GetMapping("/{id}")
-	public ResponseEntity<Produto> find(@PathVariable Integer id) {
+	public ResponseEntity<Produto> find(@PathVariable Integer id, WebRequest request) {
+		
+		/*A ETag é a versão do produto, consultada sem carregá-lo. Ver CategoriaResource.find()*/
+		String etag = ETag.fraca(service.findVersao(id));
+		if (etag != null && request.checkNotModified(etag)) {
+			return null;
+		}
 		
 		/*
 		 * Chama o método find(id). Esse método poderá lançar uma exceção 
@@ -39,9 +56,37 @@ public class ProdutoResource {
 		 * */
 		Produto produto = service.find(id);
 
-		return ResponseEntity.ok().body(produto);
+		return ResponseEntity.ok().eTag(etag).body(produto);
 	}
+
 	
+	/**
+	 * Método que retorna o estoque disponível de um produto
+	 * 
+	 * @param id do produto vindo através da URI
+	 * @return uma resposta com status ok e o estoque disponível no corpo(body)
+	 * */
+	@GetMapping("/{id}/estoque")
+	public ResponseEntity<EstoqueDTO> findEstoque(@PathVariable Integer id) {
+		/*Lança ObjectNotFoundException se o produto não existir*/
+		service.find(id);
+		return ResponseEntity.ok().body(new EstoqueDTO(id, estoqueService.disponivel(id)));
+	}
+	
+	/**
+	 * Método que repõe o estoque de um produto. Exemplo: POST /produtos/3/estoque?quantidade=50
+	 * 
+	 * @param id do produto vindo através da URI
+	 * @param quantidade a quantidade a ser somada ao estoque
+	 * @return uma resposta com status ok e o novo estoque disponível no corpo(body)
+	 * */
+	@PostMapping("/{id}/estoque")
+	public ResponseEntity<EstoqueDTO> reporEstoque(@PathVariable Integer id, 
+			@RequestParam(value="quantidade") Integer quantidade) {
+		service.find(id);
+		estoqueService.repor(id, quantidade);
+		return ResponseEntity.ok().body(new EstoqueDTO(id, estoqueService.disponivel(id)));
+	}	
 	
 	/**
 	 * Método que faz a busca de um Produto usando o nome e uma lista de categorias como filtros.
@@ -57,6 +102,8 @@ public class ProdutoResource {
 	 * quantas linhas por página. 
 	 * @param orderBy O identificador do atributo pelo qual os registros serão ordenados. 
 	 * @param direction Indica a direção da ordenação, podendo ser ascendente ou descendente(ASC ou DESC).
+	 * @param count se false retorna um Slice, sem o total de registros e de páginas, evitando a 
+	 * consulta COUNT. Útil para listagens com rolagem infinita.
 	 * 
 	 * @return Page<?> uma Page que é uma sub-lista contendo um número definido de registros
 	 * */
@@ -68,13 +115,14 @@ public class ProdutoResource {
 	 * São utilizados valores padrões para cada parâmetro a sua passagem é opcional.
 	 * */
 	@GetMapping("/page")
-	public ResponseEntity<Page<ProdutoDTO>> findPage(
+	public ResponseEntity<Slice<ProdutoDTO>> findPage(
 			@RequestParam(value="nome", defaultValue="") String nome, 
 			@RequestParam(value="categorias", defaultValue="") String categorias, 
 			@RequestParam(value="page", defaultValue="0") Integer page, 
 			@RequestParam(value="linesPerPage", defaultValue="24") Integer linesPerPage, 
 			@RequestParam(value="orderBy", defaultValue="nome") String orderBy, 
-			@RequestParam(value="direction", defaultValue="ASC") String direction) {
+			@RequestParam(value="direction", defaultValue="ASC") String direction,
+			@RequestParam(value="count", defaultValue="true") Boolean count) {
 		
 		/*Método que faz o Decode*/
 		String nomeDecoded = URL.decodeParam(nome);
@@ -83,13 +131,50 @@ public class ProdutoResource {
 		List<Integer> ids = URL.decodeIntList(categorias);
 		
 		/*faz a busca através da Query pelo produto a partir do nome e de uma lista de categorias*/
-		Page<Produto> list = service.search(nomeDecoded, ids, page, linesPerPage, orderBy, direction);
+		/*Com count=false a contagem é dispensada e é retornado um Slice ao invés de um Page*/
+		Slice<Produto> list = count 
+				? service.search(nomeDecoded, ids, page, linesPerPage, orderBy, direction)
+				: service.searchSlice(nomeDecoded, ids, page, linesPerPage, orderBy, direction);
 		
 		/*Converte cada Produto em list em um ProdutoDTO */
-		Page<ProdutoDTO> listDto = list.map(obj -> new ProdutoDTO(obj));
+		Slice<ProdutoDTO> listDto = list.map(obj -> new ProdutoDTO(obj));
 		
 		/*retorna para a view a listaDTO contendo todos os produtos com determinado nome presente em
 		 * determinadas categorias passadas nos parâmetros do método*/
 		return ResponseEntity.ok().body(listDto);
 	}
+	
+	/**
+	 * Método que faz a mesma busca do endpoint /page porém paginada por cursor. Na primeira 
+	 * requisição o cursor não é informado. Cada resposta traz o campo next que deve ser enviado 
+	 * como cursor para obter a página seguinte, mantendo os mesmos filtros e ordenação.
+	 * Ex: /produtos/cursor?nome=Smart&categorias=1,4&cursor=bm9tZTpBU0M6...
+	 * 
+	 * Não executa a consulta COUNT, por isso a resposta não informa o total de registros.
+	 * 
+	 * @param nome ou parte do nome de um produto.
+	 * @param categorias parâmetro que representa os ids das categorias, separados por virgula.
+	 * @param cursor o cursor next retornado na página anterior.
+	 * @param linesPerPage Informa o número de registro máximo em cada página.
+	 * @param orderBy O identificador do atributo pelo qual os registros serão ordenados. 
+	 * @param direction Indica a direção da ordenação, podendo ser ascendente ou descendente(ASC ou DESC).
+	 * 
+	 * @return CursorPage<?> contendo os registros e o cursor da próxima página
+	 * */
+	@GetMapping("/cursor")
+	public ResponseEntity<CursorPage<ProdutoDTO>> findCursorPage(
+			@RequestParam(value="nome", defaultValue="") String nome, 
+			@RequestParam(value="categorias", defaultValue="") String categorias, 
+			@RequestParam(value="cursor", defaultValue="") String cursor, 
+			@RequestParam(value="linesPerPage", defaultValue="24") Integer linesPerPage, 
+			@RequestParam(value="orderBy", defaultValue="nome") String orderBy, 
+			@RequestParam(value="direction", defaultValue="ASC") String direction) {
+		
+		String nomeDecoded = URL.decodeParam(nome);
+		List<Integer> ids = URL.decodeIntList(categorias);
+		
+		CursorPage<Produto> list = service.searchCursor(nomeDecoded, ids, cursor, linesPerPage, orderBy, direction);
+		CursorPage<ProdutoDTO> listDto = list.map(obj -> new ProdutoDTO(obj));
+		return ResponseEntity.ok().body(listDto);
+	}
 }
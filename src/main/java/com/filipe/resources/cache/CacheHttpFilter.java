@@ -0,0 +1,169 @@
+package com.filipe.resources.cache;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UrlPathHelper;
+
+/**
+ * Acrescenta o cabeçalho Cache-Control às respostas de acordo com as políticas de
+ * CacheHttpProperties, sem alterar os controllers.
+ *
+ * Apenas respostas com sucesso(2xx) e respostas 304 de GET e HEAD recebem o cabeçalho. A RFC 7232
+ * exige que a resposta 304 repita o Cache-Control da resposta 200, caso contrário o cliente não
+ * renova o max-age da cópia guardada. Uma resposta que já tenha o seu próprio Cache-Control(como as
+ * do EstadoResource) não é alterada. Se mais de uma política atender o caminho, vale a do padrão mais
+ * específico(AntPathMatcher): a política do estoque de um produto prevalece sobre a política de
+ * /produtos/**.
+ *
+ * O status e os cabeçalhos só são conhecidos após o controller, mas não podem ser alterados depois que
+ * o corpo começa a ser escrito. Por isso o cabeçalho é definido no momento em que o corpo é aberto ou,
+ * nas respostas sem corpo como as 304 do checkNotModified(), ao final do filtro. Os valores do
+ * cabeçalho são montados uma única vez, na inicialização.
+ * */
+@Component
+public class CacheHttpFilter extends OncePerRequestFilter {
+
+	@Autowired
+	private CacheHttpProperties properties;
+
+	private final AntPathMatcher matcher = new AntPathMatcher();
+
+	private final UrlPathHelper urlPathHelper = new UrlPathHelper();
+
+	/*Padrões de caminho e o valor do Cache-Control da política de cada um*/
+	private final List<String> caminhos = new ArrayList<>();
+	private final List<String> valores = new ArrayList<>();
+
+	@PostConstruct
+	public void init() {
+		for (Map.Entry<String, CacheHttpProperties.Politica> entry : properties.getPoliticas().entrySet()) {
+			String valor = cacheControl(entry.getValue()).getHeaderValue();
+			for (String caminho : entry.getValue().getCaminhos()) {
+				caminhos.add(caminho);
+				valores.add(valor);
+			}
+		}
+	}
+
+	@Override
+	protected boolean shouldNotFilter(HttpServletRequest request) {
+		return !properties.isHabilitado() || caminhos.isEmpty()
+				|| !(HttpMethod.GET.matches(request.getMethod()) || HttpMethod.HEAD.matches(request.getMethod()));
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+			throws ServletException, IOException {
+
+		String valor = findValor(urlPathHelper.getPathWithinApplication(request));
+		if (valor == null) {
+			filterChain.doFilter(request, response);
+			return;
+		}
+
+		RespostaComCache resposta = new RespostaComCache(response, valor);
+		filterChain.doFilter(request, resposta);
+
+		/*Uma resposta assíncrona(ex: StreamingResponseBody) ainda não foi escrita, o cabeçalho será
+		 * definido quando o corpo for aberto*/
+		if (!request.isAsyncStarted()) {
+			resposta.aplicar();
+		}
+	}
+
+	/*Retorna o Cache-Control do padrão mais específico que atenda o caminho ou null se nenhum atender*/
+	private String findValor(String caminho) {
+		Comparator<String> maisEspecifico = matcher.getPatternComparator(caminho);
+		int melhor = -1;
+		for (int i = 0; i < caminhos.size(); i++) {
+			if (matcher.match(caminhos.get(i), caminho)
+					&& (melhor < 0 || maisEspecifico.compare(caminhos.get(i), caminhos.get(melhor)) < 0)) {
+				melhor = i;
+			}
+		}
+		return (melhor < 0) ? null : valores.get(melhor);
+	}
+
+	private static CacheControl cacheControl(CacheHttpProperties.Politica politica) {
+		if (!politica.isArmazenar()) {
+			return CacheControl.noStore();
+		}
+		CacheControl cacheControl;
+		if (politica.getMaxAgeSegundos() == null) {
+			cacheControl = CacheControl.noCache();
+		} else {
+			cacheControl = CacheControl.maxAge(politica.getMaxAgeSegundos(), TimeUnit.SECONDS);
+			if (politica.getStaleWhileRevalidateSegundos() != null) {
+				cacheControl = cacheControl.staleWhileRevalidate(politica.getStaleWhileRevalidateSegundos(), TimeUnit.SECONDS);
+			}
+		}
+		return politica.isPublica() ? cacheControl.cachePublic() : cacheControl.cachePrivate();
+	}
+
+	/**
+	 * Resposta que define o Cache-Control da política imediatamente antes do corpo ser aberto, quando o
+	 * status e os cabeçalhos do controller já foram definidos.
+	 * */
+	private static class RespostaComCache extends HttpServletResponseWrapper {
+
+		private final String valor;
+		private boolean aplicado;
+
+		RespostaComCache(HttpServletResponse response, String valor) {
+			super(response);
+			this.valor = valor;
+		}
+
+		void aplicar() {
+			if (aplicado) {
+				return;
+			}
+			aplicado = true;
+
+			int status = getStatus();
+			boolean sucesso = (status >= 200 && status < 300) || status == HttpServletResponse.SC_NOT_MODIFIED;
+			if (sucesso && !isCommitted() && !containsHeader(HttpHeaders.CACHE_CONTROL)) {
+				setHeader(HttpHeaders.CACHE_CONTROL, valor);
+			}
+		}
+
+		@Override
+		public ServletOutputStream getOutputStream() throws IOException {
+			aplicar();
+			return super.getOutputStream();
+		}
+
+		@Override
+		public PrintWriter getWriter() throws IOException {
+			aplicar();
+			return super.getWriter();
+		}
+
+		@Override
+		public void flushBuffer() throws IOException {
+			aplicar();
+			super.flushBuffer();
+		}
+	}
+}
@@ -0,0 +1,108 @@
+package com.filipe.resources.cache;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Políticas de cache das respostas HTTP, lidas das propriedades http.cache.*
+ *
+ * Cada política tem um nome, os caminhos(padrões do AntPathMatcher, como /categorias/**) em que é
+ * aplicada e os valores do cabeçalho Cache-Control. Exemplo:
+ *
+ *  http.cache.politicas.categorias.caminhos=/categorias,/categorias/**
+ *  http.cache.politicas.categorias.max-age-segundos=300
+ *  http.cache.politicas.categorias.stale-while-revalidate-segundos=3600
+ *  http.cache.politicas.categorias.publica=true
+ * */
+@Component
+@ConfigurationProperties(prefix = "http.cache")
+public class CacheHttpProperties {
+
+	/*Com habilitado=false nenhuma resposta recebe o Cache-Control das políticas*/
+	private boolean habilitado = true;
+
+	private Map<String, Politica> politicas = new LinkedHashMap<>();
+
+	public boolean isHabilitado() {
+		return habilitado;
+	}
+
+	public void setHabilitado(boolean habilitado) {
+		this.habilitado = habilitado;
+	}
+
+	public Map<String, Politica> getPoliticas() {
+		return politicas;
+	}
+
+	public void setPoliticas(Map<String, Politica> politicas) {
+		this.politicas = politicas;
+	}
+
+	/**
+	 * Uma política de cache.
+	 *
+	 * Sem maxAgeSegundos a resposta recebe no-cache: pode ser guardada, mas deve ser revalidada(ETag)
+	 * a cada uso. Com armazenar=false a resposta recebe no-store e os demais valores são ignorados.
+	 * */
+	public static class Politica {
+
+		private List<String> caminhos = new ArrayList<>();
+
+		/*Tempo em que a resposta é usada sem consultar o servidor*/
+		private Long maxAgeSegundos;
+
+		/*Tempo, após o max-age, em que a resposta antiga ainda é usada enquanto é revalidada em segundo plano*/
+		private Long staleWhileRevalidateSegundos;
+
+		/*public permite o cache em proxies e CDNs. Respostas de um cliente devem ser private*/
+		private boolean publica = false;
+
+		private boolean armazenar = true;
+
+		public List<String> getCaminhos() {
+			return caminhos;
+		}
+
+		public void setCaminhos(List<String> caminhos) {
+			this.caminhos = caminhos;
+		}
+
+		public Long getMaxAgeSegundos() {
+			return maxAgeSegundos;
+		}
+
+		public void setMaxAgeSegundos(Long maxAgeSegundos) {
+			this.maxAgeSegundos = maxAgeSegundos;
+		}
+
+		public Long getStaleWhileRevalidateSegundos() {
+			return staleWhileRevalidateSegundos;
+		}
+
+		public void setStaleWhileRevalidateSegundos(Long staleWhileRevalidateSegundos) {
+			this.staleWhileRevalidateSegundos = staleWhileRevalidateSegundos;
+		}
+
+		public boolean isPublica() {
+			return publica;
+		}
+
+		public void setPublica(boolean publica) {
+			this.publica = publica;
+		}
+
+		public boolean isArmazenar() {
+			return armazenar;
+		}
+
+		public void setArmazenar(boolean armazenar) {
+			this.armazenar = armazenar;
+		}
+	}
+}
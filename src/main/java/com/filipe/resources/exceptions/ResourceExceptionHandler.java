@@ -2,6 +2,7 @@ package com.filipe.resources.exceptions;
 
 import javax.servlet.http.HttpServletRequest;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
@@ -10,7 +11,11 @@ import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 
 import com.filipe.services.exceptions.DataIntegrityException;
+import com.filipe.services.exceptions.EstoqueInsuficienteException;
+import com.filipe.services.exceptions.IdempotenciaConflitoException;
+import com.filipe.services.exceptions.InvalidParameterException;
 import com.filipe.services.exceptions.ObjectNotFoundException;
+import com.filipe.services.exceptions.ServicoIndisponivelException;
 
 /**
  * A anotação @ControllerAdvice indica que os métodos desta classe serão
@@ -78,6 +83,100 @@ public class ResourceExceptionHandler {
 		return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(err);
 	}
 
+	/**
+	 * Método chamado quando uma exceção do tipo InvalidParameterException for lançada
+	 * nas classes do pacote controller.
+	 * 
+	 * @param e       exceção do tipo InvalidParameterException lançada no pacote
+	 *                controller
+	 * @param request objeto do tipo HttpServletRequest contendo as informações da
+	 *                requisição.
+	 * 
+	 * @return um Objeto ResponseEntity com o código do erro e o objeto
+	 *         StandardError no corpo(body) da resposta
+	 */
+	@ExceptionHandler(InvalidParameterException.class)
+	public ResponseEntity<StandardError> invalidParameter(InvalidParameterException e, HttpServletRequest request) {
+
+		StandardError err = new StandardError(HttpStatus.BAD_REQUEST.value(), e.getMessage(),
+				System.currentTimeMillis());
+
+		return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(err);
+	}
+
+	/**
+	 * Método chamado quando uma exceção do tipo EstoqueInsuficienteException for lançada
+	 * nas classes do pacote controller.
+	 * 
+	 * @param e       exceção do tipo EstoqueInsuficienteException lançada no pacote
+	 *                controller
+	 * @param request objeto do tipo HttpServletRequest contendo as informações da
+	 *                requisição.
+	 * 
+	 * @return um Objeto ResponseEntity com o código do erro e o objeto
+	 *         StandardError no corpo(body) da resposta
+	 */
+	/*
+	 * Status 409(CONFLICT): a requisição é válida, mas conflita com o estado atual do estoque
+	 */
+	@ExceptionHandler(EstoqueInsuficienteException.class)
+	public ResponseEntity<StandardError> estoqueInsuficiente(EstoqueInsuficienteException e, HttpServletRequest request) {
+
+		StandardError err = new StandardError(HttpStatus.CONFLICT.value(), e.getMessage(),
+				System.currentTimeMillis());
+
+		return ResponseEntity.status(HttpStatus.CONFLICT).body(err);
+	}
+
+	/**
+	 * Método chamado quando uma exceção do tipo IdempotenciaConflitoException for lançada
+	 * nas classes do pacote controller.
+	 * 
+	 * @param e       exceção do tipo IdempotenciaConflitoException lançada no pacote
+	 *                controller
+	 * @param request objeto do tipo HttpServletRequest contendo as informações da
+	 *                requisição.
+	 * 
+	 * @return um Objeto ResponseEntity com o código do erro e o objeto
+	 *         StandardError no corpo(body) da resposta
+	 */
+	/*
+	 * Status 422(UNPROCESSABLE ENTITY): a Idempotency-Key já foi usada com outro corpo de requisição
+	 */
+	@ExceptionHandler(IdempotenciaConflitoException.class)
+	public ResponseEntity<StandardError> idempotenciaConflito(IdempotenciaConflitoException e, HttpServletRequest request) {
+
+		StandardError err = new StandardError(HttpStatus.UNPROCESSABLE_ENTITY.value(), e.getMessage(),
+				System.currentTimeMillis());
+
+		return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(err);
+	}
+
+	/**
+	 * Método chamado quando uma exceção do tipo ServicoIndisponivelException for lançada
+	 * nas classes do pacote controller.
+	 * 
+	 * @param e       exceção do tipo ServicoIndisponivelException lançada no pacote
+	 *                controller
+	 * @param request objeto do tipo HttpServletRequest contendo as informações da
+	 *                requisição.
+	 * 
+	 * @return um Objeto ResponseEntity com o código do erro e o objeto
+	 *         StandardError no corpo(body) da resposta
+	 */
+	/*
+	 * Status 503(SERVICE UNAVAILABLE) com o cabeçalho Retry-After, em segundos, indicando
+	 * quando o cliente pode tentar novamente
+	 */
+	@ExceptionHandler(ServicoIndisponivelException.class)
+	public ResponseEntity<StandardError> servicoIndisponivel(ServicoIndisponivelException e, HttpServletRequest request) {
+
+		StandardError err = new StandardError(HttpStatus.SERVICE_UNAVAILABLE.value(), e.getMessage(),
+				System.currentTimeMillis());
+
+		return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "5").body(err);
+	}
+
 	/**
 	 * Método chamado quando uma exceção do tipo MethodArgumentNotValidException for
 	 * lançada nas classes do pacote controller. Essa exceção se dá quando um
@@ -0,0 +1,83 @@
+package com.filipe.resources.idempotencia;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Type;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.servlet.mvc.method.annotation.RequestBodyAdviceAdapter;
+
+/**
+ * Calcula o hash(SHA-256) do corpo das requisições enviadas com o cabeçalho Idempotency-Key aos
+ * métodos anotados com @Idempotente, antes da conversão do JSON, e o guarda num atributo da requisição. O IdempotenciaService compara esse
+ * hash com o da primeira requisição com a mesma chave, assim a chave não pode ser reutilizada com
+ * outro corpo.
+ *
+ * O hash é calculado sobre os bytes recebidos: uma nova tentativa deve reenviar o mesmo corpo. As
+ * requisições sem o cabeçalho e as dos demais métodos não são alteradas, assim o corpo de outros
+ * endpoints não é copiado para a memória por um cabeçalho que eles ignoram.
+ * */
+@ControllerAdvice
+public class HashCorpoAdvice extends RequestBodyAdviceAdapter {
+
+	public static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
+	private static final String ATRIBUTO = HashCorpoAdvice.class.getName() + ".hash";
+
+	@Override
+	public boolean supports(MethodParameter methodParameter, Type targetType,
+			Class<? extends HttpMessageConverter<?>> converterType) {
+		return methodParameter.hasMethodAnnotation(Idempotente.class);
+	}
+
+	@Override
+	public HttpInputMessage beforeBodyRead(HttpInputMessage inputMessage, MethodParameter parameter, Type targetType,
+			Class<? extends HttpMessageConverter<?>> converterType) throws IOException {
+		if (!inputMessage.getHeaders().containsKey(IDEMPOTENCY_KEY)) {
+			return inputMessage;
+		}
+
+		byte[] corpo = StreamUtils.copyToByteArray(inputMessage.getBody());
+		RequestContextHolder.currentRequestAttributes().setAttribute(ATRIBUTO, hash(corpo),
+				RequestAttributes.SCOPE_REQUEST);
+		return new HttpInputMessage() {
+			@Override
+			public InputStream getBody() {
+				return new ByteArrayInputStream(corpo);
+			}
+
+			@Override
+			public HttpHeaders getHeaders() {
+				return inputMessage.getHeaders();
+			}
+		};
+	}
+
+	/**
+	 * Retorna o hash do corpo da requisição ou null se a requisição não tiver o cabeçalho Idempotency-Key.
+	 * */
+	public static String getHash(HttpServletRequest request) {
+		return (String) request.getAttribute(ATRIBUTO);
+	}
+
+	private static String hash(byte[] corpo) {
+		try {
+			return Base64.getEncoder().encodeToString(MessageDigest.getInstance("SHA-256").digest(corpo));
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
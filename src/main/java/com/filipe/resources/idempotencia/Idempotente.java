@@ -0,0 +1,17 @@
+package com.filipe.resources.idempotencia;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Anotação que marca os métodos dos controllers que aceitam o cabeçalho Idempotency-Key. Apenas o
+ * corpo(@RequestBody) desses métodos tem o hash calculado pelo HashCorpoAdvice, as demais requisições
+ * não são copiadas para a memória.
+ * */
+@Target({ ElementType.METHOD })
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Idempotente {
+
+}
@@ -0,0 +1,32 @@
+package com.filipe.resources.utils;
+
+/**
+ * Classe Auxiliar que monta a ETag de uma resposta a partir das versões do seu conteúdo.
+ *
+ *  Ex: versões 3, 2 e 10 : ETag W/"3-2-10"
+ *
+ * A ETag é fraca(W/) pois identifica a versão dos dados e não os bytes da resposta, assim continua
+ * válida quando a resposta for compactada.
+ * */
+public class ETag {
+
+	/**
+	 * Monta uma ETag fraca com as versões separadas por hífen.
+	 *
+	 * @param versoes as versões do conteúdo da resposta.
+	 * @return a ETag ou null se as versões forem nulas.
+	 * */
+	public static String fraca(Object... versoes) {
+		if (versoes == null) {
+			return null;
+		}
+		StringBuilder sb = new StringBuilder("W/\"");
+		for (int i = 0; i < versoes.length; i++) {
+			if (i > 0) {
+				sb.append('-');
+			}
+			sb.append(versoes[i]);
+		}
+		return sb.append('"').toString();
+	}
+}
@@ -2,18 +2,120 @@ package com.filipe.services;
 
 import java.util.Calendar;
 import java.util.Date;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import com.filipe.domain.PagamentoComBoleto;
+import com.filipe.domain.Pedido;
+import com.filipe.dto.DadosBoletoDTO;
+import com.filipe.repositories.PagamentoRepository;
+import com.filipe.repositories.PedidoRepository;
+import com.filipe.services.boleto.BoletoPdf;
+import com.filipe.services.boleto.CodigoBarras;
+import com.filipe.services.cache.BoundedCache;
+import com.filipe.services.exceptions.ObjectNotFoundException;
+import com.filipe.services.exceptions.ServicoIndisponivelException;
 /**
- * Uma classe que simula a geração de um boleto. Possui apenas um método que adiciona uma
- * data de vencimento a um PagamentoComBoleto.
+ * Classe que gera os boletos dos pedidos pagos com boleto.
+ *
+ * O método preencherPagamentoComBoleto() é chamado na criação do pedido e apenas define a data de
+ * vencimento. O documento(código de barras, linha digitável e PDF) é gerado depois:
+ *
+ * - em segundo plano, pelo GeracaoBoletoConsumidor, quando o evento PEDIDO_CRIADO da outbox é processado;
+ * - ou na primeira requisição GET /pedidos/{id}/boleto, se ainda não tiver sido gerado.
+ *
+ * A geração é feita por um pool próprio de boleto.threads threads com uma fila limitada a boleto.fila
+ * boletos. Com a fila cheia a requisição é recusada(ServicoIndisponivelException) ao invés de acumular
+ * trabalho sem limite. Os PDFs gerados ficam em um BoundedCache e o mesmo boleto pedido várias vezes
+ * ao mesmo tempo é gerado uma única vez.
+ *
+ * O código de barras segue o campo livre dos convênios de 7 dígitos do Banco do Brasil:
+ * 000000 + convênio(7) + nosso número(10, o id do pedido) + carteira(2).
  * */
 @Service
 public class BoletoService {
-	
-	/**Adiciona uma data de vencimento a um PagamentoComBoleto. A data será de uma semana 
+
+	@Autowired
+	private PagamentoRepository pagamentoRepository;
+
+	@Autowired
+	private PedidoRepository pedidoRepository;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Value("${boleto.banco:001}")
+	private String banco;
+
+	@Value("${boleto.convenio:1234567}")
+	private String convenio;
+
+	@Value("${boleto.carteira:17}")
+	private String carteira;
+
+	@Value("${boleto.beneficiario:Loja Virtual}")
+	private String beneficiario;
+
+	@Value("${boleto.threads:2}")
+	private Integer threads;
+
+	@Value("${boleto.fila:1000}")
+	private Integer tamanhoFila;
+
+	@Value("${boleto.espera-ms:10000}")
+	private Long esperaMillis;
+
+	@Value("${boleto.cache.tamanho-maximo:1000}")
+	private Integer cacheTamanhoMaximo;
+
+	@Value("${boleto.cache.ttl-segundos:3600}")
+	private Long cacheTtlSegundos;
+
+	private ThreadPoolExecutor executor;
+
+	/*PDFs já gerados, pelo id do pedido. Os dados de um boleto não mudam após a criação do pedido*/
+	private BoundedCache<Integer, byte[]> documentos;
+
+	/*Boletos em geração, para que requisições simultâneas do mesmo boleto aguardem a mesma geração*/
+	private final ConcurrentHashMap<Integer, CompletableFuture<byte[]>> emGeracao = new ConcurrentHashMap<>();
+
+	@PostConstruct
+	public void init() {
+		if (banco.length() != 3 || convenio.length() != 7 || carteira.length() != 2) {
+			throw new IllegalStateException("boleto.banco, boleto.convenio e boleto.carteira devem ter 3, 7 e 2 dígitos");
+		}
+		documentos = new BoundedCache<>(cacheTamanhoMaximo, cacheTtlSegundos * 1000);
+
+		AtomicInteger contador = new AtomicInteger();
+		executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(tamanhoFila), runnable -> {
+					Thread thread = new Thread(runnable, "boleto-" + contador.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				});
+	}
+
+	@PreDestroy
+	public void destroy() {
+		executor.shutdown();
+	}
+
+	/**Adiciona uma data de vencimento a um PagamentoComBoleto. A data será de uma semana
 	 * após o instante do pedido*/
 	public void preencherPagamentoComBoleto(PagamentoComBoleto pagto, Date instanteDoPedido) {
 		Calendar cal = Calendar.getInstance();
@@ -21,4 +123,115 @@ public class BoletoService {
 		cal.add(Calendar.DAY_OF_MONTH, 7);
 		pagto.setDataVencimento(cal.getTime());
 	}
+
+	/**
+	 * Retorna o PDF do boleto do pedido, gerando-o no pool de boletos se ainda não estiver em cache.
+	 *
+	 * @param pedidoId o id do pedido.
+	 *
+	 * @throws ObjectNotFoundException se o pedido não existir ou não for pago com boleto.
+	 * @throws ServicoIndisponivelException se a fila de geração estiver cheia ou a geração demorar
+	 * mais que boleto.espera-ms.
+	 * */
+	public byte[] findPdf(Integer pedidoId) {
+		byte[] pdf = documentos.get(pedidoId);
+		if (pdf != null) {
+			return pdf;
+		}
+
+		CompletableFuture<byte[]> nova = new CompletableFuture<>();
+		CompletableFuture<byte[]> existente = emGeracao.putIfAbsent(pedidoId, nova);
+		if (existente == null) {
+			agendar(pedidoId, nova);
+			existente = nova;
+		}
+		return aguardar(existente);
+	}
+
+	/**
+	 * Descarta o PDF em cache do boleto. Deve ser chamado quando os dados impressos no boleto forem
+	 * alterados, como o vencimento alterado pela conciliação.
+	 *
+	 * Uma geração em andamento pode ter lido os dados antigos: ela deixa de ser compartilhada, assim
+	 * as próximas requisições iniciam uma nova geração, e o seu PDF não é guardado no cache.
+	 * */
+	public void descartarPdf(Integer pedidoId) {
+		documentos.invalidate(pedidoId);
+		emGeracao.remove(pedidoId);
+	}
+
+	/**
+	 * Envia a geração para o pool. O resultado é guardado no cache antes de liberar quem aguarda, a não
+	 * ser que o boleto tenha sido descartado(descartarPdf) durante a geração.
+	 * */
+	private void agendar(Integer pedidoId, CompletableFuture<byte[]> resultado) {
+		try {
+			executor.execute(() -> {
+				try {
+					long geracao = documentos.geracao();
+					byte[] pdf = gerar(pedidoId);
+					documentos.put(pedidoId, pdf, geracao);
+					resultado.complete(pdf);
+				} catch (RuntimeException e) {
+					resultado.completeExceptionally(e);
+				} finally {
+					emGeracao.remove(pedidoId, resultado);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			emGeracao.remove(pedidoId, resultado);
+			resultado.completeExceptionally(new ServicoIndisponivelException("Fila de geração de boletos cheia", e));
+		}
+	}
+
+	private byte[] aguardar(CompletableFuture<byte[]> resultado) {
+		try {
+			return resultado.get(esperaMillis, TimeUnit.MILLISECONDS);
+		} catch (TimeoutException e) {
+			/*A geração continua no pool e o boleto estará em cache na próxima tentativa*/
+			throw new ServicoIndisponivelException("Tempo de geração do boleto esgotado", e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ServicoIndisponivelException("Geração do boleto interrompida", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+
+	/**
+	 * Gera o PDF do boleto. Executado por uma thread do pool de boletos.
+	 * */
+	private byte[] gerar(Integer pedidoId) {
+		DadosBoletoDTO dados = pagamentoRepository.findDadosBoleto(pedidoId);
+		if (dados == null) {
+			throw new ObjectNotFoundException("Boleto não Encontrado! Id do pedido: " + pedidoId
+					+ " ,tipo:" + PagamentoComBoleto.class.getName());
+		}
+		if (dados.getValorTotal() == null) {
+			/*Pedidos antigos podem não ter o valor total gravado, ele é calculado a partir dos itens*/
+			dados.setValorTotal(transactionTemplate.execute(status ->
+				pedidoRepository.findById(pedidoId).map(Pedido::getValorTotal).orElse(0.0)));
+		}
+
+		String nossoNumero = nossoNumero(pedidoId);
+		String campoLivre = "000000" + convenio + nossoNumero.substring(convenio.length()) + carteira;
+		char[] codigo = CodigoBarras.codigoDeBarras(banco, dados.getDataVencimento(),
+				Math.round(dados.getValorTotal() * 100), campoLivre);
+
+		return BoletoPdf.gerar(dados, beneficiario, banco, nossoNumero, codigo,
+				CodigoBarras.linhaDigitavel(codigo));
+	}
+
+	/*Nosso número dos convênios de 7 dígitos: o convênio seguido do id do pedido com 10 dígitos*/
+	private String nossoNumero(Integer pedidoId) {
+		String id = Integer.toString(pedidoId);
+		StringBuilder sb = new StringBuilder(17).append(convenio);
+		for (int i = id.length(); i < 10; i++) {
+			sb.append('0');
+		}
+		return sb.append(id).toString();
+	}
 }
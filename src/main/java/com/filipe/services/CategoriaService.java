@@ -3,16 +3,24 @@ package com.filipe.services;
 import java.util.List;
 import java.util.Optional;
 
+import javax.annotation.PostConstruct;
+
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort.Direction;
+import org.springframework.data.repository.support.PageableExecutionUtils;
 import org.springframework.stereotype.Service;
 
 import com.filipe.domain.Categoria;
+import com.filipe.dto.CursorPage;
 import com.filipe.dto.CategoriaDTO;
 import com.filipe.repositories.CategoriaRepository;
+import com.filipe.repositories.KeysetRepository;
+import com.filipe.services.cache.BoundedCache;
 import com.filipe.services.exceptions.DataIntegrityException;
 import com.filipe.services.exceptions.ObjectNotFoundException;
 
@@ -22,6 +30,23 @@ public class CategoriaService {
 	@Autowired
 	private CategoriaRepository repo;
 
+	@Autowired
+	private KeysetRepository keysetRepo;
+	
+	/*Chave do cache de contagens. A listagem de categorias não possui filtros, logo há apenas uma contagem*/
+	private static final String TODOS = "todos";
+	
+	@Value("${paginacao.contagem.ttl-segundos:30}")
+	private Long contagemTtlSegundos;
+	
+	/*Cache do total de registros usado pelo findPage() para não repetir a consulta COUNT a cada página*/
+	private BoundedCache<String, Long> contagens;
+	
+	@PostConstruct
+	public void init() {
+		contagens = new BoundedCache<>(1, contagemTtlSegundos * 1000);
+	}
+
 	/**
 	 * Método que busca um objeto por ID, caso não encontre Lança uma exceção 
 	 * personalizada do tipo ObjectNotFoundException.
@@ -54,6 +79,27 @@ public class CategoriaService {
 				"Objeto não Encontrado! Id: " + id + " ,tipo:"+ Categoria.class.getName()));
 	}
 	
+	/**
+	 * Retorna as versões que identificam o conteúdo do GET /categorias/{id}, sem carregar a
+	 * categoria nem os seus produtos: a versão da categoria e a quantidade, a soma das versões e a
+	 * soma dos ids dos seus produtos.
+	 * 
+	 * @return as versões ou null se a categoria não existir.
+	 * */
+	public Object[] findVersao(Integer id) {
+		List<Object[]> versoes = repo.findVersaoById(id);
+		return versoes.isEmpty() ? null : versoes.get(0);
+	}
+	
+	/**
+	 * Retorna as versões que identificam o conteúdo do GET /categorias: a quantidade de categorias e
+	 * a soma das suas versões e dos seus ids. Como os ids são crescentes, excluir uma categoria e
+	 * inserir outra também altera o resultado.
+	 * */
+	public Object[] findVersaoAll() {
+		return repo.findVersaoAll().get(0);
+	}
+	
 	/**
 	 * Método para inserir uma objeto no banco de dados.
 	 * 
@@ -71,7 +117,11 @@ public class CategoriaService {
 		/*
 		 * Salva o objeto e retorna o para o controller o próprio Objeto.
 		 * */
-		return repo.save(obj);
+		obj = repo.save(obj);
+		
+		/*O total de categorias mudou, a contagem guardada no cache não vale mais*/
+		contagens.clear();
+		return obj;
 	}
 	
 	/**
@@ -110,6 +160,7 @@ public class CategoriaService {
 		 * caso o objeto seja referenciado em outras tabelas(integridade referencial) */
 		try {
 			repo.deleteById(id);
+			contagens.clear();
 		} catch (DataIntegrityViolationException e){
 			
 			/*lança a exceção personalizada que será capturada no pacote controller */
@@ -150,7 +201,47 @@ public class CategoriaService {
 		 * PageRequest prepara a consulta de acordo com os parâmetros. 
 		 * */
 		PageRequest pageRequest = PageRequest.of(page, linesPerPage, Direction.valueOf(direction), orderBy);
-		return repo.findAll(pageRequest);
+		
+		/*
+		 * Os registros são buscados como um Slice(sem COUNT). O total vem do cache de contagens e só
+		 * é consultado no banco quando não estiver no cache. PageableExecutionUtils ainda dispensa a 
+		 * contagem quando o total pode ser deduzido da própria página(ex: a primeira página incompleta).
+		 * */
+		Slice<Categoria> slice = repo.findAllBy(pageRequest);
+		return PageableExecutionUtils.getPage(slice.getContent(), pageRequest, () -> contagens.get(TODOS, repo::count));
+	}
+	
+	/**
+	 * Método que faz a mesma listagem do findPage() porém sem a consulta COUNT. O Slice informa
+	 * apenas se existe uma próxima página, e não o total de registros e de páginas.
+	 * 
+	 * @param page informa o número da página. A página inicial é a de número zero.
+	 * @param linesPerPage Informa o número de registro máximo em cada página.
+	 * @param orderBy O identificador do atributo pelo qual os registros serão ordenados. 
+	 * @param direction Indica a direção da ordenação, podendo ser ascendente ou descendente(ASC ou DESC).
+	 * 
+	 * @return Slice uma sub-lista contendo um número definido de registros
+	 * */
+	public Slice<Categoria> findSlice(Integer page, Integer linesPerPage, String orderBy, String direction) {
+		PageRequest pageRequest = PageRequest.of(page, linesPerPage, Direction.valueOf(direction), orderBy);
+		return repo.findAllBy(pageRequest);
+	}
+	
+	/**
+	 * Método que retorna uma página de registros a partir de um cursor(paginação por chave).
+	 * Diferente do findPage(), não executa a consulta COUNT e não descarta as linhas das páginas
+	 * anteriores(OFFSET), por isso o custo de cada página é o mesmo em qualquer ponto da listagem.
+	 * 
+	 * @param cursor o cursor next retornado na página anterior. Vazio para a primeira página.
+	 * @param linesPerPage Informa o número de registro máximo em cada página. Ou seja,
+	 * quantas linhas por página. 
+	 * @param orderBy O identificador do atributo pelo qual os registros serão ordenados. 
+	 * @param direction Indica a direção da ordenação, podendo ser ascendente ou descendente(ASC ou DESC).
+	 * 
+	 * @return CursorPage contendo os registros e o cursor da próxima página
+	 * */
+	public CursorPage<Categoria> findCursorPage(String cursor, Integer linesPerPage, String orderBy, String direction) {
+		return keysetRepo.findPage(Categoria.class, null, cursor, linesPerPage, orderBy, direction);
 	}
 	
 	/**
@@ -2,36 +2,77 @@ package com.filipe.services;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
+import javax.annotation.PostConstruct;
 import javax.transaction.Transactional;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort.Direction;
+import org.springframework.data.repository.support.PageableExecutionUtils;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import com.filipe.domain.Cidade;
 import com.filipe.domain.Cliente;
 import com.filipe.domain.Endereco;
 import com.filipe.domain.enums.TipoCliente;
+import com.filipe.dto.CursorPage;
 import com.filipe.dto.ClienteDTO;
 import com.filipe.dto.ClienteNewDTO;
 import com.filipe.repositories.ClienteRepository;
+import com.filipe.repositories.KeysetRepository;
+import com.filipe.services.cache.BoundedCache;
 import com.filipe.repositories.EnderecoRepository;
 import com.filipe.services.exceptions.DataIntegrityException;
 import com.filipe.services.exceptions.ObjectNotFoundException;
+import com.filipe.services.search.EmailBloomFilter;
 
 @Service
 public class ClienteService {
 	
 	@Autowired
 	private ClienteRepository repo;
+
+	@Autowired
+	private KeysetRepository keysetRepo;
+	
+	@Autowired
+	private EmailBloomFilter emailFilter;
+	
+	/*Chave do cache de contagens. A listagem de clientes não possui filtros, logo há apenas uma contagem*/
+	private static final String TODOS = "todos";
+	
+	@Value("${paginacao.contagem.ttl-segundos:30}")
+	private Long contagemTtlSegundos;
+	
+	/*Cache do total de registros usado pelo findPage() para não repetir a consulta COUNT a cada página*/
+	private BoundedCache<String, Long> contagens;
+	
+	@PostConstruct
+	public void init() {
+		contagens = new BoundedCache<>(1, contagemTtlSegundos * 1000);
+		
+		exportacaoTemplate = new TransactionTemplate(transactionManager);
+		exportacaoTemplate.setReadOnly(true);
+	}
 	
 	@Autowired
 	private EnderecoRepository enderecoRepository;
 	
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+	
+	/*Transação somente leitura usada na exportação dos clientes*/
+	private TransactionTemplate exportacaoTemplate;
+	
 	/**
 	 * Método que busca um objeto por ID, caso não encontre Lança uma exceção 
 	 * personalizada do tipo ObjectNotFoundException. Para mais informações consultar o mesmo
@@ -48,6 +89,18 @@ public class ClienteService {
 				"Objeto não Encontrado! Id: " + id + " ,tipo:"+ Cliente.class.getName()));
 	}
 	
+	/**
+	 * Retorna as versões que identificam o conteúdo do GET /clientes/{id}, sem carregar o cliente:
+	 * a versão do cliente, que também muda quando os telefones mudam, e a quantidade e o maior id
+	 * dos seus endereços.
+	 * 
+	 * @return as versões ou null se o cliente não existir.
+	 * */
+	public Object[] findVersao(Integer id) {
+		List<Object[]> versoes = repo.findVersaoById(id);
+		return versoes.isEmpty() ? null : versoes.get(0);
+	}
+	
 	/**
 	 * Método para inserir uma objeto Cliente no banco de dados.
 	 * 
@@ -63,13 +116,24 @@ public class ClienteService {
 		 * */
 		obj.setId(null);
 		
-		/* Salva o objeto e retorna a própria instância salva */
-		obj = repo.save(obj);
+		/*O email passa a existir para as próximas verificações do ClienteInsertValidator*/
+		emailFilter.adicionar(obj.getEmail());
+		
+		/* Salva o objeto e retorna a própria instância salva. A restrição unique da coluna email
+		 * recusa um email cadastrado ao mesmo tempo por outra requisição, após a validação*/
+		try {
+			obj = repo.save(obj);
+		} catch (DataIntegrityViolationException e) {
+			throw new DataIntegrityException("Email já existente");
+		}
 		
 		/*salva os Enderecos do cliente no Banco. OBS: Desnecessário quando se usa CascadeType.ALL na
 		 * lista de endereços da classe Cliente*/
 		enderecoRepository.saveAll(obj.getEnderecos());
 		
+		/*O total de clientes mudou, a contagem guardada no cache não vale mais*/
+		contagens.clear();
+		
 		
 		return obj;
 	}
@@ -88,6 +152,7 @@ public class ClienteService {
 		 * atualizar os atributos de newObj a partir do obj que veio da view. Após isso o newObj
 		 * será salvo com os novos atributos atualizados*/
 		updateData(newObj, obj);
+		emailFilter.adicionar(newObj.getEmail());
 		
 		/*O método save é usado tanto para inserir quanto para atualizar.
 		 * Isso é decidido de acordo com o ID. Se o id for nulo ele irá inserir o objeto
@@ -111,6 +176,7 @@ public class ClienteService {
 		 * caso o objeto seja referenciado em outras tabelas(integridade referencial) */
 		try {
 			repo.deleteById(id);
+			contagens.clear();
 		} catch (DataIntegrityViolationException e){
 			
 			/*lança a exceção personalizada que será capturada no pacote controller */
@@ -127,6 +193,24 @@ public class ClienteService {
 		return repo.findAll();
 	}
 	
+	/**
+	 * Método que percorre todos os clientes, em ordem de id, entregando cada um como ClienteDTO ao
+	 * consumidor. Diferente do findAll(), os clientes não são reunidos em uma lista: são lidos do 
+	 * banco aos poucos através de um Stream, logo a memória usada é a mesma para qualquer quantidade
+	 * de clientes.
+	 * 
+	 * @param consumidor recebe cada cliente lido. É chamado dentro da transação da consulta.
+	 * */
+	public void exportar(Consumer<ClienteDTO> consumidor) {
+		/*Consultas em stream precisam de uma transação aberta, por isso o TransactionTemplate*/
+		exportacaoTemplate.execute(status -> {
+			try (Stream<ClienteDTO> stream = repo.streamAllDTO()) {
+				stream.forEach(consumidor);
+			}
+			return null;
+		});
+	}
+	
 	/**
 	 * Método que retorna um objeto Page. Padrão utilizado que faz a listagem de objetos por paginação.
 	 * Uma página é uma sub-lista de uma lista de objetos. Em um banco de dados com muitos registros 
@@ -149,7 +233,47 @@ public class ClienteService {
 		 * Esse objeto será usado para requisitar o Objeto Page no método findAll().
 		 * */
 		PageRequest pageRequest = PageRequest.of(page, linesPerPage, Direction.valueOf(direction), orderBy);
-		return repo.findAll(pageRequest);
+		
+		/*
+		 * Os registros são buscados como um Slice(sem COUNT). O total vem do cache de contagens e só
+		 * é consultado no banco quando não estiver no cache. PageableExecutionUtils ainda dispensa a 
+		 * contagem quando o total pode ser deduzido da própria página(ex: a primeira página incompleta).
+		 * */
+		Slice<Cliente> slice = repo.findAllBy(pageRequest);
+		return PageableExecutionUtils.getPage(slice.getContent(), pageRequest, () -> contagens.get(TODOS, repo::count));
+	}
+	
+	/**
+	 * Método que faz a mesma listagem do findPage() porém sem a consulta COUNT. O Slice informa
+	 * apenas se existe uma próxima página, e não o total de registros e de páginas.
+	 * 
+	 * @param page informa o número da página. A página inicial é a de número zero.
+	 * @param linesPerPage Informa o número de registro máximo em cada página.
+	 * @param orderBy O identificador do atributo pelo qual os registros serão ordenados. 
+	 * @param direction Indica a direção da ordenação, podendo ser ascendente ou descendente(ASC ou DESC).
+	 * 
+	 * @return Slice uma sub-lista contendo um número definido de registros
+	 * */
+	public Slice<Cliente> findSlice(Integer page, Integer linesPerPage, String orderBy, String direction) {
+		PageRequest pageRequest = PageRequest.of(page, linesPerPage, Direction.valueOf(direction), orderBy);
+		return repo.findAllBy(pageRequest);
+	}
+	
+	/**
+	 * Método que retorna uma página de registros a partir de um cursor(paginação por chave).
+	 * Diferente do findPage(), não executa a consulta COUNT e não descarta as linhas das páginas
+	 * anteriores(OFFSET), por isso o custo de cada página é o mesmo em qualquer ponto da listagem.
+	 * 
+	 * @param cursor o cursor next retornado na página anterior. Vazio para a primeira página.
+	 * @param linesPerPage Informa o número de registro máximo em cada página. Ou seja,
+	 * quantas linhas por página. 
+	 * @param orderBy O identificador do atributo pelo qual os registros serão ordenados. 
+	 * @param direction Indica a direção da ordenação, podendo ser ascendente ou descendente(ASC ou DESC).
+	 * 
+	 * @return CursorPage contendo os registros e o cursor da próxima página
+	 * */
+	public CursorPage<Cliente> findCursorPage(String cursor, Integer linesPerPage, String orderBy, String direction) {
+		return keysetRepo.findPage(Cliente.class, null, cursor, linesPerPage, orderBy, direction);
 	}
 	
 	/**
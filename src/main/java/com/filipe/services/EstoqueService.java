@@ -0,0 +1,298 @@
+package com.filipe.services;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.filipe.domain.ItemPedido;
+import com.filipe.domain.Produto;
+import com.filipe.domain.ReservaEstoque;
+import com.filipe.repositories.ProdutoRepository;
+import com.filipe.repositories.ReservaEstoqueRepository;
+import com.filipe.services.exceptions.EstoqueInsuficienteException;
+import com.filipe.services.exceptions.InvalidParameterException;
+
+/**
+ * Classe que controla o estoque dos produtos.
+ *
+ * Numa promoção muitos pedidos disputam o mesmo produto ao mesmo tempo. Se cada pedido fizesse um
+ * UPDATE no estoque do Produto, todos os pedidos esperariam pelo bloqueio da mesma linha até o fim
+ * da transação do pedido anterior. Aqui a criação do pedido não altera o Produto:
+ *
+ * 1 - O estoque disponível de cada produto fica em memória em um AtomicInteger, carregado do banco
+ * na primeira reserva. A reserva é um compareAndSet: sem bloqueios, sem acesso ao banco e sem permitir
+ * que o estoque fique negativo. Pedidos de produtos diferentes não disputam o mesmo contador.
+ *
+ * 2 - A reserva é gravada em ReservaEstoque na transação do pedido. Se a transação for desfeita,
+ * a quantidade é devolvida ao contador.
+ *
+ * 3 - Periodicamente(estoque.consolidacao.intervalo-ms) as reservas são somadas por produto,
+ * descontadas do estoque do Produto com um UPDATE por produto e excluídas(write-behind).
+ *
+ * Como as reservas são gravadas, o estoque disponível(estoque - reservas) pode ser recalculado do
+ * banco a qualquer momento, inclusive após uma parada da aplicação antes da consolidação.
+ *
+ * Os contadores ficam na memória de cada instância, logo as reservas devem ser feitas por uma única
+ * instância da aplicação. Produtos com estoque null não possuem controle de estoque.
+ * */
+@Service
+public class EstoqueService {
+
+	private static final Logger LOG = LoggerFactory.getLogger(EstoqueService.class);
+
+	/*Marca, no mapa de contadores, os produtos sem controle de estoque(o ConcurrentHashMap não aceita null)*/
+	private static final AtomicInteger SEM_CONTROLE = new AtomicInteger();
+
+	@Autowired
+	private ProdutoRepository produtoRepository;
+
+	@Autowired
+	private ReservaEstoqueRepository reservaRepository;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Value("${estoque.consolidacao.lote:1000}")
+	private Integer tamanhoLote;
+
+	/*Quantidade de bloqueios que separam a carga dos contadores das reposições. Cada produto usa
+	 * sempre o mesmo bloqueio(id % BLOQUEIOS)*/
+	private static final int BLOQUEIOS = 64;
+
+	/*Estoque disponível de cada produto já carregado, pelo id do produto*/
+	private final ConcurrentHashMap<Integer, AtomicInteger> contadores = new ConcurrentHashMap<>();
+
+	private final ReentrantLock[] bloqueios = new ReentrantLock[BLOQUEIOS];
+
+	public EstoqueService() {
+		for (int i = 0; i < BLOQUEIOS; i++) {
+			bloqueios[i] = new ReentrantLock();
+		}
+	}
+
+	/**
+	 * Reserva o estoque dos itens de um pedido. Deve ser chamado dentro da transação que salva o pedido.
+	 *
+	 * Se algum produto não tiver estoque suficiente uma exceção é lançada. As quantidades já reservadas
+	 * para os outros itens são devolvidas quando a transação for desfeita.
+	 *
+	 * @param itens os itens do pedido, com os produtos e as quantidades.
+	 *
+	 * @return a quantidade reservada de cada produto com controle de estoque, pelo id do produto.
+	 * Deve ser passada ao salvarReservas() após o pedido ser salvo.
+	 *
+	 * @throws EstoqueInsuficienteException se a quantidade pedida for maior que o estoque disponível.
+	 * @throws InvalidParameterException se a quantidade de algum item não for positiva.
+	 * */
+	public Map<Integer, Integer> reservar(Iterable<ItemPedido> itens) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			throw new IllegalStateException("A reserva de estoque deve ser feita dentro de uma transação");
+		}
+
+		/*Um produto pode aparecer em mais de um item, as quantidades são somadas*/
+		Map<Integer, Integer> quantidades = new LinkedHashMap<>();
+		for (ItemPedido ip : itens) {
+			Integer produtoId = ip.getProduto().getId();
+			if (ip.getQuantidade() == null || ip.getQuantidade() <= 0) {
+				throw new InvalidParameterException("Quantidade inválida para o produto " + produtoId);
+			}
+			quantidades.merge(produtoId, ip.getQuantidade(), Integer::sum);
+		}
+
+		Map<Integer, Integer> reservadas = new LinkedHashMap<>();
+		for (Map.Entry<Integer, Integer> entry : quantidades.entrySet()) {
+			AtomicInteger contador = contador(entry.getKey());
+			if (contador == SEM_CONTROLE) {
+				continue;
+			}
+			retirar(contador, entry.getKey(), entry.getValue());
+			devolverSeDesfeita(contador, entry.getValue());
+			reservadas.put(entry.getKey(), entry.getValue());
+		}
+		return reservadas;
+	}
+
+	/**
+	 * Grava as reservas do pedido. Chamado na mesma transação do reservar(), após o pedido ser salvo.
+	 *
+	 * @param pedidoId o id do pedido salvo.
+	 * @param reservadas as quantidades retornadas pelo reservar().
+	 * */
+	public void salvarReservas(Integer pedidoId, Map<Integer, Integer> reservadas) {
+		Date agora = new Date();
+		List<ReservaEstoque> reservas = new ArrayList<>();
+		for (Map.Entry<Integer, Integer> entry : reservadas.entrySet()) {
+			reservas.add(new ReservaEstoque(null, pedidoId, entry.getKey(), entry.getValue(), agora));
+		}
+		reservaRepository.saveAll(reservas);
+	}
+
+	/**
+	 * Retorna o estoque disponível do produto ou null se o produto não possuir controle de estoque.
+	 * */
+	public Integer disponivel(Integer produtoId) {
+		AtomicInteger contador = contador(produtoId);
+		return (contador == SEM_CONTROLE) ? null : contador.get();
+	}
+
+	/**
+	 * Soma a quantidade ao estoque do produto(reposição). O contador em memória é atualizado após a
+	 * confirmação da transação.
+	 *
+	 * O bloqueio do produto fica com a transação até o seu fim, assim nenhum contador do produto é
+	 * carregado enquanto a reposição não for confirmada. Sem ele, um contador lido do banco antes do
+	 * commit seria guardado depois do afterCommit, sem a quantidade reposta.
+	 *
+	 * @throws InvalidParameterException se a quantidade não for positiva.
+	 * */
+	@Transactional
+	public void repor(Integer produtoId, Integer quantidade) {
+		if (quantidade == null || quantidade <= 0) {
+			throw new InvalidParameterException("Quantidade inválida para o produto " + produtoId);
+		}
+		ReentrantLock bloqueio = bloqueio(produtoId);
+		bloqueio.lock();
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+			@Override
+			public void afterCommit() {
+				AtomicInteger contador = contadores.get(produtoId);
+				if (contador == SEM_CONTROLE) {
+					/*O produto passou a ter controle de estoque e será carregado na próxima reserva*/
+					contadores.remove(produtoId, SEM_CONTROLE);
+				} else if (contador != null) {
+					contador.addAndGet(quantidade);
+				}
+			}
+
+			@Override
+			public void afterCompletion(int status) {
+				bloqueio.unlock();
+			}
+		});
+
+		produtoRepository.reporEstoque(produtoId, quantidade);
+	}
+
+	/**
+	 * Desconta as reservas do estoque dos produtos e as exclui, em lotes de estoque.consolidacao.lote
+	 * reservas. Chamado periodicamente pelo agendador do Spring.
+	 *
+	 * O estoque disponível não muda com a consolidação: o estoque do produto e a soma das suas
+	 * reservas diminuem da mesma quantidade, na mesma transação.
+	 * */
+	@Scheduled(fixedDelayString = "${estoque.consolidacao.intervalo-ms:5000}", initialDelayString = "${estoque.consolidacao.atraso-inicial-ms:5000}")
+	public void consolidar() {
+		try {
+			int consolidadas;
+			do {
+				consolidadas = transactionTemplate.execute(status -> consolidarLote());
+			} while (consolidadas == tamanhoLote);
+		} catch (RuntimeException e) {
+			/*Ex: banco indisponível. As reservas continuam gravadas e serão consolidadas no próximo intervalo*/
+			LOG.warn("Falha ao consolidar as reservas de estoque: {}", e.getMessage());
+		}
+	}
+
+	private int consolidarLote() {
+		List<ReservaEstoque> lote = reservaRepository.findParaConsolidar(PageRequest.of(0, tamanhoLote));
+		if (lote.isEmpty()) {
+			return 0;
+		}
+
+		/*TreeMap: os produtos são atualizados sempre na mesma ordem(id), evitando deadlocks entre instâncias*/
+		Map<Integer, Integer> somas = new TreeMap<>();
+		List<Integer> ids = new ArrayList<>();
+		for (ReservaEstoque reserva : lote) {
+			somas.merge(reserva.getProdutoId(), reserva.getQuantidade(), Integer::sum);
+			ids.add(reserva.getId());
+		}
+		for (Map.Entry<Integer, Integer> entry : somas.entrySet()) {
+			produtoRepository.baixarEstoque(entry.getKey(), entry.getValue());
+		}
+		reservaRepository.deleteByIdIn(ids);
+		return lote.size();
+	}
+
+	/**
+	 * Retorna o contador do produto, carregando o estoque disponível do banco se for o primeiro acesso.
+	 *
+	 * A carga é feita com o bloqueio do produto: espera o fim de uma reposição em andamento, para não
+	 * ler o estoque anterior a ela, e impede que duas threads carreguem o mesmo produto. Nenhuma
+	 * reserva foi feita antes do contador existir, logo o valor carregado é o estoque disponível.
+	 * */
+	private AtomicInteger contador(Integer produtoId) {
+		AtomicInteger contador = contadores.get(produtoId);
+		if (contador != null) {
+			return contador;
+		}
+		ReentrantLock bloqueio = bloqueio(produtoId);
+		bloqueio.lock();
+		try {
+			contador = contadores.get(produtoId);
+			if (contador == null) {
+				Long disponivel = produtoRepository.findEstoqueDisponivel(produtoId);
+				contador = (disponivel == null) ? SEM_CONTROLE : new AtomicInteger(disponivel.intValue());
+				contadores.put(produtoId, contador);
+			}
+			return contador;
+		} finally {
+			bloqueio.unlock();
+		}
+	}
+
+	private ReentrantLock bloqueio(Integer produtoId) {
+		return bloqueios[Math.floorMod(produtoId.hashCode(), BLOQUEIOS)];
+	}
+
+	/**
+	 * Retira a quantidade do contador com compareAndSet. Se outra thread alterar o contador entre a
+	 * leitura e a escrita, a operação é repetida com o novo valor.
+	 * */
+	private void retirar(AtomicInteger contador, Integer produtoId, int quantidade) {
+		while (true) {
+			int atual = contador.get();
+			if (atual < quantidade) {
+				throw new EstoqueInsuficienteException("Estoque insuficiente! Produto: " + produtoId
+						+ ", disponível: " + atual + ", pedido: " + quantidade + " ,tipo:" + Produto.class.getName());
+			}
+			if (contador.compareAndSet(atual, atual - quantidade)) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Devolve a quantidade ao contador se a transação do pedido for desfeita. Com o status
+	 * desconhecido(STATUS_UNKNOWN) a quantidade não é devolvida: é preferível deixar de vender a
+	 * vender mais do que o estoque. O valor correto volta a ser lido do banco após reiniciar a aplicação.
+	 * */
+	private void devolverSeDesfeita(AtomicInteger contador, int quantidade) {
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+			@Override
+			public void afterCompletion(int status) {
+				if (status == TransactionSynchronization.STATUS_ROLLED_BACK) {
+					contador.addAndGet(quantidade);
+				}
+			}
+		});
+	}
+}
@@ -0,0 +1,150 @@
+package com.filipe.services;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.filipe.services.cache.BoundedCache;
+import com.filipe.services.exceptions.IdempotenciaConflitoException;
+import com.filipe.services.exceptions.InvalidParameterException;
+
+/**
+ * Guarda o resultado das inserções feitas com uma chave de idempotência(cabeçalho Idempotency-Key).
+ *
+ * Um cliente que não recebeu a resposta de um POST(ex: rede móvel instável) pode reenviar a mesma
+ * requisição com a mesma chave. Se a chave já foi usada com sucesso, o id do objeto criado na primeira
+ * requisição é retornado sem executar a inserção novamente e sem acessar o banco de dados.
+ *
+ * As chaves concluídas ficam em um BoundedCache, limitado por idempotencia.tamanho-maximo e
+ * idempotencia.ttl-segundos. Se duas requisições com a mesma chave chegarem ao mesmo tempo, a segunda
+ * aguarda o fim da primeira e recebe o mesmo resultado. Uma inserção que falhar não é guardada, logo
+ * o cliente pode tentar novamente com a mesma chave.
+ *
+ * Cada chave guarda também o hash do corpo da primeira requisição. Uma requisição com a mesma chave e
+ * outro corpo não recebe o resultado da primeira: é recusada com IdempotenciaConflitoException.
+ *
+ * As chaves ficam na memória de cada instância da aplicação.
+ * */
+@Service
+public class IdempotenciaService {
+
+	public static final int TAMANHO_MAXIMO_CHAVE = 255;
+
+	@Value("${idempotencia.tamanho-maximo:10000}")
+	private Integer tamanhoMaximo;
+
+	@Value("${idempotencia.ttl-segundos:86400}")
+	private Long ttlSegundos;
+
+	/*Chaves concluídas com sucesso, com o id do objeto criado*/
+	private BoundedCache<String, Execucao> concluidas;
+
+	/*Chaves cuja primeira requisição ainda está em execução*/
+	private final ConcurrentHashMap<String, Execucao> emAndamento = new ConcurrentHashMap<>();
+
+	@PostConstruct
+	public void init() {
+		concluidas = new BoundedCache<>(tamanhoMaximo, ttlSegundos * 1000);
+	}
+
+	/**
+	 * Executa a inserção apenas uma vez para cada chave.
+	 *
+	 * @param recurso o nome do recurso, separa as chaves de recursos diferentes(ex: "pedidos").
+	 * @param chave a chave de idempotência enviada pelo cliente. Se for null a inserção é sempre executada.
+	 * @param hashCorpo o hash do corpo da requisição.
+	 * @param insercao a inserção a ser executada, retorna o id do objeto criado.
+	 *
+	 * @return o id do objeto criado por esta requisição ou pela primeira requisição com a mesma chave.
+	 *
+	 * @throws InvalidParameterException se a chave for vazia ou maior que TAMANHO_MAXIMO_CHAVE.
+	 * @throws IdempotenciaConflitoException se a chave já foi usada com outro corpo.
+	 * */
+	public Integer executar(String recurso, String chave, String hashCorpo, Supplier<Integer> insercao) {
+		if (chave == null) {
+			return insercao.get();
+		}
+		if (chave.trim().isEmpty() || chave.length() > TAMANHO_MAXIMO_CHAVE) {
+			throw new InvalidParameterException("Idempotency-Key inválida");
+		}
+		String chaveRecurso = recurso + ":" + chave;
+
+		Execucao concluida = concluidas.get(chaveRecurso);
+		if (concluida != null) {
+			return concluida.resultado(hashCorpo);
+		}
+
+		Execucao nova = new Execucao(hashCorpo);
+		Execucao existente = emAndamento.putIfAbsent(chaveRecurso, nova);
+		if (existente != null) {
+			return aguardar(existente, hashCorpo);
+		}
+
+		try {
+			/*A primeira requisição pode ter terminado entre a consulta ao cache e o putIfAbsent*/
+			concluida = concluidas.get(chaveRecurso);
+			Integer id = (concluida != null) ? concluida.resultado(hashCorpo) : insercao.get();
+			nova.id.complete(id);
+			if (concluida == null) {
+				concluidas.put(chaveRecurso, nova);
+			}
+			return id;
+		} catch (RuntimeException e) {
+			nova.id.completeExceptionally(e);
+			throw e;
+		} finally {
+			emAndamento.remove(chaveRecurso, nova);
+		}
+	}
+
+	/**
+	 * Aguarda a requisição que está executando a inserção com a mesma chave. Se ela falhar, a mesma
+	 * exceção é lançada para esta requisição.
+	 * */
+	private Integer aguardar(Execucao emExecucao, String hashCorpo) {
+		emExecucao.verificar(hashCorpo);
+		try {
+			return emExecucao.id.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+
+	/*
+	 * Uma requisição com chave de idempotência: o hash do seu corpo e o id do objeto criado, disponível
+	 * quando a inserção terminar.
+	 * */
+	private static class Execucao {
+		private final String hashCorpo;
+		private final CompletableFuture<Integer> id = new CompletableFuture<>();
+
+		private Execucao(String hashCorpo) {
+			this.hashCorpo = hashCorpo;
+		}
+
+		private void verificar(String outroHash) {
+			if (!Objects.equals(hashCorpo, outroHash)) {
+				throw new IdempotenciaConflitoException("Idempotency-Key já utilizada com outro corpo de requisição");
+			}
+		}
+
+		/*O id de uma execução concluída*/
+		private Integer resultado(String outroHash) {
+			verificar(outroHash);
+			return id.join();
+		}
+	}
+}
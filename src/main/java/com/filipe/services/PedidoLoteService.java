@@ -0,0 +1,203 @@
+package com.filipe.services;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import javax.persistence.EntityManager;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.filipe.domain.ItemPedido;
+import com.filipe.domain.Pedido;
+import com.filipe.dto.ResultadoLoteDTO;
+
+/**
+ * Classe que faz a importação de pedidos em lote. Os pedidos são lidos um a um de um Iterator,
+ * agrupados em blocos de tamanho configurável (propriedade pedido.lote.tamanho) e cada bloco é
+ * salvo em uma transação própria através do método PedidoService.insertAll().
+ * 
+ * Assim apenas um bloco de pedidos fica em memória por vez, independente do tamanho do arquivo
+ * enviado.
+ * */
+@Service
+public class PedidoLoteService {
+	
+	@Autowired
+	private PedidoService pedidoService;
+	
+	@Autowired
+	private ProdutoService produtoService;
+	
+	@Autowired
+	private EntityManager entityManager;
+	
+	@Value("${pedido.lote.tamanho:100}")
+	private Integer tamanhoBloco;
+
+	/**
+	 * Método que importa todos os pedidos do Iterator.
+	 * 
+	 * Cada pedido é validado antes de ser salvo. Pedidos inválidos não impedem a importação dos
+	 * demais. Se ocorrer um erro ao salvar um bloco, a transação do bloco é desfeita e os pedidos 
+	 * daquele bloco são salvos um a um, assim apenas os pedidos que falharem são marcados com erro.
+	 * 
+	 * @param pedidos um Iterator que lê os pedidos sob demanda.
+	 * 
+	 * @return uma lista com o resultado de cada pedido, na mesma ordem em que foram lidos.
+	 * */
+	public List<ResultadoLoteDTO> importar(Iterator<Pedido> pedidos) {
+		List<ResultadoLoteDTO> resultados = new ArrayList<>();
+		List<Pedido> bloco = new ArrayList<>();
+		List<Integer> indices = new ArrayList<>();
+		int indice = 0;
+		
+		while (true) {
+			Pedido obj;
+			try {
+				if (!pedidos.hasNext()) {
+					break;
+				}
+				obj = pedidos.next();
+			} catch (RuntimeException e) {
+				/*Um registro mal formado interrompe a leitura pois não é possível saber onde 
+				 * começa o próximo registro*/
+				resultados.add(new ResultadoLoteDTO(indice, null, false, "Registro inválido: " + e.getMessage()));
+				break;
+			}
+			
+			String erro = validar(obj);
+			if (erro != null) {
+				resultados.add(new ResultadoLoteDTO(indice, null, false, erro));
+			} else {
+				bloco.add(obj);
+				indices.add(indice);
+			}
+			indice++;
+			
+			if (bloco.size() >= tamanhoBloco) {
+				salvarBloco(bloco, indices, resultados);
+			}
+		}
+		salvarBloco(bloco, indices, resultados);
+		
+		/*Os pedidos inválidos foram adicionados antes do bloco em que estavam. Ordena pelo índice*/
+		resultados.sort((a, b) -> a.getIndice().compareTo(b.getIndice()));
+		return resultados;
+	}
+
+	/**
+	 * Método auxiliar que salva um bloco de pedidos e registra o resultado de cada um.
+	 * Ao final o bloco é esvaziado para receber os próximos pedidos.
+	 * */
+	private void salvarBloco(List<Pedido> bloco, List<Integer> indices, List<ResultadoLoteDTO> resultados) {
+		if (bloco.isEmpty()) {
+			return;
+		}
+		
+		/*Busca de uma só vez todos os produtos do bloco. Pedidos com produtos inexistentes são 
+		 * retirados do bloco para não desfazer a transação dos demais*/
+		Set<Integer> inexistentes = produtosInexistentes(bloco);
+		if (!inexistentes.isEmpty()) {
+			for (int i = bloco.size() - 1; i >= 0; i--) {
+				for (ItemPedido ip : bloco.get(i).getItens()) {
+					if (inexistentes.contains(ip.getProduto().getId())) {
+						resultados.add(new ResultadoLoteDTO(indices.get(i), null, false,
+								"Produto não encontrado! Id: " + ip.getProduto().getId()));
+						bloco.remove(i);
+						indices.remove(i);
+						break;
+					}
+				}
+			}
+		}
+		
+		try {
+			List<Pedido> salvos = pedidoService.insertAll(bloco);
+			for (int i = 0; i < salvos.size(); i++) {
+				resultados.add(new ResultadoLoteDTO(indices.get(i), salvos.get(i).getId(), true, null));
+			}
+		} catch (RuntimeException e) {
+			/*Um único pedido recusado(ex: estoque insuficiente) desfaz a transação do bloco inteiro. Os 
+			 * pedidos do bloco são salvos novamente um a um, cada um em sua transação, assim apenas os 
+			 * pedidos com erro são recusados*/
+			entityManager.clear();
+			salvarUmAUm(bloco, indices, resultados);
+		}
+		
+		/*Descarta os objetos do bloco do contexto de persistência para que a memória não cresça 
+		 * a cada bloco importado*/
+		entityManager.clear();
+		bloco.clear();
+		indices.clear();
+	}
+
+	/**
+	 * Método auxiliar que salva cada pedido do bloco em uma transação própria através do método 
+	 * PedidoService.insert(). Usado apenas quando o bloco não pôde ser salvo de uma só vez.
+	 * 
+	 * Os pedidos podem ter sido gravados(flush) antes do bloco ser desfeito. O insert() volta o pedido,
+	 * o pagamento e os itens ao estado de novos, assim são gravados novamente apenas com INSERTs.
+	 * */
+	private void salvarUmAUm(List<Pedido> bloco, List<Integer> indices, List<ResultadoLoteDTO> resultados) {
+		for (int i = 0; i < bloco.size(); i++) {
+			try {
+				Pedido salvo = pedidoService.insert(bloco.get(i));
+				resultados.add(new ResultadoLoteDTO(indices.get(i), salvo.getId(), true, null));
+			} catch (RuntimeException e) {
+				resultados.add(new ResultadoLoteDTO(indices.get(i), null, false, e.getMessage()));
+			}
+		}
+	}
+
+	/**
+	 * Método auxiliar que retorna os ids dos produtos do bloco que não existem no banco de dados.
+	 * */
+	private Set<Integer> produtosInexistentes(List<Pedido> bloco) {
+		Set<Integer> ids = new HashSet<>();
+		for (Pedido obj : bloco) {
+			for (ItemPedido ip : obj.getItens()) {
+				ids.add(ip.getProduto().getId());
+			}
+		}
+		
+		ids.removeAll(produtoService.findExistentes(ids).keySet());
+		return ids;
+	}
+
+	/**
+	 * Método auxiliar que faz as validações básicas de um pedido.
+	 * 
+	 * @return a mensagem de erro ou null se o pedido for válido.
+	 * */
+	private String validar(Pedido obj) {
+		if (obj == null) {
+			return "Pedido vazio";
+		}
+		if (obj.getCliente() == null || obj.getCliente().getId() == null) {
+			return "Cliente não informado";
+		}
+		if (obj.getEnderecoDeEntrega() == null || obj.getEnderecoDeEntrega().getId() == null) {
+			return "Endereço de entrega não informado";
+		}
+		if (obj.getPagamento() == null) {
+			return "Pagamento não informado";
+		}
+		if (obj.getItens().isEmpty()) {
+			return "O pedido não possui itens";
+		}
+		for (ItemPedido ip : obj.getItens()) {
+			if (ip.getProduto() == null || ip.getProduto().getId() == null) {
+				return "Item sem produto";
+			}
+			if (ip.getQuantidade() == null || ip.getQuantidade() <= 0) {
+				return "Quantidade inválida para o produto " + ip.getProduto().getId();
+			}
+		}
+		return null;
+	}
+}
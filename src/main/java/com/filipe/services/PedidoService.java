@@ -1,16 +1,32 @@
 package com.filipe.services;
 
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort.Direction;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.filipe.domain.Cliente;
+import com.filipe.domain.EventoOutbox;
 import com.filipe.domain.ItemPedido;
 import com.filipe.domain.PagamentoComBoleto;
 import com.filipe.domain.Pedido;
+import com.filipe.domain.Produto;
 import com.filipe.domain.enums.EstadoPagamento;
+import com.filipe.domain.enums.TipoEvento;
+import com.filipe.dto.DivergenciaTotalDTO;
+import com.filipe.dto.PedidoResumoDTO;
+import com.filipe.dto.VerificacaoTotaisDTO;
+import com.filipe.repositories.ClienteRepository;
+import com.filipe.repositories.EventoOutboxRepository;
 import com.filipe.repositories.ItemPedidoRepository;
 import com.filipe.repositories.PagamentoRepository;
 import com.filipe.repositories.PedidoRepository;
@@ -19,6 +35,12 @@ import com.filipe.services.exceptions.ObjectNotFoundException;
 @Service
 public class PedidoService {
 	
+	/*Diferença máxima, em reais, aceita entre o valor total gravado e o calculado(arredondamentos)*/
+	private static final double TOLERANCIA_VALOR = 0.005;
+	
+	/*Quantidade máxima de ids enviados em um único UPDATE na correção dos totais*/
+	private static final int TAMANHO_LOTE_CORRECAO = 500;
+	
 	@Autowired
 	private PedidoRepository repo;
 	
@@ -34,6 +56,15 @@ public class PedidoService {
 	@Autowired
 	private ItemPedidoRepository itemPedidoRepository;
 	
+	@Autowired
+	private ClienteRepository clienteRepository;
+	
+	@Autowired
+	private EventoOutboxRepository eventoOutboxRepository;
+	
+	@Autowired
+	private EstoqueService estoqueService;
+	
 	/**
 	 * Método que busca um objeto por ID, caso não encontre Lança uma exceção 
 	 * personalizada do tipo ObjectNotFoundException. Para mais informações consultar o mesmo
@@ -41,8 +72,13 @@ public class PedidoService {
 	 * 
 	 * @param id o Id do objeto buscado.
 	 * 
+	 * O pedido é retornado com todos os relacionamentos exibidos no JSON já carregados e a quantidade
+	 * de consultas não depende da quantidade de itens: uma para os produtos dos itens, uma para o 
+	 * pedido com pagamento, cliente, endereço de entrega e itens e outra para os endereços do cliente.
+	 * 
 	 * @throws ObjectNotFoundException se não encontrar o objeto no banco de dados.
 	 * */
+	@Transactional(readOnly = true)
 	public Pedido find(Integer id) {
 		
 		/*
@@ -53,7 +89,13 @@ public class PedidoService {
 		 * O uso de Optional evitará nullPointerException pois se o Objeto não for encontrado
 		 * retornará um Optional vazio ao invés de um null.
 		 * */
-		Optional<Pedido> obj = repo.findById(id);
+		/*Os produtos ficam no EntityManager e são usados ao montar os itens na consulta seguinte*/
+		repo.findProdutosDoPedido(id);
+		
+		Optional<Pedido> obj = repo.findCompletoById(id);
+		
+		/*A última consulta inicializa os endereços do mesmo cliente, que já está no EntityManager*/
+		obj.ifPresent(pedido -> clienteRepository.findComEnderecosById(pedido.getCliente().getId()));
 		
 		/*
 		 * Retorna o objeto Pedido presente dentro do "container" Optional.
@@ -67,6 +109,27 @@ public class PedidoService {
 				"Objeto não Encontrado! Id: " + id + " ,tipo:"+ Pedido.class.getName()));
 	}
 
+	/**
+	 * Método que retorna uma página com o resumo(id, instante, valor total e estado do pagamento)
+	 * dos pedidos de um cliente. Nenhuma entidade Pedido é carregada.
+	 * 
+	 * @param clienteId o id do cliente
+	 * @param page informa o número da página. A página inicial é a de número zero.
+	 * @param linesPerPage Informa o número de registro máximo em cada página.
+	 * @param orderBy O identificador do atributo pelo qual os registros serão ordenados. 
+	 * @param direction Indica a direção da ordenação, podendo ser ascendente ou descendente(ASC ou DESC).
+	 * 
+	 * @throws ObjectNotFoundException se o cliente não existir.
+	 * */
+	public Page<PedidoResumoDTO> findPageByCliente(Integer clienteId, Integer page, Integer linesPerPage, String orderBy, String direction) {
+		/*existsById faz apenas um SELECT COUNT, sem carregar o cliente*/
+		if (!clienteRepository.existsById(clienteId)) {
+			throw new ObjectNotFoundException("Objeto não Encontrado! Id: " + clienteId + " ,tipo:" + Cliente.class.getName());
+		}
+		PageRequest pageRequest = PageRequest.of(page, linesPerPage, Direction.valueOf(direction), orderBy);
+		return repo.findResumosByClienteId(clienteId, pageRequest);
+	}
+
 	/**
 	 * Método para inserir um novo pedido
 	 * 
@@ -81,6 +144,10 @@ public class PedidoService {
 		/*adiciona a data do pedido*/
 		obj.setInstante(new Date());
 		
+		/*O cliente que veio da view possui apenas o id e a versão nula, logo o hibernate o trataria como
+		 * um cliente novo(@Version). getOne() retorna uma referência ao cliente sem consultá-lo*/
+		obj.setCliente(clienteRepository.getOne(obj.getCliente().getId()));
+		
 		/*MODIFICAÇÕES NO PAGAMENTO DO PEDIDO*/
 		/*Define o atual estado do pagamento*/
 		obj.getPagamento().setEstadoPagamento(EstadoPagamento.PENDENTE);
@@ -89,6 +156,14 @@ public class PedidoService {
 		 * Assim o objeto do tipo Pagamento sabe a qual pedido pertence*/
 		obj.getPagamento().setPedido(obj);
 		
+		/*Um pedido cuja gravação foi desfeita(ex: um bloco da importação em lote) é salvo novamente com
+		 * os mesmos objetos. O pagamento ainda teria o id antigo e os itens não seriam mais novos, logo
+		 * o Spring Data faria um merge, com um SELECT para cada um, ao invés de apenas os INSERTs*/
+		obj.getPagamento().setId(null);
+		for (ItemPedido ip : obj.getItens()) {
+			ip.marcarComoNovo();
+		}
+		
 		/*Se o Pagamento presente no Pedido obj for do tipo PagamentoComBoleto:*/
 		if (obj.getPagamento() instanceof PagamentoComBoleto) {
 			PagamentoComBoleto pagto = (PagamentoComBoleto) obj.getPagamento();//faz o casting
@@ -99,22 +174,120 @@ public class PedidoService {
 			boletoService.preencherPagamentoComBoleto(pagto, obj.getInstante());
 		}
 		
-		/*Salva o pedido no banco*/
-		obj = repo.save(obj);
-		
-		/*Salva o pagamento no banco*/
-		pagamentoRepository.save(obj.getPagamento());
+		/*Reúne os ids de todos os produtos do pedido para buscá-los de uma só vez. Se algum 
+		 * produto não existir será lançada uma ObjectNotFoundException com todos os ids faltantes*/
+		List<Integer> idsProdutos = new ArrayList<>();
+		for (ItemPedido ip : obj.getItens()) {
+			idsProdutos.add(ip.getProduto().getId());
+		}
+		Map<Integer, Produto> produtos = produtoService.findAllById(idsProdutos);
 		
 		/*Percorre todos os itens de pedido presentes no pedido obj*/
 		for (ItemPedido ip : obj.getItens()) {
 			ip.setDesconto(0.0);
 			
-			/*o preço será obtido via consulta do produto no banco de dados*/
-			ip.setPreco(produtoService.find(ip.getProduto().getId()).getPreco());
+			/*o preço será obtido a partir dos produtos consultados no banco de dados*/
+			ip.setPreco(produtos.get(ip.getProduto().getId()).getPreco());
+			
+			/*O item recebe a cópia consultada, que possui a versão, no lugar do produto da view. Uma referência
+			 * do getOne() não serve aqui: o hashCode() do ItemPedidoPK inicializaria a referência com um 
+			 * SELECT para cada item*/
+			ip.setProduto(produtos.get(ip.getProduto().getId()));
 			ip.setPedido(obj);
 		}
 		
+		/*Com os preços definidos, o valor total e a quantidade de itens são gravados junto com o
+		 * pedido, no mesmo INSERT*/
+		obj.recalcularTotais();
+		
+		/*Reserva o estoque antes de qualquer INSERT. Sem estoque suficiente o pedido é recusado com uma
+		 * EstoqueInsuficienteException sem acessar o banco de dados*/
+		Map<Integer, Integer> reservas = estoqueService.reservar(obj.getItens());
+		
+		/*Salva o pedido no banco*/
+		obj = repo.save(obj);
+		
+		/*Salva o pagamento no banco*/
+		pagamentoRepository.save(obj.getPagamento());
+		
 		itemPedidoRepository.saveAll(obj.getItens());
+		
+		estoqueService.salvarReservas(obj.getId(), reservas);
+		
+		/*O trabalho posterior à criação do pedido(e-mail, estoque, etc) não é feito aqui. Um evento é
+		 * gravado na outbox, na mesma transação do pedido, e processado em segundo plano pelo 
+		 * OutboxDispatcher. Assim o tempo de resposta não cresce com a quantidade de consumidores*/
+		eventoOutboxRepository.save(new EventoOutbox(null, TipoEvento.PEDIDO_CRIADO, obj.getId(), obj.getInstante()));
 		return obj;
 	}
+	
+	/**
+	 * Método que insere vários pedidos em uma única transação. Se algum pedido falhar todos os
+	 * pedidos da lista serão desfeitos. Usado na importação de pedidos em lote.
+	 * 
+	 * @param list a lista de pedidos a serem inseridos
+	 * 
+	 * @return a lista de pedidos inseridos, na mesma ordem, já com os ids gerados
+	 * */
+	@Transactional
+	public List<Pedido> insertAll(List<Pedido> list) {
+		List<Pedido> salvos = new ArrayList<>();
+		for (Pedido obj : list) {
+			salvos.add(insert(obj));
+		}
+		return salvos;
+	}
+	
+	/**
+	 * Verifica se o valor total e a quantidade de itens gravados em cada pedido correspondem aos 
+	 * seus itens. Os totais são calculados pelo banco com uma única consulta agrupada, lida em 
+	 * stream, logo a memória usada não depende da quantidade de pedidos.
+	 * 
+	 * @param corrigir se true os pedidos divergentes são recalculados no banco de dados.
+	 * 
+	 * @return o resultado da verificação, com as divergências encontradas.
+	 * */
+	@Transactional
+	public VerificacaoTotaisDTO verificarTotais(boolean corrigir) {
+		VerificacaoTotaisDTO resultado = new VerificacaoTotaisDTO();
+		List<Integer> idsDivergentes = new ArrayList<>();
+		
+		try (Stream<Object[]> stream = repo.streamTotais()) {
+			stream.forEach(linha -> {
+				DivergenciaTotalDTO divergencia = divergencia(linha);
+				resultado.adicionar(divergencia);
+				if (divergencia != null && corrigir) {
+					idsDivergentes.add(divergencia.getPedidoId());
+				}
+			});
+		}
+		
+		int corrigidos = 0;
+		for (int i = 0; i < idsDivergentes.size(); i += TAMANHO_LOTE_CORRECAO) {
+			corrigidos += repo.recalcularTotais(
+					idsDivergentes.subList(i, Math.min(i + TAMANHO_LOTE_CORRECAO, idsDivergentes.size())));
+		}
+		resultado.setCorrigidos(corrigidos);
+		return resultado;
+	}
+	
+	/**
+	 * Compara os totais gravados e calculados de uma linha da consulta streamTotais().
+	 * 
+	 * @return a divergência encontrada ou null se os totais estiverem corretos.
+	 * */
+	private DivergenciaTotalDTO divergencia(Object[] linha) {
+		Integer id = (Integer) linha[0];
+		Double valorGravado = (Double) linha[1];
+		Integer quantidadeGravada = (Integer) linha[2];
+		double valorCalculado = ((Number) linha[3]).doubleValue();
+		int quantidadeCalculada = ((Number) linha[4]).intValue();
+		
+		boolean valorCorreto = valorGravado != null && Math.abs(valorGravado - valorCalculado) <= TOLERANCIA_VALOR;
+		boolean quantidadeCorreta = quantidadeGravada != null && quantidadeGravada == quantidadeCalculada;
+		if (valorCorreto && quantidadeCorreta) {
+			return null;
+		}
+		return new DivergenciaTotalDTO(id, valorGravado, valorCalculado, quantidadeGravada, quantidadeCalculada);
+	}
 }
@@ -1,57 +1,404 @@
 package com.filipe.services;
 
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.criteria.Join;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.domain.Sort.Direction;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.repository.support.PageableExecutionUtils;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
 
 import com.filipe.domain.Categoria;
 import com.filipe.domain.Produto;
-import com.filipe.repositories.CategoriaRepository;
+import com.filipe.domain.listeners.ProdutoAlteradoEvent;
+import com.filipe.domain.utils.Texto;
+import com.filipe.dto.CursorPage;
+import com.filipe.repositories.KeysetRepository;
 import com.filipe.repositories.ProdutoRepository;
+import com.filipe.services.cache.BoundedCache;
+import com.filipe.services.exceptions.InvalidParameterException;
 import com.filipe.services.exceptions.ObjectNotFoundException;
+import com.filipe.services.search.CategoriaBitmapIndex;
+import com.filipe.services.search.ProdutoSearchIndex;
 
 @Service
 public class ProdutoService {
 
+	/*Quantidade máxima de ids enviados em uma única consulta IN. Carrinhos muito grandes serão
+	 * consultados em mais de um lote para não estourar o limite de parâmetros do banco de dados*/
+	private static final int TAMANHO_LOTE = 500;
+	
+	/*Atributos que podem ordenar a busca. Os candidatos encontrados nos índices são ordenados em
+	 * memória, logo apenas os atributos presentes nas cópias do cache(ver copiar()) são aceitos*/
+	private static final Set<String> ORDENACOES = new HashSet<>(Arrays.asList("id", "nome", "preco"));
+	
+	private static final Locale LOCALE = new Locale("pt", "BR");
+
 	@Autowired
 	private ProdutoRepository repo;
 
 	@Autowired
-	private CategoriaRepository categoriaRepository;
+	private KeysetRepository keysetRepo;
+
+	@Autowired
+	private ProdutoSearchIndex searchIndex;
+	
+	@Autowired
+	private CategoriaBitmapIndex categoriaIndex;
+	
+	/*Quantidade máxima de ids encontrados no índice que serão ordenados e paginados em memória.
+	 * Acima desse valor a busca volta a usar o LIKE do banco de dados*/
+	@Value("${produto.busca.max-candidatos:5000}")
+	private Integer maxCandidatos;
+	
+	@Value("${produto.cache.tamanho-maximo:10000}")
+	private Integer cacheTamanhoMaximo;
+	
+	@Value("${produto.cache.ttl-segundos:300}")
+	private Long cacheTtlSegundos;
+	
+	@Value("${paginacao.contagem.tamanho-maximo:1000}")
+	private Integer contagemTamanhoMaximo;
+	
+	@Value("${paginacao.contagem.ttl-segundos:30}")
+	private Long contagemTtlSegundos;
+	
+	/*Cache dos produtos consultados por id. Guarda apenas cópias desvinculadas do JPA*/
+	private BoundedCache<Integer, Produto> cache;
+	
+	/*Cache do total de produtos de cada filtro(nome + categorias) usado nas buscas pelo LIKE do banco*/
+	private BoundedCache<String, Long> contagens;
+	
+	@PostConstruct
+	public void init() {
+		cache = new BoundedCache<>(cacheTamanhoMaximo, cacheTtlSegundos * 1000);
+		contagens = new BoundedCache<>(contagemTamanhoMaximo, contagemTtlSegundos * 1000);
+	}
 
-	/**Método que retorna um produto ou a exceção ObjectNotFoundException caso não o encontre*/
+	/**
+	 * Método que retorna um produto ou a exceção ObjectNotFoundException caso não o encontre.
+	 * 
+	 * O produto é buscado primeiro no cache e apenas se não estiver no cache é buscado no banco.
+	 * O objeto retornado é uma cópia (id, nome e preco) que não é gerenciada pelo JPA, alterá-lo
+	 * não altera o banco de dados nem o cache. Para alterar um produto use o ProdutoRepository.
+	 * 
+	 * Se o produto for alterado enquanto é lido do banco, a cópia lida não é guardada no cache(ver
+	 * BoundedCache.geracao()), pois pode ser anterior à alteração.
+	 * */
 	public Produto find(Integer id) {
+		Produto cached = cache.get(id);
+		if (cached != null) {
+			return copiar(cached);
+		}
+		
+		long geracao = cache.geracao();
 		Optional<Produto> obj = repo.findById(id);
-		return obj.orElseThrow(() -> new ObjectNotFoundException(
+		Produto produto = obj.orElseThrow(() -> new ObjectNotFoundException(
 				"Objeto não encontrado! Id: " + id + ", Tipo: " + Produto.class.getName()));
+		
+		cache.put(id, copiar(produto), geracao);
+		return copiar(produto);
+	}
+	
+	/**
+	 * Retorna a versão do produto, usada na ETag do GET /produtos/{id}. A versão do produto em cache
+	 * é usada sem consultar o banco, pois o cache é invalidado sempre que o produto é alterado.
+	 * 
+	 * @return a versão ou null se o produto não existir.
+	 * */
+	public Object[] findVersao(Integer id) {
+		Produto cached = cache.get(id);
+		Integer versao = (cached != null) ? cached.getVersao() : repo.findVersaoById(id);
+		return (versao == null) ? null : new Object[] {versao};
+	}
+
+	/**
+	 * Método que busca vários produtos de uma só vez a partir de seus ids. Ao invés de fazer
+	 * uma consulta para cada id, os ids são agrupados em lotes e cada lote é buscado com uma 
+	 * única consulta IN.
+	 * 
+	 * @param ids os ids dos produtos buscados. Ids repetidos serão consultados apenas uma vez.
+	 * 
+	 * @return um Map contendo cada produto encontrado indexado pelo seu id.
+	 * 
+	 * @throws ObjectNotFoundException informando todos os ids que não foram encontrados no banco.
+	 * */
+	public Map<Integer, Produto> findAllById(Collection<Integer> ids) {
+		Map<Integer, Produto> produtos = findExistentes(ids);
+		
+		/*Todos os ids que não retornaram um produto são informados na mesma exceção*/
+		Set<Integer> naoEncontrados = new LinkedHashSet<>(ids);
+		naoEncontrados.removeAll(produtos.keySet());
+		if (!naoEncontrados.isEmpty()) {
+			throw new ObjectNotFoundException(
+					"Objetos não encontrados! Ids: " + naoEncontrados + ", Tipo: " + Produto.class.getName());
+		}
+		
+		return produtos;
+	}
+	
+	/**
+	 * Método que faz a mesma busca do método findAllById() porém sem lançar exceção.
+	 * Os ids que não existirem no banco de dados simplesmente não estarão presentes no Map.
+	 * 
+	 * Assim como no método find(), os produtos presentes no cache não são consultados no banco e
+	 * os produtos retornados são cópias não gerenciadas pelo JPA.
+	 * */
+	public Map<Integer, Produto> findExistentes(Collection<Integer> ids) {
+		Map<Integer, Produto> produtos = new HashMap<>();
+		
+		/*Remove os ids repetidos e os ids já presentes no cache, mantendo a ordem original*/
+		List<Integer> distintos = new ArrayList<>();
+		for (Integer id : new LinkedHashSet<>(ids)) {
+			Produto cached = cache.get(id);
+			if (cached != null) {
+				produtos.put(id, copiar(cached));
+			} else {
+				distintos.add(id);
+			}
+		}
+		
+		for (int i = 0; i < distintos.size(); i += TAMANHO_LOTE) {
+			List<Integer> lote = distintos.subList(i, Math.min(i + TAMANHO_LOTE, distintos.size()));
+			long geracao = cache.geracao();
+			for (Produto obj : repo.findAllById(lote)) {
+				cache.put(obj.getId(), copiar(obj), geracao);
+				produtos.put(obj.getId(), copiar(obj));
+			}
+		}
+		return produtos;
+	}
+	
+	/**
+	 * Remove o produto do cache após o commit da transação que o alterou. 
+	 * Se o produto for alterado fora de uma transação a remoção é imediata(fallbackExecution).
+	 * */
+	@TransactionalEventListener(fallbackExecution = true)
+	public void produtoAlterado(ProdutoAlteradoEvent event) {
+		cache.invalidate(event.getId());
+		
+		/*Qualquer alteração pode mudar o total de produtos de um filtro*/
+		contagens.clear();
+	}
+	
+	/**Retorna o cache de produtos. Usado para consultar os contadores de acertos, falhas e remoções*/
+	public BoundedCache<Integer, Produto> getCache() {
+		return cache;
+	}
+	
+	/**
+	 * Método auxiliar que cria uma cópia do produto contendo apenas id, nome, preco e versão.
+	 * A cópia não é gerenciada pelo JPA, logo pode ser guardada no cache e entregue a quem
+	 * chamou o serviço sem risco de alterações acidentais no banco.
+	 * */
+	private Produto copiar(Produto obj) {
+		Produto copia = new Produto(obj.getId(), obj.getNome(), obj.getPreco());
+		copia.setVersao(obj.getVersao());
+		return copia;
 	}
 
 	/**
 	 * Método que faz a busca de um Produto usando o nome e uma lista de categorias como filtros.
 	 * 
+	 * O nome é procurado no índice em memória ProdutoSearchIndex, sem diferenciar acentos e
+	 * maiúsculas, e as categorias no índice CategoriaBitmapIndex. Apenas os ids encontrados nos
+	 * dois índices são lidos, do cache de produtos ou do banco em lotes de TAMANHO_LOTE ids, e são 
+	 * ordenados e paginados em memória(ver paginar()). A quantidade de produtos encontrados é o total de 
+	 * registros, dispensando a consulta COUNT. Quando o índice encontra candidatos demais a busca volta a 
+	 * usar o LIKE do banco, comparando o nome normalizado(Produto.nomeBusca) para encontrar os mesmos
+	 * produtos que o índice. Nesse caso a contagem é guardada por alguns segundos no cache de contagens 
+	 * para que a troca de páginas não repita o COUNT.
+	 * 
 	 * @param nome o nome do produto que se quer encontrar ou parte do nome
 	 * @param ids uma lista de ids das categorias onde o produto deve ser procurado.
 	 * 
 	 * @param page informa o número da página. A página inicial é a de número zero.
 	 * @param linesPerPage Informa o número de registro máximo em cada página. Ou seja,
 	 * quantas linhas por página. 
-	 * @param orderBy O identificador do atributo pelo qual os registros serão ordenados. 
+	 * @param orderBy O identificador do atributo pelo qual os registros serão ordenados: id, nome ou preco. 
 	 * @param direction Indica a direção da ordenação, podendo ser ascendente ou descendente(ASC ou DESC).
 	 * 
 	 * @return Page uma Page que é uma sub-lista contendo um número definido de registros
+	 * 
+	 * @throws InvalidParameterException se o atributo de ordenação não for aceito.
 	 * */
 	public Page<Produto> search(String nome, List<Integer> ids, Integer page, Integer linesPerPage, String orderBy, String direction) {
 		/*cria um objeto PageRequest com os parâmetros para a requisição*/
 		PageRequest pageRequest = PageRequest.of(page, linesPerPage, Direction.valueOf(direction), orderBy);
+		Comparator<Produto> ordenacao = ordenacao(orderBy, pageRequest.getSort().getOrderFor(orderBy).getDirection());
 		
-		/*Faz a busca pelas categorias informadas*/
-		List<Categoria> categorias = categoriaRepository.findAllById(ids);
+		BitSet encontrados = buscarNosIndices(nome, ids);
+		if (encontrados.isEmpty()) {
+			return new PageImpl<>(new ArrayList<>(), pageRequest, 0);
+		}
+		if (encontrados.cardinality() > maxCandidatos) {
+			String padrao = padraoLike(nome);
+			Slice<Produto> slice = repo.findDistinctByNomeContainingAndCategoriasIn(padrao, ids, pageRequest);
+			String chave = padrao + ids;
+			return PageableExecutionUtils.getPage(slice.getContent(), pageRequest, 
+					() -> contagens.get(chave, () -> repo.countDistinctByNomeContainingAndCategoriasIn(padrao, ids)));
+		}
 		
-		return repo.findDistinctByNomeContainingAndCategoriasIn(nome, categorias, pageRequest);	
+		List<Produto> produtos = ordenar(encontrados, ordenacao);
+		return new PageImpl<>(paginar(produtos, pageRequest), pageRequest, produtos.size());
+	}
+	
+	/**
+	 * Método que faz a mesma busca do método search() porém retorna um Slice, que informa apenas 
+	 * se existe uma próxima página. Nenhuma contagem de registros é feita.
+	 * 
+	 * @return Slice uma sub-lista contendo um número definido de registros
+	 * */
+	public Slice<Produto> searchSlice(String nome, List<Integer> ids, Integer page, Integer linesPerPage, String orderBy, String direction) {
+		PageRequest pageRequest = PageRequest.of(page, linesPerPage, Direction.valueOf(direction), orderBy);
+		Comparator<Produto> ordenacao = ordenacao(orderBy, pageRequest.getSort().getOrderFor(orderBy).getDirection());
+		
+		BitSet encontrados = buscarNosIndices(nome, ids);
+		if (encontrados.isEmpty()) {
+			return new SliceImpl<>(new ArrayList<>(), pageRequest, false);
+		}
+		if (encontrados.cardinality() > maxCandidatos) {
+			return repo.findDistinctByNomeContainingAndCategoriasIn(padraoLike(nome), ids, pageRequest);
+		}
+		List<Produto> produtos = ordenar(encontrados, ordenacao);
+		return new SliceImpl<>(paginar(produtos, pageRequest), pageRequest,
+				pageRequest.getOffset() + pageRequest.getPageSize() < produtos.size());
+	}
+	
+	/**
+	 * Método que faz a mesma busca do método search() porém paginada por cursor. Nenhuma consulta
+	 * COUNT é executada e o custo de cada página não depende da sua posição na listagem.
+	 * 
+	 * @param nome o nome do produto que se quer encontrar ou parte do nome
+	 * @param ids uma lista de ids das categorias onde o produto deve ser procurado.
+	 * @param cursor o cursor next retornado na página anterior. Vazio para a primeira página.
+	 * @param linesPerPage Informa o número de registro máximo em cada página.
+	 * @param orderBy O identificador do atributo pelo qual os registros serão ordenados. 
+	 * @param direction Indica a direção da ordenação, podendo ser ascendente ou descendente(ASC ou DESC).
+	 * 
+	 * @return CursorPage contendo os registros e o cursor da próxima página
+	 * */
+	public CursorPage<Produto> searchCursor(String nome, List<Integer> ids, String cursor, Integer linesPerPage, String orderBy, String direction) {
+		BitSet encontrados = buscarNosIndices(nome, ids);
+		if (encontrados.isEmpty()) {
+			return new CursorPage<>(new ArrayList<>(), null);
+		}
+		
+		/*O cursor é montado pelo KeysetRepository a partir de uma única consulta, logo os candidatos não 
+		 * podem ser divididos em lotes. Acima de TAMANHO_LOTE candidatos é usado o LIKE do banco*/
+		Specification<Produto> filtro;
+		if (encontrados.cardinality() > Math.min(maxCandidatos, TAMANHO_LOTE)) {
+			/*Mesmo filtro da consulta findDistinctByNomeContainingAndCategoriasIn*/
+			String padrao = padraoLike(nome);
+			filtro = (root, query, cb) -> {
+				query.distinct(true);
+				Join<Produto, Categoria> cat = root.join("categorias");
+				return cb.and(cb.like(root.get("nomeBusca"), padrao, '\\'), cat.get("id").in(ids));
+			};
+		} else {
+			List<Integer> candidatos = paraLista(encontrados);
+			filtro = (root, query, cb) -> root.get("id").in(candidatos);
+		}
+		return keysetRepo.findPage(Produto.class, filtro, cursor, linesPerPage, orderBy, direction);
+	}
+	
+	/**
+	 * Retorna os ids dos produtos que pertencem a alguma das categorias e que, se houver um nome,
+	 * também foram encontrados no índice de nomes.
+	 * */
+	private BitSet buscarNosIndices(String nome, List<Integer> ids) {
+		/*Os produtos das categorias informadas (uma categoria OU outra) vem do índice de categorias*/
+		BitSet encontrados = categoriaIndex.produtosDasCategorias(ids);
+		
+		/*Se houver um nome, mantém apenas os produtos encontrados também no índice de nomes*/
+		if (!nome.trim().isEmpty()) {
+			encontrados.and(searchIndex.buscar(nome));
+		}
+		return encontrados;
+	}
+	
+	/**
+	 * Monta o padrão do LIKE sobre o nome normalizado(Produto.nomeBusca) usado quando o índice encontra
+	 * candidatos demais. O texto é normalizado como no ProdutoSearchIndex e os caracteres especiais 
+	 * do LIKE são escapados, assim "%" ou "_" no nome procurado são comparados literalmente, como no índice.
+	 * */
+	private String padraoLike(String nome) {
+		String texto = Texto.normalizar(nome)
+				.replace("\\", "\\\\")
+				.replace("%", "\\%")
+				.replace("_", "\\_");
+		return "%" + texto + "%";
+	}
+	
+	/**
+	 * Lê os produtos encontrados nos índices pelo findExistentes(), que consulta o banco em lotes de
+	 * TAMANHO_LOTE ids apenas os produtos que não estão no cache, e os ordena. Nenhuma consulta IN 
+	 * recebe mais do que TAMANHO_LOTE ids e, com os produtos em cache, a busca não acessa o banco.
+	 * Produtos removidos após a leitura dos índices não são encontrados e ficam de fora.
+	 * */
+	private List<Produto> ordenar(BitSet encontrados, Comparator<Produto> ordenacao) {
+		List<Produto> produtos = new ArrayList<>(findExistentes(paraLista(encontrados)).values());
+		produtos.sort(ordenacao);
+		return produtos;
+	}
+	
+	private List<Produto> paginar(List<Produto> produtos, PageRequest pageRequest) {
+		int inicio = (int) Math.min(pageRequest.getOffset(), produtos.size());
+		int fim = Math.min(inicio + pageRequest.getPageSize(), produtos.size());
+		return new ArrayList<>(produtos.subList(inicio, fim));
+	}
+	
+	/**
+	 * Monta a ordenação em memória dos produtos. Como no PostgreSQL, os nomes são comparados pelas 
+	 * regras do português(Collator) e o nulo é tratado como o maior valor. O id desempata produtos com
+	 * o mesmo valor, assim a ordem é a mesma em todas as páginas.
+	 * 
+	 * @throws InvalidParameterException se o atributo não estiver em ORDENACOES.
+	 * */
+	private Comparator<Produto> ordenacao(String orderBy, Direction direction) {
+		if (!ORDENACOES.contains(orderBy)) {
+			throw new InvalidParameterException("Atributo de ordenação inválido: " + orderBy);
+		}
+		Comparator<Produto> porId = Comparator.comparing(Produto::getId);
+		Comparator<Produto> ordenacao;
+		if ("nome".equals(orderBy)) {
+			Comparator<Object> collator = Collator.getInstance(LOCALE);
+			ordenacao = Comparator.comparing(Produto::getNome, Comparator.nullsLast(collator)).thenComparing(porId);
+		} else if ("preco".equals(orderBy)) {
+			ordenacao = Comparator.comparing(Produto::getPreco, Comparator.nullsLast(Comparator.<Double>naturalOrder()))
+					.thenComparing(porId);
+		} else {
+			ordenacao = porId;
+		}
+		return direction.isAscending() ? ordenacao : ordenacao.reversed();
+	}
+	
+	private List<Integer> paraLista(BitSet bits) {
+		List<Integer> lista = new ArrayList<>();
+		bits.stream().forEach(lista::add);
+		return lista;
 	}
 }
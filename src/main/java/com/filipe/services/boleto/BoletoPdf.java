@@ -0,0 +1,225 @@
+package com.filipe.services.boleto;
+
+import java.io.ByteArrayOutputStream;
+import java.text.SimpleDateFormat;
+
+import com.filipe.dto.DadosBoletoDTO;
+
+/**
+ * Classe utilitária que desenha o boleto em um documento PDF de uma página.
+ *
+ * O PDF é escrito diretamente, sem bibliotecas: o texto usa as fontes padrão Helvetica e
+ * Helvetica-Bold(que não precisam ser embutidas) e o código de barras Intercalado 2 de 5(ITF),
+ * exigido pela FEBRABAN, é desenhado com retângulos.
+ *
+ * Cada thread reutiliza os seus próprios buffers(ThreadLocal) entre um boleto e outro. Assim a geração
+ * de milhares de boletos aloca apenas o array final de cada documento. Os buffers crescem até o
+ * tamanho de um boleto e então permanecem desse tamanho.
+ * */
+public final class BoletoPdf {
+
+	/*Tamanho da página A4 em pontos(1/72 polegada)*/
+	private static final int LARGURA = 595;
+	private static final int ALTURA = 842;
+	private static final int MARGEM = 40;
+
+	/*Barra estreita de 1 ponto(~0,35mm), barra larga com 3 vezes a estreita e altura de ~13mm*/
+	private static final int ESTREITA = 1;
+	private static final int LARGA = 3;
+	private static final int ALTURA_BARRAS = 37;
+
+	/*Larguras das 5 barras de cada algarismo no ITF: true é uma barra larga*/
+	private static final boolean[][] PADROES = {
+			{ false, false, true, true, false }, // 0
+			{ true, false, false, false, true }, // 1
+			{ false, true, false, false, true }, // 2
+			{ true, true, false, false, false }, // 3
+			{ false, false, true, false, true }, // 4
+			{ true, false, true, false, false }, // 5
+			{ false, true, true, false, false }, // 6
+			{ false, false, false, true, true }, // 7
+			{ true, false, false, true, false }, // 8
+			{ false, true, false, true, false } // 9
+	};
+
+	private static final ThreadLocal<Buffers> BUFFERS = ThreadLocal.withInitial(Buffers::new);
+
+	private BoletoPdf() {
+	}
+
+	/**
+	 * Gera o PDF do boleto.
+	 *
+	 * @param dados os dados do pedido e do pagador.
+	 * @param beneficiario o nome de quem recebe o pagamento.
+	 * @param banco o código do banco, exibido no cabeçalho.
+	 * @param nossoNumero o número que identifica o boleto no banco.
+	 * @param codigo o código de barras de 44 dígitos.
+	 * @param linhaDigitavel a linha digitável formatada.
+	 * */
+	public static byte[] gerar(DadosBoletoDTO dados, String beneficiario, String banco, String nossoNumero,
+			char[] codigo, String linhaDigitavel) {
+		Buffers buffers = BUFFERS.get();
+		StringBuilder sb = buffers.conteudo;
+		sb.setLength(0);
+
+		/*Cabeçalho: banco e linha digitável*/
+		texto(sb, "F2", 14, MARGEM, 790, "Banco " + banco);
+		texto(sb, "F2", 12, 180, 790, linhaDigitavel);
+		linha(sb, 782);
+
+		/*Campos do boleto*/
+		campo(sb, MARGEM, 760, "Beneficiário", beneficiario);
+		campo(sb, 400, 760, "Vencimento", buffers.data.format(dados.getDataVencimento()));
+		campo(sb, MARGEM, 730, "Pagador", dados.getNomeCliente() + "  CPF/CNPJ: " + dados.getCpfOuCnpj());
+		campo(sb, 400, 730, "Nosso número", nossoNumero);
+		campo(sb, MARGEM, 700, "Pedido", String.valueOf(dados.getPedidoId()));
+		texto(sb, "F1", 7, 400, 712, "Valor do documento");
+		sb.append("BT /F2 10 Tf 400 700 Td (R$ ");
+		valor(sb, Math.round(dados.getValorTotal() * 100));
+		sb.append(") Tj ET\n");
+		linha(sb, 690);
+
+		codigoDeBarras(sb, MARGEM, 640, codigo);
+
+		return documento(buffers, sb);
+	}
+
+	/**
+	 * Monta o arquivo PDF: os objetos, a tabela de referências(xref) com a posição de cada objeto
+	 * e o trailer.
+	 * */
+	private static byte[] documento(Buffers buffers, StringBuilder conteudo) {
+		Saida out = buffers.saida;
+		out.reset();
+		int[] posicoes = buffers.posicoes;
+
+		out.escrever("%PDF-1.4\n");
+		posicoes[1] = out.size();
+		out.escrever("1 0 obj\n<</Type/Catalog/Pages 2 0 R>>\nendobj\n");
+		posicoes[2] = out.size();
+		out.escrever("2 0 obj\n<</Type/Pages/Kids[3 0 R]/Count 1>>\nendobj\n");
+		posicoes[3] = out.size();
+		out.escrever("3 0 obj\n<</Type/Page/Parent 2 0 R/MediaBox[0 0 " + LARGURA + " " + ALTURA + "]"
+				+ "/Resources<</Font<</F1 4 0 R/F2 5 0 R>>>>/Contents 6 0 R>>\nendobj\n");
+		posicoes[4] = out.size();
+		out.escrever("4 0 obj\n<</Type/Font/Subtype/Type1/BaseFont/Helvetica/Encoding/WinAnsiEncoding>>\nendobj\n");
+		posicoes[5] = out.size();
+		out.escrever("5 0 obj\n<</Type/Font/Subtype/Type1/BaseFont/Helvetica-Bold/Encoding/WinAnsiEncoding>>\nendobj\n");
+		posicoes[6] = out.size();
+
+		/*Cada caractere do conteúdo é escrito como um único byte(WinAnsi/Latin-1), logo o tamanho
+		 * do stream é o tamanho do StringBuilder*/
+		out.escrever("6 0 obj\n<</Length " + conteudo.length() + ">>\nstream\n");
+		out.escrever(conteudo);
+		out.escrever("\nendstream\nendobj\n");
+
+		int xref = out.size();
+		out.escrever("xref\n0 7\n0000000000 65535 f \n");
+		for (int i = 1; i <= 6; i++) {
+			out.escreverNumero(posicoes[i], 10);
+			out.escrever(" 00000 n \n");
+		}
+		out.escrever("trailer\n<</Size 7/Root 1 0 R>>\nstartxref\n" + xref + "\n%%EOF\n");
+		return out.toByteArray();
+	}
+
+	/**
+	 * Desenha o código de barras ITF: início(estreita, espaço, estreita, espaço), os pares de algarismos
+	 * (o primeiro define as barras e o segundo os espaços) e o fim(larga, espaço, estreita).
+	 * */
+	private static void codigoDeBarras(StringBuilder sb, int x, int y, char[] codigo) {
+		x = barra(sb, x, y, ESTREITA) + ESTREITA;
+		x = barra(sb, x, y, ESTREITA) + ESTREITA;
+		for (int i = 0; i < codigo.length; i += 2) {
+			boolean[] barras = PADROES[codigo[i] - '0'];
+			boolean[] espacos = PADROES[codigo[i + 1] - '0'];
+			for (int j = 0; j < 5; j++) {
+				x = barra(sb, x, y, barras[j] ? LARGA : ESTREITA);
+				x += espacos[j] ? LARGA : ESTREITA;
+			}
+		}
+		x = barra(sb, x, y, LARGA) + ESTREITA;
+		barra(sb, x, y, ESTREITA);
+		sb.append("f\n");
+	}
+
+	/*Acrescenta um retângulo preenchido e retorna a posição x após a barra*/
+	private static int barra(StringBuilder sb, int x, int y, int largura) {
+		sb.append(x).append(' ').append(y).append(' ').append(largura).append(' ').append(ALTURA_BARRAS).append(" re\n");
+		return x + largura;
+	}
+
+	/*Um campo do boleto: o título em letras pequenas e o valor abaixo*/
+	private static void campo(StringBuilder sb, int x, int y, String titulo, String valor) {
+		texto(sb, "F1", 7, x, y + 12, titulo);
+		texto(sb, "F2", 10, x, y, valor);
+	}
+
+	private static void texto(StringBuilder sb, String fonte, int tamanho, int x, int y, String texto) {
+		sb.append("BT /").append(fonte).append(' ').append(tamanho).append(" Tf ")
+				.append(x).append(' ').append(y).append(" Td (");
+		for (int i = 0; i < texto.length(); i++) {
+			char c = texto.charAt(i);
+			if (c == '(' || c == ')' || c == '\\') {
+				sb.append('\\');
+			}
+			/*Caracteres fora do Latin-1 não existem nas fontes padrão*/
+			sb.append(c <= 0xFF ? c : '?');
+		}
+		sb.append(") Tj ET\n");
+	}
+
+	private static void linha(StringBuilder sb, int y) {
+		sb.append("0.5 w ").append(MARGEM).append(' ').append(y).append(" m ")
+				.append(LARGURA - MARGEM).append(' ').append(y).append(" l S\n");
+	}
+
+	/*Escreve o valor em centavos no formato 1.234,56*/
+	private static void valor(StringBuilder sb, long centavos) {
+		char[] reais = new char[26];
+		int pos = reais.length;
+		long restante = centavos / 100;
+		int algarismos = 0;
+		do {
+			if (algarismos > 0 && algarismos % 3 == 0) {
+				reais[--pos] = '.';
+			}
+			reais[--pos] = (char) ('0' + restante % 10);
+			restante /= 10;
+			algarismos++;
+		} while (restante > 0);
+		long resto = centavos % 100;
+		sb.append(reais, pos, reais.length - pos).append(',')
+				.append((char) ('0' + resto / 10)).append((char) ('0' + resto % 10));
+	}
+
+	/*Buffers reutilizados por uma thread*/
+	private static class Buffers {
+		private final StringBuilder conteudo = new StringBuilder(8192);
+		private final Saida saida = new Saida();
+		private final int[] posicoes = new int[7];
+		private final SimpleDateFormat data = new SimpleDateFormat("dd/MM/yyyy");
+	}
+
+	/*ByteArrayOutputStream que escreve texto como Latin-1 sem converter para um array de bytes.
+	 * O reset() mantém o array interno, que é reaproveitado no próximo documento*/
+	private static class Saida extends ByteArrayOutputStream {
+		private Saida() {
+			super(16384);
+		}
+
+		private void escrever(CharSequence texto) {
+			for (int i = 0; i < texto.length(); i++) {
+				write(texto.charAt(i));
+			}
+		}
+
+		/*Escreve o número com zeros à esquerda, como exigido na tabela xref*/
+		private void escreverNumero(int numero, int tamanho) {
+			for (int divisor = (int) Math.pow(10, tamanho - 1); divisor > 0; divisor /= 10) {
+				write('0' + (numero / divisor) % 10);
+			}
+		}
+	}
+}
@@ -0,0 +1,171 @@
+package com.filipe.services.boleto;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Classe utilitária que monta o código de barras e a linha digitável de um boleto no padrão FEBRABAN.
+ *
+ * O código de barras possui 44 dígitos:
+ * banco(3) + moeda(1) + dígito verificador geral(1) + fator de vencimento(4) + valor em centavos(10) +
+ * campo livre(25). O campo livre é definido por cada banco.
+ *
+ * A linha digitável possui 47 dígitos divididos em 5 campos. Os campos 1, 2 e 3 contêm o banco, a moeda
+ * e o campo livre, cada um com um dígito verificador módulo 10. O campo 4 é o dígito verificador geral e
+ * o campo 5 o fator de vencimento e o valor.
+ *
+ * Os métodos trabalham sobre arrays de char, sem criar Strings intermediárias.
+ * */
+public final class CodigoBarras {
+
+	public static final int TAMANHO_CODIGO = 44;
+	public static final int TAMANHO_CAMPO_LIVRE = 25;
+
+	/*Data base do fator de vencimento(07/10/1997). O fator 1000 corresponde a 03/07/2000*/
+	private static final long DATA_BASE;
+
+	/*Após o fator 9999(21/02/2025) a contagem recomeça em 1000*/
+	private static final int FATOR_MAXIMO = 9999;
+	private static final int FATOR_REINICIO = 1000;
+
+	static {
+		Calendar cal = new GregorianCalendar(TimeZone.getTimeZone("UTC"));
+		cal.clear();
+		cal.set(1997, Calendar.OCTOBER, 7);
+		DATA_BASE = cal.getTimeInMillis();
+	}
+
+	private CodigoBarras() {
+	}
+
+	/**
+	 * Monta o código de barras de 44 dígitos.
+	 *
+	 * @param banco o código do banco com 3 dígitos.
+	 * @param vencimento a data de vencimento.
+	 * @param valorCentavos o valor do boleto em centavos.
+	 * @param campoLivre os 25 dígitos do campo livre.
+	 * */
+	public static char[] codigoDeBarras(String banco, Date vencimento, long valorCentavos, String campoLivre) {
+		if (banco.length() != 3 || campoLivre.length() != TAMANHO_CAMPO_LIVRE) {
+			throw new IllegalArgumentException("Banco ou campo livre com tamanho inválido");
+		}
+		char[] codigo = new char[TAMANHO_CODIGO];
+		banco.getChars(0, 3, codigo, 0);
+		codigo[3] = '9';//moeda: real
+		escreverNumero(codigo, 5, 4, fatorVencimento(vencimento));
+		escreverNumero(codigo, 9, 10, valorCentavos);
+		campoLivre.getChars(0, TAMANHO_CAMPO_LIVRE, codigo, 19);
+		codigo[4] = digitoGeral(codigo);
+		return codigo;
+	}
+
+	/**
+	 * Monta a linha digitável formatada(54 caracteres) a partir do código de barras.
+	 * Ex: 00190.50095 40144.816069 06809.350314 3 37370000000100
+	 * */
+	public static String linhaDigitavel(char[] codigo) {
+		char[] linha = new char[54];
+		int pos = 0;
+
+		/*Campo 1: banco, moeda e as 5 primeiras posições do campo livre*/
+		char[] campo = new char[10];
+		System.arraycopy(codigo, 0, campo, 0, 4);
+		System.arraycopy(codigo, 19, campo, 4, 5);
+		campo[9] = modulo10(campo, 9);
+		pos = escreverCampo(linha, pos, campo);
+
+		/*Campos 2 e 3: as posições 6 a 15 e 16 a 25 do campo livre*/
+		campo = new char[11];
+		System.arraycopy(codigo, 24, campo, 0, 10);
+		campo[10] = modulo10(campo, 10);
+		pos = escreverCampo(linha, pos, campo);
+
+		System.arraycopy(codigo, 34, campo, 0, 10);
+		campo[10] = modulo10(campo, 10);
+		pos = escreverCampo(linha, pos, campo);
+
+		/*Campo 4: dígito verificador geral. Campo 5: fator de vencimento e valor*/
+		linha[pos++] = codigo[4];
+		linha[pos++] = ' ';
+		System.arraycopy(codigo, 5, linha, pos, 14);
+		return new String(linha);
+	}
+
+	/**
+	 * Retorna o fator de vencimento: a quantidade de dias desde a data base. Desde 22/02/2025 o fator
+	 * recomeça em 1000 a cada 9000 dias.
+	 * */
+	public static int fatorVencimento(Date vencimento) {
+		Calendar cal = Calendar.getInstance();
+		cal.setTime(vencimento);
+		Calendar utc = new GregorianCalendar(TimeZone.getTimeZone("UTC"));
+		utc.clear();
+		utc.set(cal.get(Calendar.YEAR), cal.get(Calendar.MONTH), cal.get(Calendar.DAY_OF_MONTH));
+
+		long fator = TimeUnit.MILLISECONDS.toDays(utc.getTimeInMillis() - DATA_BASE);
+		if (fator > FATOR_MAXIMO) {
+			fator = (fator - FATOR_MAXIMO - 1) % (FATOR_MAXIMO - FATOR_REINICIO + 1) + FATOR_REINICIO;
+		}
+		return (int) fator;
+	}
+
+	/**
+	 * Dígito verificador geral(módulo 11) das 43 posições do código de barras, exceto a quinta.
+	 * Resultados 0, 10 e 11 são substituídos por 1.
+	 * */
+	private static char digitoGeral(char[] codigo) {
+		int soma = 0;
+		int peso = 2;
+		for (int i = TAMANHO_CODIGO - 1; i >= 0; i--) {
+			if (i == 4) {
+				continue;
+			}
+			soma += (codigo[i] - '0') * peso;
+			peso = (peso == 9) ? 2 : peso + 1;
+		}
+		int digito = 11 - (soma % 11);
+		return (digito == 0 || digito >= 10) ? '1' : (char) ('0' + digito);
+	}
+
+	/**
+	 * Dígito verificador módulo 10 das primeiras posições do campo: pesos 2 e 1 alternados da
+	 * direita para a esquerda, somando os algarismos de cada produto.
+	 * */
+	private static char modulo10(char[] campo, int tamanho) {
+		int soma = 0;
+		int peso = 2;
+		for (int i = tamanho - 1; i >= 0; i--) {
+			int produto = (campo[i] - '0') * peso;
+			soma += (produto > 9) ? produto - 9 : produto;
+			peso = (peso == 2) ? 1 : 2;
+		}
+		int resto = soma % 10;
+		return (char) ('0' + ((resto == 0) ? 0 : 10 - resto));
+	}
+
+	/*Escreve o campo com um ponto após a quinta posição e um espaço no final*/
+	private static int escreverCampo(char[] linha, int pos, char[] campo) {
+		System.arraycopy(campo, 0, linha, pos, 5);
+		pos += 5;
+		linha[pos++] = '.';
+		System.arraycopy(campo, 5, linha, pos, campo.length - 5);
+		pos += campo.length - 5;
+		linha[pos++] = ' ';
+		return pos;
+	}
+
+	/*Escreve o número com zeros à esquerda, sem criar uma String*/
+	private static void escreverNumero(char[] destino, int inicio, int tamanho, long numero) {
+		for (int i = inicio + tamanho - 1; i >= inicio; i--) {
+			destino[i] = (char) ('0' + (numero % 10));
+			numero /= 10;
+		}
+		if (numero != 0) {
+			throw new IllegalArgumentException("Número maior que " + tamanho + " dígitos");
+		}
+	}
+}
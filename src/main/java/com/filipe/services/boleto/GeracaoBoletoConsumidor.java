@@ -0,0 +1,37 @@
+package com.filipe.services.boleto;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.filipe.domain.EventoOutbox;
+import com.filipe.domain.enums.TipoEvento;
+import com.filipe.services.BoletoService;
+import com.filipe.services.exceptions.ObjectNotFoundException;
+import com.filipe.services.outbox.ConsumidorOutbox;
+
+/**
+ * Gera o boleto dos pedidos criados, em segundo plano, para que ele já esteja em cache na primeira
+ * requisição GET /pedidos/{id}/boleto.
+ *
+ * Processar o mesmo evento duas vezes apenas encontra o boleto já em cache(idempotente).
+ * */
+@Component
+public class GeracaoBoletoConsumidor implements ConsumidorOutbox {
+
+	@Autowired
+	private BoletoService boletoService;
+
+	@Override
+	public boolean aceita(TipoEvento tipo) {
+		return tipo == TipoEvento.PEDIDO_CRIADO;
+	}
+
+	@Override
+	public void processar(EventoOutbox evento) {
+		try {
+			boletoService.findPdf(evento.getAgregadoId());
+		} catch (ObjectNotFoundException e) {
+			/*O pedido não é pago com boleto, não há nada a gerar*/
+		}
+	}
+}
@@ -0,0 +1,188 @@
+package com.filipe.services.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Um cache em memória com tamanho máximo e tempo de expiração (TTL).
+ * 
+ * Quando o tamanho máximo é atingido o registro usado há mais tempo é removido (LRU). 
+ * Registros com mais de ttlMillis milissegundos são descartados na próxima leitura.
+ * 
+ * Todos os métodos são sincronizados, logo o cache pode ser compartilhado entre várias threads.
+ * Os contadores de acertos(hits), falhas(misses) e remoções(evictions) podem ser consultados 
+ * a qualquer momento sem bloquear o cache.
+ * 
+ * Um valor lido do banco antes de uma alteração e guardado após a invalidação da chave ficaria no
+ * cache até expirar. Para evitar isso, quem carrega o valor lê a geracao() antes da leitura e o
+ * guarda com put(key, value, geracao): o valor é descartado se a chave foi invalidada depois disso.
+ * A invalidação deixa no lugar do valor um registro vazio com a geração em que ocorreu. Se esse
+ * registro for removido(LRU ou expiração), todas as cargas iniciadas antes dele são descartadas.
+ * */
+public class BoundedCache<K, V> {
+
+	private final int maxSize;
+	private final long ttlMillis;
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+
+	private final LinkedHashMap<K, Entry<V>> map;
+	
+	/*Incrementada a cada invalidação. Cargas iniciadas antes de geracaoMinima são descartadas, pois
+	 * o registro da invalidação de alguma chave pode ter sido removido*/
+	private long geracao;
+	private long geracaoMinima;
+
+	/**
+	 * @param maxSize a quantidade máxima de registros mantidos no cache.
+	 * @param ttlMillis o tempo, em milissegundos, que um registro permanece válido.
+	 * */
+	public BoundedCache(int maxSize, long ttlMillis) {
+		this.maxSize = maxSize;
+		this.ttlMillis = ttlMillis;
+		
+		/*accessOrder = true faz com que o LinkedHashMap mantenha os registros na ordem do último 
+		 * acesso. Assim o primeiro registro é sempre o usado há mais tempo*/
+		this.map = new LinkedHashMap<K, Entry<V>>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+				if (size() > BoundedCache.this.maxSize) {
+					evictions.incrementAndGet();
+					removido(eldest.getValue());
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Retorna o valor associado a chave ou null se a chave não estiver no cache ou 
+	 * se o registro estiver expirado.
+	 * */
+	public synchronized V get(K key) {
+		Entry<V> entry = map.get(key);
+		if (entry == null || entry.valor == null) {
+			misses.incrementAndGet();
+			return null;
+		}
+		if (entry.expiraEm < System.currentTimeMillis()) {
+			map.remove(key);
+			removido(entry);
+			evictions.incrementAndGet();
+			misses.incrementAndGet();
+			return null;
+		}
+		hits.incrementAndGet();
+		return entry.valor;
+	}
+
+	/**
+	 * Retorna o valor associado a chave ou, se não estiver no cache, obtém o valor através do 
+	 * loader e o guarda no cache. O loader é executado fora do bloqueio do cache, logo duas threads
+	 * podem carregar a mesma chave ao mesmo tempo, a última a terminar prevalece. O valor não é
+	 * guardado se a chave for invalidada durante a carga.
+	 * */
+	public V get(K key, Supplier<V> loader) {
+		V valor = get(key);
+		if (valor == null) {
+			long geracaoLida = geracao();
+			valor = loader.get();
+			put(key, valor, geracaoLida);
+		}
+		return valor;
+	}
+
+	public synchronized void put(K key, V value) {
+		Entry<V> anterior = map.get(key);
+		map.put(key, new Entry<>(value, System.currentTimeMillis() + ttlMillis, (anterior == null) ? 0 : anterior.geracao));
+	}
+
+	/**
+	 * Retorna a geração atual do cache. Deve ser lida antes de carregar o valor que será passado ao
+	 * put(key, value, geracao).
+	 * */
+	public synchronized long geracao() {
+		return geracao;
+	}
+
+	/**
+	 * Guarda o valor apenas se a chave não foi invalidada desde a geração informada, ou seja, se o
+	 * valor não foi lido antes de uma alteração.
+	 * 
+	 * @return false se o valor foi descartado.
+	 * */
+	public synchronized boolean put(K key, V value, long geracaoLida) {
+		if (geracaoLida < geracaoMinima) {
+			return false;
+		}
+		Entry<V> anterior = map.get(key);
+		if (anterior != null && anterior.geracao > geracaoLida) {
+			return false;
+		}
+		map.put(key, new Entry<>(value, System.currentTimeMillis() + ttlMillis, (anterior == null) ? 0 : anterior.geracao));
+		return true;
+	}
+
+	/**Remove a chave do cache. Deve ser chamado sempre que o valor da chave for alterado*/
+	public synchronized void invalidate(K key) {
+		geracao++;
+		map.put(key, new Entry<>(null, System.currentTimeMillis() + ttlMillis, geracao));
+	}
+
+	/**Remove todos os registros do cache*/
+	public synchronized void clear() {
+		map.clear();
+		geracao++;
+		geracaoMinima = geracao;
+	}
+	
+	/*Um registro removido não protege mais a sua chave, logo as cargas anteriores a ele são descartadas*/
+	private void removido(Entry<V> entry) {
+		geracaoMinima = Math.max(geracaoMinima, entry.geracao);
+	}
+
+	public synchronized int size() {
+		return map.size();
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+	public long getEvictions() {
+		return evictions.get();
+	}
+
+	@Override
+	public String toString() {
+		return "BoundedCache [size=" + size() + ", hits=" + getHits() + ", misses=" + getMisses() 
+				+ ", evictions=" + getEvictions() + "]";
+	}
+
+	/*
+	 * Classe auxiliar que guarda o valor, o momento em que o registro expira e a geração da última
+	 * invalidação da chave. Após uma invalidação o valor é null até a próxima carga.
+	 * */
+	private static class Entry<V> {
+		private final V valor;
+		private final long expiraEm;
+		private final long geracao;
+
+		private Entry(V valor, long expiraEm, long geracao) {
+			this.valor = valor;
+			this.expiraEm = expiraEm;
+			this.geracao = geracao;
+		}
+	}
+}
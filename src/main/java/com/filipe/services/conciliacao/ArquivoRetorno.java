@@ -0,0 +1,206 @@
+package com.filipe.services.conciliacao;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Leitor do arquivo de retorno do banco com os boletos liquidados, baixados ou com o vencimento alterado.
+ *
+ * O arquivo tem registros de tamanho fixo(semelhante ao CNAB), um por linha:
+ *
+ * <pre>
+ * Posição  Tamanho  Conteúdo
+ * 1        1        Tipo do registro: 0 = header, 1 = detalhe, 9 = trailer
+ * 2-18     17       Nosso número: convênio(7) + id do pedido(10)
+ * 19-20    2        Ocorrência: 06 = liquidação, 09 = baixa, 14 = alteração de vencimento
+ * 21-28    8        Data da ocorrência(liquidação ou novo vencimento) no formato DDMMAAAA
+ * 29-41    13       Valor pago em centavos
+ * </pre>
+ *
+ * Apenas os registros de detalhe são retornados. O header, o trailer e as linhas vazias são ignorados.
+ *
+ * O arquivo é lido através de janelas mapeadas em memória(FileChannel.map) de no máximo tamanhoJanela
+ * bytes, logo arquivos com milhões de linhas são lidos sem carregá-los na memória da aplicação. Os campos
+ * são lidos diretamente dos bytes da janela, sem criar uma String por linha.
+ * */
+public class ArquivoRetorno implements Closeable {
+
+	public static final int TAMANHO_REGISTRO = 41;
+
+	public static final int LIQUIDACAO = 6;
+	public static final int BAIXA = 9;
+	public static final int ALTERACAO_VENCIMENTO = 14;
+
+	private final FileChannel canal;
+	private final long tamanhoArquivo;
+	private final int tamanhoJanela;
+	private final String convenio;
+
+	private MappedByteBuffer janela;
+	private long inicioJanela;
+	private int cursor;
+
+	/*Linha atual: posição do primeiro byte e do byte após o último, sem a quebra de linha*/
+	private int inicio;
+	private int fim;
+
+	private long linhas;
+	private long invalidos;
+
+	private int pedidoId;
+	private int ocorrencia;
+	private int dia;
+	private int mes;
+	private int ano;
+	private long valorCentavos;
+
+	/**
+	 * @param arquivo o arquivo de retorno.
+	 * @param tamanhoJanela o tamanho máximo, em bytes, de cada janela mapeada em memória.
+	 * @param convenio o convênio com 7 dígitos. Registros de outro convênio são considerados inválidos.
+	 * */
+	public ArquivoRetorno(Path arquivo, int tamanhoJanela, String convenio) throws IOException {
+		this.canal = FileChannel.open(arquivo, StandardOpenOption.READ);
+		this.tamanhoArquivo = canal.size();
+		this.tamanhoJanela = tamanhoJanela;
+		this.convenio = convenio;
+	}
+
+	/**
+	 * Avança para o próximo registro de detalhe válido.
+	 *
+	 * @return false quando não houver mais registros.
+	 * */
+	public boolean proximo() throws IOException {
+		while (lerLinha()) {
+			int tamanho = fim - inicio;
+			if (tamanho == 0) {
+				continue;
+			}
+			byte tipo = janela.get(inicio);
+			if (tipo == '0' || tipo == '9') {
+				continue;
+			}
+			if (tipo == '1' && tamanho == TAMANHO_REGISTRO && interpretar()) {
+				return true;
+			}
+			invalidos++;
+		}
+		return false;
+	}
+
+	/**
+	 * Lê os campos do registro de detalhe da linha atual.
+	 *
+	 * @return false se algum campo não for numérico ou o convênio for diferente.
+	 * */
+	private boolean interpretar() {
+		for (int i = 0; i < convenio.length(); i++) {
+			if (janela.get(inicio + 1 + i) != convenio.charAt(i)) {
+				return false;
+			}
+		}
+		long id = numero(8, 10);
+		ocorrencia = (int) numero(18, 2);
+		dia = (int) numero(20, 2);
+		mes = (int) numero(22, 2);
+		ano = (int) numero(24, 4);
+		valorCentavos = numero(28, 13);
+		if (id < 0 || id > Integer.MAX_VALUE || ocorrencia < 0 || dia < 1 || dia > 31 || mes < 1 || mes > 12
+				|| ano < 0 || valorCentavos < 0) {
+			return false;
+		}
+		pedidoId = (int) id;
+		return true;
+	}
+
+	/*Converte os bytes da posição informada em um número. Retorna -1 se algum byte não for um algarismo*/
+	private long numero(int posicao, int tamanho) {
+		long valor = 0;
+		for (int i = inicio + posicao; i < inicio + posicao + tamanho; i++) {
+			int algarismo = janela.get(i) - '0';
+			if (algarismo < 0 || algarismo > 9) {
+				return -1;
+			}
+			valor = valor * 10 + algarismo;
+		}
+		return valor;
+	}
+
+	/**
+	 * Encontra a próxima linha. Se a linha não terminar dentro da janela atual, uma nova janela é
+	 * mapeada a partir do início da linha.
+	 * */
+	private boolean lerLinha() throws IOException {
+		while (true) {
+			if (janela == null || cursor >= janela.limit()) {
+				if (inicioJanela + cursor >= tamanhoArquivo) {
+					return false;
+				}
+				mapear(inicioJanela + cursor);
+			}
+
+			int i = cursor;
+			int limite = janela.limit();
+			while (i < limite && janela.get(i) != '\n') {
+				i++;
+			}
+			if (i == limite && inicioJanela + limite < tamanhoArquivo) {
+				if (cursor == 0) {
+					throw new IOException("Linha maior que a janela de leitura na posição " + inicioJanela);
+				}
+				mapear(inicioJanela + cursor);
+				continue;
+			}
+
+			inicio = cursor;
+			fim = (i > inicio && janela.get(i - 1) == '\r') ? i - 1 : i;
+			cursor = i + 1;
+			linhas++;
+			return true;
+		}
+	}
+
+	private void mapear(long posicao) throws IOException {
+		long tamanho = Math.min(tamanhoJanela, tamanhoArquivo - posicao);
+		janela = canal.map(FileChannel.MapMode.READ_ONLY, posicao, tamanho);
+		inicioJanela = posicao;
+		cursor = 0;
+	}
+
+	@Override
+	public void close() throws IOException {
+		canal.close();
+	}
+
+	/**Quantidade de linhas lidas até o momento, incluindo header, trailer e linhas inválidas*/
+	public long getLinhas() {
+		return linhas;
+	}
+
+	/**Quantidade de linhas que não são um registro de detalhe válido*/
+	public long getInvalidos() {
+		return invalidos;
+	}
+
+	public int getPedidoId() {
+		return pedidoId;
+	}
+
+	public int getOcorrencia() {
+		return ocorrencia;
+	}
+
+	/**A data da ocorrência no formato AAAAMMDD*/
+	public int getData() {
+		return ano * 10000 + mes * 100 + dia;
+	}
+
+	public long getValorCentavos() {
+		return valorCentavos;
+	}
+}
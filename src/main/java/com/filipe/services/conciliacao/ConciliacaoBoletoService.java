@@ -0,0 +1,429 @@
+package com.filipe.services.conciliacao;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernate.persister.entity.SingleTableEntityPersister;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.filipe.domain.PagamentoComBoleto;
+import com.filipe.domain.Pedido;
+import com.filipe.domain.enums.EstadoPagamento;
+import com.filipe.dto.ResultadoConciliacaoDTO;
+import com.filipe.services.BoletoService;
+
+/**
+ * Concilia os pagamentos com boleto a partir dos arquivos de retorno do banco(ArquivoRetorno).
+ *
+ * Periodicamente(conciliacao.intervalo-ms) os arquivos *.ret do diretório conciliacao.diretorio são
+ * processados em ordem de nome e movidos para o subdiretório processados, ou erros se a leitura falhar.
+ * Arquivos alterados há menos de conciliacao.idade-minima-ms são deixados para a próxima execução,
+ * pois ainda podem estar sendo copiados.
+ *
+ * Os registros são agrupados em lotes de conciliacao.lote registros. Cada lote é aplicado em uma
+ * transação com UPDATEs em lote do JDBC(um PreparedStatement para cada tipo de alteração), sem carregar
+ * as entidades Pagamento, que trariam junto o pedido e o cliente. Os arrays do lote são reutilizados,
+ * logo a memória usada não depende do tamanho do arquivo.
+ *
+ * Os UPDATEs são montados na inicialização com os nomes das tabelas e colunas obtidos do mapeamento do
+ * Hibernate para PagamentoComBoleto, logo funcionam com a herança JOINED(padrão) e com a SINGLE_TABLE
+ * (profile single-table).
+ *
+ * Apenas pagamentos PENDENTES são quitados(06) ou cancelados(09), assim uma baixa num arquivo posterior
+ * ou reprocessado não cancela um pagamento já quitado e reprocessar um arquivo não tem efeito adicional.
+ * A liquidação só quita o pagamento se o valor pago cobrir o valor total do pedido. Os registros recusados
+ * são consultados após o UPDATE do lote para separar os pedidos não encontrados, os pagamentos que não
+ * estavam pendentes e as liquidações com valor insuficiente.
+ * */
+@Service
+public class ConciliacaoBoletoService {
+
+	private static final Logger LOG = LoggerFactory.getLogger(ConciliacaoBoletoService.class);
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Autowired
+	private BoletoService boletoService;
+
+	@Value("${conciliacao.diretorio:retorno}")
+	private String diretorio;
+
+	@Value("${conciliacao.idade-minima-ms:10000}")
+	private Long idadeMinimaMillis;
+
+	@Value("${conciliacao.lote:5000}")
+	private Integer tamanhoLote;
+
+	@Value("${conciliacao.janela-bytes:67108864}")
+	private Integer tamanhoJanela;
+
+	@Value("${boleto.convenio:1234567}")
+	private String convenio;
+
+	/*Quantidade máxima de ids no IN da consulta dos registros recusados*/
+	private static final int MAX_IDS_CONSULTA = 1000;
+
+	private String sqlEstado;
+	private String sqlDataPagamento;
+	private String sqlDataVencimento;
+	private String sqlRecusados;
+
+	/**
+	 * Monta os UPDATEs de acordo com a estratégia de herança de Pagamento.
+	 *
+	 * Na JOINED o estado fica na tabela pagamento e as datas na tabela pagamento_com_boleto, e o EXISTS
+	 * garante que apenas pagamentos com boleto tenham o estado alterado. Na SINGLE_TABLE tudo fica na
+	 * tabela pagamento e a coluna discriminadora filtra os pagamentos com boleto.
+	 *
+	 * O UPDATE do estado só altera pagamentos pendentes cujo pedido tenha o valor total(em centavos)
+	 * menor ou igual ao valor informado. Pedidos sem o valor total gravado não são verificados.
+	 * */
+	@PostConstruct
+	public void init() {
+		AbstractEntityPersister persister = (AbstractEntityPersister) entityManagerFactory
+				.unwrap(SessionFactoryImplementor.class).getMetamodel().entityPersister(PagamentoComBoleto.class);
+		String id = persister.getIdentifierColumnNames()[0];
+		String tabelaEstado = persister.getPropertyTableName("estadoPagamento");
+		String tabelaBoleto = persister.getPropertyTableName("dataPagamento");
+
+		AbstractEntityPersister pedido = (AbstractEntityPersister) entityManagerFactory
+				.unwrap(SessionFactoryImplementor.class).getMetamodel().entityPersister(Pedido.class);
+		String colunaEstado = persister.getPropertyColumnNames("estadoPagamento")[0];
+		String valorTotal = "(SELECT COALESCE(ROUND(p." + pedido.getPropertyColumnNames("valorTotal")[0] + " * 100), 0) FROM "
+				+ pedido.getTableName() + " p WHERE p." + pedido.getIdentifierColumnNames()[0] + " = " + tabelaEstado + "." + id + ")";
+
+		String filtroEstado;
+		String filtroBoleto;
+		if (persister instanceof SingleTableEntityPersister) {
+			filtroEstado = " AND " + persister.getDiscriminatorColumnName() + " = " + persister.getDiscriminatorSQLValue();
+			filtroBoleto = filtroEstado;
+		} else {
+			filtroEstado = " AND EXISTS (SELECT 1 FROM " + tabelaBoleto + " b WHERE b." + id + " = " + tabelaEstado + "." + id + ")";
+			filtroBoleto = "";
+		}
+		sqlEstado = "UPDATE " + tabelaEstado + " SET " + colunaEstado + " = ? WHERE " + id + " = ?"
+				+ " AND " + colunaEstado + " = " + EstadoPagamento.PENDENTE.getCod() + " AND " + valorTotal + " <= ?" + filtroEstado;
+		sqlDataPagamento = "UPDATE " + tabelaBoleto + " SET " + persister.getPropertyColumnNames("dataPagamento")[0]
+				+ " = ? WHERE " + id + " = ?" + filtroBoleto;
+		sqlDataVencimento = "UPDATE " + tabelaBoleto + " SET " + persister.getPropertyColumnNames("dataVencimento")[0]
+				+ " = ? WHERE " + id + " = ?" + filtroBoleto;
+		sqlRecusados = "SELECT " + id + ", " + colunaEstado + ", " + valorTotal + " FROM " + tabelaEstado
+				+ " WHERE " + id + " IN (%s)" + filtroEstado;
+		LOG.debug("UPDATEs da conciliação: {}; {}; {}", sqlEstado, sqlDataPagamento, sqlDataVencimento);
+	}
+
+	/**
+	 * Processa os arquivos de retorno disponíveis no diretório. Chamado periodicamente pelo agendador do Spring.
+	 * */
+	@Scheduled(fixedDelayString = "${conciliacao.intervalo-ms:60000}", initialDelayString = "${conciliacao.atraso-inicial-ms:10000}")
+	public void processarDiretorio() {
+		Path dir = Paths.get(diretorio);
+		if (!Files.isDirectory(dir)) {
+			return;
+		}
+
+		List<Path> arquivos = new ArrayList<>();
+		long limite = System.currentTimeMillis() - idadeMinimaMillis;
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "*.ret")) {
+			for (Path arquivo : stream) {
+				if (Files.isRegularFile(arquivo) && Files.getLastModifiedTime(arquivo).toMillis() <= limite) {
+					arquivos.add(arquivo);
+				}
+			}
+		} catch (IOException e) {
+			LOG.warn("Falha ao listar os arquivos de retorno em {}: {}", dir, e.getMessage());
+			return;
+		}
+		arquivos.sort(null);
+
+		for (Path arquivo : arquivos) {
+			String destino = "processados";
+			try {
+				conciliar(arquivo);
+			} catch (IOException | RuntimeException e) {
+				/*Os lotes já aplicados permanecem, reprocessar o arquivo após a correção é seguro*/
+				LOG.error("Falha ao conciliar o arquivo de retorno {}", arquivo, e);
+				destino = "erros";
+			}
+			mover(arquivo, dir.resolve(destino));
+		}
+	}
+
+	/**
+	 * Concilia um arquivo de retorno.
+	 *
+	 * @param arquivo o arquivo de retorno.
+	 *
+	 * @return as quantidades de registros conciliados, não encontrados, não pendentes, com valor insuficiente,
+	 * ignorados e inválidos e a duração.
+	 * */
+	public ResultadoConciliacaoDTO conciliar(Path arquivo) throws IOException {
+		long inicio = System.currentTimeMillis();
+		Lote lote = new Lote(tamanhoLote);
+		long ignorados = 0;
+		long datasInvalidas = 0;
+
+		try (ArquivoRetorno retorno = new ArquivoRetorno(arquivo, tamanhoJanela, convenio)) {
+			while (retorno.proximo()) {
+				int ocorrencia = retorno.getOcorrencia();
+				if (ocorrencia != ArquivoRetorno.LIQUIDACAO && ocorrencia != ArquivoRetorno.BAIXA
+						&& ocorrencia != ArquivoRetorno.ALTERACAO_VENCIMENTO) {
+					ignorados++;
+					continue;
+				}
+				int data = retorno.getData();
+				long dia;
+				try {
+					dia = LocalDate.of(data / 10000, data / 100 % 100, data % 100).toEpochDay();
+				} catch (DateTimeException e) {
+					datasInvalidas++;
+					continue;
+				}
+
+				lote.adicionar(retorno.getPedidoId(), ocorrencia, dia, retorno.getValorCentavos());
+				if (lote.tamanho == tamanhoLote) {
+					aplicar(lote);
+				}
+			}
+			aplicar(lote);
+
+			ResultadoConciliacaoDTO resultado = new ResultadoConciliacaoDTO(arquivo.getFileName().toString(),
+					retorno.getLinhas(), lote.conciliados, lote.naoEncontrados, lote.naoPendentes, lote.valorInsuficiente,
+					ignorados, retorno.getInvalidos() + datasInvalidas, System.currentTimeMillis() - inicio);
+			LOG.info("Arquivo de retorno {} conciliado: {} linhas em {} ms({} linhas/s), {} conciliados, "
+					+ "{} não encontrados, {} não pendentes, {} com valor insuficiente, {} ignorados, {} inválidos",
+					resultado.getArquivo(), resultado.getLinhas(), resultado.getDuracaoMillis(),
+					resultado.getLinhasPorSegundo(), resultado.getConciliados(), resultado.getNaoEncontrados(),
+					resultado.getNaoPendentes(), resultado.getValorInsuficiente(), resultado.getIgnorados(),
+					resultado.getInvalidos());
+			return resultado;
+		}
+	}
+
+	/**
+	 * Aplica o lote em uma transação e o esvazia para os próximos registros.
+	 * */
+	private void aplicar(Lote lote) {
+		if (lote.tamanho == 0) {
+			return;
+		}
+		lote.separar();
+
+		transactionTemplate.execute(status -> {
+			int[] estados = atualizar(sqlEstado, lote, lote.estados, lote.quantidadeEstados, true);
+			/*A data de pagamento só é gravada nas liquidações que quitaram o pagamento*/
+			lote.separarLiquidacoes(estados);
+			atualizar(sqlDataPagamento, lote, lote.liquidacoes, lote.quantidadeLiquidacoes, false);
+			int[] vencimentos = atualizar(sqlDataVencimento, lote, lote.vencimentos, lote.quantidadeVencimentos, false);
+
+			classificarRecusados(lote, estados);
+			lote.contar(vencimentos);
+			return null;
+		});
+
+		/*O PDF em cache ainda mostra o vencimento anterior*/
+		for (int i = 0; i < lote.quantidadeVencimentos; i++) {
+			boletoService.descartarPdf(lote.pedidos[lote.vencimentos[i]]);
+		}
+		lote.limpar();
+	}
+
+	/**
+	 * Conta os registros cujo estado não foi alterado pelo UPDATE. O estado e o valor total dos pagamentos
+	 * são consultados apenas para esses registros, normalmente poucos, em consultas de até MAX_IDS_CONSULTA ids.
+	 * */
+	private void classificarRecusados(Lote lote, int[] alterados) {
+		List<Integer> recusados = new ArrayList<>();
+		for (int i = 0; i < alterados.length; i++) {
+			if (alterados[i] == 0) {
+				recusados.add(lote.estados[i]);
+			} else {
+				lote.conciliados++;
+			}
+		}
+
+		for (int inicio = 0; inicio < recusados.size(); inicio += MAX_IDS_CONSULTA) {
+			List<Integer> registros = recusados.subList(inicio, Math.min(inicio + MAX_IDS_CONSULTA, recusados.size()));
+			Object[] ids = new Object[registros.size()];
+			for (int i = 0; i < ids.length; i++) {
+				ids[i] = lote.pedidos[registros.get(i)];
+			}
+
+			/*id do pedido -> {estado do pagamento, valor total em centavos}*/
+			Map<Integer, long[]> pagamentos = new HashMap<>();
+			String sql = String.format(sqlRecusados, String.join(",", Collections.nCopies(ids.length, "?")));
+			jdbcTemplate.query(sql, ids, rs -> {
+				pagamentos.put(rs.getInt(1), new long[] { rs.getInt(2), rs.getLong(3) });
+			});
+
+			for (int registro : registros) {
+				long[] pagamento = pagamentos.get(lote.pedidos[registro]);
+				if (pagamento == null) {
+					lote.naoEncontrados++;
+				} else if (pagamento[0] != EstadoPagamento.PENDENTE.getCod()) {
+					lote.naoPendentes++;
+				} else {
+					lote.valorInsuficiente++;
+					LOG.warn("Liquidação do pedido {} recusada: valor pago de {} centavos menor que o total de {} centavos",
+							lote.pedidos[registro], lote.valores[registro], pagamento[1]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Executa o UPDATE em lote para os registros indicados.
+	 *
+	 * @param indices as posições, no lote, dos registros que serão atualizados.
+	 * @param estado true para gravar o estado do pagamento, false para gravar a data da ocorrência.
+	 * */
+	private int[] atualizar(String sql, Lote lote, int[] indices, int quantidade, boolean estado) {
+		if (quantidade == 0) {
+			return new int[0];
+		}
+		return jdbcTemplate.batchUpdate(sql, new BatchPreparedStatementSetter() {
+			@Override
+			public void setValues(PreparedStatement ps, int i) throws SQLException {
+				int registro = indices[i];
+				if (estado) {
+					/*Na baixa o valor pago não é verificado*/
+					boolean liquidacao = lote.ocorrencias[registro] == ArquivoRetorno.LIQUIDACAO;
+					ps.setInt(1, (liquidacao ? EstadoPagamento.QUITADO : EstadoPagamento.CANCELADO).getCod());
+					ps.setInt(2, lote.pedidos[registro]);
+					ps.setLong(3, liquidacao ? lote.valores[registro] : Long.MAX_VALUE);
+				} else {
+					ps.setTimestamp(1, Timestamp.valueOf(LocalDate.ofEpochDay(lote.datas[registro]).atStartOfDay()));
+					ps.setInt(2, lote.pedidos[registro]);
+				}
+			}
+
+			@Override
+			public int getBatchSize() {
+				return quantidade;
+			}
+		});
+	}
+
+	private void mover(Path arquivo, Path destino) {
+		try {
+			Files.createDirectories(destino);
+			Files.move(arquivo, destino.resolve(arquivo.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException e) {
+			LOG.error("Falha ao mover o arquivo de retorno {} para {}", arquivo, destino, e);
+		}
+	}
+
+	/*
+	 * Registros de um lote em arrays de tamanho fixo, reutilizados em todos os lotes do arquivo.
+	 * Os índices separam os registros de cada UPDATE: estados(liquidação e baixa), liquidações
+	 * (data de pagamento, apenas as que quitaram o pagamento) e vencimentos.
+	 * */
+	private static class Lote {
+		private final int[] pedidos;
+		private final int[] ocorrencias;
+		private final long[] datas;
+		private final long[] valores;
+		private final int[] estados;
+		private final int[] liquidacoes;
+		private final int[] vencimentos;
+		private int tamanho;
+		private int quantidadeEstados;
+		private int quantidadeLiquidacoes;
+		private int quantidadeVencimentos;
+		private long conciliados;
+		private long naoEncontrados;
+		private long naoPendentes;
+		private long valorInsuficiente;
+
+		private Lote(int capacidade) {
+			pedidos = new int[capacidade];
+			ocorrencias = new int[capacidade];
+			datas = new long[capacidade];
+			valores = new long[capacidade];
+			estados = new int[capacidade];
+			liquidacoes = new int[capacidade];
+			vencimentos = new int[capacidade];
+		}
+
+		private void adicionar(int pedidoId, int ocorrencia, long dia, long valorCentavos) {
+			pedidos[tamanho] = pedidoId;
+			ocorrencias[tamanho] = ocorrencia;
+			datas[tamanho] = dia;
+			valores[tamanho] = valorCentavos;
+			tamanho++;
+		}
+
+		private void separar() {
+			for (int i = 0; i < tamanho; i++) {
+				if (ocorrencias[i] == ArquivoRetorno.ALTERACAO_VENCIMENTO) {
+					vencimentos[quantidadeVencimentos++] = i;
+				} else {
+					estados[quantidadeEstados++] = i;
+				}
+			}
+		}
+
+		/*As liquidações cujo UPDATE do estado alterou o pagamento*/
+		private void separarLiquidacoes(int[] alterados) {
+			for (int i = 0; i < alterados.length; i++) {
+				if (alterados[i] != 0 && ocorrencias[estados[i]] == ArquivoRetorno.LIQUIDACAO) {
+					liquidacoes[quantidadeLiquidacoes++] = estados[i];
+				}
+			}
+		}
+
+		/*Cada registro é contado uma vez: pelo UPDATE do estado(classificarRecusados) ou pelo UPDATE do
+		 * vencimento. SUCCESS_NO_INFO indica um driver que não informa a quantidade de linhas alteradas*/
+		private void contar(int[] alterados) {
+			for (int quantidade : alterados) {
+				if (quantidade > 0 || quantidade == Statement.SUCCESS_NO_INFO) {
+					conciliados++;
+				} else {
+					naoEncontrados++;
+				}
+			}
+		}
+
+		private void limpar() {
+			tamanho = 0;
+			quantidadeEstados = 0;
+			quantidadeLiquidacoes = 0;
+			quantidadeVencimentos = 0;
+		}
+	}
+}
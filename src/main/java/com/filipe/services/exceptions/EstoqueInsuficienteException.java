@@ -0,0 +1,19 @@
+package com.filipe.services.exceptions;
+
+
+/**
+ * Exceção personalizada que herda da classe RuntimeException e que será lançada quando 
+ * a quantidade pedida de um produto for maior que o seu estoque disponível.
+ * */
+public class EstoqueInsuficienteException extends RuntimeException {
+	private static final long serialVersionUID = 1L;
+
+	public EstoqueInsuficienteException(String descricao) {
+		super(descricao);
+	}
+	
+	//Throwable a causa de uma exceção que aconteceu antes
+	public EstoqueInsuficienteException(String descricao, Throwable cause) {
+		super(descricao, cause);
+	}
+}
@@ -0,0 +1,20 @@
+package com.filipe.services.exceptions;
+
+
+/**
+ * Exceção personalizada que herda da classe RuntimeException e que será lançada quando 
+ * uma chave de idempotência(Idempotency-Key) for reutilizada com um corpo de requisição diferente
+ * do corpo enviado na primeira requisição.
+ * */
+public class IdempotenciaConflitoException extends RuntimeException {
+	private static final long serialVersionUID = 1L;
+
+	public IdempotenciaConflitoException(String descricao) {
+		super(descricao);
+	}
+	
+	//Throwable a causa de uma exceção que aconteceu antes
+	public IdempotenciaConflitoException(String descricao, Throwable cause) {
+		super(descricao, cause);
+	}
+}
@@ -0,0 +1,20 @@
+package com.filipe.services.exceptions;
+
+
+/**
+ * Exceção personalizada que herda da classe RuntimeException e que será lançada quando 
+ * um parâmetro enviado na requisição não puder ser interpretado, como um cursor de paginação
+ * alterado ou de outro recurso.
+ * */
+public class InvalidParameterException extends RuntimeException {
+	private static final long serialVersionUID = 1L;
+
+	public InvalidParameterException(String descricao) {
+		super(descricao);
+	}
+	
+	//Throwable a causa de uma exceção que aconteceu antes
+	public InvalidParameterException(String descricao, Throwable cause) {
+		super(descricao, cause);
+	}
+}
@@ -0,0 +1,20 @@
+package com.filipe.services.exceptions;
+
+
+/**
+ * Exceção personalizada que herda da classe RuntimeException e que será lançada quando 
+ * um serviço estiver sobrecarregado e não puder atender a requisição no momento, como a fila
+ * de geração de boletos cheia. O cliente pode tentar novamente mais tarde.
+ * */
+public class ServicoIndisponivelException extends RuntimeException {
+	private static final long serialVersionUID = 1L;
+
+	public ServicoIndisponivelException(String descricao) {
+		super(descricao);
+	}
+	
+	//Throwable a causa de uma exceção que aconteceu antes
+	public ServicoIndisponivelException(String descricao, Throwable cause) {
+		super(descricao, cause);
+	}
+}
@@ -0,0 +1,29 @@
+package com.filipe.services.outbox;
+
+import com.filipe.domain.EventoOutbox;
+import com.filipe.domain.enums.TipoEvento;
+
+/**
+ * Interface implementada pelos componentes(@Component ou @Service) que executam algum trabalho
+ * em segundo plano a partir dos eventos da tabela de saída(outbox). Ex: enviar um e-mail ou 
+ * gerar um boleto quando um pedido for criado.
+ * 
+ * Todos os consumidores registrados no Spring são encontrados automaticamente pelo OutboxDispatcher.
+ * O processamento de um evento é executado em uma transação própria. Se algum consumidor lançar
+ * uma exceção o evento é processado novamente, por todos os consumidores, na próxima tentativa.
+ * Por isso o processamento deve ser idempotente: processar o mesmo evento duas vezes deve ter o
+ * mesmo efeito que processá-lo uma única vez.
+ * */
+public interface ConsumidorOutbox {
+
+	/**
+	 * Indica se o consumidor deve receber os eventos do tipo informado.
+	 * */
+	boolean aceita(TipoEvento tipo);
+
+	/**
+	 * Processa o evento. Qualquer exceção lançada faz com que o evento seja tentado novamente
+	 * mais tarde.
+	 * */
+	void processar(EventoOutbox evento);
+}
@@ -0,0 +1,264 @@
+package com.filipe.services.outbox;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.filipe.domain.EventoOutbox;
+import com.filipe.domain.enums.EstadoEvento;
+import com.filipe.domain.enums.TipoEvento;
+import com.filipe.repositories.EventoOutboxRepository;
+
+/**
+ * Processa em segundo plano os eventos gravados na tabela de saída(outbox).
+ *
+ * A cada outbox.intervalo-ms milissegundos o dispatcher reserva um lote de eventos pendentes e
+ * entrega cada evento aos consumidores(ConsumidorOutbox) interessados no seu tipo. Os eventos do
+ * lote são processados em paralelo por um pool de outbox.threads threads. Enquanto houver lotes
+ * completos o dispatcher continua buscando, sem esperar o próximo intervalo.
+ *
+ * Reservar um evento é adiar a sua próxima tentativa em outbox.reserva-ms. A reserva é feita em
+ * uma transação curta, logo um evento não fica bloqueado no banco enquanto é processado, e se a
+ * aplicação parar no meio do processamento o evento volta a ficar disponível quando a reserva expirar.
+ *
+ * Cada evento é processado em uma transação própria: o trabalho dos consumidores e a marcação
+ * do evento como processado são confirmados juntos. Se algum consumidor falhar o evento é tentado
+ * novamente com espera exponencial(backoff) até outbox.max-tentativas, quando passa ao estado FALHOU.
+ * 
+ * Os eventos processados há mais de outbox.retencao-dias dias são excluídos periodicamente
+ * (outbox.limpeza-intervalo-ms), em lotes de outbox.limpeza-lote eventos, para que a tabela não cresça
+ * indefinidamente. Os eventos que falharam são mantidos para análise.
+ * */
+@Component
+public class OutboxDispatcher {
+
+	private static final Logger LOG = LoggerFactory.getLogger(OutboxDispatcher.class);
+
+	@Autowired
+	private EventoOutboxRepository repo;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Autowired(required = false)
+	private List<ConsumidorOutbox> consumidores = new ArrayList<>();
+
+	@Value("${outbox.habilitado:true}")
+	private boolean habilitado;
+
+	@Value("${outbox.threads:4}")
+	private Integer threads;
+
+	@Value("${outbox.lote:100}")
+	private Integer tamanhoLote;
+
+	@Value("${outbox.reserva-ms:60000}")
+	private Long reservaMillis;
+
+	@Value("${outbox.max-tentativas:10}")
+	private Integer maxTentativas;
+
+	@Value("${outbox.backoff-inicial-ms:1000}")
+	private Long backoffInicialMillis;
+
+	@Value("${outbox.backoff-maximo-ms:600000}")
+	private Long backoffMaximoMillis;
+
+	@Value("${outbox.retencao-dias:7}")
+	private Integer retencaoDias;
+
+	@Value("${outbox.limpeza-lote:1000}")
+	private Integer tamanhoLoteLimpeza;
+
+	private ExecutorService executor;
+
+	/*Contadores de eventos processados e de falhas, para acompanhamento*/
+	private final AtomicLong processados = new AtomicLong();
+	private final AtomicLong falhas = new AtomicLong();
+
+	@PostConstruct
+	public void init() {
+		AtomicInteger contador = new AtomicInteger();
+		executor = Executors.newFixedThreadPool(threads, runnable -> {
+			Thread thread = new Thread(runnable, "outbox-" + contador.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	@PreDestroy
+	public void destroy() {
+		executor.shutdown();
+	}
+
+	/**
+	 * Processa os eventos pendentes. Chamado periodicamente pelo agendador do Spring. Como o
+	 * agendamento é fixedDelay, uma nova execução só começa após o fim da anterior.
+	 * */
+	@Scheduled(fixedDelayString = "${outbox.intervalo-ms:1000}", initialDelayString = "${outbox.atraso-inicial-ms:5000}")
+	public void despachar() {
+		if (!habilitado) {
+			return;
+		}
+		try {
+			List<EventoOutbox> lote;
+			do {
+				lote = reservar();
+				processar(lote);
+			} while (lote.size() == tamanhoLote);
+		} catch (RuntimeException e) {
+			/*Ex: banco indisponível. Os eventos continuam gravados e serão tentados no próximo intervalo*/
+			LOG.warn("Falha ao buscar eventos da outbox: {}", e.getMessage());
+		}
+	}
+
+	/**
+	 * Exclui os eventos processados há mais de outbox.retencao-dias dias. Cada lote é excluído em uma
+	 * transação própria, assim a limpeza de muitos eventos não mantém uma transação longa nem 
+	 * bloqueia a tabela.
+	 * */
+	@Scheduled(fixedDelayString = "${outbox.limpeza-intervalo-ms:3600000}", initialDelayString = "${outbox.limpeza-intervalo-ms:3600000}")
+	public void limpar() {
+		if (!habilitado) {
+			return;
+		}
+		Date limite = new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(retencaoDias));
+		long excluidos = 0;
+		try {
+			int lote;
+			do {
+				lote = transactionTemplate.execute(status -> {
+					List<Integer> ids = repo.findIdsProcessadosAntes(EstadoEvento.PROCESSADO.getCod(), limite,
+							PageRequest.of(0, tamanhoLoteLimpeza));
+					return ids.isEmpty() ? 0 : repo.deleteByIdIn(ids);
+				});
+				excluidos += lote;
+			} while (lote == tamanhoLoteLimpeza);
+		} catch (RuntimeException e) {
+			LOG.warn("Falha ao excluir os eventos processados da outbox: {}", e.getMessage());
+		}
+		if (excluidos > 0) {
+			LOG.info("{} eventos processados excluídos da outbox", excluidos);
+		}
+	}
+
+	/**
+	 * Reserva um lote de eventos prontos para processamento, adiando a próxima tentativa de cada
+	 * um para que não sejam reservados novamente por outra execução enquanto são processados.
+	 * */
+	private List<EventoOutbox> reservar() {
+		return transactionTemplate.execute(status -> {
+			Date agora = new Date();
+			List<EventoOutbox> lote = repo.findDisponiveis(EstadoEvento.PENDENTE.getCod(), agora,
+					PageRequest.of(0, tamanhoLote));
+			for (EventoOutbox evento : lote) {
+				evento.setProximaTentativa(new Date(agora.getTime() + reservaMillis));
+			}
+			return lote;
+		});
+	}
+
+	/**
+	 * Processa os eventos do lote em paralelo e aguarda o fim de todos.
+	 * */
+	private void processar(List<EventoOutbox> lote) {
+		List<Future<?>> tarefas = new ArrayList<>();
+		for (EventoOutbox evento : lote) {
+			tarefas.add(executor.submit(() -> processar(evento)));
+		}
+		for (Future<?> tarefa : tarefas) {
+			try {
+				tarefa.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			} catch (ExecutionException e) {
+				LOG.error("Erro inesperado no processamento da outbox", e.getCause());
+			}
+		}
+	}
+
+	/**
+	 * Entrega o evento aos consumidores e o marca como processado, na mesma transação.
+	 * */
+	private void processar(EventoOutbox evento) {
+		try {
+			transactionTemplate.execute(status -> {
+				TipoEvento tipo = evento.getTipo();
+				for (ConsumidorOutbox consumidor : consumidores) {
+					if (consumidor.aceita(tipo)) {
+						consumidor.processar(evento);
+					}
+				}
+				EventoOutbox obj = repo.getOne(evento.getId());
+				obj.setEstado(EstadoEvento.PROCESSADO);
+				obj.setProcessadoEm(new Date());
+				obj.setErro(null);
+				return null;
+			});
+			processados.incrementAndGet();
+		} catch (RuntimeException e) {
+			falhas.incrementAndGet();
+			registrarFalha(evento, e);
+		}
+	}
+
+	/**
+	 * Registra a falha do evento e agenda uma nova tentativa com espera exponencial:
+	 * backoff-inicial, 2x, 4x, 8x... limitada a backoff-maximo. Uma variação aleatória de até 20%
+	 * evita que muitos eventos que falharam juntos sejam tentados novamente todos ao mesmo tempo.
+	 * */
+	private void registrarFalha(EventoOutbox evento, RuntimeException e) {
+		transactionTemplate.execute(status -> {
+			EventoOutbox obj = repo.getOne(evento.getId());
+			int tentativas = obj.getTentativas() + 1;
+			obj.setTentativas(tentativas);
+			obj.setErro(mensagem(e));
+
+			if (tentativas >= maxTentativas) {
+				obj.setEstado(EstadoEvento.FALHOU);
+				LOG.error("Evento {} da outbox falhou {} vezes e não será mais tentado", obj.getId(), tentativas, e);
+			} else {
+				long espera = Math.min(backoffInicialMillis << Math.min(tentativas - 1, 30), backoffMaximoMillis);
+				espera += (long) (espera * 0.2 * ThreadLocalRandom.current().nextDouble());
+				obj.setProximaTentativa(new Date(System.currentTimeMillis() + espera));
+				LOG.warn("Evento {} da outbox falhou(tentativa {}), nova tentativa em {} ms: {}", obj.getId(),
+						tentativas, espera, e.getMessage());
+			}
+			return null;
+		});
+	}
+
+	private String mensagem(Exception e) {
+		String mensagem = e.getClass().getName() + ": " + e.getMessage();
+		return mensagem.length() > EventoOutbox.TAMANHO_ERRO ? mensagem.substring(0, EventoOutbox.TAMANHO_ERRO) : mensagem;
+	}
+
+	public long getProcessados() {
+		return processados.get();
+	}
+
+	public long getFalhas() {
+		return falhas.get();
+	}
+}
@@ -0,0 +1,199 @@
+package com.filipe.services.search;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.filipe.domain.listeners.ProdutoAlteradoEvent;
+import com.filipe.repositories.ProdutoRepository;
+
+/**
+ * Índice em memória com os produtos de cada categoria. Para cada categoria é mantido um BitSet
+ * onde cada bit ligado é o id de um produto da categoria.
+ * 
+ * Com o índice, o filtro de categorias da busca de produtos (uma categoria OU outra) e o 
+ * cruzamento com os produtos encontrados pelo nome são apenas operações entre BitSets, sem 
+ * consultar as categorias e sem o DISTINCT sobre a tabela PRODUTO_CATEGORIA.
+ * 
+ * Como os ids dos produtos são gerados em sequência, um BitSet ocupa no máximo um bit por 
+ * produto cadastrado (1 milhão de produtos = 125KB por categoria).
+ * 
+ * O índice é carregado do banco na primeira busca e depois mantido a cada ProdutoAlteradoEvent.
+ * Também é reconstruído periodicamente(produto.busca.reconstrucao-ms) para incluir as alterações 
+ * feitas fora desta aplicação.
+ * */
+@Component
+public class CategoriaBitmapIndex {
+	
+	private static final Logger LOG = LoggerFactory.getLogger(CategoriaBitmapIndex.class);
+	
+	@Autowired
+	private ProdutoRepository repo;
+	
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+	
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+	
+	/*id da categoria -> produtos da categoria. Nulo até a primeira carga. Lido com o readLock e 
+	 * substituído com o writeLock*/
+	private volatile Map<Integer, BitSet> categorias;
+	
+	/*Alterações recebidas durante uma carga, aplicadas ao novo índice antes que ele substitua o atual.
+	 * Nulo quando não há carga em andamento. Acessado com o writeLock*/
+	private List<ProdutoAlteradoEvent> pendentes;
+	
+	/**
+	 * Retorna todos os produtos que pertencem a pelo menos uma das categorias informadas.
+	 * Categorias inexistentes são ignoradas.
+	 * 
+	 * @param ids os ids das categorias.
+	 * 
+	 * @return um novo BitSet que pode ser alterado por quem chamou o método.
+	 * */
+	public BitSet produtosDasCategorias(List<Integer> ids) {
+		carregarSeNecessario();
+		BitSet resultado = new BitSet();
+		
+		lock.readLock().lock();
+		try {
+			for (Integer id : ids) {
+				BitSet produtos = categorias.get(id);
+				if (produtos != null) {
+					resultado.or(produtos);
+				}
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+		return resultado;
+	}
+	
+	/**
+	 * Mantém o índice atualizado após o commit da transação que alterou o produto.
+	 * Eventos sem a lista de categorias indicam que as categorias do produto não foram alteradas.
+	 * 
+	 * Uma alteração confirmada durante uma carga pode não estar na leitura da tabela, por isso ela 
+	 * também é guardada e aplicada ao novo índice ao final da carga. Antes da primeira carga os 
+	 * eventos são ignorados, pois a carga lerá o banco.
+	 * */
+	@TransactionalEventListener(fallbackExecution = true)
+	public void produtoAlterado(ProdutoAlteradoEvent event) {
+		if (!event.isRemovido() && event.getCategorias() == null) {
+			return;
+		}
+		lock.writeLock().lock();
+		try {
+			if (pendentes != null) {
+				pendentes.add(event);
+			}
+			if (categorias != null) {
+				aplicar(categorias, event);
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+	
+	/**
+	 * Carrega do banco de dados todas as ligações entre produtos e categorias, caso ainda não 
+	 * tenham sido carregadas.
+	 * */
+	public void carregarSeNecessario() {
+		if (categorias != null) {
+			return;
+		}
+		synchronized (this) {
+			if (categorias == null) {
+				reconstruir();
+			}
+		}
+	}
+	
+	/**
+	 * Reconstrói o índice periodicamente(produto.busca.reconstrucao-ms), incluindo as categorias 
+	 * alteradas fora desta aplicação, que não geram ProdutoAlteradoEvent. Um índice ainda não 
+	 * carregado continua sendo carregado apenas na primeira busca.
+	 * */
+	@Scheduled(fixedDelayString = "${produto.busca.reconstrucao-ms:3600000}", initialDelayString = "${produto.busca.reconstrucao-ms:3600000}")
+	public void reconstruirPeriodicamente() {
+		if (categorias == null) {
+			return;
+		}
+		try {
+			reconstruir();
+		} catch (RuntimeException e) {
+			LOG.warn("Falha ao reconstruir o índice de categorias dos produtos: {}", e.getMessage());
+		}
+	}
+	
+	/**
+	 * Monta um novo índice a partir do banco de dados e substitui o atual. As buscas continuam usando o
+	 * índice atual durante a leitura da tabela.
+	 * */
+	public synchronized void reconstruir() {
+		long inicio = System.currentTimeMillis();
+		lock.writeLock().lock();
+		try {
+			pendentes = new ArrayList<>();
+		} finally {
+			lock.writeLock().unlock();
+		}
+		
+		Map<Integer, BitSet> novo = new HashMap<>();
+		boolean completo = false;
+		try {
+			transactionTemplate.execute(status -> {
+				try (Stream<Object[]> stream = repo.streamIdECategoriaId()) {
+					stream.forEach(linha -> adicionar(novo, (Integer) linha[1], (Integer) linha[0]));
+				}
+				return null;
+			});
+			completo = true;
+		} finally {
+			lock.writeLock().lock();
+			try {
+				if (completo) {
+					/*As alterações são aplicadas na ordem em que foram confirmadas*/
+					for (ProdutoAlteradoEvent event : pendentes) {
+						aplicar(novo, event);
+					}
+					categorias = novo;
+				}
+				pendentes = null;
+			} finally {
+				lock.writeLock().unlock();
+			}
+		}
+		LOG.info("Índice de categorias dos produtos carregado: {} categorias em {} ms", novo.size(),
+				System.currentTimeMillis() - inicio);
+	}
+	
+	/*Deve ser chamado com o writeLock ou, durante a carga, apenas pela thread da carga*/
+	private static void aplicar(Map<Integer, BitSet> categorias, ProdutoAlteradoEvent event) {
+		for (BitSet produtos : categorias.values()) {
+			produtos.clear(event.getId());
+		}
+		if (!event.isRemovido()) {
+			for (Integer categoriaId : event.getCategorias()) {
+				adicionar(categorias, categoriaId, event.getId());
+			}
+		}
+	}
+	
+	private static void adicionar(Map<Integer, BitSet> categorias, Integer categoriaId, Integer produtoId) {
+		categorias.computeIfAbsent(categoriaId, k -> new BitSet()).set(produtoId);
+	}
+}
@@ -0,0 +1,286 @@
+package com.filipe.services.search;
+
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.filipe.dto.FiltroEmailDTO;
+import com.filipe.repositories.ClienteRepository;
+
+/**
+ * Filtro de Bloom com os emails dos clientes. Evita a consulta ao banco de dados na verificação de
+ * email repetido do cadastro de clientes(ClienteInsertValidator) quando o email não está em uso,
+ * que é o caso mais comum.
+ *
+ * O filtro é um array de bits. Cada email liga funcoesHash bits, escolhidos a partir do hash do
+ * email. Se algum desses bits estiver desligado o email certamente não existe e o banco não é
+ * consultado. Se todos estiverem ligados o email pode existir e a confirmação é feita pelo banco
+ * (existsByEmail). Emails alterados ou de clientes excluídos não são removidos do filtro, apenas
+ * aumentam os falsos positivos até a próxima reconstrução. A restrição unique da coluna email
+ * continua sendo a garantia final contra emails repetidos.
+ *
+ * O tamanho do filtro é calculado a partir da capacidade(cliente.email-filtro.capacidade) e da taxa
+ * de falsos positivos desejada(cliente.email-filtro.taxa-falso-positivo). O filtro é construído a
+ * partir da coluna cliente.email na inicialização e reconstruído periodicamente
+ * (cliente.email-filtro.reconstrucao-ms) ou pelo POST /clientes/emails/filtro. Se a quantidade de
+ * clientes for maior que a capacidade, o novo filtro é dimensionado para o dobro da quantidade.
+ * Enquanto o filtro não estiver carregado todas as verificações consultam o banco.
+ *
+ * Os bits ficam em um AtomicLongArray, logo os emails são adicionados sem bloquear as consultas.
+ * */
+@Component
+public class EmailBloomFilter {
+
+	private static final Logger LOG = LoggerFactory.getLogger(EmailBloomFilter.class);
+
+	@Autowired
+	private ClienteRepository repo;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Value("${cliente.email-filtro.habilitado:true}")
+	private Boolean habilitado;
+
+	@Value("${cliente.email-filtro.capacidade:1000000}")
+	private Long capacidade;
+
+	@Value("${cliente.email-filtro.taxa-falso-positivo:0.01}")
+	private Double taxaFalsoPositivo;
+
+	/*Filtro usado nas verificações. Nulo até a primeira construção*/
+	private volatile Filtro atual;
+
+	/*Filtro em construção, que também recebe os emails cadastrados durante a leitura da tabela*/
+	private volatile Filtro emConstrucao;
+
+	private final AtomicLong consultas = new AtomicLong();
+	private final AtomicLong consultasSemBanco = new AtomicLong();
+	private final AtomicLong falsosPositivos = new AtomicLong();
+
+	private volatile Date ultimaReconstrucao;
+	private volatile long duracaoReconstrucaoMillis;
+
+	/**
+	 * Verifica se existe um cliente com o email informado. O banco de dados só é consultado quando o
+	 * filtro indicar que o email pode existir.
+	 * */
+	public boolean existe(String email) {
+		if (email == null) {
+			return false;
+		}
+		consultas.incrementAndGet();
+		Filtro filtro = atual;
+		if (filtro != null && !filtro.contem(email)) {
+			consultasSemBanco.incrementAndGet();
+			return false;
+		}
+		boolean existe = repo.existsByEmail(email);
+		if (filtro != null && !existe) {
+			falsosPositivos.incrementAndGet();
+		}
+		return existe;
+	}
+
+	/**
+	 * Adiciona o email de um cliente cadastrado ou alterado ao filtro.
+	 *
+	 * Se houver uma transação ativa o email é adicionado novamente após o commit, pois uma
+	 * reconstrução iniciada antes do commit não encontra o email na tabela e poderia substituir o
+	 * filtro atual por um filtro sem ele. Adicioná-lo também antes do commit evita que uma verificação
+	 * simultânea do mesmo email deixe de consultar o banco. Se a transação for desfeita o email fica
+	 * no filtro apenas como um falso positivo.
+	 * */
+	public void adicionar(String email) {
+		if (email == null) {
+			return;
+		}
+		adicionarNosFiltros(email);
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				@Override
+				public void afterCommit() {
+					adicionarNosFiltros(email);
+				}
+			});
+		}
+	}
+
+	private void adicionarNosFiltros(String email) {
+		Filtro filtro = atual;
+		if (filtro != null) {
+			filtro.adicionar(email);
+		}
+		filtro = emConstrucao;
+		if (filtro != null) {
+			filtro.adicionar(email);
+		}
+	}
+
+	/**
+	 * Reconstrói o filtro periodicamente. A primeira execução carrega o filtro na inicialização.
+	 * */
+	@Scheduled(fixedDelayString = "${cliente.email-filtro.reconstrucao-ms:3600000}", initialDelayString = "${cliente.email-filtro.atraso-inicial-ms:5000}")
+	public void reconstruirPeriodicamente() {
+		if (!habilitado) {
+			return;
+		}
+		try {
+			reconstruir();
+		} catch (RuntimeException e) {
+			LOG.warn("Falha ao construir o filtro de emails dos clientes: {}", e.getMessage());
+		}
+	}
+
+	/**
+	 * Constrói um novo filtro a partir da coluna cliente.email e substitui o filtro atual. As
+	 * verificações continuam usando o filtro atual durante a construção.
+	 *
+	 * @return as estatísticas do novo filtro.
+	 * */
+	public synchronized FiltroEmailDTO reconstruir() {
+		long inicio = System.currentTimeMillis();
+		long clientes = repo.count();
+		Filtro novo = new Filtro(Math.max(capacidade, clientes * 2), taxaFalsoPositivo);
+
+		emConstrucao = novo;
+		try {
+			transactionTemplate.execute(status -> {
+				try (Stream<String> emails = repo.streamAllEmails()) {
+					emails.forEach(novo::adicionar);
+				}
+				return null;
+			});
+			atual = novo;
+		} finally {
+			emConstrucao = null;
+		}
+
+		ultimaReconstrucao = new Date(inicio);
+		duracaoReconstrucaoMillis = System.currentTimeMillis() - inicio;
+		LOG.info("Filtro de emails dos clientes construído: {} emails, {} bits, {} funções hash, em {} ms",
+				novo.elementos.get(), novo.tamanho, novo.funcoesHash, duracaoReconstrucaoMillis);
+		return getEstatisticas();
+	}
+
+	/**
+	 * Retorna o tamanho do filtro, a taxa de falsos positivos estimada pela proporção de bits ligados
+	 * e a quantidade de consultas ao banco evitadas.
+	 * */
+	public FiltroEmailDTO getEstatisticas() {
+		FiltroEmailDTO dto = new FiltroEmailDTO();
+		Filtro filtro = atual;
+		dto.setCarregado(filtro != null);
+		dto.setTaxaFalsoPositivoConfigurada(taxaFalsoPositivo);
+		if (filtro != null) {
+			dto.setCapacidade(filtro.capacidade);
+			dto.setBits(filtro.tamanho);
+			dto.setFuncoesHash(filtro.funcoesHash);
+			dto.setElementos(filtro.elementos.get());
+			dto.setTaxaFalsoPositivoEstimada(filtro.taxaFalsoPositivoEstimada());
+		}
+		dto.setConsultas(consultas.get());
+		dto.setConsultasSemBanco(consultasSemBanco.get());
+		dto.setFalsosPositivos(falsosPositivos.get());
+		dto.setUltimaReconstrucao(ultimaReconstrucao);
+		dto.setDuracaoReconstrucaoMillis(duracaoReconstrucaoMillis);
+		return dto;
+	}
+
+	/*
+	 * Array de bits com o tamanho e a quantidade de funções hash ótimos para a capacidade e a taxa de
+	 * falsos positivos: tamanho = -n * ln(p) / ln(2)^2 e funcoesHash = tamanho / n * ln(2).
+	 * As posições dos bits são calculadas com dois hashes do email(h1 + i * h2).
+	 * */
+	private static class Filtro {
+		private final long capacidade;
+		private final long tamanho;
+		private final int funcoesHash;
+		private final AtomicLongArray bits;
+		/*Emails que ligaram ao menos um bit. Um email adicionado novamente não é contado outra vez*/
+		private final AtomicLong elementos = new AtomicLong();
+		private final AtomicLong bitsLigados = new AtomicLong();
+
+		private Filtro(long capacidade, double taxaFalsoPositivo) {
+			double ln2 = Math.log(2);
+			long palavras = (long) Math.ceil(-capacidade * Math.log(taxaFalsoPositivo) / (ln2 * ln2) / 64);
+			if (palavras > Integer.MAX_VALUE) {
+				throw new IllegalArgumentException("Filtro de emails muito grande para a capacidade " + capacidade);
+			}
+			this.capacidade = capacidade;
+			this.bits = new AtomicLongArray((int) Math.max(palavras, 1));
+			this.tamanho = bits.length() * 64L;
+			this.funcoesHash = (int) Math.max(1, Math.round((double) tamanho / capacidade * ln2));
+		}
+
+		private void adicionar(String email) {
+			long h1 = hash(email);
+			long h2 = misturar(h1 + 0x9E3779B97F4A7C15L) | 1;
+			boolean novo = false;
+			for (int i = 0; i < funcoesHash; i++) {
+				long bit = ((h1 + i * h2) & Long.MAX_VALUE) % tamanho;
+				int palavra = (int) (bit >>> 6);
+				long mascara = 1L << bit;
+				long valor = bits.get(palavra);
+				while ((valor & mascara) == 0) {
+					if (bits.compareAndSet(palavra, valor, valor | mascara)) {
+						bitsLigados.incrementAndGet();
+						novo = true;
+						break;
+					}
+					valor = bits.get(palavra);
+				}
+			}
+			if (novo) {
+				elementos.incrementAndGet();
+			}
+		}
+
+		private boolean contem(String email) {
+			long h1 = hash(email);
+			long h2 = misturar(h1 + 0x9E3779B97F4A7C15L) | 1;
+			for (int i = 0; i < funcoesHash; i++) {
+				long bit = ((h1 + i * h2) & Long.MAX_VALUE) % tamanho;
+				if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/*Probabilidade de todos os bits de um email inexistente estarem ligados*/
+		private double taxaFalsoPositivoEstimada() {
+			return Math.pow((double) bitsLigados.get() / tamanho, funcoesHash);
+		}
+
+		/*FNV-1a de 64 bits dos caracteres do email, sem criar o array de bytes da String*/
+		private static long hash(String email) {
+			long h = 0xCBF29CE484222325L;
+			for (int i = 0; i < email.length(); i++) {
+				h = (h ^ email.charAt(i)) * 0x100000001B3L;
+			}
+			return misturar(h);
+		}
+
+		/*Finalização do MurmurHash3, espalha os bits do hash*/
+		private static long misturar(long h) {
+			h ^= h >>> 33;
+			h *= 0xFF51AFD7ED558CCDL;
+			h ^= h >>> 33;
+			h *= 0xC4CEB9FE1A85EC53L;
+			h ^= h >>> 33;
+			return h;
+		}
+	}
+}
@@ -0,0 +1,224 @@
+package com.filipe.services.search;
+
+import java.nio.charset.StandardCharsets;
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.DigestUtils;
+
+import com.filipe.domain.Cidade;
+import com.filipe.domain.Estado;
+import com.filipe.domain.listeners.GeografiaAlteradaEvent;
+import com.filipe.dto.CidadeDTO;
+import com.filipe.dto.EstadoDTO;
+import com.filipe.repositories.CidadeRepository;
+import com.filipe.repositories.EstadoRepository;
+import com.filipe.services.exceptions.ObjectNotFoundException;
+
+/**
+ * Índice em memória dos Estados e Cidades, usados no cadastro de clientes. São dados de referência
+ * que praticamente não mudam, logo são lidos do banco uma única vez e as consultas(GET /estados e
+ * GET /estados/{id}/cidades) são respondidas sem acessar o banco de dados.
+ *
+ * O índice é imutável. Os ids ficam em arrays de int ordenados e as buscas por id são feitas com
+ * busca binária, sem criar Integers. As listas de Estados e de Cidades de cada Estado já ficam
+ * ordenadas por nome, prontas para a resposta, junto com a ETag calculada a partir do seu conteúdo.
+ *
+ * O índice é carregado na inicialização e recarregado periodicamente(geografia.recarga-ms). Um
+ * Estado ou Cidade alterado pela aplicação(GeografiaAlteradaEvent) torna o índice desatualizado e
+ * ele é recarregado na próxima consulta, logo várias alterações seguidas geram uma única recarga.
+ * A recarga cria um novo índice e o substitui de uma só vez, logo as consultas nunca veem um índice
+ * carregado pela metade. Se o conteúdo não mudou as ETags continuam as mesmas.
+ * */
+@Component
+public class GeografiaIndex {
+
+	private static final Logger LOG = LoggerFactory.getLogger(GeografiaIndex.class);
+
+	@Autowired
+	private EstadoRepository estadoRepository;
+
+	@Autowired
+	private CidadeRepository cidadeRepository;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	private volatile Indice indice;
+	
+	/*Quantidade de alterações de Estados e Cidades. O índice guarda o valor lido antes da sua carga*/
+	private final AtomicLong alteracoes = new AtomicLong();
+
+	/**
+	 * Uma lista pronta para a resposta e a ETag do seu conteúdo.
+	 * */
+	public static final class Lista<T> {
+		private final List<T> itens;
+		private final String etag;
+
+		/*
+		 * A ETag é o hash MD5 das chaves(id e nome) dos itens, na ordem da resposta. É fraca(W/) pois
+		 * identifica o conteúdo e não os bytes, que mudam quando a resposta é compactada(gzip)
+		 * */
+		private Lista(List<T> itens, Function<T, String> chave) {
+			StringBuilder sb = new StringBuilder();
+			for (T item : itens) {
+				sb.append(chave.apply(item)).append('\n');
+			}
+			this.itens = Collections.unmodifiableList(itens);
+			this.etag = "W/\"" + DigestUtils.md5DigestAsHex(sb.toString().getBytes(StandardCharsets.UTF_8)) + "\"";
+		}
+
+		public List<T> getItens() {
+			return itens;
+		}
+
+		public String getEtag() {
+			return etag;
+		}
+	}
+
+	/**
+	 * Retorna todos os Estados ordenados por nome.
+	 * */
+	public Lista<EstadoDTO> findEstados() {
+		return carregarSeNecessario().estados;
+	}
+
+	/**
+	 * Retorna as Cidades do Estado ordenadas por nome.
+	 *
+	 * @throws ObjectNotFoundException se o Estado não existir.
+	 * */
+	public Lista<CidadeDTO> findCidades(int estadoId) {
+		Indice atual = carregarSeNecessario();
+		int posicao = Arrays.binarySearch(atual.estadoIds, estadoId);
+		if (posicao < 0) {
+			throw new ObjectNotFoundException("Objeto não Encontrado! Id: " + estadoId + " ,tipo:" + Estado.class.getName());
+		}
+		return atual.cidadesPorEstado[posicao];
+	}
+
+	/**
+	 * Verifica se existe uma Cidade com o id informado. Usado pelo ClienteInsertValidator para recusar
+	 * uma cidade inexistente antes de qualquer INSERT.
+	 * */
+	public boolean existeCidade(int cidadeId) {
+		return Arrays.binarySearch(carregarSeNecessario().cidadeIds, cidadeId) >= 0;
+	}
+
+	/**
+	 * Recarrega o índice periodicamente. A primeira execução carrega o índice na inicialização.
+	 * */
+	@Scheduled(fixedDelayString = "${geografia.recarga-ms:3600000}", initialDelayString = "${geografia.atraso-inicial-ms:0}")
+	public void recarregarPeriodicamente() {
+		try {
+			recarregar();
+		} catch (RuntimeException e) {
+			LOG.warn("Falha ao carregar os Estados e Cidades: {}", e.getMessage());
+		}
+	}
+
+	/**
+	 * Lê todos os Estados e Cidades do banco e substitui o índice atual.
+	 * */
+	public synchronized void recarregar() {
+		long versao = alteracoes.get();
+		indice = transactionTemplate.execute(status -> {
+			/*Os Estados lidos primeiro ficam no EntityManager, logo o Estado de cada Cidade não
+			 * gera uma nova consulta*/
+			List<Estado> estados = estadoRepository.findAll();
+			List<Cidade> cidades = cidadeRepository.findAll();
+			return new Indice(estados, cidades, versao);
+		});
+	}
+
+	/**
+	 * Marca o índice como desatualizado após o commit da transação que alterou o Estado ou a Cidade.
+	 * */
+	@TransactionalEventListener(fallbackExecution = true)
+	public void geografiaAlterada(GeografiaAlteradaEvent event) {
+		alteracoes.incrementAndGet();
+	}
+
+	private Indice carregarSeNecessario() {
+		Indice atual = indice;
+		if (atual == null || atual.versao != alteracoes.get()) {
+			synchronized (this) {
+				if (indice == null || indice.versao != alteracoes.get()) {
+					recarregar();
+				}
+				atual = indice;
+			}
+		}
+		return atual;
+	}
+
+	/*
+	 * Conteúdo imutável do índice. estadoIds e cidadeIds estão em ordem crescente e
+	 * cidadesPorEstado[i] são as Cidades do Estado estadoIds[i].
+	 * */
+	private static final class Indice {
+		private final int[] estadoIds;
+		private final Lista<EstadoDTO> estados;
+		private final Lista<CidadeDTO>[] cidadesPorEstado;
+		private final int[] cidadeIds;
+		private final long versao;
+
+		@SuppressWarnings("unchecked")
+		private Indice(List<Estado> listaEstados, List<Cidade> listaCidades, long versao) {
+			this.versao = versao;
+			estadoIds = new int[listaEstados.size()];
+			for (int i = 0; i < estadoIds.length; i++) {
+				estadoIds[i] = listaEstados.get(i).getId();
+			}
+			Arrays.sort(estadoIds);
+
+			List<List<CidadeDTO>> cidades = new ArrayList<>(estadoIds.length);
+			for (int i = 0; i < estadoIds.length; i++) {
+				cidades.add(new ArrayList<>());
+			}
+			cidadeIds = new int[listaCidades.size()];
+			int quantidade = 0;
+			for (Cidade cidade : listaCidades) {
+				int posicao = (cidade.getEstado() == null) ? -1 : Arrays.binarySearch(estadoIds, cidade.getEstado().getId());
+				if (posicao >= 0) {
+					cidades.get(posicao).add(new CidadeDTO(cidade));
+				}
+				cidadeIds[quantidade++] = cidade.getId();
+			}
+			Arrays.sort(cidadeIds);
+
+			/*Ordem alfabética do português: "Álvares Machado" fica antes de "Bauru", e não depois de "Zé Doca"*/
+			Collator collator = Collator.getInstance(new Locale("pt", "BR"));
+			Comparator<String> porNome = Comparator.nullsLast(collator::compare);
+
+			List<EstadoDTO> dtos = new ArrayList<>(listaEstados.size());
+			for (Estado estado : listaEstados) {
+				dtos.add(new EstadoDTO(estado));
+			}
+			dtos.sort(Comparator.comparing(EstadoDTO::getNome, porNome));
+			estados = new Lista<>(dtos, dto -> dto.getId() + "=" + dto.getNome());
+
+			cidadesPorEstado = new Lista[estadoIds.length];
+			for (int i = 0; i < estadoIds.length; i++) {
+				cidades.get(i).sort(Comparator.comparing(CidadeDTO::getNome, porNome));
+				cidadesPorEstado[i] = new Lista<>(cidades.get(i), dto -> dto.getId() + "=" + dto.getNome());
+			}
+		}
+	}
+}
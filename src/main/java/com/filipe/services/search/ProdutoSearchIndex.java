@@ -0,0 +1,315 @@
+package com.filipe.services.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.filipe.domain.listeners.ProdutoAlteradoEvent;
+import com.filipe.domain.utils.Texto;
+import com.filipe.repositories.ProdutoRepository;
+
+/**
+ * Índice invertido em memória dos nomes dos produtos. Substitui a consulta "LIKE %nome%" que
+ * obriga o banco de dados a percorrer todos os produtos.
+ * 
+ * O nome de cada produto é normalizado (letras minúsculas e sem acentos, "Roçadeira" vira 
+ * "rocadeira") e dividido em trigramas, ou seja, todas as sequências de três caracteres 
+ * ("roc", "oca", "cad", ...). Para cada trigrama o índice guarda a lista ordenada dos ids dos 
+ * produtos que o contém.
+ * 
+ * Na busca os trigramas do texto procurado são cruzados para obter os candidatos e cada 
+ * candidato é confirmado comparando o nome normalizado. O resultado é o mesmo do LIKE %nome%,
+ * porém sem diferenciar acentos e maiúsculas.
+ * 
+ * O índice é carregado do banco na primeira busca e depois mantido a cada ProdutoAlteradoEvent.
+ * Também é reconstruído periodicamente(produto.busca.reconstrucao-ms) para incluir as alterações 
+ * feitas fora desta aplicação.
+ * */
+@Component
+public class ProdutoSearchIndex {
+	
+	private static final Logger LOG = LoggerFactory.getLogger(ProdutoSearchIndex.class);
+	
+	@Autowired
+	private ProdutoRepository repo;
+	
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+	
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+	
+	/*Índice usado nas buscas. Nulo até a primeira carga. Lido com o readLock e substituído com o writeLock*/
+	private volatile Indice indice;
+	
+	/*Alterações recebidas durante uma carga, aplicadas ao novo índice antes que ele substitua o atual.
+	 * Nulo quando não há carga em andamento. Acessado com o writeLock*/
+	private List<ProdutoAlteradoEvent> pendentes;
+	
+	/**
+	 * Método que busca os ids dos produtos cujo nome contém o texto informado.
+	 * 
+	 * @param nome o nome ou parte do nome do produto.
+	 * 
+	 * @return um BitSet onde cada bit ligado é o id de um produto encontrado.
+	 * */
+	public BitSet buscar(String nome) {
+		carregarSeNecessario();
+		String texto = Texto.normalizar(nome);
+		BitSet resultado = new BitSet();
+		
+		lock.readLock().lock();
+		try {
+			Map<String, Postings> trigramas = indice.trigramas;
+			Map<Integer, String> nomes = indice.nomes;
+			if (texto.length() < 3) {
+				/*Textos com menos de três caracteres não possuem trigramas. Compara com todos os nomes*/
+				for (Map.Entry<Integer, String> e : nomes.entrySet()) {
+					if (e.getValue().contains(texto)) {
+						resultado.set(e.getKey());
+					}
+				}
+				return resultado;
+			}
+			
+			/*Cruza as listas de todos os trigramas começando pela menor lista*/
+			Postings[] listas = new Postings[texto.length() - 2];
+			for (int i = 0; i < listas.length; i++) {
+				listas[i] = trigramas.get(texto.substring(i, i + 3));
+				if (listas[i] == null) {
+					return resultado;
+				}
+			}
+			Arrays.sort(listas, (a, b) -> Integer.compare(a.size, b.size));
+			
+			int[] candidatos = Arrays.copyOf(listas[0].ids, listas[0].size);
+			int total = candidatos.length;
+			for (int i = 1; i < listas.length && total > 0; i++) {
+				total = listas[i].intersect(candidatos, total);
+			}
+			
+			/*Os trigramas podem estar fora de ordem no nome. Confirma cada candidato*/
+			for (int i = 0; i < total; i++) {
+				if (nomes.get(candidatos[i]).contains(texto)) {
+					resultado.set(candidatos[i]);
+				}
+			}
+			return resultado;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+	
+	/**
+	 * Mantém o índice atualizado após o commit da transação que alterou o produto.
+	 * 
+	 * Uma alteração confirmada durante uma carga pode não estar na leitura da tabela, por isso ela 
+	 * também é guardada e aplicada ao novo índice ao final da carga. Antes da primeira carga os 
+	 * eventos são ignorados, pois a carga lerá o banco.
+	 * */
+	@TransactionalEventListener(fallbackExecution = true)
+	public void produtoAlterado(ProdutoAlteradoEvent event) {
+		lock.writeLock().lock();
+		try {
+			if (pendentes != null) {
+				pendentes.add(event);
+			}
+			if (indice != null) {
+				indice.aplicar(event);
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+	
+	/**
+	 * Carrega todos os produtos do banco de dados no índice, caso ainda não tenham sido carregados.
+	 * */
+	public void carregarSeNecessario() {
+		if (indice != null) {
+			return;
+		}
+		synchronized (this) {
+			if (indice == null) {
+				reconstruir();
+			}
+		}
+	}
+	
+	/**
+	 * Reconstrói o índice periodicamente(produto.busca.reconstrucao-ms), incluindo os produtos alterados
+	 * fora desta aplicação, que não geram ProdutoAlteradoEvent. Um índice ainda não carregado continua
+	 * sendo carregado apenas na primeira busca.
+	 * */
+	@Scheduled(fixedDelayString = "${produto.busca.reconstrucao-ms:3600000}", initialDelayString = "${produto.busca.reconstrucao-ms:3600000}")
+	public void reconstruirPeriodicamente() {
+		if (indice == null) {
+			return;
+		}
+		try {
+			reconstruir();
+		} catch (RuntimeException e) {
+			LOG.warn("Falha ao reconstruir o índice de nomes dos produtos: {}", e.getMessage());
+		}
+	}
+	
+	/**
+	 * Monta um novo índice a partir do banco de dados e substitui o atual. As buscas continuam usando o
+	 * índice atual durante a leitura da tabela.
+	 * 
+	 * A carga é feita com uma consulta em stream para não manter todas as entidades em memória.
+	 * Consultas em stream precisam de uma transação aberta, por isso o TransactionTemplate.
+	 * */
+	public synchronized void reconstruir() {
+		long inicio = System.currentTimeMillis();
+		lock.writeLock().lock();
+		try {
+			pendentes = new ArrayList<>();
+		} finally {
+			lock.writeLock().unlock();
+		}
+		
+		Indice novo = new Indice();
+		boolean completo = false;
+		try {
+			transactionTemplate.execute(status -> {
+				try (Stream<Object[]> stream = repo.streamIdENome()) {
+					stream.forEach(linha -> novo.adicionar((Integer) linha[0], (String) linha[1]));
+				}
+				return null;
+			});
+			completo = true;
+		} finally {
+			lock.writeLock().lock();
+			try {
+				if (completo) {
+					/*As alterações são aplicadas na ordem em que foram confirmadas*/
+					for (ProdutoAlteradoEvent event : pendentes) {
+						novo.aplicar(event);
+					}
+					indice = novo;
+				}
+				pendentes = null;
+			} finally {
+				lock.writeLock().unlock();
+			}
+		}
+		LOG.info("Índice de nomes dos produtos carregado: {} produtos em {} ms", novo.nomes.size(),
+				System.currentTimeMillis() - inicio);
+	}
+	
+	/**
+	 * Os nomes normalizados e os trigramas dos produtos. Os métodos devem ser chamados com o writeLock
+	 * ou, durante a carga, apenas pela thread da carga.
+	 * */
+	private static class Indice {
+		/*trigrama -> ids dos produtos que contém o trigrama*/
+		private final Map<String, Postings> trigramas = new HashMap<>();
+		
+		/*id do produto -> nome normalizado*/
+		private final Map<Integer, String> nomes = new HashMap<>();
+		
+		private void aplicar(ProdutoAlteradoEvent event) {
+			remover(event.getId());
+			if (!event.isRemovido()) {
+				adicionar(event.getId(), event.getNome());
+			}
+		}
+		
+		private void adicionar(Integer id, String nome) {
+			String texto = Texto.normalizar(nome);
+			nomes.put(id, texto);
+			for (String t : trigramasDe(texto)) {
+				trigramas.computeIfAbsent(t, k -> new Postings()).add(id);
+			}
+		}
+		
+		private void remover(Integer id) {
+			String texto = nomes.remove(id);
+			if (texto == null) {
+				return;
+			}
+			for (String t : trigramasDe(texto)) {
+				Postings p = trigramas.get(t);
+				if (p != null) {
+					p.remove(id);
+					if (p.size == 0) {
+						trigramas.remove(t);
+					}
+				}
+			}
+		}
+	}
+	
+	private static Set<String> trigramasDe(String texto) {
+		Set<String> set = new HashSet<>();
+		for (int i = 0; i + 3 <= texto.length(); i++) {
+			set.add(texto.substring(i, i + 3));
+		}
+		return set;
+	}
+	
+	/**
+	 * Lista ordenada de ids de produtos guardada em um vetor de inteiros primitivos.
+	 * Ocupa bem menos memória do que um Set<Integer>.
+	 * */
+	private static class Postings {
+		private int[] ids = new int[4];
+		private int size;
+		
+		private void add(int id) {
+			int pos = Arrays.binarySearch(ids, 0, size, id);
+			if (pos >= 0) {
+				return;
+			}
+			pos = -pos - 1;
+			if (size == ids.length) {
+				ids = Arrays.copyOf(ids, size * 2);
+			}
+			System.arraycopy(ids, pos, ids, pos + 1, size - pos);
+			ids[pos] = id;
+			size++;
+		}
+		
+		private void remove(int id) {
+			int pos = Arrays.binarySearch(ids, 0, size, id);
+			if (pos < 0) {
+				return;
+			}
+			System.arraycopy(ids, pos + 1, ids, pos, size - pos - 1);
+			size--;
+		}
+		
+		/**
+		 * Mantém em candidatos apenas os ids presentes nessa lista.
+		 * @return a nova quantidade de candidatos
+		 * */
+		private int intersect(int[] candidatos, int total) {
+			int novoTotal = 0;
+			int j = 0;
+			for (int i = 0; i < total; i++) {
+				while (j < size && ids[j] < candidatos[i]) {
+					j++;
+				}
+				if (j < size && ids[j] == candidatos[i]) {
+					candidatos[novoTotal++] = candidatos[i];
+				}
+			}
+			return novoTotal;
+		}
+	}
+}
@@ -8,11 +8,11 @@ import javax.validation.ConstraintValidatorContext;
 
 import org.springframework.beans.factory.annotation.Autowired;
 
-import com.filipe.domain.Cliente;
 import com.filipe.domain.enums.TipoCliente;
 import com.filipe.dto.ClienteNewDTO;
-import com.filipe.repositories.ClienteRepository;
 import com.filipe.resources.exceptions.FieldMessage;
+import com.filipe.services.search.EmailBloomFilter;
+import com.filipe.services.search.GeografiaIndex;
 import com.filipe.services.validation.utils.BR;
 
 /**
@@ -30,7 +30,10 @@ import com.filipe.services.validation.utils.BR;
 public class ClienteInsertValidator implements ConstraintValidator<ClienteInsert, ClienteNewDTO> {
 
 	@Autowired
-	private ClienteRepository repo;
+	private EmailBloomFilter emailFilter;
+	
+	@Autowired
+	private GeografiaIndex geografiaIndex;
 	
 	@Override
 	public void initialize(ClienteInsert ann) {
@@ -52,9 +55,17 @@ public class ClienteInsertValidator implements ConstraintValidator<ClienteInsert
 			list.add(new FieldMessage("cpfOuCnpj", "CNPJ inválido"));
 		}
 		
-		//Teste para impedir que um email repetido seja inserido no banco de dados.
-		Cliente aux = repo.findByEmail(objDto.getEmail());
-		if (aux != null) {
+		//A cidade é conferida no índice em memória. Sem essa validação uma cidade inexistente só
+		//seria recusada pelo banco, após o INSERT do cliente.
+		if (objDto.getCidadeId() == null) {
+			list.add(new FieldMessage("cidadeId", "Preenchimento obrigatório"));
+		} else if (!geografiaIndex.existeCidade(objDto.getCidadeId())) {
+			list.add(new FieldMessage("cidadeId", "Cidade inexistente"));
+		}
+		
+		//Teste para impedir que um email repetido seja inserido no banco de dados. O banco só é
+		//consultado quando o filtro de emails indicar que o email pode existir.
+		if (emailFilter.existe(objDto.getEmail())) {
 			list.add(new FieldMessage("email", "Email já existente"));
 		}
 
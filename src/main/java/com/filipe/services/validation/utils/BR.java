@@ -1,56 +1,186 @@
 package com.filipe.services.validation.utils;
 
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
 /**
  * Classe que valida um CPF ou um CNPJ
+ *
+ * Os documentos devem conter apenas os dígitos, sem pontos, barras ou hífens. Os dígitos são lidos
+ * diretamente dos caracteres(c - '0'), sem criar Strings ou Integers durante a validação, logo um
+ * documento é validado sem alocar memória. As versões que recebem um char[] validam documentos lidos
+ * de um arquivo sem convertê-los em String.
+ *
+ * O método isValid(String[]) valida grandes quantidades de documentos, como na migração de clientes,
+ * dividindo o array entre as threads do ForkJoinPool comum.
  * */
 /*
  * Classe apenas de curiosidade para testar as diversas possibilidades de implementação de um
  * validator personalizado
  * */
 
-//Fonte: https://gist.github.com/adrianoluis/5043397d378ae506d87366abb0ab4e30
+//Adaptado de: https://gist.github.com/adrianoluis/5043397d378ae506d87366abb0ab4e30
 public class BR {
 	// CPF
- private static final int[] weightSsn = {11, 10, 9, 8, 7, 6, 5, 4, 3, 2};
-
- // CNPJ
- private static final int[] weightTin = {6, 5, 4, 3, 2, 9, 8, 7, 6, 5, 4, 3, 2};
-
- private static int calculate(final String str, final int[] weight) {
-     int sum = 0;
-     for (int i = str.length() - 1, digit; i >= 0; i--) {
-         digit = Integer.parseInt(str.substring(i, i + 1));
-         sum += digit * weight[weight.length - str.length() + i];
-     }
-     sum = 11 - sum % 11;
-     return sum > 9 ? 0 : sum;
- }
-
- /**
-  * Valida CPF
-  *
-  * @param ssn
-  * @return
-  */
- public static boolean isValidCPF(final String ssn) {
-     if ((ssn == null) || (ssn.length() != 11) || ssn.matches(ssn.charAt(0) + "{11}")) return false;
-
-     final Integer digit1 = calculate(ssn.substring(0, 9), weightSsn);
-     final Integer digit2 = calculate(ssn.substring(0, 9) + digit1, weightSsn);
-     return ssn.equals(ssn.substring(0, 9) + digit1.toString() + digit2.toString());
- }
-
- /**
-  * Valida CNPJ
-  *
-  * @param tin
-  * @return
-  */
- public static boolean isValidCNPJ(final String tin) {
-     if ((tin == null) || (tin.length() != 14) || tin.matches(tin.charAt(0) + "{14}")) return false;
-
-     final Integer digit1 = calculate(tin.substring(0, 12), weightTin);
-     final Integer digit2 = calculate(tin.substring(0, 12) + digit1, weightTin);
-     return tin.equals(tin.substring(0, 12) + digit1.toString() + digit2.toString());
- }
+	private static final int[] weightSsn = {11, 10, 9, 8, 7, 6, 5, 4, 3, 2};
+
+	// CNPJ
+	private static final int[] weightTin = {6, 5, 4, 3, 2, 9, 8, 7, 6, 5, 4, 3, 2};
+
+	/*Quantidade de documentos abaixo da qual uma parte do array não é mais dividida entre as threads*/
+	private static final int LIMITE_DIVISAO = 8192;
+
+	/*Cópia dos caracteres de uma String, reutilizada pela thread, para validá-la como um char[]*/
+	private static final ThreadLocal<char[]> BUFFER = ThreadLocal.withInitial(() -> new char[14]);
+
+	private BR() {
+	}
+
+	/**
+	 * Calcula e confere os dois dígitos verificadores.
+	 *
+	 * O primeiro dígito usa os pesos a partir da segunda posição de weight e o segundo usa todos os
+	 * pesos, incluindo o primeiro dígito verificador na soma. As duas somas são feitas na mesma passagem.
+	 * Documentos com todos os dígitos iguais passam no cálculo, mas são inválidos.
+	 * */
+	private static boolean isValid(final char[] doc, final int offset, final int length, final int[] weight) {
+		if (doc == null || length != weight.length + 1 || offset < 0 || offset + length > doc.length) {
+			return false;
+		}
+
+		int sum1 = 0;
+		int sum2 = 0;
+		boolean repeated = true;
+		final char first = doc[offset];
+		for (int i = 0; i < length; i++) {
+			final char c = doc[offset + i];
+			if (c < '0' || c > '9') {
+				return false;
+			}
+			repeated &= (c == first);
+			if (i < length - 2) {
+				sum1 += (c - '0') * weight[i + 1];
+				sum2 += (c - '0') * weight[i];
+			}
+		}
+		if (repeated) {
+			return false;
+		}
+
+		final int digit1 = digit(sum1);
+		if (doc[offset + length - 2] - '0' != digit1) {
+			return false;
+		}
+		return doc[offset + length - 1] - '0' == digit(sum2 + digit1 * weight[length - 2]);
+	}
+
+	private static int digit(final int sum) {
+		final int digit = 11 - sum % 11;
+		return digit > 9 ? 0 : digit;
+	}
+
+	private static boolean isValid(final String str, final int[] weight) {
+		if (str == null || str.length() != weight.length + 1) {
+			return false;
+		}
+		final char[] buffer = BUFFER.get();
+		str.getChars(0, str.length(), buffer, 0);
+		return isValid(buffer, 0, str.length(), weight);
+	}
+
+	/**
+	 * Valida CPF
+	 *
+	 * @param ssn os 11 dígitos do CPF.
+	 * @return
+	 */
+	public static boolean isValidCPF(final String ssn) {
+		return isValid(ssn, weightSsn);
+	}
+
+	/**
+	 * Valida CPF contido em um array de caracteres.
+	 *
+	 * @param doc o array com o CPF.
+	 * @param offset a posição do primeiro dígito.
+	 * @param length a quantidade de caracteres do CPF, que deve ser 11.
+	 * @return
+	 */
+	public static boolean isValidCPF(final char[] doc, final int offset, final int length) {
+		return isValid(doc, offset, length, weightSsn);
+	}
+
+	/**
+	 * Valida CNPJ
+	 *
+	 * @param tin os 14 dígitos do CNPJ.
+	 * @return
+	 */
+	public static boolean isValidCNPJ(final String tin) {
+		return isValid(tin, weightTin);
+	}
+
+	/**
+	 * Valida CNPJ contido em um array de caracteres.
+	 *
+	 * @param doc o array com o CNPJ.
+	 * @param offset a posição do primeiro dígito.
+	 * @param length a quantidade de caracteres do CNPJ, que deve ser 14.
+	 * @return
+	 */
+	public static boolean isValidCNPJ(final char[] doc, final int offset, final int length) {
+		return isValid(doc, offset, length, weightTin);
+	}
+
+	/**
+	 * Valida um CPF ou um CNPJ de acordo com a quantidade de dígitos: 11 para CPF e 14 para CNPJ.
+	 *
+	 * @param doc o CPF ou CNPJ.
+	 * @return
+	 */
+	public static boolean isValidCPFOrCNPJ(final String doc) {
+		return doc != null && (doc.length() == 11 ? isValidCPF(doc) : isValidCNPJ(doc));
+	}
+
+	/**
+	 * Valida em paralelo um array de CPFs e CNPJs(isValidCPFOrCNPJ). O array é dividido em partes
+	 * validadas pelas threads do ForkJoinPool comum.
+	 *
+	 * @param docs os documentos. Posições nulas são consideradas inválidas.
+	 * @return um array em que a posição i indica se docs[i] é válido.
+	 */
+	public static boolean[] isValid(final String[] docs) {
+		final boolean[] result = new boolean[docs.length];
+		ForkJoinPool.commonPool().invoke(new Validation(docs, result, 0, docs.length));
+		return result;
+	}
+
+	/*Valida as posições de inicio até fim(exclusivo), dividindo-as ao meio enquanto forem muitas*/
+	private static class Validation extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final String[] docs;
+		private final boolean[] result;
+		private final int inicio;
+		private final int fim;
+
+		private Validation(String[] docs, boolean[] result, int inicio, int fim) {
+			this.docs = docs;
+			this.result = result;
+			this.inicio = inicio;
+			this.fim = fim;
+		}
+
+		@Override
+		protected void compute() {
+			if (fim - inicio <= LIMITE_DIVISAO) {
+				for (int i = inicio; i < fim; i++) {
+					result[i] = isValidCPFOrCNPJ(docs[i]);
+				}
+				return;
+			}
+			int meio = (inicio + fim) >>> 1;
+			invokeAll(new Validation(docs, result, inicio, meio), new Validation(docs, result, meio, fim));
+		}
+	}
 }
@@ -0,0 +1,11 @@
+-- Cria no PostgreSQL o índice usado pela limpeza da outbox(OutboxDispatcher.limpar), que exclui os
+-- eventos processados há mais de outbox.retencao-dias dias.
+--
+-- Sem o índice cada lote da limpeza percorre toda a tabela evento_outbox. O script pode ser executado
+-- novamente sem efeito adicional.
+
+BEGIN;
+
+CREATE INDEX IF NOT EXISTS idx_evento_outbox_processado ON evento_outbox (estado, processado_em);
+
+COMMIT;
@@ -0,0 +1,24 @@
+-- Cria a tabela de saída(transactional outbox) evento_outbox no PostgreSQL, gravada pelo
+-- PedidoService.insert e lida pelo OutboxDispatcher.
+--
+-- Deve ser executado antes de iniciar esta versão no profile dev(ddl-auto=none), caso contrário a
+-- criação de pedidos falha. O script pode ser executado novamente sem efeito adicional.
+
+BEGIN;
+
+CREATE TABLE IF NOT EXISTS evento_outbox (
+    id                SERIAL PRIMARY KEY,
+    tipo              INTEGER,
+    agregado_id       INTEGER,
+    estado            INTEGER,
+    criado_em         TIMESTAMP,
+    proxima_tentativa TIMESTAMP,
+    tentativas        INTEGER,
+    processado_em     TIMESTAMP,
+    erro              VARCHAR(1000)
+);
+
+-- Busca dos eventos prontos para processamento(estado PENDENTE e proxima_tentativa vencida)
+CREATE INDEX IF NOT EXISTS idx_evento_outbox_estado ON evento_outbox (estado, proxima_tentativa);
+
+COMMIT;
@@ -0,0 +1,49 @@
+-- Migração dos pagamentos da herança JOINED para a SINGLE_TABLE(profile single-table) no PostgreSQL.
+--
+-- Acrescenta à tabela pagamento a coluna discriminadora e as colunas das subclasses e copia os dados
+-- das tabelas pagamento_com_boleto e pagamento_com_cartao. Deve ser executado com a aplicação parada,
+-- antes de iniciá-la com o profile single-table. O script pode ser executado novamente sem efeito adicional.
+--
+-- As tabelas das subclasses não são removidas, assim é possível voltar para a JOINED enquanto a migração
+-- é validada. Pagamentos criados no modo single-table não existem nelas: ao voltar para a JOINED
+-- execute antes a cópia inversa(INSERT INTO pagamento_com_boleto ... WHERE tipo_pagamento = 2, e o
+-- mesmo para o cartão com tipo_pagamento = 1). Após a validação as tabelas podem ser removidas:
+--   DROP TABLE pagamento_com_boleto;
+--   DROP TABLE pagamento_com_cartao;
+
+BEGIN;
+
+ALTER TABLE pagamento ADD COLUMN IF NOT EXISTS tipo_pagamento INTEGER;
+ALTER TABLE pagamento ADD COLUMN IF NOT EXISTS data_pagamento TIMESTAMP;
+ALTER TABLE pagamento ADD COLUMN IF NOT EXISTS data_vencimento TIMESTAMP;
+ALTER TABLE pagamento ADD COLUMN IF NOT EXISTS numero_de_parcelas INTEGER;
+
+-- 1 = PagamentoComCartao
+UPDATE pagamento p
+   SET tipo_pagamento = 1,
+       numero_de_parcelas = c.numero_de_parcelas
+  FROM pagamento_com_cartao c
+ WHERE c.pedido_id = p.pedido_id;
+
+-- 2 = PagamentoComBoleto
+UPDATE pagamento p
+   SET tipo_pagamento = 2,
+       data_pagamento = b.data_pagamento,
+       data_vencimento = b.data_vencimento
+  FROM pagamento_com_boleto b
+ WHERE b.pedido_id = p.pedido_id;
+
+-- Um pagamento sem linha em nenhuma subclasse não pode ser carregado pelo Hibernate em nenhum dos modos
+DO $$
+BEGIN
+	IF EXISTS (SELECT 1 FROM pagamento WHERE tipo_pagamento IS NULL) THEN
+		RAISE EXCEPTION 'Existem pagamentos sem subclasse, verifique as tabelas pagamento_com_boleto e pagamento_com_cartao';
+	END IF;
+END $$;
+
+ALTER TABLE pagamento ALTER COLUMN tipo_pagamento SET NOT NULL;
+
+-- A conciliação de boletos filtra os pagamentos pelo discriminador
+CREATE INDEX IF NOT EXISTS idx_pagamento_tipo ON pagamento (tipo_pagamento);
+
+COMMIT;
@@ -0,0 +1,8 @@
+-- Cria o índice (cliente_id, instante) da tabela pedido no PostgreSQL, usado no histórico de pedidos
+-- de um cliente(GET /clientes/{id}/pedidos, PedidoRepository.findResumosByClienteId).
+--
+-- CONCURRENTLY cria o índice sem bloquear as gravações na tabela pedido, logo o script pode ser
+-- executado com a aplicação em funcionamento, porém não dentro de uma transação(BEGIN). O script pode
+-- ser executado novamente sem efeito adicional.
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_pedido_cliente_instante ON pedido (cliente_id, instante);
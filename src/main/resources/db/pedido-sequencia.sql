@@ -0,0 +1,25 @@
+-- Cria no PostgreSQL as sequências dos ids de pedido, evento_outbox e reserva_estoque, que deixam de
+-- ser gerados pelo banco no INSERT(SERIAL) para que os INSERTs da criação de pedidos sejam agrupados
+-- em lotes JDBC.
+--
+-- O hibernate reserva 50 ids a cada chamada da sequência(allocationSize = 50): o valor retornado é o
+-- último id do bloco. Por isso cada sequência começa 50 valores acima do maior id já gravado. O
+-- setval nunca volta uma sequência, logo o script pode ser executado novamente, inclusive com a
+-- aplicação em execução, sem efeito adicional. Deve ser executado antes de iniciar esta versão no
+-- profile dev(ddl-auto=none), caso contrário a criação de pedidos falha.
+
+BEGIN;
+
+CREATE SEQUENCE IF NOT EXISTS pedido_seq INCREMENT BY 50;
+SELECT setval('pedido_seq', GREATEST((SELECT last_value FROM pedido_seq),
+                                     (SELECT COALESCE(MAX(id), 0) + 50 FROM pedido)));
+
+CREATE SEQUENCE IF NOT EXISTS evento_outbox_seq INCREMENT BY 50;
+SELECT setval('evento_outbox_seq', GREATEST((SELECT last_value FROM evento_outbox_seq),
+                                            (SELECT COALESCE(MAX(id), 0) + 50 FROM evento_outbox)));
+
+CREATE SEQUENCE IF NOT EXISTS reserva_estoque_seq INCREMENT BY 50;
+SELECT setval('reserva_estoque_seq', GREATEST((SELECT last_value FROM reserva_estoque_seq),
+                                              (SELECT COALESCE(MAX(id), 0) + 50 FROM reserva_estoque)));
+
+COMMIT;
@@ -0,0 +1,25 @@
+-- Acrescenta o valor total e a quantidade de itens gravados na tabela pedido no PostgreSQL.
+--
+-- As colunas são preenchidas a partir da tabela item_pedido, com o mesmo cálculo do
+-- Pedido.recalcularTotais(): soma de (preco - desconto) * quantidade e quantidade de itens. Pedidos
+-- sem itens recebem 0. Deve ser executado com a aplicação parada, antes de iniciar esta versão no
+-- profile dev(ddl-auto=none). O script pode ser executado novamente sem efeito adicional.
+
+BEGIN;
+
+ALTER TABLE pedido ADD COLUMN IF NOT EXISTS valor_total DOUBLE PRECISION;
+ALTER TABLE pedido ADD COLUMN IF NOT EXISTS quantidade_itens INTEGER;
+
+UPDATE pedido p
+   SET valor_total = COALESCE(t.valor_total, 0),
+       quantidade_itens = COALESCE(t.quantidade_itens, 0)
+  FROM pedido ped
+  LEFT JOIN (SELECT item.pedido_id,
+                    SUM((item.preco - COALESCE(item.desconto, 0)) * item.quantidade) AS valor_total,
+                    COUNT(*) AS quantidade_itens
+               FROM item_pedido item
+              GROUP BY item.pedido_id) t ON t.pedido_id = ped.id
+ WHERE ped.id = p.id
+   AND (p.valor_total IS NULL OR p.quantidade_itens IS NULL);
+
+COMMIT;
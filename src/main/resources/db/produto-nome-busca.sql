@@ -0,0 +1,21 @@
+-- Acrescenta a coluna nome_busca(nome normalizado: minúsculas e sem acentos) à tabela produto no
+-- PostgreSQL. A coluna é usada pelo LIKE da busca por nome quando o índice em memória encontra
+-- candidatos demais(produto.busca.max-candidatos) e é preenchida pela aplicação a cada INSERT e UPDATE.
+--
+-- Os registros existentes são preenchidos com lower(unaccent(nome)), equivalente à normalização do
+-- ProdutoSearchIndex para os caracteres do português. O índice trigram(pg_trgm) permite que o
+-- LIKE '%texto%' não percorra a tabela inteira. Deve ser executado com a aplicação parada, antes de
+-- iniciar esta versão no profile dev(ddl-auto=none). O script pode ser executado novamente sem efeito
+-- adicional.
+
+BEGIN;
+
+CREATE EXTENSION IF NOT EXISTS unaccent;
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+ALTER TABLE produto ADD COLUMN IF NOT EXISTS nome_busca VARCHAR(255);
+UPDATE produto SET nome_busca = lower(trim(unaccent(nome))) WHERE nome_busca IS NULL AND nome IS NOT NULL;
+
+CREATE INDEX IF NOT EXISTS idx_produto_nome_busca ON produto USING gin (nome_busca gin_trgm_ops);
+
+COMMIT;
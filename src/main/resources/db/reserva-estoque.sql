@@ -0,0 +1,24 @@
+-- Acrescenta o controle de estoque no PostgreSQL: a coluna produto.estoque e a tabela reserva_estoque,
+-- usadas pelo EstoqueService.
+--
+-- Os produtos existentes ficam com o estoque nulo, ou seja, sem controle de estoque, até que o estoque
+-- seja informado(POST /produtos/{id}/estoque). Deve ser executado antes de iniciar esta versão no
+-- profile dev(ddl-auto=none), caso contrário a criação de pedidos e a consolidação do estoque falham.
+-- O script pode ser executado novamente sem efeito adicional.
+
+BEGIN;
+
+ALTER TABLE produto ADD COLUMN IF NOT EXISTS estoque INTEGER;
+
+CREATE TABLE IF NOT EXISTS reserva_estoque (
+    id         SERIAL PRIMARY KEY,
+    pedido_id  INTEGER,
+    produto_id INTEGER,
+    quantidade INTEGER,
+    criado_em  TIMESTAMP
+);
+
+-- Soma das reservas ainda não consolidadas de um produto(estoque disponível)
+CREATE INDEX IF NOT EXISTS idx_reserva_estoque_produto ON reserva_estoque (produto_id);
+
+COMMIT;
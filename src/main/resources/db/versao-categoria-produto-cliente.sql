@@ -0,0 +1,24 @@
+-- Acrescenta a coluna versao(@Version) às tabelas categoria, produto e cliente no PostgreSQL.
+--
+-- O hibernate não consegue alterar um registro com a versão nula, logo os registros existentes recebem
+-- a versão 0. Deve ser executado com a aplicação parada, antes de iniciar esta versão no profile dev
+-- (ddl-auto=none). O script pode ser executado novamente sem efeito adicional.
+
+BEGIN;
+
+ALTER TABLE categoria ADD COLUMN IF NOT EXISTS versao INTEGER;
+UPDATE categoria SET versao = 0 WHERE versao IS NULL;
+ALTER TABLE categoria ALTER COLUMN versao SET DEFAULT 0;
+ALTER TABLE categoria ALTER COLUMN versao SET NOT NULL;
+
+ALTER TABLE produto ADD COLUMN IF NOT EXISTS versao INTEGER;
+UPDATE produto SET versao = 0 WHERE versao IS NULL;
+ALTER TABLE produto ALTER COLUMN versao SET DEFAULT 0;
+ALTER TABLE produto ALTER COLUMN versao SET NOT NULL;
+
+ALTER TABLE cliente ADD COLUMN IF NOT EXISTS versao INTEGER;
+UPDATE cliente SET versao = 0 WHERE versao IS NULL;
+ALTER TABLE cliente ALTER COLUMN versao SET DEFAULT 0;
+ALTER TABLE cliente ALTER COLUMN versao SET NOT NULL;
+
+COMMIT;
@@ -0,0 +1,93 @@
+package com.filipe.repositories;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import com.filipe.domain.Produto;
+import com.filipe.dto.CursorPage;
+import com.filipe.services.exceptions.InvalidParameterException;
+
+/**
+ * Testes da paginação por cursor usando um banco H2 em memória, com registros cujo atributo de
+ * ordenação é nulo.
+ * */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:keysetRepositoryTest;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+		"spring.datasource.username=sa",
+		"spring.datasource.password=",
+		"spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+		"spring.jpa.hibernate.ddl-auto=create-drop",
+		"outbox.habilitado=false" })
+public class KeysetRepositoryTest {
+
+	@Autowired
+	private KeysetRepository keysetRepo;
+
+	@Autowired
+	private ProdutoRepository produtoRepository;
+
+	/**
+	 * Percorre, de duas em duas linhas, produtos com o preço e o nome nulos. Todos os produtos devem
+	 * ser entregues uma única vez, com os nulos após os demais na ordem ASC e antes na DESC.
+	 * */
+	@Test
+	public void registrosNulosSaoPercorridosPeloCursor() {
+		Integer p1 = salvar("Cadeira", 30.00);
+		Integer p2 = salvar(null, null);
+		Integer p3 = salvar("Mesa", 10.00);
+		Integer p4 = salvar("null", null);
+		Integer p5 = salvar(null, 20.00);
+		Integer p6 = salvar("Banco", 10.00);
+		List<Integer> ids = Arrays.asList(p1, p2, p3, p4, p5, p6);
+		Specification<Produto> filtro = (root, query, cb) -> root.get("id").in(ids);
+
+		assertEquals(Arrays.asList(p3, p6, p5, p1, p2, p4), percorrer(filtro, "preco", "ASC"));
+		assertEquals(Arrays.asList(p4, p2, p1, p5, p6, p3), percorrer(filtro, "preco", "DESC"));
+		assertEquals(Arrays.asList(p6, p1, p3, p4, p2, p5), percorrer(filtro, "nome", "ASC"));
+		assertEquals(Arrays.asList(p5, p2, p4, p3, p1, p6), percorrer(filtro, "nome", "DESC"));
+	}
+
+	/**
+	 * O número de registros por página deve estar entre 1 e MAXIMO_LINHAS. Com 0 a consulta buscaria
+	 * apenas o registro extra e com valores negativos a lista seria cortada num índice inválido.
+	 * */
+	@Test
+	public void numeroDeRegistrosPorPaginaInvalidoERecusado() {
+		for (Integer linesPerPage : Arrays.asList(null, -1, 0, KeysetRepository.MAXIMO_LINHAS + 1)) {
+			try {
+				keysetRepo.findPage(Produto.class, null, null, linesPerPage, "id", "ASC");
+				fail("Aceitou " + linesPerPage + " registros por página");
+			} catch (InvalidParameterException e) {
+				/*esperado*/
+			}
+		}
+		keysetRepo.findPage(Produto.class, null, null, KeysetRepository.MAXIMO_LINHAS, "id", "ASC");
+	}
+
+	private List<Integer> percorrer(Specification<Produto> filtro, String orderBy, String direction) {
+		List<Integer> ids = new ArrayList<>();
+		String cursor = null;
+		do {
+			CursorPage<Produto> page = keysetRepo.findPage(Produto.class, filtro, cursor, 2, orderBy, direction);
+			page.getContent().forEach(obj -> ids.add(obj.getId()));
+			cursor = page.getNext();
+		} while (cursor != null);
+		return ids;
+	}
+
+	private Integer salvar(String nome, Double preco) {
+		return produtoRepository.save(new Produto(null, nome, preco)).getId();
+	}
+}
@@ -0,0 +1,103 @@
+package com.filipe.resources.cache;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import com.filipe.domain.Categoria;
+import com.filipe.repositories.CategoriaRepository;
+
+/**
+ * Testes do CacheHttpFilter com as políticas do application.properties, usando um banco H2 em
+ * memória. A política de /estados existe apenas no teste, para verificar que o Cache-Control
+ * definido pelo EstadoResource não é substituído.
+ * */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:cacheHttpFilterTest;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+		"spring.datasource.username=sa",
+		"spring.datasource.password=",
+		"spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+		"spring.jpa.hibernate.ddl-auto=create-drop",
+		"outbox.habilitado=false",
+		"estoque.consolidacao.atraso-inicial-ms=3600000",
+		"geografia.cache.max-age-segundos=86400",
+		"http.cache.politicas.estados.caminhos=/estados,/estados/**",
+		"http.cache.politicas.estados.max-age-segundos=1" })
+@AutoConfigureMockMvc
+public class CacheHttpFilterTest {
+
+	private static final String CATEGORIAS = "max-age=300, public, stale-while-revalidate=3600";
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private CategoriaRepository categoriaRepository;
+
+	/**
+	 * A resposta 200 recebe o Cache-Control da política e a resposta 304 da revalidação pela ETag
+	 * repete o mesmo cabeçalho, senão o cliente não renova o max-age da cópia guardada.
+	 * */
+	@Test
+	public void respostas200E304RecebemOCacheControl() throws Exception {
+		Integer id = categoriaRepository.save(new Categoria(null, "Ferramentas")).getId();
+
+		MvcResult resposta = mockMvc.perform(get("/categorias/" + id))
+				.andExpect(status().isOk())
+				.andExpect(header().string(HttpHeaders.CACHE_CONTROL, CATEGORIAS))
+				.andReturn();
+		String etag = resposta.getResponse().getHeader(HttpHeaders.ETAG);
+
+		mockMvc.perform(get("/categorias/" + id).header(HttpHeaders.IF_NONE_MATCH, etag))
+				.andExpect(status().isNotModified())
+				.andExpect(header().string(HttpHeaders.CACHE_CONTROL, CATEGORIAS));
+	}
+
+	/**
+	 * Uma resposta de erro não pode ser guardada com o max-age da política.
+	 * */
+	@Test
+	public void resposta404NaoRecebeOCacheControl() throws Exception {
+		mockMvc.perform(get("/categorias/999999"))
+				.andExpect(status().isNotFound())
+				.andExpect(header().doesNotExist(HttpHeaders.CACHE_CONTROL));
+	}
+
+	/**
+	 * O EstadoResource define o seu próprio Cache-Control, que prevalece sobre a política.
+	 * */
+	@Test
+	public void respostaComCacheControlProprioNaoEAlterada() throws Exception {
+		mockMvc.perform(get("/estados"))
+				.andExpect(status().isOk())
+				.andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=86400, public"));
+	}
+
+	/**
+	 * O corpo do /clientes/export é escrito em outra thread, após o fim do filtro. O cabeçalho é
+	 * definido quando o corpo é aberto.
+	 * */
+	@Test
+	public void respostaAssincronaRecebeOCacheControl() throws Exception {
+		MvcResult resposta = mockMvc.perform(get("/clientes/export"))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+
+		mockMvc.perform(asyncDispatch(resposta))
+				.andExpect(status().isOk())
+				.andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache, private"));
+	}
+}
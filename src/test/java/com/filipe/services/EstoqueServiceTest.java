@@ -0,0 +1,206 @@
+package com.filipe.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.filipe.domain.Cidade;
+import com.filipe.domain.Cliente;
+import com.filipe.domain.Endereco;
+import com.filipe.domain.Estado;
+import com.filipe.domain.ItemPedido;
+import com.filipe.domain.PagamentoComCartao;
+import com.filipe.domain.Pedido;
+import com.filipe.domain.Produto;
+import com.filipe.domain.enums.TipoCliente;
+import com.filipe.repositories.CidadeRepository;
+import com.filipe.repositories.ClienteRepository;
+import com.filipe.repositories.EnderecoRepository;
+import com.filipe.repositories.EstadoRepository;
+import com.filipe.repositories.ProdutoRepository;
+import com.filipe.repositories.ReservaEstoqueRepository;
+import com.filipe.services.exceptions.EstoqueInsuficienteException;
+
+/**
+ * Testes do EstoqueService usando um banco H2 em memória. A consolidação agendada é adiada para que
+ * o teste controle quando as reservas são consolidadas.
+ * */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:estoqueServiceTest;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+		"spring.datasource.username=sa",
+		"spring.datasource.password=",
+		"spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+		"spring.jpa.hibernate.ddl-auto=create-drop",
+		"estoque.consolidacao.atraso-inicial-ms=3600000",
+		"outbox.habilitado=false" })
+public class EstoqueServiceTest {
+
+	private static final int ESTOQUE = 100;
+	private static final int THREADS = 300;
+
+	@Autowired
+	private PedidoService pedidoService;
+
+	@Autowired
+	private EstoqueService estoqueService;
+
+	@Autowired
+	private ProdutoRepository produtoRepository;
+
+	@Autowired
+	private ReservaEstoqueRepository reservaRepository;
+
+	@Autowired
+	private EstadoRepository estadoRepository;
+
+	@Autowired
+	private CidadeRepository cidadeRepository;
+
+	@Autowired
+	private ClienteRepository clienteRepository;
+
+	@Autowired
+	private EnderecoRepository enderecoRepository;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	/**
+	 * Centenas de threads pedem, ao mesmo tempo, uma unidade do mesmo produto. Apenas ESTOQUE pedidos
+	 * podem ser aceitos, os demais devem ser recusados com EstoqueInsuficienteException. Após a
+	 * consolidação o estoque gravado no produto deve ser zero.
+	 * */
+	@Test
+	public void pedidosConcorrentesNaoVendemAlemDoEstoque() throws Exception {
+		Produto produto = new Produto(null, "Produto em promoção", 10.00);
+		produto.setEstoque(ESTOQUE);
+		Integer produtoId = produtoRepository.save(produto).getId();
+		Endereco endereco = criarEndereco();
+
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		CountDownLatch largada = new CountDownLatch(1);
+		List<Future<Boolean>> tarefas = new ArrayList<>();
+		for (int i = 0; i < THREADS; i++) {
+			tarefas.add(executor.submit(() -> {
+				largada.await();
+				try {
+					pedidoService.insert(novoPedido(endereco, produtoId, 1));
+					return true;
+				} catch (EstoqueInsuficienteException e) {
+					return false;
+				}
+			}));
+		}
+		largada.countDown();
+
+		int aceitos = 0;
+		for (Future<Boolean> tarefa : tarefas) {
+			if (tarefa.get()) {
+				aceitos++;
+			}
+		}
+		executor.shutdown();
+		assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+		assertEquals(ESTOQUE, aceitos);
+		assertEquals(Integer.valueOf(0), estoqueService.disponivel(produtoId));
+		assertEquals(Long.valueOf(0), produtoRepository.findEstoqueDisponivel(produtoId));
+
+		estoqueService.consolidar();
+		assertEquals(0, reservaRepository.count());
+		assertEquals(Integer.valueOf(0), produtoRepository.findById(produtoId).get().getEstoque());
+	}
+
+	/**
+	 * Se o pedido for desfeito após a reserva(ex: o segundo produto não tem estoque), a quantidade
+	 * reservada do primeiro produto volta a ficar disponível.
+	 * */
+	@Test
+	public void reservaDevolvidaQuandoPedidoFalha() {
+		Produto comEstoque = new Produto(null, "Com estoque", 10.00);
+		comEstoque.setEstoque(5);
+		Produto semEstoque = new Produto(null, "Sem estoque", 10.00);
+		semEstoque.setEstoque(0);
+		Integer comEstoqueId = produtoRepository.save(comEstoque).getId();
+		Integer semEstoqueId = produtoRepository.save(semEstoque).getId();
+
+		Pedido pedido = novoPedido(criarEndereco(), comEstoqueId, 2);
+		pedido.getItens().add(new ItemPedido(pedido, new Produto(semEstoqueId, null, null), 0.0, 1, null));
+		try {
+			pedidoService.insert(pedido);
+		} catch (EstoqueInsuficienteException e) {
+			/*Esperado, o segundo produto não possui estoque*/
+		}
+
+		assertEquals(Integer.valueOf(5), estoqueService.disponivel(comEstoqueId));
+		assertEquals(Integer.valueOf(0), estoqueService.disponivel(semEstoqueId));
+	}
+
+	/**
+	 * Uma reserva que carrega o contador do produto enquanto uma reposição ainda não foi confirmada
+	 * deve esperar o commit e carregar o estoque já reposto. Caso contrário o contador guardado teria
+	 * o estoque anterior e a reposição seria perdida até a aplicação reiniciar.
+	 * */
+	@Test
+	public void reposicaoNaoSePerdeDuranteCargaDoContador() throws Exception {
+		Produto produto = new Produto(null, "Produto reposto", 10.00);
+		produto.setEstoque(0);
+		Integer produtoId = produtoRepository.save(produto).getId();
+
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		CountDownLatch reposto = new CountDownLatch(1);
+		CountDownLatch confirmar = new CountDownLatch(1);
+		Future<?> reposicao = executor.submit(() -> transactionTemplate.execute(status -> {
+			estoqueService.repor(produtoId, 5);
+			reposto.countDown();
+			try {
+				confirmar.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return null;
+		}));
+		assertTrue(reposto.await(10, TimeUnit.SECONDS));
+
+		/*A carga do contador começa antes do commit da reposição*/
+		Future<Integer> carga = executor.submit(() -> estoqueService.disponivel(produtoId));
+		Thread.sleep(300);
+		confirmar.countDown();
+
+		reposicao.get(10, TimeUnit.SECONDS);
+		assertEquals(Integer.valueOf(5), carga.get(10, TimeUnit.SECONDS));
+		assertEquals(Integer.valueOf(5), estoqueService.disponivel(produtoId));
+		executor.shutdown();
+	}
+
+	private Pedido novoPedido(Endereco endereco, Integer produtoId, int quantidade) {
+		Pedido pedido = new Pedido(null, new Date(), null, endereco.getCliente(), endereco);
+		pedido.setPagamento(new PagamentoComCartao(null, null, pedido, 1));
+		pedido.getItens().add(new ItemPedido(pedido, new Produto(produtoId, null, null), 0.0, quantidade, null));
+		return pedido;
+	}
+
+	private Endereco criarEndereco() {
+		Estado estado = estadoRepository.save(new Estado(null, "Minas Gerais"));
+		Cidade cidade = cidadeRepository.save(new Cidade(null, "Uberlândia", estado));
+		Cliente cliente = clienteRepository.save(new Cliente(null, "Maria Silva", "maria" + System.nanoTime() + "@gmail.com",
+				"36378912377", TipoCliente.PESSOAFISICA));
+		return enderecoRepository.save(new Endereco(null, "Rua Flores", "300", "Apto 203", "Jardim", "38220834", cliente, cidade));
+	}
+}
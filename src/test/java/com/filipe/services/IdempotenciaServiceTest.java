@@ -0,0 +1,173 @@
+package com.filipe.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.filipe.resources.exceptions.ResourceExceptionHandler;
+import com.filipe.services.cache.BoundedCache;
+import com.filipe.services.exceptions.IdempotenciaConflitoException;
+
+/**
+ * Testes da ligação entre a chave de idempotência e o hash do corpo da requisição, das requisições
+ * simultâneas com a mesma chave e da expiração das chaves.
+ * */
+public class IdempotenciaServiceTest {
+
+	private IdempotenciaService service;
+
+	private final AtomicInteger insercoes = new AtomicInteger();
+
+	private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+	@Before
+	public void criarServico() {
+		service = new IdempotenciaService();
+		ReflectionTestUtils.setField(service, "tamanhoMaximo", 100);
+		ReflectionTestUtils.setField(service, "ttlSegundos", 60L);
+		service.init();
+	}
+
+	@After
+	public void encerrarExecutor() {
+		executor.shutdownNow();
+	}
+
+	/**
+	 * A mesma chave com o mesmo corpo retorna o primeiro resultado. Com outro corpo é recusada, sem
+	 * executar a inserção, e o resultado guardado não é alterado.
+	 * */
+	@Test
+	public void chaveReutilizadaComOutroCorpoERecusada() {
+		assertEquals(Integer.valueOf(1), service.executar("pedidos", "chave", "hash-a", insercoes::incrementAndGet));
+		assertEquals(Integer.valueOf(1), service.executar("pedidos", "chave", "hash-a", insercoes::incrementAndGet));
+
+		try {
+			service.executar("pedidos", "chave", "hash-b", insercoes::incrementAndGet);
+			fail("A chave foi aceita com outro corpo");
+		} catch (IdempotenciaConflitoException e) {
+			/*Esperado*/
+		}
+
+		assertEquals(1, insercoes.get());
+		assertEquals(Integer.valueOf(1), service.executar("pedidos", "chave", "hash-a", insercoes::incrementAndGet));
+		assertEquals(Integer.valueOf(2), service.executar("pedidos", "outra", "hash-b", insercoes::incrementAndGet));
+	}
+
+	/**
+	 * O conflito é respondido com o status 422(UNPROCESSABLE ENTITY) pelo ResourceExceptionHandler.
+	 * */
+	@Test
+	public void conflitoRetornaStatus422() {
+		service.executar("pedidos", "chave", "hash-a", insercoes::incrementAndGet);
+		try {
+			service.executar("pedidos", "chave", "hash-b", insercoes::incrementAndGet);
+			fail("A chave foi aceita com outro corpo");
+		} catch (IdempotenciaConflitoException e) {
+			assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, new ResourceExceptionHandler()
+					.idempotenciaConflito(e, new MockHttpServletRequest()).getStatusCode());
+		}
+	}
+
+	/**
+	 * Enquanto a primeira requisição executa a inserção, uma segunda com a mesma chave e o mesmo corpo
+	 * aguarda e recebe o mesmo id, sem inserir outro objeto. Com outro corpo é recusada sem aguardar.
+	 * */
+	@Test
+	public void requisicaoSimultaneaAguardaAPrimeira() throws Exception {
+		CountDownLatch liberar = new CountDownLatch(1);
+		Future<Integer> primeira = executarAposLiberar("chave", liberar, insercoes::incrementAndGet);
+		Future<Integer> segunda = executor.submit(() -> service.executar("pedidos", "chave", "hash-a", insercoes::incrementAndGet));
+
+		try {
+			service.executar("pedidos", "chave", "hash-b", insercoes::incrementAndGet);
+			fail("A chave em andamento foi aceita com outro corpo");
+		} catch (IdempotenciaConflitoException e) {
+			/*Esperado*/
+		}
+
+		Thread.sleep(100);
+		assertFalse(segunda.isDone());
+		liberar.countDown();
+
+		assertEquals(Integer.valueOf(1), primeira.get(5, TimeUnit.SECONDS));
+		assertEquals(Integer.valueOf(1), segunda.get(5, TimeUnit.SECONDS));
+		assertEquals(1, insercoes.get());
+	}
+
+	/**
+	 * Se a primeira requisição falhar, a que aguardava recebe o mesmo erro e a chave não é guardada:
+	 * uma nova tentativa executa a inserção.
+	 * */
+	@Test
+	public void falhaDaPrimeiraRequisicaoNaoEGuardada() throws Exception {
+		CountDownLatch liberar = new CountDownLatch(1);
+		Future<Integer> primeira = executarAposLiberar("chave", liberar, () -> {
+			throw new IllegalStateException("Falha simulada");
+		});
+		Future<Integer> segunda = executor.submit(() -> service.executar("pedidos", "chave", "hash-a", insercoes::incrementAndGet));
+
+		Thread.sleep(100);
+		liberar.countDown();
+		for (Future<Integer> requisicao : Arrays.asList(primeira, segunda)) {
+			try {
+				requisicao.get(5, TimeUnit.SECONDS);
+				fail("A requisição não recebeu o erro da primeira");
+			} catch (ExecutionException e) {
+				assertEquals("Falha simulada", e.getCause().getMessage());
+			}
+		}
+
+		assertEquals(0, insercoes.get());
+		assertEquals(Integer.valueOf(1), service.executar("pedidos", "chave", "hash-a", insercoes::incrementAndGet));
+	}
+
+	/**
+	 * Após idempotencia.ttl-segundos a chave expira e uma nova requisição com ela executa a inserção.
+	 * */
+	@Test
+	public void chaveExpiradaExecutaNovaInsercao() throws Exception {
+		ReflectionTestUtils.setField(service, "concluidas", new BoundedCache<>(100, 50));
+
+		assertEquals(Integer.valueOf(1), service.executar("pedidos", "chave", "hash-a", insercoes::incrementAndGet));
+		assertEquals(Integer.valueOf(1), service.executar("pedidos", "chave", "hash-a", insercoes::incrementAndGet));
+
+		Thread.sleep(100);
+		assertEquals(Integer.valueOf(2), service.executar("pedidos", "chave", "hash-b", insercoes::incrementAndGet));
+	}
+
+	/*Inicia em outra thread uma requisição cuja inserção só termina após a liberação e aguarda o seu início*/
+	private Future<Integer> executarAposLiberar(String chave, CountDownLatch liberar, Supplier<Integer> insercao)
+			throws InterruptedException {
+		CountDownLatch iniciou = new CountDownLatch(1);
+		Future<Integer> requisicao = executor.submit(() -> service.executar("pedidos", chave, "hash-a", () -> {
+			iniciou.countDown();
+			try {
+				liberar.await(5, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return insercao.get();
+		}));
+		assertTrue(iniciou.await(5, TimeUnit.SECONDS));
+		return requisicao;
+	}
+}
@@ -0,0 +1,171 @@
+package com.filipe.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import com.filipe.domain.Cidade;
+import com.filipe.domain.Cliente;
+import com.filipe.domain.Endereco;
+import com.filipe.domain.Estado;
+import com.filipe.domain.ItemPedido;
+import com.filipe.domain.PagamentoComCartao;
+import com.filipe.domain.Pedido;
+import com.filipe.domain.Produto;
+import com.filipe.domain.enums.TipoCliente;
+import com.filipe.dto.ResultadoLoteDTO;
+import com.filipe.repositories.CidadeRepository;
+import com.filipe.repositories.ClienteRepository;
+import com.filipe.repositories.EnderecoRepository;
+import com.filipe.repositories.EstadoRepository;
+import com.filipe.repositories.PedidoRepository;
+import com.filipe.repositories.ProdutoRepository;
+
+/**
+ * Testes da importação de pedidos em lote usando um banco H2 em memória, com blocos de 3 pedidos.
+ * */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:pedidoLoteServiceTest;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+		"spring.datasource.username=sa",
+		"spring.datasource.password=",
+		"spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+		"spring.jpa.hibernate.ddl-auto=create-drop",
+		"estoque.consolidacao.atraso-inicial-ms=3600000",
+		"outbox.habilitado=false",
+		"spring.jpa.properties.hibernate.generate_statistics=true",
+		"pedido.lote.tamanho=3" })
+public class PedidoLoteServiceTest {
+
+	@Autowired
+	private PedidoLoteService service;
+
+	@Autowired
+	private PedidoRepository pedidoRepository;
+
+	@Autowired
+	private ProdutoRepository produtoRepository;
+
+	@Autowired
+	private EstadoRepository estadoRepository;
+
+	@Autowired
+	private CidadeRepository cidadeRepository;
+
+	@Autowired
+	private ClienteRepository clienteRepository;
+
+	@Autowired
+	private EnderecoRepository enderecoRepository;
+
+	@Autowired
+	private EntityManagerFactory emf;
+
+	/**
+	 * O segundo pedido do bloco pede mais do que o estoque do produto. Apenas ele deve ser recusado,
+	 * os outros pedidos do mesmo bloco devem ser salvos.
+	 * */
+	@Test
+	public void pedidoComErroNaoDesfazOsDemaisPedidosDoBloco() {
+		Endereco endereco = criarEndereco();
+		Integer produtoId = produtoRepository.save(new Produto(null, "Produto", 10.00)).getId();
+		Produto limitado = new Produto(null, "Produto limitado", 20.00);
+		limitado.setEstoque(1);
+		Integer limitadoId = produtoRepository.save(limitado).getId();
+		long pedidosAntes = pedidoRepository.count();
+
+		List<ResultadoLoteDTO> resultados = service.importar(Arrays.asList(
+				novoPedido(endereco, produtoId, 1),
+				novoPedido(endereco, limitadoId, 2),
+				novoPedido(endereco, produtoId, 3)).iterator());
+
+		assertEquals(3, resultados.size());
+		assertTrue(resultados.get(0).getSucesso());
+		assertNotNull(resultados.get(0).getId());
+		assertFalse(resultados.get(1).getSucesso());
+		assertNull(resultados.get(1).getId());
+		assertTrue(resultados.get(2).getSucesso());
+		assertNotNull(resultados.get(2).getId());
+		assertEquals(pedidosAntes + 2, pedidoRepository.count());
+	}
+
+	/**
+	 * Um pedido de um bloco desfeito é salvo novamente pelo PedidoService.insert(). Os itens e o
+	 * pagamento devem ser gravados como novos, apenas com INSERTs, e não com um merge(um SELECT por
+	 * item), logo a quantidade de comandos não deve depender da quantidade de itens.
+	 * */
+	@Test
+	public void pedidoDeBlocoDesfeitoEGravadoSemConsultarOsItens() {
+		Endereco endereco = criarEndereco();
+		List<Integer> produtos = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			produtos.add(produtoRepository.save(new Produto(null, "Produto " + i, 10.00 + i)).getId());
+		}
+
+		/*A primeira importação carrega os produtos e reserva os próximos ids das sequências*/
+		contarComandosDaImportacao(endereco, produtos);
+		long comandosUmItem = contarComandosDaImportacao(endereco, produtos.subList(0, 1));
+		long comandosDezItens = contarComandosDaImportacao(endereco, produtos);
+
+		assertEquals(comandosUmItem, comandosDezItens);
+	}
+
+	/*Importa um bloco com um pedido dos produtos informados e um pedido que excede o estoque. A consulta
+	 * do estoque do segundo pedido grava(flush) o primeiro antes que o bloco seja desfeito*/
+	private long contarComandosDaImportacao(Endereco endereco, List<Integer> produtos) {
+		Produto comEstoque = new Produto(null, "Produto com estoque", 10.00);
+		comEstoque.setEstoque(100);
+		Integer comEstoqueId = produtoRepository.save(comEstoque).getId();
+		Produto limitado = new Produto(null, "Produto limitado", 20.00);
+		limitado.setEstoque(1);
+		Integer limitadoId = produtoRepository.save(limitado).getId();
+
+		Pedido pedido = novoPedido(endereco, comEstoqueId, 1);
+		for (Integer produtoId : produtos) {
+			pedido.getItens().add(new ItemPedido(pedido, new Produto(produtoId, null, null), 0.0, 1, null));
+		}
+
+		Statistics statistics = emf.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+		List<ResultadoLoteDTO> resultados = service.importar(Arrays.asList(pedido,
+				novoPedido(endereco, limitadoId, 2)).iterator());
+		long comandos = statistics.getPrepareStatementCount();
+
+		assertTrue(resultados.get(0).getSucesso());
+		assertFalse(resultados.get(1).getSucesso());
+		assertEquals(produtos.size() + 1, pedidoRepository.findById(resultados.get(0).getId()).get().getQuantidadeItens());
+		return comandos;
+	}
+
+	private Pedido novoPedido(Endereco endereco, Integer produtoId, int quantidade) {
+		Pedido pedido = new Pedido(null, new Date(), null, endereco.getCliente(), endereco);
+		pedido.setPagamento(new PagamentoComCartao(null, null, pedido, 1));
+		pedido.getItens().add(new ItemPedido(pedido, new Produto(produtoId, null, null), 0.0, quantidade, null));
+		return pedido;
+	}
+
+	private Endereco criarEndereco() {
+		Estado estado = estadoRepository.save(new Estado(null, "Minas Gerais"));
+		Cidade cidade = cidadeRepository.save(new Cidade(null, "Uberlândia", estado));
+		Cliente cliente = clienteRepository.save(new Cliente(null, "Maria Silva", "maria" + System.nanoTime() + "@gmail.com",
+				"36378912377", TipoCliente.PESSOAFISICA));
+		return enderecoRepository.save(new Endereco(null, "Rua Flores", "300", "Apto 203", "Jardim", "38220834", cliente, cidade));
+	}
+}
@@ -0,0 +1,215 @@
+package com.filipe.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.filipe.domain.Cidade;
+import com.filipe.domain.Cliente;
+import com.filipe.domain.Endereco;
+import com.filipe.domain.Estado;
+import com.filipe.domain.ItemPedido;
+import com.filipe.domain.Pagamento;
+import com.filipe.domain.PagamentoComCartao;
+import com.filipe.domain.Pedido;
+import com.filipe.domain.Produto;
+import com.filipe.domain.enums.EstadoPagamento;
+import com.filipe.domain.enums.TipoCliente;
+import com.filipe.dto.VerificacaoTotaisDTO;
+import com.filipe.repositories.CidadeRepository;
+import com.filipe.repositories.ClienteRepository;
+import com.filipe.repositories.EnderecoRepository;
+import com.filipe.repositories.EstadoRepository;
+import com.filipe.repositories.ItemPedidoRepository;
+import com.filipe.repositories.PedidoRepository;
+import com.filipe.repositories.ProdutoRepository;
+
+/**
+ * Testes do PedidoService usando um banco H2 em memória. As estatísticas do Hibernate são usadas
+ * para contar as consultas executadas. A outbox e a consolidação do estoque são desligadas para que
+ * as tarefas agendadas não alterem as estatísticas durante a contagem.
+ * */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:pedidoServiceTest;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+		"spring.datasource.username=sa",
+		"spring.datasource.password=",
+		"spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+		"spring.jpa.hibernate.ddl-auto=create-drop",
+		"spring.jpa.properties.hibernate.generate_statistics=true",
+		"estoque.consolidacao.atraso-inicial-ms=3600000",
+		"outbox.habilitado=false" })
+public class PedidoServiceTest {
+
+	/*Limite de consultas do find(): produtos, pedido, endereços do cliente e a consulta que o Hibernate 
+	 * faz ao resolver o pedido referenciado pelas chaves compostas*/
+	private static final int MAXIMO_CONSULTAS = 4;
+
+	@Autowired
+	private PedidoService service;
+
+	@Autowired
+	private ProdutoService produtoService;
+
+	@Autowired
+	private EstoqueService estoqueService;
+
+	@Autowired
+	private EntityManagerFactory emf;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private ProdutoRepository produtoRepository;
+
+	@Autowired
+	private EstadoRepository estadoRepository;
+
+	@Autowired
+	private CidadeRepository cidadeRepository;
+
+	@Autowired
+	private ClienteRepository clienteRepository;
+
+	@Autowired
+	private EnderecoRepository enderecoRepository;
+
+	@Autowired
+	private PedidoRepository pedidoRepository;
+
+	@Autowired
+	private ItemPedidoRepository itemPedidoRepository;
+
+	/**
+	 * A quantidade de consultas do find() não deve depender da quantidade de itens do pedido. 
+	 * O JSON é gerado fora da transação, logo qualquer relacionamento que não tenha sido carregado
+	 * pelo find() lançaria uma LazyInitializationException.
+	 * */
+	@Test
+	public void findCarregaPedidoCompletoComQuantidadeFixaDeConsultas() throws Exception {
+		long consultasUmItem = contarConsultasDoFind(criarPedido(1), 1);
+		long consultasCinquentaItens = contarConsultasDoFind(criarPedido(50), 50);
+
+		assertEquals(consultasUmItem, consultasCinquentaItens);
+		assertTrue(consultasCinquentaItens <= MAXIMO_CONSULTAS);
+	}
+
+	/**
+	 * Os pedidos criados diretamente pelos repositórios não possuem os totais gravados, logo devem
+	 * ser apontados como divergentes e deixar de ser após a correção.
+	 * */
+	@Test
+	public void verificarTotaisCorrigeDivergencias() {
+		Integer id = criarPedido(3);
+
+		VerificacaoTotaisDTO antes = service.verificarTotais(true);
+		assertTrue(antes.getDivergencias().stream().anyMatch(d -> d.getPedidoId().equals(id)));
+		assertEquals(antes.getDivergentes(), antes.getCorrigidos());
+
+		assertEquals(0, service.verificarTotais(false).getDivergentes());
+		Pedido pedido = service.find(id);
+		assertEquals(3, pedido.getQuantidadeItens());
+		assertEquals(10.00 + 11.00 + 12.00, pedido.getValorTotal(), 0.001);
+	}
+
+	/**
+	 * Os itens são gravados em lote(hibernate.jdbc.batch_size), logo a quantidade de comandos preparados
+	 * no insert() não deve depender da quantidade de itens. Os produtos e os contadores de estoque são 
+	 * carregados antes, pois as suas consultas não fazem parte da gravação.
+	 * */
+	@Test
+	public void insertGravaItensComQuantidadeFixaDeComandos() {
+		Endereco endereco = criarEnderecos(criarCliente()).get(0);
+
+		Statistics statistics = emf.unwrap(SessionFactory.class).getStatistics();
+		/*O primeiro pedido reserva os próximos ids das sequências(allocationSize), que seriam contados
+		 * apenas na primeira gravação*/
+		contarComandosDoInsert(statistics, endereco, 1);
+		long comandosUmItem = contarComandosDoInsert(statistics, endereco, 1);
+		long comandosCinquentaItens = contarComandosDoInsert(statistics, endereco, 50);
+
+		assertEquals(comandosUmItem, comandosCinquentaItens);
+		assertEquals(50 + 3, statistics.getEntityInsertCount());
+	}
+
+	private long contarComandosDoInsert(Statistics statistics, Endereco endereco, int quantidadeItens) {
+		Pedido pedido = new Pedido(null, new Date(), null, endereco.getCliente(), endereco);
+		pedido.setPagamento(new PagamentoComCartao(null, null, pedido, 1));
+		List<Integer> ids = new ArrayList<>();
+		for (int i = 0; i < quantidadeItens; i++) {
+			Integer produtoId = produtoRepository.save(new Produto(null, "Produto " + i, 10.00 + i)).getId();
+			pedido.getItens().add(new ItemPedido(pedido, new Produto(produtoId, null, null), 0.0, 1, null));
+			estoqueService.disponivel(produtoId);
+			ids.add(produtoId);
+		}
+		produtoService.findAllById(ids);
+
+		statistics.clear();
+		service.insert(pedido);
+		return statistics.getPrepareStatementCount();
+	}
+
+	private long contarConsultasDoFind(Integer id, int quantidadeItens) throws Exception {
+		Statistics statistics = emf.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+
+		Pedido pedido = service.find(id);
+		objectMapper.writeValueAsString(pedido);
+
+		assertEquals(quantidadeItens, pedido.getItens().size());
+		assertEquals(2, pedido.getCliente().getEnderecos().size());
+		assertEquals(2, pedido.getCliente().getTelefones().size());
+		return statistics.getPrepareStatementCount();
+	}
+
+	private Integer criarPedido(int quantidadeItens) {
+		Cliente cliente = criarCliente();
+		Endereco e1 = criarEnderecos(cliente).get(0);
+
+		/*O pagamento é salvo junto com o pedido(CascadeType.ALL)*/
+		Pedido pedido = new Pedido(null, new Date(), null, cliente, e1);
+		Pagamento pagamento = new PagamentoComCartao(null, EstadoPagamento.QUITADO, pedido, 6);
+		pedido.setPagamento(pagamento);
+		pedido = pedidoRepository.save(pedido);
+
+		List<ItemPedido> itens = new ArrayList<>();
+		for (int i = 0; i < quantidadeItens; i++) {
+			Produto produto = produtoRepository.save(new Produto(null, "Produto " + i, 10.00 + i));
+			itens.add(new ItemPedido(pedido, produto, 0.00, 1, produto.getPreco()));
+		}
+		itemPedidoRepository.saveAll(itens);
+
+		return pedido.getId();
+	}
+
+	private Cliente criarCliente() {
+		Cliente cliente = new Cliente(null, "Maria Silva", "maria" + System.nanoTime() + "@gmail.com", "36378912377", TipoCliente.PESSOAFISICA);
+		cliente.getTelefones().addAll(Arrays.asList("27300000", "93000000"));
+		return clienteRepository.save(cliente);
+	}
+
+	private List<Endereco> criarEnderecos(Cliente cliente) {
+		Estado estado = estadoRepository.save(new Estado(null, "Minas Gerais"));
+		Cidade cidade = cidadeRepository.save(new Cidade(null, "Uberlândia", estado));
+
+		Endereco e1 = new Endereco(null, "Rua Flores", "300", "Apto 203", "Jardim", "38220834", cliente, cidade);
+		Endereco e2 = new Endereco(null, "Avenida Matos", "105", "Sala 800", "Centro", "38777012", cliente, cidade);
+		return enderecoRepository.saveAll(Arrays.asList(e1, e2));
+	}
+}
@@ -0,0 +1,158 @@
+package com.filipe.services;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.filipe.domain.Categoria;
+import com.filipe.domain.Produto;
+import com.filipe.repositories.CategoriaRepository;
+import com.filipe.repositories.ProdutoRepository;
+import com.filipe.services.exceptions.InvalidParameterException;
+
+/**
+ * Testes da busca de produtos por nome usando um banco H2 em memória. A busca pelos índices em
+ * memória e a busca pelo LIKE do banco(candidatos demais) devem encontrar os mesmos produtos.
+ * */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:produtoServiceTest;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+		"spring.datasource.username=sa",
+		"spring.datasource.password=",
+		"spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+		"spring.jpa.hibernate.ddl-auto=create-drop",
+		"outbox.habilitado=false" })
+public class ProdutoServiceTest {
+
+	@Autowired
+	private ProdutoService service;
+
+	@Autowired
+	private ProdutoRepository produtoRepository;
+
+	@Autowired
+	private CategoriaRepository categoriaRepository;
+
+	private List<Integer> categorias;
+
+	@Before
+	public void criarProdutos() {
+		Categoria categoria = categoriaRepository.save(new Categoria(null, "Jardim"));
+		categorias = Arrays.asList(categoria.getId());
+		for (String nome : Arrays.asList("Roçadeira", "ROCADEIRA elétrica", "Mangueira", "Desconto 50%", "Desconto 500")) {
+			Produto produto = new Produto(null, nome, 100.00);
+			produto.getCategorias().add(categoria);
+			produtoRepository.save(produto);
+		}
+	}
+
+	@After
+	public void restaurarLimite() {
+		ReflectionTestUtils.setField(service, "maxCandidatos", 5000);
+	}
+
+	/**
+	 * A mesma busca é feita pelos índices e, com o limite de candidatos zerado, pelo LIKE do banco.
+	 * O LIKE não pode diferenciar acentos e maiúsculas nem tratar % como curinga.
+	 * */
+	@Test
+	public void buscaPeloBancoEncontraOsMesmosProdutosQueOIndice() {
+		for (String nome : Arrays.asList("roça", "Rocadeira", "ELÉTRICA", "50%", "")) {
+			ReflectionTestUtils.setField(service, "maxCandidatos", 5000);
+			Set<String> pelosIndices = nomes(service.search(nome, categorias, 0, 24, "nome", "ASC"));
+
+			ReflectionTestUtils.setField(service, "maxCandidatos", 0);
+			Page<Produto> peloBanco = service.search(nome, categorias, 0, 24, "nome", "ASC");
+			Set<String> cursor = service.searchCursor(nome, categorias, "", 24, "nome", "ASC").getContent().stream()
+					.map(Produto::getNome).collect(Collectors.toCollection(TreeSet::new));
+
+			assertEquals(nome, pelosIndices, nomes(peloBanco));
+			assertEquals(nome, pelosIndices.size(), peloBanco.getTotalElements());
+			assertEquals(nome, pelosIndices, cursor);
+		}
+		ReflectionTestUtils.setField(service, "maxCandidatos", 0);
+		assertEquals(2, service.search("roça", categorias, 0, 24, "nome", "ASC").getTotalElements());
+		assertEquals(1, service.search("50%", categorias, 0, 24, "nome", "ASC").getTotalElements());
+	}
+
+	/**
+	 * A busca pelos índices ordena e pagina os produtos em memória. As páginas devem ser as mesmas da
+	 * busca pelo LIKE do banco, que ordena no banco.
+	 * */
+	@Test
+	public void paginasDosIndicesSaoAsMesmasDoBanco() {
+		Categoria categoria = categoriaRepository.save(new Categoria(null, "Vasos"));
+		List<Integer> vasos = Arrays.asList(categoria.getId());
+		double[] precos = { 30.00, 10.00, 50.00, 20.00, 40.00, 60.00, 5.00 };
+		for (int i = 0; i < precos.length; i++) {
+			Produto produto = new Produto(null, "Vaso " + (char) ('A' + i), precos[i]);
+			produto.getCategorias().add(categoria);
+			produtoRepository.save(produto);
+		}
+
+		for (String[] ordem : Arrays.asList(new String[] { "nome", "ASC" }, new String[] { "preco", "DESC" },
+				new String[] { "id", "DESC" })) {
+			for (int page = 0; page <= 4; page++) {
+				ReflectionTestUtils.setField(service, "maxCandidatos", 5000);
+				Page<Produto> pelosIndices = service.search("vaso", vasos, page, 2, ordem[0], ordem[1]);
+				Slice<Produto> sliceDosIndices = service.searchSlice("vaso", vasos, page, 2, ordem[0], ordem[1]);
+
+				ReflectionTestUtils.setField(service, "maxCandidatos", 0);
+				Page<Produto> peloBanco = service.search("vaso", vasos, page, 2, ordem[0], ordem[1]);
+				Slice<Produto> sliceDoBanco = service.searchSlice("vaso", vasos, page, 2, ordem[0], ordem[1]);
+
+				String pagina = ordem[0] + " " + ordem[1] + " página " + page;
+				assertEquals(pagina, nomesEmOrdem(peloBanco), nomesEmOrdem(pelosIndices));
+				assertEquals(pagina, peloBanco.getTotalElements(), pelosIndices.getTotalElements());
+				assertEquals(pagina, nomesEmOrdem(sliceDoBanco), nomesEmOrdem(sliceDosIndices));
+				assertEquals(pagina, sliceDoBanco.hasNext(), sliceDosIndices.hasNext());
+			}
+		}
+	}
+
+	/**
+	 * Os produtos encontrados nos índices só podem ser ordenados pelos atributos guardados no cache.
+	 * */
+	@Test(expected = InvalidParameterException.class)
+	public void ordenacaoPorAtributoNaoAceitoERecusada() {
+		service.search("", categorias, 0, 24, "estoque", "ASC");
+	}
+
+	/**
+	 * O nome normalizado usado pelo LIKE do banco acompanha a alteração do nome.
+	 * */
+	@Test
+	public void nomeNormalizadoAcompanhaAlteracao() {
+		Produto produto = produtoRepository.save(new Produto(null, "Regador", 30.00));
+		produto.setNome("Regador de Plástico");
+		produtoRepository.save(produto);
+
+		assertEquals("regador de plastico", produtoRepository.findById(produto.getId()).get().getNomeBusca());
+	}
+
+	private static List<String> nomesEmOrdem(Slice<Produto> slice) {
+		List<String> nomes = new ArrayList<>();
+		slice.getContent().forEach(produto -> nomes.add(produto.getNome()));
+		return nomes;
+	}
+
+	private static Set<String> nomes(Page<Produto> page) {
+		return page.getContent().stream().map(Produto::getNome).collect(Collectors.toCollection(TreeSet::new));
+	}
+}
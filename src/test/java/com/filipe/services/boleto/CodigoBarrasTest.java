@@ -0,0 +1,43 @@
+package com.filipe.services.boleto;
+
+import static org.junit.Assert.assertEquals;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+import org.junit.Test;
+
+/**
+ * Testes do CodigoBarras com um boleto de exemplo do Banco do Brasil: vencimento em 31/12/2007,
+ * valor de R$ 1,00 e campo livre 0500940144816060680935031.
+ * */
+public class CodigoBarrasTest {
+
+	private static final String CODIGO = "00193373700000001000500940144816060680935031";
+	private static final String LINHA = "00190.50095 40144.816069 06809.350314 3 37370000000100";
+
+	@Test
+	public void codigoDeBarrasComDigitoGeral() throws Exception {
+		char[] codigo = CodigoBarras.codigoDeBarras("001", data("31/12/2007"), 100, "0500940144816060680935031");
+		assertEquals(CODIGO, new String(codigo));
+	}
+
+	@Test
+	public void linhaDigitavelComDigitosDosCampos() {
+		assertEquals(LINHA, CodigoBarras.linhaDigitavel(CODIGO.toCharArray()));
+	}
+
+	/**
+	 * O fator 9999 corresponde a 21/02/2025. A partir de 22/02/2025 o fator recomeça em 1000.
+	 * */
+	@Test
+	public void fatorVencimentoRecomecaEmMil() throws Exception {
+		assertEquals(9999, CodigoBarras.fatorVencimento(data("21/02/2025")));
+		assertEquals(1000, CodigoBarras.fatorVencimento(data("22/02/2025")));
+		assertEquals(1001, CodigoBarras.fatorVencimento(data("23/02/2025")));
+	}
+
+	private Date data(String texto) throws Exception {
+		return new SimpleDateFormat("dd/MM/yyyy").parse(texto);
+	}
+}
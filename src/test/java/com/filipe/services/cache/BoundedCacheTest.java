@@ -0,0 +1,68 @@
+package com.filipe.services.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Testes da proteção do BoundedCache contra valores lidos antes de uma alteração e guardados após a
+ * invalidação da chave.
+ * */
+public class BoundedCacheTest {
+
+	/**
+	 * A leitura começa(geracao), a chave é invalidada pelo commit de uma alteração e só então o valor
+	 * lido é guardado. O valor antigo deve ser descartado e a próxima carga deve ser guardada.
+	 * */
+	@Test
+	public void valorLidoAntesDaInvalidacaoNaoEGuardado() {
+		BoundedCache<Integer, String> cache = new BoundedCache<>(10, 60000);
+
+		long geracao = cache.geracao();
+		cache.invalidate(1);
+		assertFalse(cache.put(1, "antigo", geracao));
+		assertNull(cache.get(1));
+
+		assertTrue(cache.put(1, "novo", cache.geracao()));
+		assertEquals("novo", cache.get(1));
+	}
+
+	/**
+	 * Duas cargas simultâneas, uma iniciada antes e outra após a invalidação. A carga antiga não pode
+	 * substituir o valor já guardado pela carga nova.
+	 * */
+	@Test
+	public void cargaAntigaNaoSubstituiCargaNova() {
+		BoundedCache<Integer, String> cache = new BoundedCache<>(10, 60000);
+
+		long antiga = cache.geracao();
+		cache.invalidate(1);
+		long nova = cache.geracao();
+		assertTrue(cache.put(1, "novo", nova));
+		assertFalse(cache.put(1, "antigo", antiga));
+		assertEquals("novo", cache.get(1));
+	}
+
+	/**
+	 * Invalidar outra chave não descarta a carga. Se o registro da invalidação for removido pelo
+	 * limite de tamanho, as cargas anteriores a ele são descartadas por precaução.
+	 * */
+	@Test
+	public void invalidacaoRemovidaPeloLimiteDescartaCargasAnteriores() {
+		BoundedCache<Integer, String> cache = new BoundedCache<>(2, 60000);
+
+		long geracao = cache.geracao();
+		cache.invalidate(2);
+		assertTrue(cache.put(1, "um", geracao));
+
+		long anterior = cache.geracao();
+		cache.invalidate(3);
+		cache.put(4, "quatro");
+		cache.put(5, "cinco");
+		assertFalse(cache.put(3, "antigo", anterior));
+		assertTrue(cache.put(3, "novo", cache.geracao()));
+	}
+}
@@ -0,0 +1,192 @@
+package com.filipe.services.conciliacao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.BufferedWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import com.filipe.domain.Cidade;
+import com.filipe.domain.Cliente;
+import com.filipe.domain.Endereco;
+import com.filipe.domain.Estado;
+import com.filipe.domain.ItemPedido;
+import com.filipe.domain.Pagamento;
+import com.filipe.domain.PagamentoComBoleto;
+import com.filipe.domain.PagamentoComCartao;
+import com.filipe.domain.Pedido;
+import com.filipe.domain.Produto;
+import com.filipe.domain.enums.EstadoPagamento;
+import com.filipe.domain.enums.TipoCliente;
+import com.filipe.dto.ResultadoConciliacaoDTO;
+import com.filipe.repositories.CidadeRepository;
+import com.filipe.repositories.ClienteRepository;
+import com.filipe.repositories.EnderecoRepository;
+import com.filipe.repositories.EstadoRepository;
+import com.filipe.repositories.PagamentoRepository;
+import com.filipe.repositories.ProdutoRepository;
+import com.filipe.services.PedidoService;
+
+/**
+ * Testes da ConciliacaoBoletoService usando um banco H2 em memória. A janela de leitura e o lote
+ * são pequenos para que o arquivo seja lido em várias janelas e aplicado em vários lotes.
+ * */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:conciliacaoBoletoTest;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+		"spring.datasource.username=sa",
+		"spring.datasource.password=",
+		"spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+		"spring.jpa.hibernate.ddl-auto=create-drop",
+		"conciliacao.janela-bytes=4096",
+		"conciliacao.lote=1000",
+		"boleto.convenio=1234567",
+		"outbox.habilitado=false" })
+public class ConciliacaoBoletoServiceTest {
+
+	/*Registros de pedidos inexistentes acrescentados ao arquivo*/
+	private static final int INEXISTENTES = 20000;
+
+	@Autowired
+	private ConciliacaoBoletoService service;
+
+	@Autowired
+	private PedidoService pedidoService;
+
+	@Autowired
+	private PagamentoRepository pagamentoRepository;
+
+	@Autowired
+	private ProdutoRepository produtoRepository;
+
+	@Autowired
+	private EstadoRepository estadoRepository;
+
+	@Autowired
+	private CidadeRepository cidadeRepository;
+
+	@Autowired
+	private ClienteRepository clienteRepository;
+
+	@Autowired
+	private EnderecoRepository enderecoRepository;
+
+	@Test
+	public void conciliaLiquidacaoBaixaEVencimento() throws Exception {
+		Endereco endereco = criarEndereco();
+		Integer produtoId = produtoRepository.save(new Produto(null, "Produto", 10.00)).getId();
+		Integer liquidado = criarPedido(endereco, produtoId, new PagamentoComBoleto()).getId();
+		Integer baixado = criarPedido(endereco, produtoId, new PagamentoComBoleto()).getId();
+		Integer cartao = criarPedido(endereco, produtoId, new PagamentoComCartao(null, null, null, 1)).getId();
+
+		Path arquivo = Files.createTempFile("retorno", ".ret");
+		try (BufferedWriter out = Files.newBufferedWriter(arquivo, StandardCharsets.ISO_8859_1)) {
+			out.write("0HEADER\r\n");
+			out.write(registro(liquidado, "06", "15102026"));
+			out.write(registro(liquidado, "14", "20112026"));
+			out.write(registro(baixado, "09", "16102026"));
+			out.write(registro(cartao, "06", "15102026"));
+			out.write(registro(baixado, "02", "15102026"));
+			out.write("1" + "7654321" + "0000000001" + "06" + "15102026" + "0000000001000\n");
+			out.write(registro(baixado, "06", "31022026"));
+			out.write("1ABC\n");
+			for (int i = 0; i < INEXISTENTES; i++) {
+				out.write(registro(1000000 + i, "06", "15102026"));
+			}
+			out.write("9TRAILER\n");
+		}
+
+		ResultadoConciliacaoDTO resultado = service.conciliar(arquivo);
+		Files.delete(arquivo);
+
+		assertEquals(INEXISTENTES + 10, resultado.getLinhas().longValue());
+		assertEquals(3, resultado.getConciliados().longValue());
+		assertEquals(INEXISTENTES + 1, resultado.getNaoEncontrados().longValue());
+		assertEquals(1, resultado.getIgnorados().longValue());
+		assertEquals(3, resultado.getInvalidos().longValue());
+
+		SimpleDateFormat sdf = new SimpleDateFormat("dd/MM/yyyy");
+		PagamentoComBoleto pagto = (PagamentoComBoleto) pagamentoRepository.findById(liquidado).get();
+		assertEquals(EstadoPagamento.QUITADO, pagto.getEstadoPagamento());
+		assertEquals(sdf.parse("15/10/2026"), pagto.getDataPagamento());
+		assertEquals(sdf.parse("20/11/2026"), pagto.getDataVencimento());
+
+		pagto = (PagamentoComBoleto) pagamentoRepository.findById(baixado).get();
+		assertEquals(EstadoPagamento.CANCELADO, pagto.getEstadoPagamento());
+		assertNull(pagto.getDataPagamento());
+
+		assertEquals(EstadoPagamento.PENDENTE, pagamentoRepository.findById(cartao).get().getEstadoPagamento());
+	}
+
+	/**
+	 * Uma baixa posterior não cancela um pagamento quitado e reprocessar o arquivo não altera nada. Uma
+	 * liquidação com valor menor que o total do pedido(10,00) não quita o pagamento.
+	 * */
+	@Test
+	public void apenasPagamentosPendentesComValorSuficienteSaoAlterados() throws Exception {
+		Endereco endereco = criarEndereco();
+		Integer produtoId = produtoRepository.save(new Produto(null, "Produto", 10.00)).getId();
+		Integer quitado = criarPedido(endereco, produtoId, new PagamentoComBoleto()).getId();
+		Integer insuficiente = criarPedido(endereco, produtoId, new PagamentoComBoleto()).getId();
+
+		Path arquivo = Files.createTempFile("retorno", ".ret");
+		try (BufferedWriter out = Files.newBufferedWriter(arquivo, StandardCharsets.ISO_8859_1)) {
+			out.write(registro(quitado, "06", "15102026", 1000));
+			out.write(registro(quitado, "09", "16102026", 0));
+			out.write(registro(insuficiente, "06", "15102026", 999));
+		}
+
+		ResultadoConciliacaoDTO resultado = service.conciliar(arquivo);
+		assertEquals(1, resultado.getConciliados().longValue());
+		assertEquals(1, resultado.getNaoPendentes().longValue());
+		assertEquals(1, resultado.getValorInsuficiente().longValue());
+		assertEquals(0, resultado.getNaoEncontrados().longValue());
+
+		resultado = service.conciliar(arquivo);
+		Files.delete(arquivo);
+		assertEquals(0, resultado.getConciliados().longValue());
+		assertEquals(2, resultado.getNaoPendentes().longValue());
+		assertEquals(1, resultado.getValorInsuficiente().longValue());
+
+		PagamentoComBoleto pagto = (PagamentoComBoleto) pagamentoRepository.findById(quitado).get();
+		assertEquals(EstadoPagamento.QUITADO, pagto.getEstadoPagamento());
+		assertEquals(new SimpleDateFormat("dd/MM/yyyy").parse("15/10/2026"), pagto.getDataPagamento());
+
+		pagto = (PagamentoComBoleto) pagamentoRepository.findById(insuficiente).get();
+		assertEquals(EstadoPagamento.PENDENTE, pagto.getEstadoPagamento());
+		assertNull(pagto.getDataPagamento());
+	}
+
+	private String registro(int pedidoId, String ocorrencia, String data) {
+		return registro(pedidoId, ocorrencia, data, 1000);
+	}
+
+	private String registro(int pedidoId, String ocorrencia, String data, long valorCentavos) {
+		return String.format("1%s%010d%s%s%013d\n", "1234567", pedidoId, ocorrencia, data, valorCentavos);
+	}
+
+	protected Pedido criarPedido(Endereco endereco, Integer produtoId, Pagamento pagamento) {
+		Pedido pedido = new Pedido(null, new Date(), null, endereco.getCliente(), endereco);
+		pedido.setPagamento(pagamento);
+		pedido.getItens().add(new ItemPedido(pedido, new Produto(produtoId, null, null), 0.0, 1, null));
+		return pedidoService.insert(pedido);
+	}
+
+	protected Endereco criarEndereco() {
+		Estado estado = estadoRepository.save(new Estado(null, "Minas Gerais"));
+		Cidade cidade = cidadeRepository.save(new Cidade(null, "Uberlândia", estado));
+		Cliente cliente = clienteRepository.save(new Cliente(null, "Maria Silva", "maria" + System.nanoTime() + "@gmail.com",
+				"36378912377", TipoCliente.PESSOAFISICA));
+		return enderecoRepository.save(new Endereco(null, "Rua Flores", "300", "Apto 203", "Jardim", "38220834", cliente, cidade));
+	}
+}
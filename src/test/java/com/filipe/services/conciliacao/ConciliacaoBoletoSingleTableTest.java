@@ -0,0 +1,78 @@
+package com.filipe.services.conciliacao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Date;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.SingleTableEntityPersister;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.filipe.domain.Endereco;
+import com.filipe.domain.PagamentoComBoleto;
+import com.filipe.domain.PagamentoComCartao;
+import com.filipe.domain.Pedido;
+import com.filipe.domain.Produto;
+import com.filipe.repositories.ProdutoRepository;
+import com.filipe.services.PedidoService;
+
+/**
+ * Executa os testes da conciliação com a herança de Pagamento em SINGLE_TABLE(mapeamento do profile
+ * single-table) e verifica que os pagamentos ficam apenas na tabela pagamento.
+ * */
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:conciliacaoBoletoSingleTableTest;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+		"spring.datasource.username=sa",
+		"spring.datasource.password=",
+		"spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+		"spring.jpa.hibernate.ddl-auto=create-drop",
+		"spring.jpa.mapping-resources=META-INF/orm-pagamento-single-table.xml",
+		"conciliacao.janela-bytes=4096",
+		"conciliacao.lote=1000",
+		"boleto.convenio=1234567",
+		"outbox.habilitado=false" })
+public class ConciliacaoBoletoSingleTableTest extends ConciliacaoBoletoServiceTest {
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private PedidoService pedidoService;
+
+	@Autowired
+	private ProdutoRepository produtoRepository;
+
+	@Test
+	public void pagamentosGravadosNaTabelaPagamento() {
+		assertTrue(entityManagerFactory.unwrap(SessionFactoryImplementor.class).getMetamodel()
+				.entityPersister(PagamentoComBoleto.class) instanceof SingleTableEntityPersister);
+
+		Endereco endereco = criarEndereco();
+		Integer produtoId = produtoRepository.save(new Produto(null, "Produto", 10.00)).getId();
+		Integer boleto = criarPedido(endereco, produtoId, new PagamentoComBoleto()).getId();
+		Integer cartao = criarPedido(endereco, produtoId, new PagamentoComCartao(null, null, null, 3)).getId();
+
+		assertEquals(Integer.valueOf(2), jdbcTemplate.queryForObject(
+				"SELECT tipo_pagamento FROM pagamento WHERE pedido_id = ?", Integer.class, boleto));
+		assertEquals(Integer.valueOf(1), jdbcTemplate.queryForObject(
+				"SELECT tipo_pagamento FROM pagamento WHERE pedido_id = ?", Integer.class, cartao));
+		assertEquals(Integer.valueOf(0), jdbcTemplate.queryForObject("SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES "
+				+ "WHERE TABLE_NAME IN ('PAGAMENTO_COM_BOLETO', 'PAGAMENTO_COM_CARTAO')", Integer.class));
+
+		Pedido pedido = pedidoService.find(boleto);
+		assertTrue(pedido.getPagamento() instanceof PagamentoComBoleto);
+		assertTrue(((PagamentoComBoleto) pedido.getPagamento()).getDataVencimento().after(new Date(0)));
+
+		pedido = pedidoService.find(cartao);
+		assertEquals(Integer.valueOf(3), ((PagamentoComCartao) pedido.getPagamento()).getNumeroDeParcelas());
+	}
+}
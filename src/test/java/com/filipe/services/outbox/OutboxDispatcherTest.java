@@ -0,0 +1,133 @@
+package com.filipe.services.outbox;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Date;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import com.filipe.domain.EventoOutbox;
+import com.filipe.domain.enums.EstadoEvento;
+import com.filipe.domain.enums.TipoEvento;
+import com.filipe.repositories.EventoOutboxRepository;
+
+/**
+ * Testes do OutboxDispatcher usando um banco H2 em memória e um consumidor registrado apenas no teste.
+ * */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:outboxDispatcherTest;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+		"spring.datasource.username=sa",
+		"spring.datasource.password=",
+		"spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+		"spring.jpa.hibernate.ddl-auto=create-drop",
+		"outbox.intervalo-ms=50",
+		"outbox.atraso-inicial-ms=0",
+		"outbox.backoff-inicial-ms=50",
+		"outbox.retencao-dias=7",
+		"outbox.limpeza-lote=2" })
+public class OutboxDispatcherTest {
+
+	private static final long ESPERA_MAXIMA_MS = 10000;
+
+	@Autowired
+	private EventoOutboxRepository repo;
+
+	@Autowired
+	private ConsumidorDeTeste consumidor;
+
+	@Autowired
+	private OutboxDispatcher dispatcher;
+
+	/**
+	 * O consumidor de teste falha na primeira entrega de cada evento. O evento deve ser tentado 
+	 * novamente e marcado como processado na segunda tentativa.
+	 * */
+	@Test
+	public void eventoComFalhaETentadoNovamente() throws Exception {
+		EventoOutbox evento = repo.save(new EventoOutbox(null, TipoEvento.PEDIDO_CRIADO, 1, new Date()));
+
+		long limite = System.currentTimeMillis() + ESPERA_MAXIMA_MS;
+		while (!consumidor.processados.contains(evento.getId()) && System.currentTimeMillis() < limite) {
+			Thread.sleep(50);
+		}
+		assertTrue(consumidor.processados.contains(evento.getId()));
+
+		/*O evento é marcado como processado na mesma transação em que o consumidor foi chamado*/
+		while (repo.findById(evento.getId()).get().getEstado() != EstadoEvento.PROCESSADO
+				&& System.currentTimeMillis() < limite) {
+			Thread.sleep(50);
+		}
+		EventoOutbox processado = repo.findById(evento.getId()).get();
+		assertEquals(EstadoEvento.PROCESSADO, processado.getEstado());
+		assertEquals(Integer.valueOf(1), processado.getTentativas());
+	}
+
+	/**
+	 * A limpeza exclui, em lotes, apenas os eventos processados antes do período de retenção. Os 
+	 * eventos recentes e os que falharam são mantidos.
+	 * */
+	@Test
+	public void limpezaExcluiApenasEventosProcessadosAntigos() {
+		Date antigo = new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(8));
+		Date recente = new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(6));
+		Integer[] antigos = new Integer[3];
+		for (int i = 0; i < antigos.length; i++) {
+			antigos[i] = salvar(EstadoEvento.PROCESSADO, antigo);
+		}
+		Integer processadoRecente = salvar(EstadoEvento.PROCESSADO, recente);
+		Integer falhou = salvar(EstadoEvento.FALHOU, antigo);
+
+		dispatcher.limpar();
+
+		for (Integer id : antigos) {
+			assertFalse(repo.existsById(id));
+		}
+		assertTrue(repo.existsById(processadoRecente));
+		assertTrue(repo.existsById(falhou));
+	}
+
+	private Integer salvar(EstadoEvento estado, Date processadoEm) {
+		EventoOutbox evento = new EventoOutbox(null, TipoEvento.PEDIDO_CRIADO, 1, processadoEm);
+		evento.setEstado(estado);
+		evento.setProcessadoEm(processadoEm);
+		return repo.save(evento).getId();
+	}
+
+	@TestConfiguration
+	static class Config {
+		@Bean
+		public ConsumidorDeTeste consumidorDeTeste() {
+			return new ConsumidorDeTeste();
+		}
+	}
+
+	static class ConsumidorDeTeste implements ConsumidorOutbox {
+		private final Set<Integer> falharam = ConcurrentHashMap.newKeySet();
+		private final Set<Integer> processados = ConcurrentHashMap.newKeySet();
+
+		@Override
+		public boolean aceita(TipoEvento tipo) {
+			return tipo == TipoEvento.PEDIDO_CRIADO;
+		}
+
+		@Override
+		public void processar(EventoOutbox evento) {
+			if (falharam.add(evento.getId())) {
+				throw new IllegalStateException("Falha simulada");
+			}
+			processados.add(evento.getId());
+		}
+	}
+}
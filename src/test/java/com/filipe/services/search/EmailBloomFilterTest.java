@@ -0,0 +1,103 @@
+package com.filipe.services.search;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.filipe.dto.FiltroEmailDTO;
+import com.filipe.repositories.ClienteRepository;
+
+/**
+ * Testes do EmailBloomFilter. O repositório é simulado, assim o teste controla os emails lidos da
+ * tabela e quando os emails são adicionados durante a reconstrução.
+ * */
+public class EmailBloomFilterTest {
+
+	private static final int CAPACIDADE = 10000;
+	private static final double TAXA_FALSO_POSITIVO = 0.01;
+
+	private ClienteRepository repo;
+	private EmailBloomFilter filtro;
+
+	@Before
+	public void criarFiltro() {
+		repo = mock(ClienteRepository.class);
+		TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+		when(transactionTemplate.execute(any())).thenAnswer(
+				invocation -> ((TransactionCallback<?>) invocation.getArgument(0)).doInTransaction(null));
+
+		filtro = new EmailBloomFilter();
+		ReflectionTestUtils.setField(filtro, "repo", repo);
+		ReflectionTestUtils.setField(filtro, "transactionTemplate", transactionTemplate);
+		ReflectionTestUtils.setField(filtro, "habilitado", true);
+		ReflectionTestUtils.setField(filtro, "capacidade", (long) CAPACIDADE);
+		ReflectionTestUtils.setField(filtro, "taxaFalsoPositivo", TAXA_FALSO_POSITIVO);
+	}
+
+	/**
+	 * Um email cadastrado durante a leitura da tabela pode não estar na leitura. Ele deve estar no
+	 * novo filtro, senão a verificação deixaria de consultar o banco e aceitaria um email repetido.
+	 * */
+	@Test
+	public void emailsAdicionadosDuranteAReconstrucaoNaoSaoPerdidos() {
+		List<String> naTabela = emails("tabela", 1000);
+		List<String> duranteALeitura = emails("durante", 1000);
+		when(repo.count()).thenReturn((long) naTabela.size());
+		when(repo.streamAllEmails()).thenAnswer(invocation -> naTabela.stream()
+				.peek(email -> filtro.adicionar(duranteALeitura.get(naTabela.indexOf(email)))));
+		filtro.reconstruir();
+
+		/*O banco confirma todos os emails, logo existe() só retorna false quando o filtro não tem o email*/
+		when(repo.existsByEmail(anyString())).thenReturn(true);
+		naTabela.forEach(email -> assertTrue("Falso negativo: " + email, filtro.existe(email)));
+		duranteALeitura.forEach(email -> assertTrue("Falso negativo: " + email, filtro.existe(email)));
+		assertEquals(0, filtro.getEstatisticas().getConsultasSemBanco());
+	}
+
+	/**
+	 * Com a capacidade preenchida, a taxa de falsos positivos medida com emails inexistentes deve
+	 * ficar próxima da taxa estimada pela proporção de bits ligados e da taxa configurada. Metade dos
+	 * emails vem da tabela, a outra metade de clientes cadastrados após a carga, pois o filtro é
+	 * dimensionado para o dobro dos clientes existentes.
+	 * */
+	@Test
+	public void taxaDeFalsosPositivosProximaDaEstimada() {
+		List<String> naTabela = emails("cliente", CAPACIDADE / 2);
+		when(repo.count()).thenReturn((long) naTabela.size());
+		when(repo.streamAllEmails()).thenAnswer(invocation -> naTabela.stream());
+		filtro.reconstruir();
+		emails("novo", CAPACIDADE / 2).forEach(filtro::adicionar);
+		assertEquals(CAPACIDADE, filtro.getEstatisticas().getCapacidade());
+
+		int consultas = 100000;
+		when(repo.existsByEmail(anyString())).thenReturn(false);
+		emails("inexistente", consultas).forEach(filtro::existe);
+
+		FiltroEmailDTO estatisticas = filtro.getEstatisticas();
+		double medida = (double) estatisticas.getFalsosPositivos() / consultas;
+		double estimada = estatisticas.getTaxaFalsoPositivoEstimada();
+		/*Um email cujos bits já estavam todos ligados não é contado, o que ocorre na taxa dos falsos positivos*/
+		assertEquals(CAPACIDADE, estatisticas.getElementos(), CAPACIDADE * TAXA_FALSO_POSITIVO);
+		assertEquals(TAXA_FALSO_POSITIVO, estimada, 0.002);
+		assertEquals(estimada, medida, 0.003);
+	}
+
+	private static List<String> emails(String prefixo, int quantidade) {
+		List<String> emails = new ArrayList<>();
+		IntStream.range(0, quantidade).forEach(i -> emails.add(prefixo + i + "@gmail.com"));
+		return emails;
+	}
+}
@@ -0,0 +1,84 @@
+package com.filipe.services.search;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.BitSet;
+import java.util.stream.Stream;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.filipe.domain.listeners.ProdutoAlteradoEvent;
+import com.filipe.repositories.ProdutoRepository;
+
+/**
+ * Testes da manutenção do ProdutoSearchIndex durante as cargas. O repositório é simulado, assim o
+ * teste controla o que a leitura da tabela retorna e quando os eventos chegam.
+ * */
+public class ProdutoSearchIndexTest {
+
+	private ProdutoRepository repo;
+	private ProdutoSearchIndex index;
+
+	@Before
+	public void criarIndice() {
+		repo = mock(ProdutoRepository.class);
+		TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+		when(transactionTemplate.execute(any())).thenAnswer(
+				invocation -> ((TransactionCallback<?>) invocation.getArgument(0)).doInTransaction(null));
+
+		index = new ProdutoSearchIndex();
+		ReflectionTestUtils.setField(index, "repo", repo);
+		ReflectionTestUtils.setField(index, "transactionTemplate", transactionTemplate);
+	}
+
+	/**
+	 * Um produto alterado após a leitura da tabela, mas antes do fim da carga, não está na leitura.
+	 * O evento da alteração deve ser aplicado ao índice carregado.
+	 * */
+	@Test
+	public void alteracaoDuranteACargaNaoSePerde() {
+		when(repo.streamIdENome()).thenAnswer(invocation -> Stream.of(
+				new Object[] { 1, "Mangueira" },
+				new Object[] { 2, "Regador" })
+				.peek(linha -> {
+					if (linha[0].equals(2)) {
+						index.produtoAlterado(new ProdutoAlteradoEvent(1, "Roçadeira", null, false));
+						index.produtoAlterado(new ProdutoAlteradoEvent(3, "Roçadeira elétrica", null, false));
+					}
+				}));
+
+		assertEquals(bits(1, 3), index.buscar("roca"));
+		assertEquals(new BitSet(), index.buscar("mangueira"));
+		assertEquals(bits(2), index.buscar("regador"));
+	}
+
+	/**
+	 * A reconstrução inclui os produtos alterados diretamente no banco, que não geram eventos.
+	 * */
+	@Test
+	public void reconstrucaoIncluiAlteracoesFeitasForaDaAplicacao() {
+		when(repo.streamIdENome())
+				.thenAnswer(invocation -> Stream.<Object[]>of(new Object[] { 1, "Mangueira" }))
+				.thenAnswer(invocation -> Stream.of(new Object[] { 1, "Mangueira" }, new Object[] { 2, "Mangueira longa" }));
+
+		assertEquals(bits(1), index.buscar("mangueira"));
+
+		index.reconstruirPeriodicamente();
+		assertEquals(bits(1, 2), index.buscar("mangueira"));
+	}
+
+	private static BitSet bits(int... ids) {
+		BitSet bits = new BitSet();
+		for (int id : ids) {
+			bits.set(id);
+		}
+		return bits;
+	}
+}
@@ -0,0 +1,92 @@
+package com.filipe.services.validation.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Testes da validação de CPF e CNPJ. Para um número base qualquer deve existir exatamente um par de
+ * dígitos verificadores válido, o que é conferido com números base aleatórios.
+ * */
+public class BRTest {
+
+	@Test
+	public void documentosConhecidos() {
+		assertTrue(BR.isValidCPF("52998224725"));
+		assertTrue(BR.isValidCNPJ("11222333000181"));
+		assertTrue(BR.isValidCPF("x52998224725".toCharArray(), 1, 11));
+		assertTrue(BR.isValidCNPJ("11222333000181x".toCharArray(), 0, 14));
+
+		assertFalse(BR.isValidCPF("52998224726"));
+		assertFalse(BR.isValidCNPJ("11222333000182"));
+		assertFalse(BR.isValidCPF("529.982.247-25"));
+		assertFalse(BR.isValidCPF("11111111111"));
+		assertFalse(BR.isValidCNPJ("00000000000000"));
+		assertFalse(BR.isValidCPF(null));
+		assertFalse(BR.isValidCPF("5299822472"));
+		assertFalse(BR.isValidCNPJ("11222333000181".toCharArray(), 1, 14));
+	}
+
+	@Test
+	public void umUnicoParDeDigitosVerificadores() {
+		Random random = new Random(19);
+		for (int n = 0; n < 1000; n++) {
+			assertEquals(1, validos(base(random, 9)));
+			assertEquals(1, validos(base(random, 12)));
+		}
+	}
+
+	@Test
+	public void validacaoEmLoteIgualAIndividual() {
+		Random random = new Random(42);
+		String[] docs = new String[100000];
+		for (int i = 0; i < docs.length; i++) {
+			int tamanho = random.nextBoolean() ? 11 : 14;
+			docs[i] = (i % 100 == 0) ? null : documento(random, tamanho, random.nextBoolean());
+		}
+
+		boolean[] esperado = new boolean[docs.length];
+		for (int i = 0; i < docs.length; i++) {
+			esperado[i] = BR.isValidCPFOrCNPJ(docs[i]);
+		}
+		assertArrayEquals(esperado, BR.isValid(docs));
+	}
+
+	/*Quantidade de pares de dígitos verificadores que tornam o número base válido*/
+	private int validos(String base) {
+		int validos = 0;
+		for (int dv = 0; dv < 100; dv++) {
+			if (BR.isValidCPFOrCNPJ(base + (dv / 10) + (dv % 10))) {
+				validos++;
+			}
+		}
+		return validos;
+	}
+
+	/*Documento com dígitos verificadores válidos ou aleatórios, que quase sempre são inválidos*/
+	private String documento(Random random, int tamanho, boolean valido) {
+		String base = base(random, tamanho - 2);
+		if (!valido) {
+			return base + random.nextInt(10) + random.nextInt(10);
+		}
+		for (int dv = 0; ; dv++) {
+			String doc = base + (dv / 10) + (dv % 10);
+			if (BR.isValidCPFOrCNPJ(doc)) {
+				return doc;
+			}
+		}
+	}
+
+	private String base(Random random, int tamanho) {
+		StringBuilder sb = new StringBuilder(tamanho);
+		for (int i = 0; i < tamanho; i++) {
+			sb.append((char) ('0' + random.nextInt(10)));
+		}
+		return sb.toString();
+	}
+}